@@ -0,0 +1,43 @@
+/*
+ * Interacto
+ * Copyright (C) 2020 Arnaud Blouin
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.interacto.fsm;
+
+/**
+ * A drag-and-drop FSM whose pressure is defined by a sub-FSM:
+ * press (sub-FSM), move+, release. A release without move cancels the FSM.
+ */
+class DnDFSM extends FSM<String> {
+	DnDFSM() {
+		super();
+		final FSM<String> pressFSM = new FSM<>();
+		final TerminalState<String> pressEnded = new TerminalState<>(pressFSM, "pressed");
+		pressFSM.addState(pressEnded);
+		new EventTransition(pressFSM.initState, pressEnded, "press");
+
+		final StdState<String> pressed = new StdState<>(this, "pressed");
+		final StdState<String> dragged = new StdState<>(this, "dragged");
+		final TerminalState<String> released = new TerminalState<>(this, "released");
+		final CancellingState<String> cancelled = new CancellingState<>(this, "cancelled");
+		addState(pressed);
+		addState(dragged);
+		addState(released);
+		addState(cancelled);
+		new SubFSMTransition<>(initState, pressed, pressFSM);
+		new EventTransition(pressed, dragged, "move");
+		new EventTransition(pressed, cancelled, "release");
+		new EventTransition(dragged, dragged, "move");
+		new EventTransition(dragged, released, "release");
+	}
+}
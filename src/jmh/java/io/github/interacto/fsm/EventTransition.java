@@ -0,0 +1,46 @@
+/*
+ * Interacto
+ * Copyright (C) 2020 Arnaud Blouin
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.interacto.fsm;
+
+import java.util.Set;
+
+/**
+ * A transition triggered by a given string event.
+ */
+class EventTransition extends Transition<String, String> {
+	private final String eventName;
+	private final Set<Object> acceptedEvents;
+
+	EventTransition(final OutputState<String> srcState, final InputState<String> tgtState, final String eventName) {
+		super(srcState, tgtState);
+		this.eventName = eventName;
+		acceptedEvents = Set.of(eventName);
+	}
+
+	@Override
+	protected String accept(final String event) {
+		return event;
+	}
+
+	@Override
+	protected boolean isGuardOK(final String event) {
+		return eventName.equals(event);
+	}
+
+	@Override
+	public Set<Object> getAcceptedEvents() {
+		return acceptedEvents;
+	}
+}
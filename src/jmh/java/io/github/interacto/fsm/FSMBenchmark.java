@@ -0,0 +1,173 @@
+/*
+ * Interacto
+ * Copyright (C) 2020 Arnaud Blouin
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.interacto.fsm;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the steady-state throughput of representative FSMs.
+ * Each benchmark method processes a complete interaction, so that the FSM goes back to its initial state.
+ * Run with the GC profiler (the default arguments of the benchmark Maven profile) to get the allocation rate.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class FSMBenchmark {
+	/** True: the FSMs use the indexed dispatch of transitions. */
+	@Param({"false", "true"})
+	public boolean indexed;
+
+	ClickFSM click;
+	DoubleClickFSM doubleClick;
+	DnDFSM dnd;
+	ConcurrentFSM<String, TouchFSM> multiTouch;
+	PressTimeoutFSM pressTimeout;
+
+	/**
+	 * Creates the FSMs. Each FSM has a handler, as the FSM of a widget binding.
+	 */
+	@Setup
+	public void setUp() {
+		click = new ClickFSM();
+		doubleClick = new DoubleClickFSM();
+		dnd = new DnDFSM();
+		multiTouch = new ConcurrentFSM<>(Set.of(new TouchFSM(1), new TouchFSM(2)));
+		pressTimeout = new PressTimeoutFSM();
+
+		final FSMHandler handler = new NoOpHandler();
+		click.addHandler(handler);
+		doubleClick.addHandler(handler);
+		dnd.addHandler(handler);
+		multiTouch.addHandler(handler);
+		pressTimeout.addHandler(handler);
+
+		if(indexed) {
+			final Function<String, Object> key = evt -> evt;
+			click.setIndexedDispatch(key);
+			doubleClick.setIndexedDispatch(key);
+			dnd.setIndexedDispatch(key);
+			multiTouch.setIndexedDispatch(key);
+			pressTimeout.setIndexedDispatch(key);
+		}
+	}
+
+	/**
+	 * Releases the FSMs.
+	 */
+	@TearDown
+	public void tearDown() {
+		click.uninstall();
+		doubleClick.uninstall();
+		dnd.uninstall();
+		multiTouch.uninstall();
+		pressTimeout.uninstall();
+	}
+
+	/**
+	 * A click: press, release.
+	 */
+	@Benchmark
+	public void click(final Blackhole bh) {
+		bh.consume(click.process("press"));
+		bh.consume(click.process("release"));
+	}
+
+	/**
+	 * A double-click: two click sub-FSMs.
+	 */
+	@Benchmark
+	public void doubleClick(final Blackhole bh) {
+		bh.consume(doubleClick.process("press"));
+		bh.consume(doubleClick.process("release"));
+		bh.consume(doubleClick.process("press"));
+		bh.consume(doubleClick.process("release"));
+	}
+
+	/**
+	 * A DnD (with a sub-FSM): press, ten moves, release.
+	 */
+	@Benchmark
+	public void dragAndDrop(final Blackhole bh) {
+		bh.consume(dnd.process("press"));
+		for(int i = 0; i < 10; i++) {
+			bh.consume(dnd.process("move"));
+		}
+		bh.consume(dnd.process("release"));
+	}
+
+	/**
+	 * A two-touch interaction processed by a concurrent FSM.
+	 */
+	@Benchmark
+	public void multiTouch(final Blackhole bh) {
+		bh.consume(multiTouch.process("touch1"));
+		bh.consume(multiTouch.process("touch2"));
+		bh.consume(multiTouch.process("move1"));
+		bh.consume(multiTouch.process("move2"));
+		bh.consume(multiTouch.process("move1"));
+		bh.consume(multiTouch.process("move2"));
+		bh.consume(multiTouch.process("release1"));
+		bh.consume(multiTouch.process("release2"));
+	}
+
+	/**
+	 * A press-release whose pressed state has a timeout transition:
+	 * measures the entry in a state that schedules a timeout and its cancellation.
+	 */
+	@Benchmark
+	public void pressWithTimeout(final Blackhole bh) {
+		bh.consume(pressTimeout.process("press"));
+		bh.consume(pressTimeout.process("release"));
+	}
+
+	/**
+	 * A handler that does nothing.
+	 */
+	static final class NoOpHandler implements FSMHandler {
+		@Override
+		public void fsmStarts() {
+		}
+
+		@Override
+		public void fsmUpdates() {
+		}
+
+		@Override
+		public void fsmStops() {
+		}
+
+		@Override
+		public void fsmCancels() {
+		}
+	}
+}
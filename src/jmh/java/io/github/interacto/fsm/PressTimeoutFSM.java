@@ -0,0 +1,34 @@
+/*
+ * Interacto
+ * Copyright (C) 2020 Arnaud Blouin
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.interacto.fsm;
+
+/**
+ * A press-release FSM whose pressed state has a timeout transition (eg a long press):
+ * entering the pressed state schedules a timeout that the release cancels.
+ */
+class PressTimeoutFSM extends FSM<String> {
+	PressTimeoutFSM() {
+		super();
+		final StdState<String> pressed = new StdState<>(this, "pressed");
+		final TerminalState<String> released = new TerminalState<>(this, "released");
+		final TerminalState<String> timeouted = new TerminalState<>(this, "timeouted");
+		addState(pressed);
+		addState(released);
+		addState(timeouted);
+		new EventTransition(initState, pressed, "press");
+		new EventTransition(pressed, released, "release");
+		new TimeoutTransition<>(pressed, timeouted, () -> 10_000L);
+	}
+}
@@ -0,0 +1,34 @@
+/*
+ * Interacto
+ * Copyright (C) 2020 Arnaud Blouin
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.interacto.fsm;
+
+/**
+ * A touch FSM (touch, move+, release) identified by a touch ID, to be used in a multi-touch concurrent FSM.
+ */
+class TouchFSM extends FSM<String> {
+	TouchFSM(final int id) {
+		super();
+		final StdState<String> touched = new StdState<>(this, "touched");
+		final StdState<String> moved = new StdState<>(this, "moved");
+		final TerminalState<String> released = new TerminalState<>(this, "released");
+		addState(touched);
+		addState(moved);
+		addState(released);
+		new EventTransition(initState, touched, "touch" + id);
+		new EventTransition(touched, moved, "move" + id);
+		new EventTransition(moved, moved, "move" + id);
+		new EventTransition(moved, released, "release" + id);
+	}
+}
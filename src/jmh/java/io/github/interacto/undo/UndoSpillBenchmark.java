@@ -0,0 +1,112 @@
+/*
+ * Interacto
+ * Copyright (C) 2020 Arnaud Blouin
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.interacto.undo;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the latency of spilling and rehydrating undo mementos.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class UndoSpillBenchmark {
+	/** The size in bytes of the mementos. */
+	@Param({"1024", "65536", "1048576"})
+	public int mementoSize;
+
+	UndoSpillFile file;
+	byte[] memento;
+	long offset;
+	UndoCollector collector;
+	UndoSpillFile collectorFile;
+
+	/**
+	 * Creates the spill files and the collector.
+	 * @throws IOException If a spill file cannot be created.
+	 */
+	@Setup
+	public void setUp() throws IOException {
+		file = UndoSpillFile.createTempFile();
+		memento = new byte[mementoSize];
+		offset = file.append(memento);
+
+		collectorFile = UndoSpillFile.createTempFile();
+		collector = new UndoCollector();
+		collector.setSpillFile(collectorFile, 1);
+		collector.add(new StubSpillableUndoable(mementoSize));
+		collector.add(new StubSpillableUndoable(mementoSize));
+		collector.add(new StubSpillableUndoable(mementoSize));
+	}
+
+	/**
+	 * Closes the spill files.
+	 * @throws IOException If a file cannot be closed.
+	 */
+	@TearDown
+	public void tearDown() throws IOException {
+		file.close();
+		collectorFile.close();
+	}
+
+	/**
+	 * Writes a memento at the end of the spill file (the record is then released so that the file does not grow).
+	 * @return The offset of the record.
+	 * @throws IOException If the memento cannot be written.
+	 */
+	@Benchmark
+	public long spill() throws IOException {
+		final long off = file.append(memento);
+		file.release(off);
+		return off;
+	}
+
+	/**
+	 * Reads a memento from the spill file.
+	 * @return The read memento.
+	 * @throws IOException If the memento cannot be read.
+	 */
+	@Benchmark
+	public byte[] rehydrate() throws IOException {
+		return file.read(offset);
+	}
+
+	/**
+	 * Undoes (the previous undoable object is rehydrated) then redoes (it is spilled again).
+	 * @return The collector.
+	 */
+	@Benchmark
+	public UndoCollector undoRedoAcrossSpillBoundary() {
+		collector.undo();
+		collector.redo();
+		return collector;
+	}
+}
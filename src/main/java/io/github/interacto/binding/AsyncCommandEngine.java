@@ -0,0 +1,370 @@
+/*
+ * Interacto
+ * Copyright (C) 2020 Arnaud Blouin
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.interacto.binding;
+
+import io.github.interacto.command.Command;
+import io.github.interacto.error.ErrorCatcher;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Executes commands asynchronously (cf. WidgetBindingImpl::setAsync) with a bounded pool of workers.
+ * The workers are virtual threads when the JDK supports them, platform daemon threads otherwise.
+ * The commands are submitted in lanes (eg one lane per widget binding): the commands of a lane are executed
+ * one at a time, in their submission order; the commands of different lanes are executed concurrently.
+ * Cancelling an execution cancels its command (once its execution is over, if running) and skips its completion.
+ */
+public class AsyncCommandEngine {
+	/** The prefix of the names of the worker threads. */
+	public static final String WORKER_THREAD_NAME = "interacto-async-";
+
+	private static AsyncCommandEngine instance = new AsyncCommandEngine();
+
+	/**
+	 * @return The single instance. Cannot be null.
+	 */
+	public static AsyncCommandEngine getInstance() {
+		return instance;
+	}
+
+	/**
+	 * Sets the single instance.
+	 * @param newInstance The new single instance. Nothing done if null.
+	 */
+	public static void setInstance(final AsyncCommandEngine newInstance) {
+		if(newInstance != null) {
+			instance = newInstance;
+		}
+	}
+
+	private final ThreadPoolExecutor executor;
+	private final boolean virtualThreads;
+	/** The lanes that have a command in execution. Guarded by itself. */
+	private final Map<Object, Lane> lanes;
+
+	/**
+	 * Creates an engine with as many workers as available processors (at least 2).
+	 */
+	public AsyncCommandEngine() {
+		this(Math.max(2, Runtime.getRuntime().availableProcessors()));
+	}
+
+	/**
+	 * Creates an engine.
+	 * @param nbWorkers The max number of commands executed concurrently. Must be greater than 0.
+	 * @throws IllegalArgumentException If the number of workers is not valid.
+	 */
+	public AsyncCommandEngine(final int nbWorkers) {
+		super();
+
+		if(nbWorkers <= 0) {
+			throw new IllegalArgumentException("Incorrect number of workers: " + nbWorkers);
+		}
+
+		final ThreadFactory virtualFactory = createVirtualThreadFactory();
+		virtualThreads = virtualFactory != null;
+		executor = new ThreadPoolExecutor(nbWorkers, nbWorkers, 30L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+			virtualThreads ? virtualFactory : createPlatformThreadFactory());
+		executor.allowCoreThreadTimeOut(true);
+		lanes = new IdentityHashMap<>();
+	}
+
+	/**
+	 * @return A factory of virtual threads. Null if the JDK does not support them.
+	 */
+	private static ThreadFactory createVirtualThreadFactory() {
+		try {
+			// Thread.ofVirtual().name(WORKER_THREAD_NAME, 0).factory(): JDK 21+, called by reflection (Java 11 target)
+			final Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+			Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+			builder = builderType.getMethod("name", String.class, long.class).invoke(builder, WORKER_THREAD_NAME, 0L);
+			return (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+		}catch(final ReflectiveOperationException | LinkageError | ClassCastException ex) {
+			return null;
+		}
+	}
+
+	private static ThreadFactory createPlatformThreadFactory() {
+		final AtomicInteger counter = new AtomicInteger();
+		return task -> {
+			final Thread thread = new Thread(task, WORKER_THREAD_NAME + counter.getAndIncrement());
+			thread.setDaemon(true);
+			return thread;
+		};
+	}
+
+	/**
+	 * @return True: the workers are virtual threads.
+	 */
+	public boolean isVirtualThreads() {
+		return virtualThreads;
+	}
+
+	/**
+	 * @return The max number of commands executed concurrently.
+	 */
+	public int getNbWorkers() {
+		return executor.getMaximumPoolSize();
+	}
+
+	/**
+	 * Submits a command to execute in the given lane.
+	 * The command is executed (Command::doIt) once the previous commands of the lane are executed.
+	 * @param lane The lane of the command (eg the widget binding that produced it). Cannot be null.
+	 * @param cmd The command to execute. Cannot be null.
+	 * @param completion Called in the worker thread with the result of the execution, unless cancelled. Can be null.
+	 * @return The execution of the command, for cancelling it.
+	 * @throws IllegalArgumentException If the lane or the command is null.
+	 * @throws RejectedExecutionException If the engine is shut down.
+	 */
+	public Execution submit(final Object lane, final Command cmd, final Consumer<Boolean> completion) {
+		if(lane == null || cmd == null) {
+			throw new IllegalArgumentException("null lane or command");
+		}
+
+		final Execution execution = new Execution(lane, cmd, completion);
+
+		synchronized(lanes) {
+			final Lane current = lanes.get(lane);
+			if(current == null) {
+				final Lane newLane = new Lane();
+				newLane.running = execution;
+				lanes.put(lane, newLane);
+				try {
+					start(execution);
+				}catch(final RejectedExecutionException ex) {
+					lanes.remove(lane);
+					throw ex;
+				}
+			}else {
+				current.waiting.add(execution);
+			}
+		}
+
+		return execution;
+	}
+
+	/**
+	 * Cancels the executions (waiting or running) of the given lane.
+	 * @param lane The lane to cancel.
+	 */
+	public void cancel(final Object lane) {
+		final List<Execution> executions = new ArrayList<>();
+
+		synchronized(lanes) {
+			final Lane current = lanes.get(lane);
+			if(current != null) {
+				executions.addAll(current.waiting);
+				executions.add(current.running);
+			}
+		}
+
+		executions.forEach(Execution::cancel);
+	}
+
+	/**
+	 * @param lane The lane to look at.
+	 * @return The number of commands of the given lane that are running or waiting.
+	 */
+	public int getNbPending(final Object lane) {
+		synchronized(lanes) {
+			final Lane current = lanes.get(lane);
+			return current == null ? 0 : current.waiting.size() + 1;
+		}
+	}
+
+	/**
+	 * Stops the workers. The waiting commands are not executed.
+	 * The engine cannot be used anymore.
+	 */
+	public void shutdown() {
+		executor.shutdownNow();
+		synchronized(lanes) {
+			lanes.clear();
+		}
+	}
+
+	private void start(final Execution execution) {
+		executor.execute(() -> {
+			try {
+				execution.run();
+			}finally {
+				startNext(execution.lane);
+			}
+		});
+	}
+
+	private void startNext(final Object lane) {
+		synchronized(lanes) {
+			final Lane current = lanes.get(lane);
+			if(current == null) {
+				return;
+			}
+
+			Execution next = current.waiting.poll();
+			while(next != null && next.isCancelled()) {
+				next = current.waiting.poll();
+			}
+
+			if(next == null) {
+				lanes.remove(lane);
+			}else {
+				current.running = next;
+				try {
+					start(next);
+				}catch(final RejectedExecutionException ex) {
+					// The engine is shut down
+					lanes.remove(lane);
+				}
+			}
+		}
+	}
+
+	/**
+	 * The commands of a lane.
+	 */
+	private static final class Lane {
+		final Deque<Execution> waiting = new ArrayDeque<>();
+		Execution running;
+	}
+
+	/**
+	 * The asynchronous execution of a command.
+	 */
+	public static final class Execution {
+		private static final int WAITING = 0;
+		private static final int RUNNING = 1;
+		private static final int DONE = 2;
+		private static final int CANCELLED = 3;
+
+		private final Object lane;
+		private final Command cmd;
+		private final Consumer<Boolean> completion;
+		/** Guarded by this. */
+		private int state;
+		/** The worker thread while running. Guarded by this. */
+		private Thread worker;
+
+		Execution(final Object lane, final Command cmd, final Consumer<Boolean> completion) {
+			super();
+			this.lane = lane;
+			this.cmd = cmd;
+			this.completion = completion;
+			state = WAITING;
+		}
+
+		/**
+		 * @return The command to execute.
+		 */
+		public Command getCommand() {
+			return cmd;
+		}
+
+		/**
+		 * Cancels the execution: if waiting, the command will not be executed and is cancelled (Command::cancel) now;
+		 * if running, the worker thread is interrupted and the worker cancels the command once Command::doIt returns,
+		 * so that the command is never cancelled while executed. In both cases, the completion is skipped.
+		 * Nothing done if the execution is done.
+		 * @return True: the execution has been cancelled by this call.
+		 */
+		public boolean cancel() {
+			final boolean waiting;
+			synchronized(this) {
+				if(state != WAITING && state != RUNNING) {
+					return false;
+				}
+				waiting = state == WAITING;
+				if(worker != null) {
+					worker.interrupt();
+				}
+				state = CANCELLED;
+			}
+			if(waiting) {
+				cmd.cancel();
+			}
+			return true;
+		}
+
+		/**
+		 * @return True: the execution has been cancelled.
+		 */
+		public synchronized boolean isCancelled() {
+			return state == CANCELLED;
+		}
+
+		/**
+		 * @return True: the command has been executed and its completion called.
+		 */
+		public synchronized boolean isDone() {
+			return state == DONE;
+		}
+
+		void run() {
+			synchronized(this) {
+				if(state != WAITING) {
+					return;
+				}
+				state = RUNNING;
+				worker = Thread.currentThread();
+			}
+
+			boolean ok = false;
+			try {
+				ok = cmd.doIt();
+			}catch(final Throwable ex) {
+				ErrorCatcher.getInstance().reportError(ex);
+			}finally {
+				synchronized(this) {
+					worker = null;
+					// Clearing a possible interruption not to disturb the next command of the worker
+					Thread.interrupted();
+				}
+			}
+
+			final boolean cancelled;
+			synchronized(this) {
+				cancelled = state != RUNNING;
+				if(!cancelled) {
+					state = DONE;
+				}
+			}
+
+			if(cancelled) {
+				// Cancelled while running: the command is cancelled once its execution is over
+				cmd.cancel();
+				return;
+			}
+
+			if(completion != null) {
+				try {
+					completion.accept(ok);
+				}catch(final Throwable ex) {
+					ErrorCatcher.getInstance().reportError(ex);
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,77 @@
+/*
+ * Interacto
+ * Copyright (C) 2020 Arnaud Blouin
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.interacto.binding;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * The latency histograms of a widget binding (cf. WidgetBindingImpl::setRecordLatencies).
+ */
+public final class BindingLatencies {
+	/**
+	 * The measured steps of a binding.
+	 */
+	public enum Step {
+		/** From the start of the interaction (fsmStarts) to the end of the initialisation of the command (first). */
+		START,
+		/** Each update of the interaction (fsmUpdates), including the continuous executions of the command. */
+		UPDATE,
+		/** Each creation of the command (createCommand). */
+		CMD_CREATION,
+		/** Each execution of the command (doIt). For asynchronous commands, includes the wait in the async engine. */
+		CMD_EXECUTION,
+		/** From the start of the interaction to the end of the processing of the executed command (afterCmdExecuted). */
+		TOTAL
+	}
+
+	private final Map<Step, LatencyHistogram> histograms;
+
+	BindingLatencies() {
+		super();
+		histograms = new EnumMap<>(Step.class);
+		for(final Step step : Step.values()) {
+			histograms.put(step, new LatencyHistogram());
+		}
+	}
+
+	/**
+	 * @param step The step to look for.
+	 * @return The histogram of the given step. Cannot be null.
+	 * @throws IllegalArgumentException If the step is null.
+	 */
+	public LatencyHistogram getHistogram(final Step step) {
+		if(step == null) {
+			throw new IllegalArgumentException();
+		}
+		return histograms.get(step);
+	}
+
+	void record(final Step step, final long startTime) {
+		histograms.get(step).record(System.nanoTime() - startTime);
+	}
+
+	/**
+	 * Removes the recorded values of all the histograms.
+	 */
+	public void reset() {
+		histograms.values().forEach(LatencyHistogram::reset);
+	}
+
+	@Override
+	public String toString() {
+		return "BindingLatencies" + histograms;
+	}
+}
@@ -0,0 +1,169 @@
+/*
+ * Interacto
+ * Copyright (C) 2020 Arnaud Blouin
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.interacto.binding;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A fixed-memory histogram of durations in nanoseconds, with log-linear buckets (HdrHistogram-like):
+ * the values lower than 64 are recorded exactly; beyond, each power of two is split into 32 linear buckets,
+ * so that the relative error of the reported values is at most 1/32 (about 3%).
+ * The values greater than MAX_TRACKABLE_VALUE (about 18 minutes) are recorded in the last bucket.
+ * Recording a value does not allocate. The histogram can be recorded and read from several threads,
+ * but reading while recording may give a slightly inconsistent snapshot.
+ */
+public final class LatencyHistogram {
+	/** The greatest value (in ns) that is tracked with the histogram precision. */
+	public static final long MAX_TRACKABLE_VALUE = (1L << 40) - 1L;
+
+	private static final int SUB_BUCKET_BITS = 5;
+	private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+	private static final int LINEAR_LIMIT = SUB_BUCKET_COUNT << 1;
+	private static final int NB_BUCKETS = indexOf(MAX_TRACKABLE_VALUE) + 1;
+
+	private final AtomicLongArray counts;
+	private final AtomicLong count;
+	private final AtomicLong sum;
+	private final AtomicLong min;
+	private final AtomicLong max;
+
+	/**
+	 * Creates an empty histogram.
+	 */
+	public LatencyHistogram() {
+		super();
+		counts = new AtomicLongArray(NB_BUCKETS);
+		count = new AtomicLong();
+		sum = new AtomicLong();
+		min = new AtomicLong(Long.MAX_VALUE);
+		max = new AtomicLong();
+	}
+
+	private static int indexOf(final long value) {
+		if(value < LINEAR_LIMIT) {
+			return (int) value;
+		}
+		final int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+		return LINEAR_LIMIT + (shift - 1) * SUB_BUCKET_COUNT + (int) ((value >>> shift) - SUB_BUCKET_COUNT);
+	}
+
+	private static long highestValueOf(final int index) {
+		if(index < LINEAR_LIMIT) {
+			return index;
+		}
+		final int shift = (index - LINEAR_LIMIT) / SUB_BUCKET_COUNT + 1;
+		final long mantissa = (index - LINEAR_LIMIT) % SUB_BUCKET_COUNT + SUB_BUCKET_COUNT;
+		return (mantissa << shift) + (1L << shift) - 1L;
+	}
+
+	/**
+	 * Records a duration.
+	 * @param nanos The duration in ns. Negative values are recorded as 0.
+	 */
+	public void record(final long nanos) {
+		final long value = Math.max(0L, nanos);
+		counts.incrementAndGet(indexOf(Math.min(value, MAX_TRACKABLE_VALUE)));
+		count.incrementAndGet();
+		sum.addAndGet(value);
+
+		long current = min.get();
+		while(value < current && !min.compareAndSet(current, value)) {
+			current = min.get();
+		}
+		current = max.get();
+		while(value > current && !max.compareAndSet(current, value)) {
+			current = max.get();
+		}
+	}
+
+	/**
+	 * @return The number of recorded values.
+	 */
+	public long getCount() {
+		return count.get();
+	}
+
+	/**
+	 * @return The lowest recorded value (in ns), or 0 if empty.
+	 */
+	public long getMin() {
+		return getCount() == 0L ? 0L : min.get();
+	}
+
+	/**
+	 * @return The greatest recorded value (in ns), or 0 if empty.
+	 */
+	public long getMax() {
+		return max.get();
+	}
+
+	/**
+	 * @return The mean of the recorded values (in ns), or 0 if empty.
+	 */
+	public double getMean() {
+		final long nb = getCount();
+		return nb == 0L ? 0d : (double) sum.get() / nb;
+	}
+
+	/**
+	 * The returned value is the highest value of the bucket that contains the percentile, bounded by the max value.
+	 * So it may exceed the exact percentile by at most 1/32.
+	 * @param percentile The percentile to compute, between 0 and 100 (eg 99.9).
+	 * @return The value (in ns) below which the given percentage of the recorded values fall, or 0 if empty.
+	 * @throws IllegalArgumentException If the percentile is not between 0 and 100.
+	 */
+	public long getValueAtPercentile(final double percentile) {
+		if(percentile < 0d || percentile > 100d || Double.isNaN(percentile)) {
+			throw new IllegalArgumentException("The percentile must be between 0 and 100: " + percentile);
+		}
+
+		final long nb = getCount();
+		if(nb == 0L) {
+			return 0L;
+		}
+
+		final long rank = Math.max(1L, (long) Math.ceil(percentile / 100d * nb));
+		long cumulated = 0L;
+
+		for(int i = 0; i < NB_BUCKETS; i++) {
+			cumulated += counts.get(i);
+			if(cumulated >= rank) {
+				// The last bucket also contains the values greater than MAX_TRACKABLE_VALUE
+				return i == NB_BUCKETS - 1 ? getMax() : Math.min(highestValueOf(i), getMax());
+			}
+		}
+		return getMax();
+	}
+
+	/**
+	 * Removes all the recorded values.
+	 */
+	public void reset() {
+		for(int i = 0; i < NB_BUCKETS; i++) {
+			counts.set(i, 0L);
+		}
+		count.set(0L);
+		sum.set(0L);
+		min.set(Long.MAX_VALUE);
+		max.set(0L);
+	}
+
+	@Override
+	public String toString() {
+		return "LatencyHistogram{count=" + getCount() + ", min=" + getMin() + ", p50=" + getValueAtPercentile(50d) +
+			", p99=" + getValueAtPercentile(99d) + ", max=" + getMax() + '}';
+	}
+}
@@ -20,11 +20,17 @@ import io.github.interacto.error.ErrorCatcher;
 import io.github.interacto.fsm.CancelFSMException;
 import io.github.interacto.interaction.InteractionData;
 import io.github.interacto.interaction.InteractionImpl;
+import io.github.interacto.interaction.TimerService;
+import io.github.interacto.logging.FlightRecorder;
+import io.github.interacto.logging.InteractoLogger;
 import io.github.interacto.undo.Undoable;
 import io.reactivex.Observable;
 import io.reactivex.subjects.PublishSubject;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
-import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
@@ -34,33 +40,79 @@ import java.util.logging.Logger;
  * @author Arnaud BLOUIN
  */
 public abstract class WidgetBindingImpl<C extends Command, I extends InteractionImpl<D, ?, ?>, D extends InteractionData> implements WidgetBinding<C> {
-	private static Logger logger = Logger.getLogger(WidgetBinding.class.getName());
+	private static InteractoLogger logger = InteractoLogger.of(Logger.getLogger(WidgetBinding.class.getName()));
+
+	/** The java.util.logging logger of the deprecated API (cf. getLogger). */
+	private static Logger julLogger = Logger.getLogger(WidgetBinding.class.getName());
 
 	/**
-	 * Sets the logger to use. Cannot be null.
+	 * Sets the logger to use (cf. InteractoLogger::of to use a java.util.logging logger). Cannot be null.
 	 * Does not change the loggers of existing widget bindings.
 	 * This also sets this logger as the default logger for user interactions.
 	 * @param logger The new logger to use.
 	 */
-	public static void setLogger(final Logger logger) {
+	public static void setInteractoLogger(final InteractoLogger logger) {
 		if(logger != null) {
 			WidgetBindingImpl.logger = logger;
 		}
 	}
 
+	/**
+	 * Sets the java.util.logging logger to use. Cannot be null.
+	 * Equivalent to setInteractoLogger(InteractoLogger.of(logger)).
+	 * @param logger The new logger to use.
+	 * @deprecated Use setInteractoLogger instead.
+	 */
+	@Deprecated
+	public static void setLogger(final Logger logger) {
+		if(logger != null) {
+			julLogger = logger;
+			setInteractoLogger(InteractoLogger.of(logger));
+		}
+	}
+
 	/**
 	 * @return The global logger. Cannot be null.
 	 */
-	public static Logger getLogger() {
+	public static InteractoLogger getInteractoLogger() {
 		return logger;
 	}
 
+	/**
+	 * The java.util.logging logger given to setLogger(Logger), or the default one.
+	 * It is not the logger in use if a facade has been given to setInteractoLogger.
+	 * @return The java.util.logging logger. Cannot be null.
+	 * @deprecated Use getInteractoLogger instead.
+	 */
+	@Deprecated
+	public static Logger getLogger() {
+		return julLogger;
+	}
+
 	protected long timeEnded;
 
 	protected long timeCancelled;
 
+	/** The logger of the binding. Null if the binding does not log. */
+	protected InteractoLogger bindingLogger;
+
+	/** The logger of the commands. Null if the commands are not logged. */
+	protected InteractoLogger cmdLogger;
+
+	/**
+	 * Set and unset alongside bindingLogger for the subclasses that still log with it.
+	 * The binding does not log with it.
+	 * @deprecated Use bindingLogger instead.
+	 */
+	@Deprecated
 	protected Logger loggerBinding;
 
+	/**
+	 * Set and unset alongside cmdLogger for the subclasses that still log with it.
+	 * The binding does not log with it.
+	 * @deprecated Use cmdLogger instead.
+	 */
+	@Deprecated
 	protected Logger loggerCmd;
 
 	protected boolean activated;
@@ -77,6 +129,33 @@ public abstract class WidgetBindingImpl<C extends Command, I extends Interaction
 	/** Defines whether the command must be executed in a specific thread. */
 	protected boolean async;
 
+	/** True: a new command of the binding cancels the asynchronous executions of the previous interaction still in progress. */
+	protected boolean cancelPreviousAsyncCmd;
+
+	/**
+	 * In continuous execution, the min duration in ms between two executions of the command during the interaction.
+	 * No coalescing if lower or equal to 0: the command is executed on each update.
+	 */
+	protected long continuousExecTick;
+
+	/** The time of the last continuous execution of the command (System::nanoTime). */
+	private long lastContinuousExecTime;
+
+	/**
+	 * The asynchronous executions of the previous command of the binding (cf. executeCmdAsync),
+	 * that may still be in progress. Accessed in the UI thread only.
+	 */
+	private final List<AsyncCommandEngine.Execution> previousExecutions;
+
+	/** The scheduled continuous execution of the command (with its latest parameters). Null if none. */
+	private TimerService.ScheduledTimeout pendingContinuousExec;
+
+	/** The latency histograms of the binding. Null if the latencies are not recorded. */
+	protected BindingLatencies latencies;
+
+	/** The start time of the current interaction (System::nanoTime), when the latencies are recorded. */
+	private long interactionStartTime;
+
 	/** A function that produces commands. */
 	protected final Function<D, C> cmdProducer;
 
@@ -108,6 +187,11 @@ public abstract class WidgetBindingImpl<C extends Command, I extends Interaction
 		activated = true;
 		this.interaction.getFsm().addHandler(this);
 		async = false;
+		continuousExecTick = 0L;
+		pendingContinuousExec = null;
+		cancelPreviousAsyncCmd = false;
+		previousExecutions = new ArrayList<>();
+		latencies = null;
 	}
 
 	/**
@@ -116,10 +200,12 @@ public abstract class WidgetBindingImpl<C extends Command, I extends Interaction
 	 */
 	public void logBinding(final boolean log) {
 		if(log) {
-			if(loggerBinding == null) {
-				loggerBinding = logger;
+			if(bindingLogger == null) {
+				bindingLogger = logger;
+				loggerBinding = julLogger;
 			}
 		}else {
+			bindingLogger = null;
 			loggerBinding = null;
 		}
 	}
@@ -130,10 +216,12 @@ public abstract class WidgetBindingImpl<C extends Command, I extends Interaction
 	 */
 	public void logCmd(final boolean log) {
 		if(log) {
-			if(loggerCmd == null) {
-				loggerCmd = logger;
+			if(cmdLogger == null) {
+				cmdLogger = logger;
+				loggerCmd = julLogger;
 			}
 		}else {
+			cmdLogger = null;
 			loggerCmd = null;
 		}
 	}
@@ -156,12 +244,72 @@ public abstract class WidgetBindingImpl<C extends Command, I extends Interaction
 
 	/**
 	 * Sets whether the command must be executed in a specific thread.
+	 * By default, the asynchronous commands are executed by the shared AsyncCommandEngine (cf. executeCmdAsync).
 	 * @param asyncCmd True: the command will be executed asynchronously.
 	 */
 	public void setAsync(final boolean asyncCmd) {
 		async = asyncCmd;
 	}
 
+	/**
+	 * @return True: a new command cancels the asynchronous command of the previous interaction (cf. setCancelPreviousAsyncCmd).
+	 */
+	public boolean isCancelPreviousAsyncCmd() {
+		return cancelPreviousAsyncCmd;
+	}
+
+	/**
+	 * Asynchronous commands are executed once their interaction is over, so cancelling an interaction cannot cancel
+	 * an asynchronous command. With this option, the command of a new interaction supersedes the asynchronous
+	 * command of the previous interaction: the latter is cancelled if still waiting or running (cf. AsyncCommandEngine).
+	 * By default, the asynchronous commands are all executed in their production order.
+	 * @param cancel True: a new command cancels the asynchronous command of the previous interaction.
+	 */
+	public void setCancelPreviousAsyncCmd(final boolean cancel) {
+		cancelPreviousAsyncCmd = cancel;
+	}
+
+	/**
+	 * @return In continuous execution, the min duration in ms between two executions of the command. 0: no coalescing.
+	 */
+	public long getContinuousExecutionTick() {
+		return continuousExecTick;
+	}
+
+	/**
+	 * Sets the coalescing of the continuous execution of the command (cf. isContinuousCmdExec):
+	 * the updates of the interaction always update the command (then), but the command is executed at most once per tick,
+	 * with its latest parameters. An update within a tick schedules the execution at the end of the tick.
+	 * The execution at the end of the interaction is not concerned.
+	 * @param tick The min duration in ms between two executions. Lower or equal to 0: the command is executed on each update.
+	 */
+	public void setContinuousExecutionTick(final long tick) {
+		continuousExecTick = Math.max(0L, tick);
+	}
+
+	/**
+	 * Opt-in timing instrumentation of the binding (start, updates, command creation and execution, full interaction):
+	 * the durations are recorded in fixed-memory histograms (cf. getLatencies).
+	 * @param record True: the latencies are recorded. False: the recording stops and the histograms are removed.
+	 */
+	public void setRecordLatencies(final boolean record) {
+		interactionStartTime = 0L;
+		if(record) {
+			if(latencies == null) {
+				latencies = new BindingLatencies();
+			}
+		}else {
+			latencies = null;
+		}
+	}
+
+	/**
+	 * @return The latency histograms of the binding, if recorded (cf. setRecordLatencies).
+	 */
+	public Optional<BindingLatencies> getLatencies() {
+		return Optional.ofNullable(latencies);
+	}
+
 	@Override
 	public void clearEvents() {
 		interaction.fullReinit();
@@ -262,15 +410,19 @@ public abstract class WidgetBindingImpl<C extends Command, I extends Interaction
 
 	@Override
 	public void fsmCancels() {
+		recordFlight(FlightRecorder.Kind.BINDING_CANCELS, cmd);
+
+		cancelPendingContinuousExec();
+
 		if(cmd != null) {
-			if(loggerBinding != null) {
-				loggerBinding.log(Level.INFO, "Binding cancelled");
+			if(bindingLogger != null) {
+				bindingLogger.info("Binding cancelled");
 			}
 
 			final boolean hadEffects = cmd.hadEffect();
 			cmd.cancel();
-			if(loggerCmd != null) {
-				loggerCmd.log(Level.INFO, "Command cancelled");
+			if(cmdLogger != null) {
+				cmdLogger.info("Command cancelled");
 			}
 			unbindCmdAttributes();
 
@@ -289,8 +441,8 @@ public abstract class WidgetBindingImpl<C extends Command, I extends Interaction
 	private void cancelContinousWithEffectsCmd() {
 		if(cmd instanceof Undoable) {
 			((Undoable) cmd).undo();
-			if(loggerCmd != null) {
-				loggerCmd.log(Level.INFO, "Command undone");
+			if(cmdLogger != null) {
+				cmdLogger.info("Command undone");
 			}
 		}else {
 			throw new MustBeUndoableCmdException(cmd.getClass());
@@ -304,24 +456,32 @@ public abstract class WidgetBindingImpl<C extends Command, I extends Interaction
 			return;
 		}
 
+		recordFlight(FlightRecorder.Kind.BINDING_STARTS, cmd);
+
+		if(latencies != null) {
+			interactionStartTime = System.nanoTime();
+		}
+
 		final boolean ok = when();
 
-		if(loggerBinding != null) {
-			loggerBinding.log(Level.INFO, "Starting binding: " + ok);
+		if(bindingLogger != null) {
+			bindingLogger.info("Starting binding: {}", ok);
 		}
 
 		if(ok) {
-			cmd = createCommand();
+			cmd = createTimedCommand();
 			if(cmd != null) {
+				onNewCmd();
 				first();
-				if(loggerCmd != null) {
-					loggerCmd.log(Level.INFO, "Command created and init: " + cmd);
+				recordLatency(BindingLatencies.Step.START, interactionStartTime);
+				if(cmdLogger != null) {
+					cmdLogger.info("Command created and init: {}", cmd);
 				}
 			}
 		}else {
 			if(isStrictStart()) {
-				if(loggerBinding != null) {
-					loggerBinding.log(Level.INFO, "Cancelling starting interaction: " + interaction);
+				if(bindingLogger != null) {
+					bindingLogger.info("Cancelling starting interaction: {}", interaction);
 				}
 				throw new CancelFSMException();
 			}
@@ -335,32 +495,92 @@ public abstract class WidgetBindingImpl<C extends Command, I extends Interaction
 			return;
 		}
 
-		if(loggerBinding != null) {
-			loggerBinding.log(Level.INFO, "Binding updates");
+		recordFlight(FlightRecorder.Kind.BINDING_UPDATES, cmd);
+
+		if(bindingLogger != null) {
+			bindingLogger.info("Binding updates");
 		}
 
+		final long updateStartTime = latencies == null ? 0L : System.nanoTime();
+
 		if(createAndInitCommand()) {
-			if(loggerCmd != null) {
-				loggerCmd.log(Level.INFO, "Command update");
+			if(cmdLogger != null) {
+				cmdLogger.info("Command update");
 			}
 
 			then();
 
 			if(continuousCmdExec) {
-				if(loggerCmd != null) {
-					loggerCmd.log(Level.INFO, "Try to execute command (continuous execution)");
+				if(continuousExecTick <= 0L) {
+					executeContinuously();
+				}else {
+					coalesceContinuousExec();
 				}
-				final boolean ok = cmd.doIt();
+			}
+		}
 
-				if(loggerCmd != null) {
-					loggerCmd.log(Level.INFO, "Continuous command execution had this result: " + ok);
-				}
+		recordLatency(BindingLatencies.Step.UPDATE, updateStartTime);
+	}
 
-				if(!ok) {
-					ifCannotExecuteCmd();
-				}
-			}
+
+	private void executeContinuously() {
+		if(cmdLogger != null) {
+			cmdLogger.info("Try to execute command (continuous execution)");
+		}
+		final long execStartTime = latencies == null ? 0L : System.nanoTime();
+		final boolean ok = cmd.doIt();
+		recordLatency(BindingLatencies.Step.CMD_EXECUTION, execStartTime);
+
+		if(cmdLogger != null) {
+			cmdLogger.info("Continuous command execution had this result: {}", ok);
+		}
+
+		if(!ok) {
+			ifCannotExecuteCmd();
+		}
+	}
+
+
+	/**
+	 * Executes the command now if the last continuous execution is older than the tick.
+	 * Otherwise, schedules an execution at the end of the tick (if not already scheduled): the command will then be
+	 * executed with its latest parameters.
+	 */
+	private void coalesceContinuousExec() {
+		final long now = System.nanoTime();
+		final long elapsed = TimeUnit.NANOSECONDS.toMillis(now - lastContinuousExecTime);
+
+		if(pendingContinuousExec == null && (lastContinuousExecTime == 0L || elapsed >= continuousExecTick)) {
+			lastContinuousExecTime = now;
+			executeContinuously();
+			return;
+		}
+
+		if(pendingContinuousExec == null) {
+			final C scheduledCmd = cmd;
+			pendingContinuousExec = TimerService.getInstance().schedule(
+				() -> interaction.runInUIThreadBatched(() -> executePendingContinuousExec(scheduledCmd)),
+				continuousExecTick - elapsed);
+		}
+	}
+
+
+	private void executePendingContinuousExec(final C scheduledCmd) {
+		// The interaction may have stopped or been cancelled in the meantime
+		if(pendingContinuousExec != null && cmd == scheduledCmd && cmd != null) {
+			pendingContinuousExec = null;
+			lastContinuousExecTime = System.nanoTime();
+			executeContinuously();
+		}
+	}
+
+
+	private void cancelPendingContinuousExec() {
+		if(pendingContinuousExec != null) {
+			pendingContinuousExec.cancel();
+			pendingContinuousExec = null;
 		}
+		lastContinuousExecTime = 0L;
 	}
 
 
@@ -370,15 +590,19 @@ public abstract class WidgetBindingImpl<C extends Command, I extends Interaction
 			return;
 		}
 
-		if(loggerBinding != null) {
-			loggerBinding.log(Level.INFO, "Binding stops");
+		recordFlight(FlightRecorder.Kind.BINDING_STOPS, cmd);
+
+		if(bindingLogger != null) {
+			bindingLogger.info("Binding stops");
 		}
 
+		cancelPendingContinuousExec();
+
 		if(createAndInitCommand()) {
 			if(!continuousCmdExec) {
 				then();
-				if(loggerCmd != null) {
-					loggerCmd.log(Level.INFO, "Command updated: " + cmd);
+				if(cmdLogger != null) {
+					cmdLogger.info("Command updated: {}", cmd);
 				}
 			}
 
@@ -388,8 +612,8 @@ public abstract class WidgetBindingImpl<C extends Command, I extends Interaction
 			timeEnded++;
 		}else {
 			if(cmd != null) {
-				if(loggerCmd != null) {
-					loggerCmd.log(Level.INFO, "Cancelling the command: " + cmd);
+				if(cmdLogger != null) {
+					cmdLogger.info("Cancelling the command: {}", cmd);
 				}
 				cmd.cancel();
 				unbindCmdAttributes();
@@ -403,19 +627,21 @@ public abstract class WidgetBindingImpl<C extends Command, I extends Interaction
 	protected boolean createAndInitCommand() {
 		boolean ok = when();
 
-		if(loggerBinding != null) {
-			loggerBinding.log(Level.INFO, "when predicate is " + ok);
+		if(bindingLogger != null) {
+			bindingLogger.info("when predicate is {}", ok);
 		}
 
 		if(ok) {
 			if(cmd == null) {
-				if(loggerCmd != null) {
-					loggerCmd.log(Level.INFO, "Command creation");
+				if(cmdLogger != null) {
+					cmdLogger.info("Command creation");
 				}
-				cmd = createCommand();
+				cmd = createTimedCommand();
 				ok = cmd != null;
 				if(ok) {
+					onNewCmd();
 					first();
+					recordLatency(BindingLatencies.Step.START, interactionStartTime);
 				}
 			}
 		}
@@ -428,16 +654,79 @@ public abstract class WidgetBindingImpl<C extends Command, I extends Interaction
 		if(async) {
 			executeCmdAsync(cmd);
 		}else {
-			afterCmdExecuted(cmd, cmd.doIt());
+			final long execStartTime = latencies == null ? 0L : System.nanoTime();
+			final boolean ok = cmd.doIt();
+			recordLatency(BindingLatencies.Step.CMD_EXECUTION, execStartTime);
+			afterCmdExecuted(cmd, ok);
+			recordLatency(BindingLatencies.Step.TOTAL, interactionStartTime);
+		}
+	}
+
+
+	private C createTimedCommand() {
+		final long creationStartTime = latencies == null ? 0L : System.nanoTime();
+		final C created = createCommand();
+		recordLatency(BindingLatencies.Step.CMD_CREATION, creationStartTime);
+		return created;
+	}
+
+
+	private void recordFlight(final FlightRecorder.Kind kind, final C command) {
+		FlightRecorder.getInstance().record(kind, interaction.getFsm(), null, null, this, command == null ? null : command.getStatus());
+	}
+
+
+	private void recordLatency(final BindingLatencies.Step step, final long startTime) {
+		recordLatency(latencies, step, startTime);
+	}
+
+	private static void recordLatency(final BindingLatencies lat, final BindingLatencies.Step step, final long startTime) {
+		// A start time of 0: the recording was activated during the measured step
+		if(lat != null && startTime != 0L) {
+			lat.record(step, startTime);
 		}
 	}
 
-	protected abstract void executeCmdAsync(final Command cmd);
+	/**
+	 * Executes the given command asynchronously using the shared AsyncCommandEngine: the commands of the binding are
+	 * executed in their production order, and afterCmdExecuted is then called in the UI thread
+	 * (cf. InteractionImpl::runInUIThreadBatched). Toolkits can override this method to use their own mechanism.
+	 * @param cmd The command to execute.
+	 */
+	@SuppressWarnings("unchecked")
+	protected void executeCmdAsync(final Command cmd) {
+		final C command = (C) cmd;
+		// The completion runs in a worker thread: it must not read the fields of the binding
+		final BindingLatencies lat = latencies;
+		final long startTime = interactionStartTime;
+		final long execStartTime = lat == null ? 0L : System.nanoTime();
+		final AsyncCommandEngine.Execution execution = AsyncCommandEngine.getInstance().submit(this, cmd, ok -> {
+			recordLatency(lat, BindingLatencies.Step.CMD_EXECUTION, execStartTime);
+			interaction.runInUIThreadBatched(() -> {
+				afterCmdExecuted(command, ok);
+				recordLatency(lat, BindingLatencies.Step.TOTAL, startTime);
+			});
+		});
+		previousExecutions.add(execution);
+	}
+
+	/**
+	 * Called when the command of a new interaction is created: the asynchronous executions of the previous interaction
+	 * are cancelled if the binding is configured so (cf. setCancelPreviousAsyncCmd). They cannot be cancelled afterwards.
+	 */
+	private void onNewCmd() {
+		if(cancelPreviousAsyncCmd) {
+			previousExecutions.forEach(AsyncCommandEngine.Execution::cancel);
+		}
+		previousExecutions.clear();
+	}
 
 
 	protected void afterCmdExecuted(final C cmd, final boolean ok) {
-		if(loggerCmd != null) {
-			loggerCmd.log(Level.INFO, "Command execution had this result: " + ok);
+		recordFlight(FlightRecorder.Kind.CMD_EXECUTED, cmd);
+
+		if(cmdLogger != null) {
+			cmdLogger.info("Command execution had this result: {}", ok);
 		}
 
 		if(ok) {
@@ -458,8 +747,8 @@ public abstract class WidgetBindingImpl<C extends Command, I extends Interaction
 
 		final boolean hadEffect = cmd.hadEffect();
 
-		if(loggerCmd != null) {
-			loggerCmd.log(Level.INFO, "Command execution had effect: " + hadEffect);
+		if(cmdLogger != null) {
+			cmdLogger.info("Command execution had effect: {}", hadEffect);
 		}
 
 		if(hadEffect) {
@@ -481,8 +770,13 @@ public abstract class WidgetBindingImpl<C extends Command, I extends Interaction
 
 	@Override
 	public void uninstallBinding() {
+		previousExecutions.clear();
+		AsyncCommandEngine.getInstance().cancel(this);
+		cancelPendingContinuousExec();
 		setActivated(false);
 		cmdsProduced.onComplete();
+		cmdLogger = null;
+		bindingLogger = null;
 		loggerCmd = null;
 		loggerBinding = null;
 		interaction.uninstall();
@@ -498,8 +792,8 @@ public abstract class WidgetBindingImpl<C extends Command, I extends Interaction
 	public void setActivated(final boolean activated) {
 		this.activated = activated;
 
-		if(loggerBinding != null) {
-			loggerBinding.log(Level.INFO, "Binding Activated: " + activated);
+		if(bindingLogger != null) {
+			bindingLogger.info("Binding Activated: {}", activated);
 		}
 
 		interaction.setActivated(activated);
@@ -14,6 +14,9 @@
  */
 package io.github.interacto.command;
 
+import java.util.Optional;
+import java.util.Set;
+
 /**
  * A command is produced and executed in reaction of a user interaction.
  * It follows the command design pattern.
@@ -79,6 +82,18 @@ public interface Command {
 	 */
 	boolean unregisteredBy(final Command cmd);
 
+	/**
+	 * Declares the types of the commands that may unregister the current command (cf. unregisteredBy).
+	 * The command registry then checks unregisteredBy only when the added command is an instance of one of these types.
+	 * The returned types must not change during the life of the command.
+	 * By default, nothing is declared: unregisteredBy is checked for every added command.
+	 * An empty set means that no command can unregister the current command.
+	 * @return The types of the commands that may unregister the current command. Empty if not declared.
+	 */
+	default Optional<Set<Class<? extends Command>>> getUnregisteringCommandTypes() {
+		return Optional.empty();
+	}
+
 	/**
 	 * Marks the command as "done" and sends it to the cmd registry.
 	 * @since 0.1
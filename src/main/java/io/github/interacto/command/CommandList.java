@@ -0,0 +1,409 @@
+/*
+ * Interacto
+ * Copyright (C) 2020 Arnaud Blouin
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.interacto.command;
+
+import java.util.AbstractList;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * The list of the commands of a command registry.
+ * A doubly linked list indexed by command identity, so that adding a command at the end,
+ * removing a command, and checking whether a command is contained are O(1) operations.
+ * The oldest command that can be evicted from the registry (cf. Command::getRegistrationPolicy) is looked for from the head
+ * of the list: this is an O(1) operation unless older commands cannot be evicted.
+ * The commands are also indexed by the types of the commands that may unregister them
+ * (cf. Command::getUnregisteringCommandTypes), so that unregistering commands does not require to check every command.
+ * These indexes contain the nodes of the list, that are compared by identity as the commands are.
+ * The unregistering types of a command are read when the command is added.
+ * The registration policy of a command is read at eviction time, as it may change once the command is added.
+ * A command cannot be contained twice and null commands are not accepted.
+ * Accessing a command by its index is an O(n) operation.
+ * This list is not thread-safe.
+ */
+class CommandList extends AbstractList<Command> {
+	/** The super types (including itself) of a command type. */
+	private static final ClassValue<List<Class<?>>> SUPER_TYPES = new ClassValue<>() {
+		@Override
+		protected List<Class<?>> computeValue(final Class<?> type) {
+			final Set<Class<?>> types = new LinkedHashSet<>();
+			final Deque<Class<?>> toVisit = new ArrayDeque<>();
+			toVisit.add(type);
+
+			while(!toVisit.isEmpty()) {
+				final Class<?> visited = toVisit.poll();
+				if(types.add(visited)) {
+					if(visited.getSuperclass() != null) {
+						toVisit.add(visited.getSuperclass());
+					}
+					toVisit.addAll(List.of(visited.getInterfaces()));
+				}
+			}
+			return List.copyOf(types);
+		}
+	};
+
+	private final Map<Command, Node> index;
+	/** The nodes of the commands that declared their unregistering types, by unregistering type (in insertion order). */
+	private final Map<Class<?>, Set<Node>> unregisteringIndex;
+	/** The nodes of the commands that did not declare their unregistering types (in insertion order). */
+	private final Set<Node> undeclared;
+	private Node head;
+	private Node tail;
+	/** Identifies the current unregistering command, so that a node indexed by several matching types is checked once. */
+	private int unregistration;
+
+	CommandList() {
+		super();
+		index = new IdentityHashMap<>();
+		unregisteringIndex = new HashMap<>();
+		undeclared = new LinkedHashSet<>();
+	}
+
+	@Override
+	public int size() {
+		return index.size();
+	}
+
+	@Override
+	public boolean contains(final Object o) {
+		return index.containsKey(o);
+	}
+
+	@Override
+	public Command get(final int i) {
+		return node(i).cmd;
+	}
+
+	/**
+	 * Adds the command at the end of the list.
+	 * @param cmd The command to add.
+	 * @return False if the command is already contained.
+	 * @throws NullPointerException If the command is null.
+	 */
+	@Override
+	public boolean add(final Command cmd) {
+		if(contains(checkNotNull(cmd))) {
+			return false;
+		}
+		link(new Node(cmd), null);
+		return true;
+	}
+
+	/**
+	 * Inserts the command at the given position.
+	 * @param i The position of the command.
+	 * @param cmd The command to add.
+	 * @throws NullPointerException If the command is null.
+	 * @throws IllegalArgumentException If the command is already contained.
+	 */
+	@Override
+	public void add(final int i, final Command cmd) {
+		if(i < 0 || i > size()) {
+			throw new IndexOutOfBoundsException(i);
+		}
+		checkNotContained(checkNotNull(cmd));
+		link(new Node(cmd), i == size() ? null : node(i));
+	}
+
+	/**
+	 * Replaces the command at the given position.
+	 * @param i The position of the command to replace.
+	 * @param cmd The new command.
+	 * @return The replaced command.
+	 * @throws NullPointerException If the command is null.
+	 * @throws IllegalArgumentException If the command is contained at another position.
+	 */
+	@Override
+	public Command set(final int i, final Command cmd) {
+		final Node old = node(i);
+		if(old.cmd != checkNotNull(cmd)) {
+			checkNotContained(cmd);
+			link(new Node(cmd), old);
+			unlink(old);
+		}
+		return old.cmd;
+	}
+
+	@Override
+	public Command remove(final int i) {
+		final Node node = node(i);
+		unlink(node);
+		return node.cmd;
+	}
+
+	@Override
+	public boolean remove(final Object o) {
+		final Node node = index.get(o);
+		if(node == null) {
+			return false;
+		}
+		unlink(node);
+		return true;
+	}
+
+	@Override
+	public void clear() {
+		index.clear();
+		unregisteringIndex.clear();
+		undeclared.clear();
+		head = null;
+		tail = null;
+		modCount++;
+	}
+
+	@Override
+	public Iterator<Command> iterator() {
+		return new Iterator<>() {
+			private Node next = head;
+			private Node last;
+			private int expectedModCount = modCount;
+
+			@Override
+			public boolean hasNext() {
+				return next != null;
+			}
+
+			@Override
+			public Command next() {
+				checkModCount();
+				if(next == null) {
+					throw new NoSuchElementException();
+				}
+				last = next;
+				next = next.next;
+				return last.cmd;
+			}
+
+			@Override
+			public void remove() {
+				checkModCount();
+				if(last == null) {
+					throw new IllegalStateException();
+				}
+				unlink(last);
+				last = null;
+				expectedModCount = modCount;
+			}
+
+			private void checkModCount() {
+				if(modCount != expectedModCount) {
+					throw new ConcurrentModificationException();
+				}
+			}
+		};
+	}
+
+	/**
+	 * Removes the oldest command that can be evicted (ie whose current registration policy is not UNLIMITED).
+	 * The commands that cannot be evicted are skipped: this operation is in O(number of skipped commands).
+	 * @return The removed command or null if no command can be evicted.
+	 */
+	Command pollEvictable() {
+		Node node = head;
+		while(node != null && node.cmd.getRegistrationPolicy() == Command.RegistrationPolicy.UNLIMITED) {
+			node = node.next;
+		}
+		if(node == null) {
+			return null;
+		}
+		unlink(node);
+		return node.cmd;
+	}
+
+	/**
+	 * Removes the commands unregistered by the given commands (cf. Command::unregisteredBy).
+	 * Only the commands that declared one of the types of a given command as unregistering type,
+	 * and the commands that did not declare anything, are checked.
+	 * The commands that did not declare anything are checked first, in the order they were added;
+	 * then the commands that declared an unregistering type, type by type, in the order they were added.
+	 * So, when all the commands declared nothing (the default), the commands are checked in the order of the list.
+	 * @param unregistering The commands that may unregister commands. Not null, without null elements.
+	 * @return The removed commands, in the order they were checked.
+	 */
+	List<Command> removeUnregisteredBy(final Collection<Command> unregistering) {
+		List<Node> removed = Collections.emptyList();
+
+		for(final Node node : undeclared) {
+			for(final Command cmd : unregistering) {
+				if(node.cmd.unregisteredBy(cmd)) {
+					removed = markRemoved(node, removed);
+					break;
+				}
+			}
+		}
+		if(!unregisteringIndex.isEmpty()) {
+			for(final Command cmd : unregistering) {
+				unregistration++;
+				for(final Class<?> type : SUPER_TYPES.get(cmd.getClass())) {
+					for(final Node node : unregisteringIndex.getOrDefault(type, Collections.emptySet())) {
+						removed = checkUnregisteredBy(node, cmd, removed);
+					}
+				}
+			}
+		}
+
+		if(removed.isEmpty()) {
+			return Collections.emptyList();
+		}
+		final List<Command> removedCmds = new ArrayList<>(removed.size());
+		for(final Node node : removed) {
+			unlink(node);
+			removedCmds.add(node.cmd);
+		}
+		return removedCmds;
+	}
+
+	/**
+	 * Checks whether the command of the node is unregistered by the given command.
+	 * The nodes are unlinked once all the candidates are checked, so that the indexes are not modified while iterated.
+	 * @return The removed nodes, allocated on the first removed node.
+	 */
+	private List<Node> checkUnregisteredBy(final Node node, final Command cmd, final List<Node> removed) {
+		// A node indexed by several types of the command is checked once per command
+		if(node.removed || node.unregistration == unregistration) {
+			return removed;
+		}
+		node.unregistration = unregistration;
+		return node.cmd.unregisteredBy(cmd) ? markRemoved(node, removed) : removed;
+	}
+
+	private static List<Node> markRemoved(final Node node, final List<Node> removed) {
+		node.removed = true;
+		final List<Node> nodes = removed.isEmpty() ? new ArrayList<>() : removed;
+		nodes.add(node);
+		return nodes;
+	}
+
+	private Node node(final int i) {
+		final int size = size();
+		if(i < 0 || i >= size) {
+			throw new IndexOutOfBoundsException(i);
+		}
+
+		Node node;
+		if(i < size >> 1) {
+			node = head;
+			for(int pos = 0; pos < i; pos++) {
+				node = node.next;
+			}
+		}else {
+			node = tail;
+			for(int pos = size - 1; pos > i; pos--) {
+				node = node.prev;
+			}
+		}
+		return node;
+	}
+
+	/**
+	 * Links the node before the given successor (at the end if null).
+	 */
+	private void link(final Node node, final Node succ) {
+		final Node pred = succ == null ? tail : succ.prev;
+		node.prev = pred;
+		node.next = succ;
+		if(pred == null) {
+			head = node;
+		}else {
+			pred.next = node;
+		}
+		if(succ == null) {
+			tail = node;
+		}else {
+			succ.prev = node;
+		}
+		if(node.unregisteringTypes == null) {
+			undeclared.add(node);
+		}else {
+			for(final Class<?> type : node.unregisteringTypes) {
+				unregisteringIndex.computeIfAbsent(type, t -> new LinkedHashSet<>()).add(node);
+			}
+		}
+		index.put(node.cmd, node);
+		modCount++;
+	}
+
+	private void unlink(final Node node) {
+		if(node.prev == null) {
+			head = node.next;
+		}else {
+			node.prev.next = node.next;
+		}
+		if(node.next == null) {
+			tail = node.prev;
+		}else {
+			node.next.prev = node.prev;
+		}
+		if(node.unregisteringTypes == null) {
+			undeclared.remove(node);
+		}else {
+			for(final Class<?> type : node.unregisteringTypes) {
+				final Set<Node> nodes = unregisteringIndex.get(type);
+				nodes.remove(node);
+				if(nodes.isEmpty()) {
+					unregisteringIndex.remove(type);
+				}
+			}
+		}
+		index.remove(node.cmd);
+		modCount++;
+	}
+
+	private void checkNotContained(final Command cmd) {
+		if(contains(cmd)) {
+			throw new IllegalArgumentException("The command is already contained");
+		}
+	}
+
+	private static Command checkNotNull(final Command cmd) {
+		if(cmd == null) {
+			throw new NullPointerException();
+		}
+		return cmd;
+	}
+
+	/**
+	 * A node of the list. Nodes do not override equals and hashCode: they are compared by identity.
+	 */
+	private static final class Node {
+		final Command cmd;
+		/** The declared unregistering types. Null if not declared. */
+		final Set<Class<? extends Command>> unregisteringTypes;
+		Node prev;
+		Node next;
+		/** The last unregistering command that checked this node. */
+		int unregistration;
+		/** True: the node is being removed by an unregistration. */
+		boolean removed;
+
+		Node(final Command cmd) {
+			this.cmd = cmd;
+			unregisteringTypes = cmd.getUnregisteringCommandTypes().map(Set::copyOf).orElse(null);
+		}
+	}
+}
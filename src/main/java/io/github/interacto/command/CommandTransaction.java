@@ -0,0 +1,113 @@
+/*
+ * Interacto
+ * Copyright (C) 2020 Arnaud Blouin
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.interacto.command;
+
+import java.util.List;
+
+/**
+ * A scope in which the commands added to a command registry are gathered into a single composite command,
+ * registered once when the transaction is committed (cf. CommandsRegistry::beginTransaction).
+ * A transaction only gathers the commands added by the thread that opened it.
+ * Transactions can be nested: the composite command of a nested transaction is added to its enclosing transaction.
+ * Closing a transaction that is still open commits it, so that it can be used in try-with-resources statements.
+ * @author Arnaud Blouin
+ */
+public class CommandTransaction implements AutoCloseable {
+	private final CommandsRegistry registry;
+	/** The enclosing transaction. Null if none. */
+	final CommandTransaction parent;
+	/** The open transactions of the thread that opened the transaction. */
+	final CommandsRegistry.TransactionScope scope;
+	private final CompositeCommand command;
+	private boolean open;
+
+	CommandTransaction(final CommandsRegistry registry, final CommandsRegistry.TransactionScope scope, final String name) {
+		super();
+		this.registry = registry;
+		this.scope = scope;
+		parent = scope.innermost;
+		command = new CompositeCommand(name);
+		open = true;
+	}
+
+	/**
+	 * @return The composite command that gathers the commands of the transaction.
+	 */
+	public CompositeCommand getCommand() {
+		return command;
+	}
+
+	/**
+	 * @return True: the transaction is neither committed nor rolled back.
+	 */
+	public boolean isOpen() {
+		return open;
+	}
+
+	/**
+	 * Ends the transaction: its composite command is marked as done and added to the registry,
+	 * or to the enclosing transaction (the commands it gathered may then unregister registered commands
+	 * in a single pass, cf. Command::unregisteredBy).
+	 * If the transaction gathered no command, or if its composite command must not be registered
+	 * (its registration policy is NONE, ie none of the gathered commands had an effect), the composite command is flushed.
+	 * The open nested transactions are committed first.
+	 * Nothing done if the transaction is not open.
+	 */
+	public void commit() {
+		if(registry.endTransaction(this, true)) {
+			open = false;
+			final List<Command> cmds = command.getCommands();
+
+			if(cmds.isEmpty()) {
+				command.flush();
+				return;
+			}
+
+			command.done();
+			if(command.getRegistrationPolicy() == Command.RegistrationPolicy.NONE) {
+				command.flush();
+			}else {
+				registry.registerTransaction(this);
+			}
+		}
+	}
+
+	/**
+	 * Ends the transaction without registering anything: the undoable gathered commands are undone
+	 * (in reverse order) and all the gathered commands are flushed.
+	 * The open nested transactions are rolled back first.
+	 * Nothing done if the transaction is not open.
+	 */
+	public void rollback() {
+		if(registry.endTransaction(this, false)) {
+			open = false;
+			command.undo();
+			command.flush();
+		}
+	}
+
+	/**
+	 * Commits the transaction if it is still open.
+	 */
+	@Override
+	public void close() {
+		commit();
+	}
+
+	@Override
+	public String toString() {
+		return "CommandTransaction{" + command.getName() + '}';
+	}
+}
@@ -19,23 +19,38 @@ import io.github.interacto.undo.Undoable;
 import io.reactivex.Observable;
 import io.reactivex.subjects.PublishSubject;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.WeakHashMap;
 
 /**
  * A register of commands.
  * This is a singleton. It automatically collects the executed commands when the command is executed by an instrument.
  * The register has a limited size that can be changed.
+ * Adding and removing a command are O(1) operations. Evicting a command is O(1) unless older commands cannot be evicted.
+ * The commands added during a transaction (cf. beginTransaction) are gathered into a single composite command
+ * registered when the transaction is committed. Transactions are confined to the thread that opens them.
  * @author Arnaud Blouin
  */
 public class CommandsRegistry {
 	/** The singleton. */
 	private static CommandsRegistry instance = new CommandsRegistry();
 
-	/** The saved commands. */
-	private final List<Command> cmds;
+	/** The saved commands, in their registration order. */
+	private final CommandList cmds;
 	/** The max number of cleanable commands (cf. Command::getRegistrationPolicy) that can contain the register. */
 	private int sizeMax;
 	private final PublishSubject<Command> cmdPublisher;
+	/** The transaction scope of each thread that opened a transaction. Does not retain the threads. */
+	private final ThreadLocal<TransactionScope> transactions;
+	/**
+	 * The scopes that contain an open transaction. Guarded by cmds.
+	 * Weak: the scope of a dead thread (and its transactions that were never closed) can be collected.
+	 */
+	private final Set<TransactionScope> openScopes;
 
 	/**
 	 * @return The single instance. Cannot be null.
@@ -59,9 +74,11 @@ public class CommandsRegistry {
 	 */
 	public CommandsRegistry() {
 		super();
-		cmds = new ArrayList<>();
+		cmds = new CommandList();
 		sizeMax = 50;
 		cmdPublisher = PublishSubject.create();
+		transactions = new ThreadLocal<>();
+		openScopes = Collections.newSetFromMap(new WeakHashMap<>());
 	}
 
 	/**
@@ -73,7 +90,8 @@ public class CommandsRegistry {
 
 
 	/**
-	 * @return The stored commands. Cannot be null. Because of concurrency, you should not modify this list.
+	 * Accessing a command of this list by its index is an O(n) operation: prefer iterating over the list.
+	 * @return The stored commands in their registration order. Cannot be null. Because of concurrency, you should not modify this list.
 	 */
 	public List<Command> getCommands() {
 		return cmds;
@@ -82,6 +100,10 @@ public class CommandsRegistry {
 
 	/**
 	 * Removes and flushes the commands from the register that use the given command type.
+	 * Only the commands that declared the type of the given command (or did not declare anything)
+	 * as unregistering type are checked (cf. Command::getUnregisteringCommandTypes).
+	 * The commands that did not declare anything are checked before the commands that declared unregistering types.
+	 * The removed commands are flushed once all the candidates are checked.
 	 * @see Command ::unregisteredBy
 	 * @param cmd The command that may cancels others.
 	 */
@@ -90,16 +112,15 @@ public class CommandsRegistry {
 			return;
 		}
 
-		int i = 0;
-
 		synchronized(cmds) {
-			while(i < cmds.size()) {
-				if(cmds.get(i).unregisteredBy(cmd)) {
-					cmds.remove(i).flush();
-				}else {
-					i++;
-				}
-			}
+			unregisterCommands(List.of(cmd));
+		}
+	}
+
+
+	private void unregisterCommands(final Collection<Command> unregistering) {
+		for(final Command registered : cmds.removeUnregisteredBy(unregistering)) {
+			registered.flush();
 		}
 	}
 
@@ -108,36 +129,89 @@ public class CommandsRegistry {
 	 * Adds a command to the register. Before being added, the given command is used to cancel commands
 	 * already added. Handlers are notified of the add of the given command. If Undoable, the cmd is
 	 * added to the undo collector as well.
+	 * If the calling thread opened a transaction, the command is added to the transaction instead
+	 * (the commands that the register would not accept are not added to the transaction either).
 	 * @param cmd The command to add. If null, nothing is done.
 	 */
 	public void addCommand(final Command cmd) {
 		synchronized(cmds) {
-			if(cmd != null && !cmds.contains(cmd) &&
-				(sizeMax > 0 || cmd.getRegistrationPolicy() == Command.RegistrationPolicy.UNLIMITED)) {
-				unregisterCommand(cmd);
-
-				// If there is too many commands in the register, the oldest removable command is removed and flushed.
-				if(cmds.size() >= sizeMax) {
-					cmds.stream()
-						.filter(command -> command.getRegistrationPolicy() != Command.RegistrationPolicy.UNLIMITED)
-						.findFirst()
-						.ifPresent(command -> {
-							cmds.remove(command);
-							command.flush();
-						});
+			if(isRegistrable(cmd)) {
+				final CommandTransaction tx = getInnermostTransaction();
+				if(tx == null) {
+					register(cmd, List.of(cmd));
+				}else {
+					tx.getCommand().add(cmd);
 				}
+			}
+		}
+	}
+
+
+	private boolean isRegistrable(final Command cmd) {
+		return cmd != null && !cmds.contains(cmd) &&
+			(sizeMax > 0 || cmd.getRegistrationPolicy() == Command.RegistrationPolicy.UNLIMITED);
+	}
+
+
+	/**
+	 * Registers the given command, once the commands unregistered by the given unregistering commands are removed.
+	 * Guarded by cmds.
+	 */
+	private void register(final Command cmd, final Collection<Command> unregistering) {
+		unregisterCommands(unregistering);
 
-				cmds.add(cmd);
-				cmdPublisher.onNext(cmd);
+		// If there is too many commands in the register, the oldest removable command is removed and flushed.
+		if(cmds.size() >= sizeMax) {
+			final Command evicted = cmds.pollEvictable();
+			if(evicted != null) {
+				evicted.flush();
+			}
+		}
+
+		cmds.add(cmd);
+		cmdPublisher.onNext(cmd);
+
+		if(cmd instanceof Undoable) {
+			UndoCollector.getInstance().add((Undoable) cmd);
+		}
+	}
 
-				if(cmd instanceof Undoable) {
-					UndoCollector.getInstance().add((Undoable) cmd);
+
+	/**
+	 * Registers the composite command of a committed transaction: into the enclosing transaction if any.
+	 * Otherwise, the registered commands are unregistered in a single pass by the commands the transaction gathered.
+	 * @param tx The committed transaction.
+	 */
+	void registerTransaction(final CommandTransaction tx) {
+		synchronized(cmds) {
+			final CompositeCommand cmd = tx.getCommand();
+			if(isRegistrable(cmd)) {
+				if(tx.parent == null) {
+					final List<Command> gathered = new ArrayList<>();
+					gatherLeaves(cmd, gathered);
+					register(cmd, gathered);
+				}else {
+					tx.parent.getCommand().add(cmd);
 				}
 			}
 		}
 	}
 
 
+	/**
+	 * The composite commands of nested transactions do not unregister commands: their sub-commands do.
+	 */
+	private static void gatherLeaves(final CompositeCommand composite, final List<Command> leaves) {
+		for(final Command cmd : composite.getCommands()) {
+			if(cmd instanceof CompositeCommand) {
+				gatherLeaves((CompositeCommand) cmd, leaves);
+			}else {
+				leaves.add(cmd);
+			}
+		}
+	}
+
+
 	/**
 	 * Removes the command from the register. The cmd is then flushed.
 	 * @param cmd The command to remove.
@@ -145,6 +219,7 @@ public class CommandsRegistry {
 	public void removeCommand(final Command cmd) {
 		if(cmd != null) {
 			synchronized(cmds) {
+				removeFromTransactions(cmd);
 				cmds.remove(cmd);
 			}
 			cmd.flush();
@@ -172,6 +247,7 @@ public class CommandsRegistry {
 		if(cmd != null) {
 			cmd.cancel();
 			synchronized(cmds) {
+				removeFromTransactions(cmd);
 				cmds.remove(cmd);
 			}
 			cmd.flush();
@@ -179,6 +255,89 @@ public class CommandsRegistry {
 	}
 
 
+	/**
+	 * Opens a transaction: until the transaction is committed or rolled back, the commands added to the registry
+	 * by the calling thread are gathered into a composite command, which is registered (and added to the undo collector)
+	 * once at commit. This avoids the registration cost (unregistration, eviction, notifications, undo collector)
+	 * of each command. The commands added by other threads (for example, commands executed asynchronously)
+	 * are not gathered: they are registered as usual.
+	 * If the calling thread already opened a transaction, the new transaction is nested in it.
+	 * @param name The name of the composite command of the transaction (cf. CompositeCommand). Can be null.
+	 * @return The open transaction.
+	 */
+	public CommandTransaction beginTransaction(final String name) {
+		synchronized(cmds) {
+			TransactionScope scope = transactions.get();
+			if(scope == null) {
+				scope = new TransactionScope();
+				transactions.set(scope);
+			}
+			final CommandTransaction tx = new CommandTransaction(this, scope, name);
+			scope.innermost = tx;
+			openScopes.add(scope);
+			return tx;
+		}
+	}
+
+
+	/**
+	 * @return The innermost open transaction of the calling thread, if any.
+	 */
+	public Optional<CommandTransaction> getTransaction() {
+		synchronized(cmds) {
+			return Optional.ofNullable(getInnermostTransaction());
+		}
+	}
+
+
+	/**
+	 * @return The innermost open transaction of the calling thread, or null. Must be called while holding cmds.
+	 */
+	private CommandTransaction getInnermostTransaction() {
+		final TransactionScope scope = transactions.get();
+		return scope == null ? null : scope.innermost;
+	}
+
+
+	/**
+	 * Closes the given transaction and its open nested transactions.
+	 * @param tx The transaction to close.
+	 * @param commit True: the nested transactions are committed. False: they are rolled back.
+	 * @return False: the transaction is not open.
+	 */
+	boolean endTransaction(final CommandTransaction tx, final boolean commit) {
+		synchronized(cmds) {
+			if(!tx.isOpen()) {
+				return false;
+			}
+
+			CommandTransaction nested = tx.scope.innermost;
+			while(nested != tx && nested != null) {
+				if(commit) {
+					nested.commit();
+				}else {
+					nested.rollback();
+				}
+				nested = tx.scope.innermost;
+			}
+			tx.scope.innermost = tx.parent;
+			if(tx.parent == null) {
+				openScopes.remove(tx.scope);
+			}
+			return true;
+		}
+	}
+
+
+	private void removeFromTransactions(final Command cmd) {
+		for(final TransactionScope scope : openScopes) {
+			for(CommandTransaction tx = scope.innermost; tx != null; tx = tx.parent) {
+				tx.getCommand().remove(cmd);
+			}
+		}
+	}
+
+
 	/**
 	 * @return The maximal number of commands that the register can contain.
 	 */
@@ -197,20 +356,24 @@ public class CommandsRegistry {
 	public void setSizeMax(final int newSizeMax) {
 		if(newSizeMax >= 0) {
 			synchronized(cmds) {
-				int i = 0;
-				int nb = 0;
-				final int toRemove = cmds.size() - newSizeMax;
-
-				while(nb < toRemove && i < cmds.size()) {
-					if(cmds.get(i).getRegistrationPolicy() != Command.RegistrationPolicy.UNLIMITED) {
-						cmds.remove(i).flush();
-						nb++;
-					}else {
-						i++;
-					}
+				Command evicted = cmds.size() > newSizeMax ? cmds.pollEvictable() : null;
+
+				while(evicted != null) {
+					evicted.flush();
+					evicted = cmds.size() > newSizeMax ? cmds.pollEvictable() : null;
 				}
 			}
 			sizeMax = newSizeMax;
 		}
 	}
+
+
+	/**
+	 * The open transactions of a thread. The transactions refer to their scope rather than to their thread,
+	 * so that no thread is retained by the registry.
+	 */
+	static final class TransactionScope {
+		/** The innermost open transaction of the thread. Null if none. Guarded by the commands of the registry. */
+		CommandTransaction innermost;
+	}
 }
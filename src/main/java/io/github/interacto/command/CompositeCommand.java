@@ -0,0 +1,187 @@
+/*
+ * Interacto
+ * Copyright (C) 2020 Arnaud Blouin
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.interacto.command;
+
+import io.github.interacto.undo.Undoable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Optional;
+import java.util.ResourceBundle;
+import java.util.Set;
+
+/**
+ * A command composed of other commands, registered (in the command registry and in the undo collector) as a single command.
+ * Executing the composite command executes its sub-commands in their order.
+ * Undoing (resp. redoing) it undoes (resp. redoes) its undoable sub-commands in reverse (resp. forward) order:
+ * the sub-commands that are not undoable are skipped.
+ * A composite command is not unregistered by other commands.
+ * Composite commands are notably produced by transactions (cf. CommandsRegistry::beginTransaction).
+ * @author Arnaud Blouin
+ */
+public class CompositeCommand extends CommandImpl implements Undoable {
+	private final String name;
+	private final List<Command> commands;
+	/** The sub-commands, for O(1) look-ups. */
+	private final Set<Command> commandSet;
+
+	/**
+	 * Creates an empty composite command.
+	 * @param name The name of the command, used as undo name. Can be null.
+	 */
+	public CompositeCommand(final String name) {
+		super();
+		this.name = name;
+		commands = new ArrayList<>();
+		commandSet = Collections.newSetFromMap(new IdentityHashMap<>());
+	}
+
+	/**
+	 * Adds a sub-command.
+	 * @param cmd The command to add. Nothing done if null, if already added, or if the current command is the given one.
+	 */
+	public void add(final Command cmd) {
+		if(cmd != null && cmd != this && commandSet.add(cmd)) {
+			commands.add(cmd);
+		}
+	}
+
+	/**
+	 * Removes a sub-command.
+	 * @param cmd The command to remove.
+	 * @return True: the command was a sub-command.
+	 */
+	public boolean remove(final Command cmd) {
+		if(!commandSet.remove(cmd)) {
+			return false;
+		}
+		for(int i = commands.size() - 1; i >= 0; i--) {
+			if(commands.get(i) == cmd) {
+				commands.remove(i);
+				break;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return The sub-commands in their execution order. Cannot be modified.
+	 */
+	public List<Command> getCommands() {
+		return Collections.unmodifiableList(commands);
+	}
+
+	/**
+	 * @return The name of the command. Can be null.
+	 */
+	public String getName() {
+		return name;
+	}
+
+	@Override
+	public boolean canDo() {
+		return !commands.isEmpty() && commands.stream().allMatch(cmd -> cmd.canDo());
+	}
+
+	@Override
+	protected void doCmdBody() {
+		commands.forEach(cmd -> cmd.doIt());
+	}
+
+	/**
+	 * @return True: the command is done and one of its sub-commands had effects.
+	 */
+	@Override
+	public boolean hadEffect() {
+		return isDone() && commands.stream().anyMatch(cmd -> cmd.hadEffect());
+	}
+
+	/**
+	 * @return NONE if the command had no effect. UNLIMITED if one of the sub-commands is UNLIMITED. LIMITED otherwise.
+	 */
+	@Override
+	public RegistrationPolicy getRegistrationPolicy() {
+		if(!hadEffect()) {
+			return RegistrationPolicy.NONE;
+		}
+		return commands.stream().anyMatch(cmd -> cmd.getRegistrationPolicy() == RegistrationPolicy.UNLIMITED) ?
+			RegistrationPolicy.UNLIMITED : RegistrationPolicy.LIMITED;
+	}
+
+	@Override
+	public Optional<Set<Class<? extends Command>>> getUnregisteringCommandTypes() {
+		return Optional.of(Set.of());
+	}
+
+	/**
+	 * Flushes the command and its sub-commands.
+	 */
+	@Override
+	public void flush() {
+		super.flush();
+		commands.forEach(cmd -> cmd.flush());
+	}
+
+	@Override
+	public void undo() {
+		for(int i = commands.size() - 1; i >= 0; i--) {
+			final Command cmd = commands.get(i);
+			if(cmd instanceof Undoable) {
+				((Undoable) cmd).undo();
+			}
+		}
+	}
+
+	@Override
+	public void redo() {
+		for(final Command cmd : commands) {
+			if(cmd instanceof Undoable) {
+				((Undoable) cmd).redo();
+			}
+		}
+	}
+
+	/**
+	 * @return The name of the command if not null. The undo name of the last undoable sub-command otherwise.
+	 */
+	@Override
+	public String getUndoName(final ResourceBundle bundle) {
+		if(name != null) {
+			return name;
+		}
+		for(int i = commands.size() - 1; i >= 0; i--) {
+			final Command cmd = commands.get(i);
+			if(cmd instanceof Undoable) {
+				return ((Undoable) cmd).getUndoName(bundle);
+			}
+		}
+		return toString();
+	}
+
+	/**
+	 * @return The sum of the retained sizes of the undoable sub-commands.
+	 */
+	@Override
+	public long getRetainedSize() {
+		long size = 0L;
+		for(final Command cmd : commands) {
+			if(cmd instanceof Undoable) {
+				size += ((Undoable) cmd).getRetainedSize();
+			}
+		}
+		return size;
+	}
+}
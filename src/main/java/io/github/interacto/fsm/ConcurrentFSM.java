@@ -18,6 +18,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Set;
+import java.util.function.Function;
 
 /**
  * A concurrent FSM: an FSM that contains multiple FSMs that run concurrently.
@@ -74,8 +75,8 @@ public class ConcurrentFSM<E, F extends FSM<E>> extends FSM<E> {
 
 	@Override
 	public boolean process(final E event) {
-		for(final F conccurFSM : conccurFSMs) {
-			if(conccurFSM.process(event)) {
+		for(int i = 0, size = conccurFSMs.size(); i < size; i++) {
+			if(conccurFSMs.get(i).process(event)) {
 				return true;
 			}
 		}
@@ -84,7 +85,19 @@ public class ConcurrentFSM<E, F extends FSM<E>> extends FSM<E> {
 
 	@Override
 	public boolean isStarted() {
-		return conccurFSMs.stream().allMatch(fsm -> fsm.isStarted());
+		// Indexed loop: called on every start of a sub-FSM, so no stream nor iterator here.
+		for(int i = 0, size = conccurFSMs.size(); i < size; i++) {
+			if(!conccurFSMs.get(i).isStarted()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public void setIndexedDispatch(final Function<? super E, ?> keyFunction) {
+		super.setIndexedDispatch(keyFunction);
+		conccurFSMs.forEach(fsm -> fsm.setIndexedDispatch(keyFunction));
 	}
 
 	@Override
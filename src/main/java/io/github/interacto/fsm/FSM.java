@@ -14,15 +14,17 @@
  */
 package io.github.interacto.fsm;
 
+import io.github.interacto.logging.FlightRecorder;
+import io.github.interacto.logging.InteractoLogger;
 import io.reactivex.Observable;
 import io.reactivex.subjects.PublishSubject;
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.logging.Level;
+import java.util.function.Function;
 import java.util.logging.Logger;
 
 /**
@@ -30,6 +32,14 @@ import java.util.logging.Logger;
  * @param <E> The type of events the FSM processes.
  */
 public class FSM<E> {
+	/** The logger of the FSM. Null if the FSM does not log. */
+	protected InteractoLogger fsmLogger;
+	/**
+	 * Set and unset alongside fsmLogger for the subclasses that still log with it.
+	 * The FSM does not log with it.
+	 * @deprecated Use fsmLogger instead.
+	 */
+	@Deprecated
 	protected Logger logger;
 	protected boolean inner;
 	/**
@@ -45,20 +55,38 @@ public class FSM<E> {
 	protected boolean started;
 	protected final InitState<E> initState;
 	protected OutputState<E> currentState;
+	/** Produces an entry on each change of the current state, only if it has observers (see FSM::currentState). */
 	protected final PublishSubject<Map.Entry<OutputState<E>, OutputState<E>>> currentStatePublisher;
+	/** The listeners of the current state. Copied on each modification, so that notifying them allocates nothing. */
+	private StateChangeListener<E>[] stateListeners;
 	/** The states that compose the finite state machine. */
 	protected final Set<State<E>> states;
 	/** The handler that want to be notified when the state machine of the interaction changed. */
 	protected final Set<FSMHandler> handlers;
+	/** A copy of the handlers to notify, so that notifying them allocates nothing (cf. getHandlerSnapshot). */
+	private FSMHandler[] handlerSnapshot;
 	/**
 	 * The events still in process. For example when the user press key ctrl and scroll one time using the wheel of the mouse, the interaction scrolling is
 	 * finished but the event keyPressed 'ctrl' is still in process. At the end of the interaction, these events are re-introduced into the
 	 * state machine of the interaction for processing.
+	 * Must be used while holding its lock.
+	 */
+	protected final RingBuffer<E> remainingEvents;
+	/**
+	 * A list view of remainingEvents (cf. RingBuffer::asList), kept for the subclasses that use the former list.
+	 * Like remainingEvents, it must be used while holding the lock of remainingEvents.
+	 * @deprecated Use remainingEvents instead.
 	 */
+	@Deprecated
 	protected final List<E> eventsToProcess;
 	/** The current timeout in progress. */
 	protected TimeoutTransition<E> currentTimeout;
 	protected FSM<E> currentSubFSM;
+	/**
+	 * The function that computes the dispatch key of the events to process.
+	 * Null when the states of the FSM evaluate all their transitions for each event.
+	 */
+	protected Function<? super E, ?> dispatchKey;
 
 
 	/**
@@ -66,7 +94,8 @@ public class FSM<E> {
 	 */
 	public FSM() {
 		super();
-		eventsToProcess = new ArrayList<>();
+		remainingEvents = new RingBuffer<>();
+		eventsToProcess = remainingEvents.asList();
 		started = false;
 		initState = new InitState<>(this, "init");
 		states = new HashSet<>();
@@ -74,8 +103,10 @@ public class FSM<E> {
 		startingState = initState;
 		currentState = initState;
 		currentStatePublisher = PublishSubject.create();
+		stateListeners = newListenerArray(0);
 		inner = false;
 		handlers = new HashSet<>(2);
+		handlerSnapshot = new FSMHandler[0];
 	}
 
 	/**
@@ -86,12 +117,47 @@ public class FSM<E> {
 	}
 
 	/**
+	 * Each change produces an entry only if the observable has observers.
+	 * Prefer FSM::addStateChangeListener in performance-sensitive code.
 	 * @return An observable value for observing the current state of FSM during its execution.
 	 */
 	public Observable<Map.Entry<OutputState<E>, OutputState<E>>> currentState() {
 		return currentStatePublisher;
 	}
 
+	/**
+	 * Adds a listener notified each time the current state of the FSM changes.
+	 * @param listener The listener to add. Nothing done if null.
+	 */
+	public void addStateChangeListener(final StateChangeListener<E> listener) {
+		if(listener != null) {
+			final StateChangeListener<E>[] listeners = Arrays.copyOf(stateListeners, stateListeners.length + 1);
+			listeners[stateListeners.length] = listener;
+			stateListeners = listeners;
+		}
+	}
+
+	/**
+	 * Removes the given state change listener.
+	 * @param listener The listener to remove. Nothing done if null or not registered.
+	 */
+	public void removeStateChangeListener(final StateChangeListener<E> listener) {
+		for(int i = 0; i < stateListeners.length; i++) {
+			if(stateListeners[i] == listener) {
+				final StateChangeListener<E>[] listeners = newListenerArray(stateListeners.length - 1);
+				System.arraycopy(stateListeners, 0, listeners, 0, i);
+				System.arraycopy(stateListeners, i + 1, listeners, i, listeners.length - i);
+				stateListeners = listeners;
+				return;
+			}
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private StateChangeListener<E>[] newListenerArray(final int size) {
+		return (StateChangeListener<E>[]) new StateChangeListener<?>[size];
+	}
+
 	/**
 	 * States whether the FSM is an inner FSM (ie, whether it is included into another FSM as
 	 * a sub-FSM transition).
@@ -108,6 +174,40 @@ public class FSM<E> {
 		return inner;
 	}
 
+	/**
+	 * Activates (or not) the indexed dispatch of the events.
+	 * When activated, each state indexes its transitions on the events they accept (see Transition::getAcceptedEvents)
+	 * so that only the transitions that match the key of an incoming event are evaluated.
+	 * The key of an event is computed using the given function: it must produce the same kind of objects
+	 * as the accepted events of the transitions (eg the class or the type of the event).
+	 * When the key is a class, transitions that accept one of its super types match as well.
+	 * Transitions that do not declare any accepted event are always evaluated.
+	 * The setting is propagated to the sub-FSMs of the FSM (cf. SubFSMTransition).
+	 * @param keyFunction The function that computes the dispatch key of an event.
+	 * 				If null, the indexed dispatch is deactivated and every transition is evaluated.
+	 */
+	@SuppressWarnings("unchecked")
+	public void setIndexedDispatch(final Function<? super E, ?> keyFunction) {
+		dispatchKey = keyFunction;
+
+		for(final State<E> state : states) {
+			if(state instanceof OutputState) {
+				for(final Transition<? extends E, E> tr : ((OutputState<E>) state).getTransitions()) {
+					if(tr instanceof SubFSMTransition) {
+						((SubFSMTransition<E>) tr).getSubFSM().setIndexedDispatch(keyFunction);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return The function that computes the dispatch key of the events, or null if the indexed dispatch is not used.
+	 */
+	public Function<? super E, ?> getIndexedDispatch() {
+		return dispatchKey;
+	}
+
 	/**
 	 * Processes the provided event to run the FSM.
 	 * @param event The event to process.
@@ -141,26 +241,28 @@ public class FSM<E> {
 	protected void setCurrentState(final OutputState<E> state) {
 		final var old = currentState;
 		currentState = state;
-		currentStatePublisher.onNext(Map.entry(old, currentState));
+		FlightRecorder.getInstance().record(FlightRecorder.Kind.STATE_CHANGE, this, old, state, null, null);
+		for(final StateChangeListener<E> listener : stateListeners) {
+			listener.onStateChanged(old, state);
+		}
+		if(currentStatePublisher.hasObservers()) {
+			currentStatePublisher.onNext(Map.entry(old, state));
+		}
 	}
 
 	/**
 	 * At the end of the FSM execution, the events still (eg keyPress) in process must be recycled to be reused in the FSM.
 	 */
 	protected void processRemainingEvents() {
-		synchronized(eventsToProcess) {
-			// All the events must be processed but the list stillProcessingEvents can be modified
-			// during the process. So, a clone of the list must be created.
-			final List<E> list = new ArrayList<>(eventsToProcess);
-
-			// All the events must be processed.
-			while(!list.isEmpty()) {
-				final E event = list.remove(0);
-				// Do not forget to remove the event from its original list.
-				eventsToProcess.remove(0);
-
-				if(logger != null) {
-					logger.log(Level.INFO, "Recycling event: " + event + " in : " + getClass().getSimpleName());
+		synchronized(remainingEvents) {
+			// All the events must be processed but the queue can be modified during the process.
+			// So, only the events present at the beginning are recycled, the ones added later stay in the queue.
+			// The queue may also be flushed during the process.
+			for(int nb = remainingEvents.size(); nb > 0 && !remainingEvents.isEmpty(); nb--) {
+				final E event = remainingEvents.poll();
+
+				if(fsmLogger != null) {
+					fsmLogger.info("Recycling event: {} in : {}", event, getClass().getSimpleName());
 				}
 
 				process(event);
@@ -170,8 +272,23 @@ public class FSM<E> {
 
 	protected void addRemaningEventsToProcess(final E event) {
 		if(event != null) {
-			synchronized(eventsToProcess) {
-				eventsToProcess.add(event);
+			synchronized(remainingEvents) {
+				remainingEvents.offer(event);
+			}
+		}
+	}
+
+	/**
+	 * Sets the max number of events still in process the FSM can store (see FSM::addRemaningEventsToProcess).
+	 * By default, this number is not bounded.
+	 * @param capacity The max number of events. Must be greater than 0. Nothing done otherwise.
+	 * @param policy Defines the event to discard when this capacity is reached. Nothing done if null.
+	 */
+	public void setRemainingEventsCapacity(final int capacity, final RingBuffer.OverflowPolicy policy) {
+		if(capacity > 0 && policy != null) {
+			synchronized(remainingEvents) {
+				remainingEvents.setOverflowPolicy(policy);
+				remainingEvents.setMaxCapacity(capacity);
 			}
 		}
 	}
@@ -181,8 +298,8 @@ public class FSM<E> {
 	 * @throws CancelFSMException If the interaction is cancelled by a handler during the stopping step.
 	 */
 	protected void onTerminating() throws CancelFSMException {
-		if(logger != null) {
-			logger.log(Level.INFO, "FSM ended: {0}", getClass().getSimpleName());
+		if(fsmLogger != null) {
+			fsmLogger.info("FSM ended: {}", getClass().getSimpleName());
 		}
 
 		if(started) {
@@ -196,8 +313,8 @@ public class FSM<E> {
 	 * Cancels the state machine.
 	 * */
 	protected void onCancelling() {
-		if(logger != null) {
-			logger.log(Level.INFO, "FSM cancelled: {0}", getClass().getSimpleName());
+		if(fsmLogger != null) {
+			fsmLogger.info("FSM cancelled: {}", getClass().getSimpleName());
 		}
 
 		if(started) {
@@ -212,8 +329,8 @@ public class FSM<E> {
 	 * @throws CancelFSMException If the interaction is cancelled by a handler during the starting step.
 	 */
 	public void onStarting() throws CancelFSMException {
-		if(logger != null) {
-			logger.log(Level.INFO, "FSM started: {0}", getClass().getSimpleName());
+		if(fsmLogger != null) {
+			fsmLogger.info("FSM started: {}", getClass().getSimpleName());
 		}
 
 		started = true;
@@ -226,8 +343,8 @@ public class FSM<E> {
 	 */
 	public void onUpdating() throws CancelFSMException {
 		if(started) {
-			if(logger != null) {
-				logger.log(Level.INFO, "FSM updated: {0}", getClass().getSimpleName());
+			if(fsmLogger != null) {
+				fsmLogger.info("FSM updated: {}", getClass().getSimpleName());
 			}
 
 			notifyHandlerOnUpdate();
@@ -250,10 +367,12 @@ public class FSM<E> {
 	 */
 	public void log(final boolean log) {
 		if(log) {
-			if(logger == null) {
+			if(fsmLogger == null) {
 				logger = Logger.getLogger(FSM.class.getName());
+				fsmLogger = InteractoLogger.of(logger);
 			}
 		}else {
+			fsmLogger = null;
 			logger = null;
 		}
 	}
@@ -264,8 +383,8 @@ public class FSM<E> {
 	 * See {@link FSM#fullReinit} for that.
 	 */
 	public void reinit() {
-		if(logger != null) {
-			logger.log(Level.INFO, "FSM reinitialised: {0}", getClass().getSimpleName());
+		if(fsmLogger != null) {
+			fsmLogger.info("FSM reinitialised: {}", getClass().getSimpleName());
 		}
 
 		if(currentTimeout != null) {
@@ -287,8 +406,8 @@ public class FSM<E> {
 	 * flushes the remaining events to process.
 	 */
 	public void fullReinit() {
-		synchronized(eventsToProcess) {
-			eventsToProcess.clear();
+		synchronized(remainingEvents) {
+			remainingEvents.clear();
 		}
 		reinit();
 
@@ -305,8 +424,8 @@ public class FSM<E> {
 	 */
 	protected void onTimeout() {
 		if(currentTimeout != null) {
-			if(logger != null) {
-				logger.log(Level.INFO, "Timeout in: {0}", getClass().getSimpleName());
+			if(fsmLogger != null) {
+				fsmLogger.info("Timeout in: {}", getClass().getSimpleName());
 			}
 
 			try {
@@ -328,8 +447,8 @@ public class FSM<E> {
 	 */
 	protected void stopCurrentTimeout() {
 		if(currentTimeout != null) {
-			if(logger != null) {
-				logger.log(Level.INFO, "Timeout stopped in: {0}", getClass().getSimpleName());
+			if(fsmLogger != null) {
+				fsmLogger.info("Timeout stopped in: {}", getClass().getSimpleName());
 			}
 
 			currentTimeout.stopTimeout();
@@ -342,19 +461,15 @@ public class FSM<E> {
 	 * If it is the case, the timeout transition is launched.
 	 */
 	protected void checkTimeoutTransition() {
-		currentState
-			.getTransitions()
-			.stream()
-			.filter(tr -> tr instanceof TimeoutTransition)
-			.findFirst()
-			.map(tr -> (TimeoutTransition<E>) tr)
-			.ifPresent(tr -> {
-				if(logger != null) {
-					logger.log(Level.INFO, "Timeout starting in: {0}", getClass().getSimpleName());
-				}
-				currentTimeout = tr;
-				currentTimeout.startTimeout();
-			});
+		final TimeoutTransition<E> tr = currentState.getTimeoutTransition();
+
+		if(tr != null) {
+			if(fsmLogger != null) {
+				fsmLogger.info("Timeout starting in: {}", getClass().getSimpleName());
+			}
+			currentTimeout = tr;
+			currentTimeout.startTimeout();
+		}
 	}
 
 	/**
@@ -377,13 +492,41 @@ public class FSM<E> {
 		}
 	}
 
+	/**
+	 * The handlers can be added or removed while they are notified: the notification goes on with the copy.
+	 * The copy is checked against the handler set (that subclasses can modify) and rebuilt only if they differ.
+	 * So a handler removed then added again (eg the handler of a sub-FSM transition) does not rebuild it.
+	 * @return A copy of the current handlers.
+	 */
+	private FSMHandler[] getHandlerSnapshot() {
+		FSMHandler[] snapshot = handlerSnapshot;
+		if(!isSnapshotOfHandlers(snapshot)) {
+			snapshot = handlers.toArray(new FSMHandler[0]);
+			handlerSnapshot = snapshot;
+		}
+		return snapshot;
+	}
+
+	private boolean isSnapshotOfHandlers(final FSMHandler[] snapshot) {
+		if(snapshot.length != handlers.size()) {
+			return false;
+		}
+		// The snapshot elements are distinct: same size and all contained means same content
+		for(final FSMHandler handler : snapshot) {
+			if(!handlers.contains(handler)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
 	/**
 	 * Notifies handler that the interaction starts.
 	 * @throws CancelFSMException If the interaction is cancelled by a handler during the starting step.
 	 */
 	protected void notifyHandlerOnStart() throws CancelFSMException {
 		try {
-			for(final FSMHandler handler : handlers) {
+			for(final FSMHandler handler : getHandlerSnapshot()) {
 				handler.fsmStarts();
 			}
 		}catch(final CancelFSMException ex) {
@@ -398,7 +541,7 @@ public class FSM<E> {
 	 */
 	protected void notifyHandlerOnUpdate() throws CancelFSMException {
 		try {
-			for(final FSMHandler handler : handlers) {
+			for(final FSMHandler handler : getHandlerSnapshot()) {
 				handler.fsmUpdates();
 			}
 		}catch(final CancelFSMException ex) {
@@ -413,7 +556,7 @@ public class FSM<E> {
 	 */
 	protected void notifyHandlerOnStop() throws CancelFSMException {
 		try {
-			for(final FSMHandler handler : new ArrayList<>(handlers)) {
+			for(final FSMHandler handler : getHandlerSnapshot()) {
 				handler.fsmStops();
 			}
 		}catch(final CancelFSMException ex) {
@@ -426,7 +569,9 @@ public class FSM<E> {
 	 * Notifies handler that the interaction is cancelled.
 	 */
 	protected void notifyHandlerOnCancel() {
-		new ArrayList<>(handlers).forEach(handler -> handler.fsmCancels());
+		for(final FSMHandler handler : getHandlerSnapshot()) {
+			handler.fsmCancels();
+		}
 	}
 
 	/**
@@ -443,8 +588,10 @@ public class FSM<E> {
 	 */
 	public void uninstall() {
 		fullReinit();
+		fsmLogger = null;
 		logger = null;
 		currentStatePublisher.onComplete();
+		stateListeners = newListenerArray(0);
 		startingState = null;
 		currentSubFSM = null;
 		states.forEach(state -> state.uninstall());
@@ -51,6 +51,19 @@ public interface OutputState<E> extends State<E> {
 	 */
 	List<Transition<? extends E, E>> getTransitions();
 
+	/**
+	 * @return The (first) timeout transition of the state or null if the state has no timeout transition.
+	 */
+	@SuppressWarnings("unchecked")
+	default TimeoutTransition<E> getTimeoutTransition() {
+		for(final Transition<? extends E, E> tr : getTransitions()) {
+			if(tr instanceof TimeoutTransition) {
+				return (TimeoutTransition<E>) tr;
+			}
+		}
+		return null;
+	}
+
 	/**
 	 * Adds the given transitions to the list of outgoing transitions of the state.
 	 * @param tr The transition to add.
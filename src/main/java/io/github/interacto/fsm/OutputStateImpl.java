@@ -16,7 +16,11 @@ package io.github.interacto.fsm;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
 
 /**
  * Base implementation of the OutputState interface.
@@ -24,6 +28,13 @@ import java.util.List;
  */
 public abstract class OutputStateImpl<E> extends StateImpl<E> implements OutputState<E> {
 	protected final List<Transition<? extends E, E>> transitions;
+	/**
+	 * The candidate transitions of this state per dispatch key (see FSM::setIndexedDispatch).
+	 * Lazily built and dropped each time a transition is added.
+	 */
+	private Map<Object, List<Transition<? extends E, E>>> dispatchIndex;
+	/** The first timeout transition of the state, cached when added to avoid looking for it at each state entry. */
+	protected TimeoutTransition<E> timeoutTransition;
 
 	/**
 	 * Creates the state.
@@ -42,10 +53,92 @@ public abstract class OutputStateImpl<E> extends StateImpl<E> implements OutputS
 	}
 
 	@Override
+	@SuppressWarnings("unchecked")
 	public void addTransition(final Transition<? extends E, E> tr) {
 		if(tr != null) {
 			transitions.add(tr);
+			dispatchIndex = null;
+			if(timeoutTransition == null && tr instanceof TimeoutTransition) {
+				timeoutTransition = (TimeoutTransition<E>) tr;
+			}
+		}
+	}
+
+	@Override
+	public TimeoutTransition<E> getTimeoutTransition() {
+		return timeoutTransition;
+	}
+
+	@Override
+	public boolean process(final E event) {
+		final List<Transition<? extends E, E>> candidates = getCandidateTransitions(event);
+		// No iterator: it is not always removed by the JIT (eg in sub-FSMs)
+		for(int i = 0, size = candidates.size(); i < size; i++) {
+			final Transition<? extends E, E> tr = candidates.get(i);
+			try {
+				if(tr.execute(event).isPresent()) {
+					return true;
+				}
+			}catch(final CancelFSMException ignored) {
+				// Already processed
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Computes the transitions that may process the given event.
+	 * If the FSM does not use indexed dispatch, all the transitions are returned.
+	 * @param event The event to process. Can be null.
+	 * @return The candidate transitions, in the order they were added.
+	 */
+	protected List<Transition<? extends E, E>> getCandidateTransitions(final E event) {
+		final Function<? super E, ?> keyFunction = fsm.getIndexedDispatch();
+		final Object key = keyFunction == null || event == null ? null : keyFunction.apply(event);
+
+		if(key == null) {
+			return transitions;
+		}
+
+		if(dispatchIndex == null) {
+			dispatchIndex = new HashMap<>();
+		}
+
+		// No computeIfAbsent: its capturing lambda would be allocated for each processed event
+		List<Transition<? extends E, E>> candidates = dispatchIndex.get(key);
+		if(candidates == null) {
+			candidates = indexTransitions(key);
+			dispatchIndex.put(key, candidates);
+		}
+		return candidates;
+	}
+
+	/**
+	 * Selects the transitions that match the given dispatch key.
+	 * A transition matches if its accepted events contain the key or, when the key is a class,
+	 * a super type of this class. Transitions that do not declare accepted events (eg timeout transitions)
+	 * always match. Sub-FSM transitions always match as well: their accepted events come from the sub-FSM,
+	 * which can change without this state being notified.
+	 * @param key The dispatch key. Not null.
+	 * @return The matching transitions, in the order they were added.
+	 */
+	private List<Transition<? extends E, E>> indexTransitions(final Object key) {
+		final List<Transition<? extends E, E>> candidates = new ArrayList<>();
+
+		for(final Transition<? extends E, E> tr : transitions) {
+			final Set<Object> accepted = tr.getAcceptedEvents();
+			if(tr instanceof SubFSMTransition || accepted.isEmpty() || accepted.contains(key) || isSuperTypeAccepted(accepted, key)) {
+				candidates.add(tr);
+			}
 		}
+
+		return candidates;
+	}
+
+	private static boolean isSuperTypeAccepted(final Set<Object> accepted, final Object key) {
+		return key instanceof Class<?> && accepted
+			.stream()
+			.anyMatch(acc -> acc instanceof Class<?> && ((Class<?>) acc).isAssignableFrom((Class<?>) key));
 	}
 
 	@Override
@@ -53,5 +146,7 @@ public abstract class OutputStateImpl<E> extends StateImpl<E> implements OutputS
 		super.uninstall();
 		transitions.forEach(tr -> tr.uninstall());
 		transitions.clear();
+		dispatchIndex = null;
+		timeoutTransition = null;
 	}
 }
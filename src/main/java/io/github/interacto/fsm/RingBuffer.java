@@ -0,0 +1,324 @@
+/*
+ * Interacto
+ * Copyright (C) 2020 Arnaud Blouin
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.interacto.fsm;
+
+import java.util.AbstractList;
+import java.util.AbstractQueue;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+
+/**
+ * A FIFO queue backed by a circular array.
+ * Adding and removing elements are O(1) operations.
+ * The array grows (by doubling its size) up to a maximal capacity. When this capacity is reached,
+ * the overflow policy defines the element to discard.
+ * This queue is not thread-safe and does not accept null elements.
+ * @param <E> The type of the elements of the queue.
+ */
+public class RingBuffer<E> extends AbstractQueue<E> {
+	/** The initial size of the array. */
+	private static final int INITIAL_CAPACITY = 8;
+
+	/**
+	 * Defines which element is discarded when an element is added to a full ring buffer.
+	 */
+	public enum OverflowPolicy {
+		/** The oldest element of the buffer is removed to make room for the new one. */
+		DROP_OLDEST,
+		/** The element to add is rejected. */
+		DROP_NEWEST
+	}
+
+	private Object[] elements;
+	/** The index of the oldest element. */
+	private int head;
+	private int size;
+	private int maxCapacity;
+	private OverflowPolicy overflowPolicy;
+
+	/**
+	 * Creates an unbounded ring buffer.
+	 */
+	public RingBuffer() {
+		this(Integer.MAX_VALUE, OverflowPolicy.DROP_OLDEST);
+	}
+
+	/**
+	 * Creates a bounded ring buffer.
+	 * @param maxCapacity The max number of elements the buffer can contain. Must be greater than 0.
+	 * @param policy The overflow policy. Cannot be null.
+	 * @throws IllegalArgumentException If one of the parameters is not valid.
+	 */
+	public RingBuffer(final int maxCapacity, final OverflowPolicy policy) {
+		super();
+		if(maxCapacity <= 0 || policy == null) {
+			throw new IllegalArgumentException("Incorrect capacity or policy");
+		}
+		this.maxCapacity = maxCapacity;
+		overflowPolicy = policy;
+		elements = new Object[Math.min(INITIAL_CAPACITY, maxCapacity)];
+		head = 0;
+		size = 0;
+	}
+
+	/**
+	 * @return The max number of elements the buffer can contain.
+	 */
+	public int getMaxCapacity() {
+		return maxCapacity;
+	}
+
+	/**
+	 * Sets the max number of elements the buffer can contain.
+	 * If the buffer contains more elements than the new capacity, elements are discarded
+	 * following the overflow policy.
+	 * @param capacity The new capacity. Must be greater than 0. Nothing done otherwise.
+	 */
+	public void setMaxCapacity(final int capacity) {
+		if(capacity > 0) {
+			while(size > capacity) {
+				if(overflowPolicy == OverflowPolicy.DROP_OLDEST) {
+					poll();
+				}else {
+					removeLast();
+				}
+			}
+			maxCapacity = capacity;
+			if(elements.length > capacity) {
+				resize(capacity);
+			}
+		}
+	}
+
+	/**
+	 * @return The overflow policy of the buffer.
+	 */
+	public OverflowPolicy getOverflowPolicy() {
+		return overflowPolicy;
+	}
+
+	/**
+	 * Sets the overflow policy of the buffer.
+	 * @param policy The new policy. Nothing done if null.
+	 */
+	public void setOverflowPolicy(final OverflowPolicy policy) {
+		if(policy != null) {
+			overflowPolicy = policy;
+		}
+	}
+
+	/**
+	 * Adds the given element at the end of the buffer.
+	 * @param element The element to add.
+	 * @return False if the buffer is full and its policy is DROP_NEWEST.
+	 * @throws NullPointerException If the element is null.
+	 */
+	@Override
+	public boolean offer(final E element) {
+		if(element == null) {
+			throw new NullPointerException();
+		}
+
+		if(size == elements.length) {
+			if(elements.length < maxCapacity) {
+				resize((int) Math.min((long) elements.length << 1, maxCapacity));
+			}else {
+				if(overflowPolicy == OverflowPolicy.DROP_NEWEST) {
+					return false;
+				}
+				poll();
+			}
+		}
+
+		elements[index(size)] = element;
+		size++;
+		return true;
+	}
+
+	@Override
+	public E poll() {
+		if(size == 0) {
+			return null;
+		}
+		final E element = elementAt(head);
+		elements[head] = null;
+		head = index(1);
+		size--;
+		return element;
+	}
+
+	@Override
+	public E peek() {
+		return size == 0 ? null : elementAt(head);
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public void clear() {
+		Arrays.fill(elements, null);
+		head = 0;
+		size = 0;
+	}
+
+	@Override
+	public Iterator<E> iterator() {
+		return new Iterator<>() {
+			private int pos = 0;
+
+			@Override
+			public boolean hasNext() {
+				return pos < size;
+			}
+
+			@Override
+			public E next() {
+				if(pos >= size) {
+					throw new NoSuchElementException();
+				}
+				final E element = elementAt(index(pos));
+				pos++;
+				return element;
+			}
+		};
+	}
+
+	/**
+	 * The view supports the positional operations (get, set, add and remove at an index). Adding or removing
+	 * an element inside the buffer is an O(n) operation. Adding an element into a full buffer follows the
+	 * overflow policy: an IllegalStateException is thrown with DROP_NEWEST; the oldest element is removed
+	 * before the insertion with DROP_OLDEST.
+	 * The view is not thread-safe either.
+	 * @return A list view of the buffer, from the oldest to the newest element.
+	 */
+	public List<E> asList() {
+		return new ListView();
+	}
+
+	private void removeLast() {
+		elements[index(size - 1)] = null;
+		size--;
+	}
+
+	/**
+	 * @param offset The offset from the head.
+	 * @return The index in the array of the element at the given offset.
+	 */
+	private int index(final int offset) {
+		final int idx = head + offset;
+		return idx >= elements.length ? idx - elements.length : idx;
+	}
+
+	@SuppressWarnings("unchecked")
+	private E elementAt(final int idx) {
+		return (E) elements[idx];
+	}
+
+	/**
+	 * The list view of the buffer (cf. asList).
+	 */
+	private final class ListView extends AbstractList<E> implements RandomAccess {
+		@Override
+		public E get(final int position) {
+			checkIndex(position, size);
+			return elementAt(index(position));
+		}
+
+		@Override
+		public E set(final int position, final E element) {
+			checkIndex(position, size);
+			if(element == null) {
+				throw new NullPointerException();
+			}
+			final int idx = index(position);
+			final E previous = elementAt(idx);
+			elements[idx] = element;
+			return previous;
+		}
+
+		@Override
+		public void add(final int position, final E element) {
+			checkIndex(position, size + 1);
+			if(element == null) {
+				throw new NullPointerException();
+			}
+
+			int pos = position;
+
+			if(size == elements.length) {
+				if(elements.length < maxCapacity) {
+					resize((int) Math.min((long) elements.length << 1, maxCapacity));
+				}else {
+					if(overflowPolicy == OverflowPolicy.DROP_NEWEST) {
+						throw new IllegalStateException("The ring buffer is full");
+					}
+					poll();
+					pos = Math.max(0, pos - 1);
+				}
+			}
+
+			for(int i = size; i > pos; i--) {
+				elements[index(i)] = elements[index(i - 1)];
+			}
+			elements[index(pos)] = element;
+			size++;
+			modCount++;
+		}
+
+		@Override
+		public E remove(final int position) {
+			checkIndex(position, size);
+			final E element = elementAt(index(position));
+			for(int i = position; i < size - 1; i++) {
+				elements[index(i)] = elements[index(i + 1)];
+			}
+			removeLast();
+			modCount++;
+			return element;
+		}
+
+		@Override
+		public void clear() {
+			RingBuffer.this.clear();
+			modCount++;
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+
+		private void checkIndex(final int position, final int length) {
+			if(position < 0 || position >= length) {
+				throw new IndexOutOfBoundsException("Index: " + position + ", size: " + size);
+			}
+		}
+	}
+
+	private void resize(final int capacity) {
+		final Object[] array = new Object[capacity];
+		for(int i = 0; i < size; i++) {
+			array[i] = elements[index(i)];
+		}
+		elements = array;
+		head = 0;
+	}
+}
@@ -0,0 +1,30 @@
+/*
+ * Interacto
+ * Copyright (C) 2020 Arnaud Blouin
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.interacto.fsm;
+
+/**
+ * A listener notified each time the current state of an FSM changes.
+ * Compared to FSM::currentState, listeners are called directly by the FSM,
+ * without allocating any object.
+ * @param <E> The type of events the FSM processes.
+ */
+public interface StateChangeListener<E> {
+	/**
+	 * Called when the current state of the FSM changes.
+	 * @param oldState The former current state.
+	 * @param currentState The new current state.
+	 */
+	void onStateChanged(final OutputState<E> oldState, final OutputState<E> currentState);
+}
@@ -14,6 +14,8 @@
  */
 package io.github.interacto.fsm;
 
+import io.github.interacto.logging.FlightRecorder;
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -27,6 +29,11 @@ import java.util.stream.Collectors;
 public class SubFSMTransition<E0> extends Transition<E0, E0> {
 	private final FSM<E0> subFSM;
 	private final FSMHandler subFSMHandler;
+	/**
+	 * True while the sub-FSM runs for this transition. The handler is registered once in the sub-FSM
+	 * (registering it at each execution would allocate) and reacts only while the sub-FSM runs for this transition.
+	 */
+	private boolean running;
 
 	/**
 	 * Creates the transition.
@@ -44,29 +51,42 @@ public class SubFSMTransition<E0> extends Transition<E0, E0> {
 
 		subFSM = fsm;
 		subFSM.setInner(true);
+		// The sub-FSM dispatches its events like its parent FSM (cf. FSM::setIndexedDispatch)
+		if(src.getFSM().getIndexedDispatch() != null) {
+			subFSM.setIndexedDispatch(src.getFSM().getIndexedDispatch());
+		}
 		subFSMHandler = new FSMHandler() {
 			@Override
 			public void fsmStarts() throws CancelFSMException {
+				if(!running) {
+					return;
+				}
 				src.exit();
 			}
 
 			@Override
 			public void fsmUpdates() throws CancelFSMException {
+				if(!running) {
+					return;
+				}
 				src.getFSM().setCurrentState(subFSM.getCurrentState());
 				src.getFSM().onUpdating();
 			}
 
 			@Override
 			public void fsmStops() throws CancelFSMException {
+				if(!running) {
+					return;
+				}
 				action(null);
-				subFSM.removeHandler(subFSMHandler);
+				running = false;
 				src.getFSM().currentSubFSM = null;
 				if(tgt instanceof TerminalState) {
 					tgt.enter();
 					return;
 				}
 				if(tgt instanceof CancellingState) {
-					fsmCancels();
+					src.getFSM().onCancelling();
 					return;
 				}
 				if(tgt instanceof OutputState) {
@@ -77,23 +97,36 @@ public class SubFSMTransition<E0> extends Transition<E0, E0> {
 
 			@Override
 			public void fsmCancels() {
-				subFSM.removeHandler(subFSMHandler);
+				if(!running) {
+					return;
+				}
+				running = false;
 				src.getFSM().currentSubFSM = null;
 				src.getFSM().onCancelling();
 			}
 		};
+		running = false;
+		subFSM.addHandler(subFSMHandler);
+	}
+
+	/**
+	 * @return The sub-FSM of the transition.
+	 */
+	FSM<E0> getSubFSM() {
+		return subFSM;
 	}
 
 	@Override
 	public Optional<InputState<E0>> execute(final E0 event) {
-		final Optional<Transition<E0, E0>> transition = findTransition(event);
+		final Transition<E0, E0> transition = findTransition(event);
 
-		if(transition.isPresent()) {
+		if(transition != null) {
+			FlightRecorder.getInstance().record(FlightRecorder.Kind.SUB_FSM_TRANSITION, src.getFSM(), src, tgt, null, null);
 			src.getFSM().stopCurrentTimeout();
-			subFSM.addHandler(subFSMHandler);
+			running = true;
 			src.getFSM().currentSubFSM = subFSM;
 			subFSM.process(event);
-			return Optional.of(transition.get().tgt);
+			return transition.executionResult;
 		}
 
 		return Optional.empty();
@@ -101,22 +134,29 @@ public class SubFSMTransition<E0> extends Transition<E0, E0> {
 
 	@Override
 	protected E0 accept(final E0 event) {
-		return findTransition(event).isEmpty() ? null : event;
+		return findTransition(event) == null ? null : event;
 	}
 
 	@Override
 	protected boolean isGuardOK(final E0 event) {
-		return findTransition(event)
-			.filter(tr -> tr.isGuardOK(event))
-			.isPresent();
+		final Transition<E0, E0> transition = findTransition(event);
+		return transition != null && transition.isGuardOK(event);
 	}
 
-	private Optional<Transition<E0, E0>> findTransition(final E0 event) {
-		return subFSM.initState.transitions
-			.stream()
-			.filter(tr -> tr.accept(event) != null)
-			.map(tr -> (Transition<E0, E0>) tr)
-			.findFirst();
+	/**
+	 * @param event The event to process.
+	 * @return The first transition of the initial state of the sub-FSM that accepts the event, or null.
+	 */
+	@SuppressWarnings("unchecked")
+	private Transition<E0, E0> findTransition(final E0 event) {
+		final List<Transition<? extends E0, E0>> transitions = subFSM.initState.transitions;
+		for(int i = 0, size = transitions.size(); i < size; i++) {
+			final Transition<? extends E0, E0> tr = transitions.get(i);
+			if(tr.accept(event) != null) {
+				return (Transition<E0, E0>) tr;
+			}
+		}
+		return null;
 	}
 
 	@Override
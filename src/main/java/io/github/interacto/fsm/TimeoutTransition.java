@@ -14,8 +14,8 @@
  */
 package io.github.interacto.fsm;
 
-import io.github.interacto.error.ErrorCatcher;
-import io.github.interacto.interaction.ThreadService;
+import io.github.interacto.interaction.TimerService;
+import io.github.interacto.logging.FlightRecorder;
 import java.util.Collections;
 import java.util.Optional;
 import java.util.Set;
@@ -27,16 +27,28 @@ import java.util.function.LongSupplier;
  * @param <E> The type of events the FSM processes.
  */
 public class TimeoutTransition<E> extends Transition<E, E> {
-	/** The base name (starts with) of the threads created for the timeout. */
+	/**
+	 * The base name (starts with) of the threads created for the timeout.
+	 * Timeouts no longer run in their own thread but in the thread of the timer service (see TimerService.TIMER_THREAD_NAME).
+	 * @deprecated Not used anymore.
+	 */
+	@Deprecated
 	public static final String TIMEOUT_THREAD_NAME_BASE = "interacto-timeout-transition-";
 	/** The timeoutDuration in ms. */
 	private final LongSupplier timeoutDuration;
 
-	/** The current thread in progress. */
-	private Thread timeoutThread;
+	/** The current timeout in progress. */
+	private TimerService.ScheduledTimeout timeoutTask;
 
 	private boolean timeouted;
 
+	/** The task run when the timeout expires. Created once as a timeout can be started many times. */
+	private final Runnable onTimeoutTask = () -> {
+		// There is a timeoutDuration and the interaction must be notified of that.
+		timeouted = true;
+		src.getFSM().onTimeout();
+	};
+
 	/**
 	 * Creates the timeout transition.
 	 * @param srcState The source state of the transition.
@@ -57,30 +69,18 @@ public class TimeoutTransition<E> extends Transition<E, E> {
 
 	/**
 	 * Launches the timer.
+	 * The timeout is scheduled in the shared timer service (see TimerService).
 	 */
 	public void startTimeout() {
 		final long time = TimeoutTransition.this.timeoutDuration.getAsLong();
-		// If incorrect duration value, no thread created
-		if(timeoutThread == null) {
+		// If incorrect duration value, no timeout scheduled
+		if(timeoutTask == null) {
 			if(time <= 0L) {
 				TimeoutTransition.this.src.getFSM().onTimeout();
 				return;
 			}
 
-			timeoutThread = new Thread(() -> {
-				try {
-					// Sleeping the thread.
-					ThreadService.getInstance().sleep(time);
-					// There is a timeoutDuration and the interaction must be notified of that.
-					// Notifying the interaction of the timeoutDuration.
-					timeouted = true;
-					TimeoutTransition.this.src.getFSM().onTimeout();
-				}catch(final InterruptedException ex) {
-					ThreadService.getInstance().currentThread().interrupt();
-				}
-			}, TIMEOUT_THREAD_NAME_BASE + System.currentTimeMillis());
-			timeoutThread.setUncaughtExceptionHandler((th, ex) -> ErrorCatcher.getInstance().reportError(ex));
-			timeoutThread.start();
+			timeoutTask = TimerService.getInstance().schedule(onTimeoutTask, time);
 		}
 	}
 
@@ -88,9 +88,9 @@ public class TimeoutTransition<E> extends Transition<E, E> {
 	 * Stops the timer.
 	 */
 	public void stopTimeout() {
-		if(timeoutThread != null) {
-			timeoutThread.interrupt();
-			timeoutThread = null;
+		if(timeoutTask != null) {
+			timeoutTask.cancel();
+			timeoutTask = null;
 		}
 	}
 
@@ -108,11 +108,12 @@ public class TimeoutTransition<E> extends Transition<E, E> {
 	public Optional<InputState<E>> execute(final E event) throws CancelFSMException {
 		try {
 			if(timeouted && isGuardOK(event)) {
+				FlightRecorder.getInstance().record(FlightRecorder.Kind.TIMEOUT_TRANSITION, src.getFSM(), src, tgt, null, null);
 				src.exit();
 				action(event);
 				tgt.enter();
 				timeouted = false;
-				return Optional.of(tgt);
+				return executionResult;
 			}
 			return Optional.empty();
 		}catch(final CancelFSMException ex) {
@@ -14,6 +14,7 @@
  */
 package io.github.interacto.fsm;
 
+import io.github.interacto.logging.FlightRecorder;
 import java.util.Optional;
 import java.util.Set;
 
@@ -25,6 +26,8 @@ import java.util.Set;
 public abstract class Transition<E extends E0, E0> {
 	protected final OutputState<E0> src;
 	protected final InputState<E0> tgt;
+	/** The result of a successful execution (ie the target state). Created once so that executing the transition allocates nothing. */
+	protected final Optional<InputState<E0>> executionResult;
 
 	/**
 	 * Creates the transition.
@@ -41,6 +44,7 @@ public abstract class Transition<E extends E0, E0> {
 
 		src = srcState;
 		tgt = tgtState;
+		executionResult = Optional.of(tgt);
 
 		src.addTransition(this);
 	}
@@ -54,11 +58,12 @@ public abstract class Transition<E extends E0, E0> {
 	public Optional<InputState<E0>> execute(final E0 event) throws CancelFSMException {
 		final E typedEvent = accept(event);
 		if(typedEvent != null && isGuardOK(typedEvent)) {
+			FlightRecorder.getInstance().record(FlightRecorder.Kind.TRANSITION, src.getFSM(), src, tgt, null, null);
 			src.getFSM().stopCurrentTimeout();
 			action(typedEvent);
 			src.exit();
 			tgt.enter();
-			return Optional.of(tgt);
+			return executionResult;
 		}
 
 		return Optional.empty();
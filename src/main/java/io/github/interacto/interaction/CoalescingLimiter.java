@@ -0,0 +1,159 @@
+/*
+ * Interacto
+ * Copyright (C) 2020 Arnaud Blouin
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.interacto.interaction;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Keyed coalescing: the events are buffered by key (cf. InteractionImpl::getEventKey), the latest event of each key
+ * replacing the previous one. At each tick (the first buffered event opens a tick of the given delay), the buffered
+ * events are all delivered in their arrival order.
+ * Contrary to ThrottleLimiter, interleaved streams of events of different keys (eg moves and scrolls) are coalesced.
+ * An event without key (null key) is not coalesced: the buffered events, and the events of a tick not delivered
+ * by the UI thread yet, are delivered before it to keep the order.
+ * User interactions provide no key by default (cf. InteractionImpl::getEventKey): use a key function otherwise.
+ * @param <E> The type of the events.
+ */
+public class CoalescingLimiter<E> extends RateLimiter<E> {
+	/** The key function. Null: the key function of the interaction is used. */
+	private final Function<? super E, ?> keyFunction;
+	/** The latest event of each key, in arrival order. */
+	private final Map<Object, E> buffer;
+	/** The events of the ticks handed to the UI thread and not delivered yet, in their order. */
+	private final List<E> posted;
+	/** The next tick. Null if none. */
+	private TimerService.ScheduledTimeout timeout;
+
+	/**
+	 * Creates the limiter that uses the keys of the user interaction (cf. InteractionImpl::getEventKey).
+	 * @param delay The duration in ms between two ticks. Must be greater than 0.
+	 * @throws IllegalArgumentException If the delay is not valid.
+	 */
+	public CoalescingLimiter(final long delay) {
+		this(delay, null);
+	}
+
+	/**
+	 * Creates the limiter.
+	 * @param delay The duration in ms between two ticks. Must be greater than 0.
+	 * @param keyFunction The key function of the events (null key: not coalesced). Null: the keys of the interaction are used.
+	 * @throws IllegalArgumentException If the delay is not valid.
+	 */
+	public CoalescingLimiter(final long delay, final Function<? super E, ?> keyFunction) {
+		super(delay);
+		this.keyFunction = keyFunction;
+		buffer = new LinkedHashMap<>();
+		posted = new ArrayList<>();
+	}
+
+	@Override
+	protected void process(final E event) {
+		final Object key = keyFunction == null ? getEventKey(event) : keyFunction.apply(event);
+		final List<E> flushed;
+
+		synchronized(this) {
+			if(key != null) {
+				// The latest event takes the arrival position of the key
+				if(buffer.remove(key) != null) {
+					drop();
+				}
+				buffer.put(key, event);
+				if(timeout == null) {
+					timeout = schedule(this::tick);
+				}
+				return;
+			}
+
+			flushed = takePosted();
+			flushed.addAll(takeBuffer());
+		}
+
+		flushed.forEach(this::deliver);
+		deliver(event);
+	}
+
+	/**
+	 * @return The number of buffered events.
+	 */
+	public synchronized int getNbBuffered() {
+		return buffer.size();
+	}
+
+	private void tick() {
+		synchronized(this) {
+			timeout = null;
+			final List<E> flushed = takeBuffer();
+			if(flushed.isEmpty()) {
+				return;
+			}
+			posted.addAll(flushed);
+		}
+
+		runInUIThread(this::deliverPosted);
+	}
+
+	/**
+	 * Delivers the events of the ticks in the UI thread, unless an event without key delivered them before.
+	 */
+	private void deliverPosted() {
+		final List<E> events;
+
+		synchronized(this) {
+			if(getInteraction() == null) {
+				return;
+			}
+			events = takePosted();
+		}
+
+		events.forEach(this::deliver);
+	}
+
+	/**
+	 * @return The events of the ticks not delivered yet (a new list).
+	 */
+	private List<E> takePosted() {
+		final List<E> events = new ArrayList<>(posted);
+		posted.clear();
+		return events;
+	}
+
+	/**
+	 * Empties the buffer and cancels the next tick.
+	 * @return The buffered events in their arrival order.
+	 */
+	private List<E> takeBuffer() {
+		if(timeout != null) {
+			timeout.cancel();
+			timeout = null;
+		}
+		if(buffer.isEmpty()) {
+			return List.of();
+		}
+		final List<E> events = new ArrayList<>(buffer.values());
+		buffer.clear();
+		return events;
+	}
+
+	@Override
+	public synchronized void cancel() {
+		for(int i = takeBuffer().size() + takePosted().size(); i > 0; i--) {
+			drop();
+		}
+	}
+}
@@ -0,0 +1,44 @@
+/*
+ * Interacto
+ * Copyright (C) 2020 Arnaud Blouin
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.interacto.interaction;
+
+/**
+ * Trailing-edge debouncing: the latest event of a burst is delivered once no event of the same type
+ * occurred during the delay (quiet period). The other events of the burst are dropped.
+ * @param <E> The type of the events.
+ */
+public class DebounceLimiter<E> extends ThrottleLimiter<E> {
+	/**
+	 * Creates the limiter.
+	 * @param delay The duration in ms of the quiet period. Must be greater than 0.
+	 * @throws IllegalArgumentException If the delay is not valid.
+	 */
+	public DebounceLimiter(final long delay) {
+		super(delay);
+	}
+
+	/**
+	 * Restarts the quiet period.
+	 * Already called with the lock of the limiter: synchronized so that the timeout is always guarded by it.
+	 */
+	@Override
+	protected synchronized void onSameTypeEvent() {
+		super.onSameTypeEvent();
+		final TimerService.ScheduledTimeout current = timeout;
+		if(current != null && current.cancel()) {
+			timeout = schedule(this::flush);
+		}
+	}
+}
@@ -17,12 +17,9 @@ package io.github.interacto.interaction;
 import io.github.interacto.fsm.FSM;
 import io.github.interacto.fsm.InitState;
 import io.github.interacto.fsm.OutputState;
-import io.reactivex.disposables.Disposable;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
-import java.util.concurrent.TimeUnit;
-import java.util.logging.Level;
+import io.github.interacto.fsm.StateChangeListener;
+import io.github.interacto.logging.InteractoLogger;
+import java.util.Optional;
 import java.util.logging.Logger;
 
 /**
@@ -32,29 +29,71 @@ import java.util.logging.Logger;
  * @param <F> The type of the FSM.
  */
 public abstract class InteractionImpl<D extends InteractionData, E, F extends FSM<E>> {
-	static Logger defaultLogger = Logger.getLogger(InteractionImpl.class.getName());
+	static InteractoLogger defaultLogger = InteractoLogger.of(Logger.getLogger(InteractionImpl.class.getName()));
+
+	/** The java.util.logging logger of the deprecated API (cf. the logger field). */
+	static Logger defaultJulLogger = Logger.getLogger(InteractionImpl.class.getName());
 
 	/**
-	 * Sets the logger to use. Cannot be null.
+	 * Sets the logger to use (cf. InteractoLogger::of to use a java.util.logging logger). Cannot be null.
 	 * Does not change the loggers of existing user interactions.
 	 * @param logger The new logger to use.
 	 */
-	public static void setLogger(final Logger logger) {
+	public static void setInteractoLogger(final InteractoLogger logger) {
 		if(logger != null) {
 			defaultLogger = logger;
 		}
 	}
 
+	/**
+	 * Sets the java.util.logging logger to use. Cannot be null.
+	 * Equivalent to setInteractoLogger(InteractoLogger.of(logger)).
+	 * @param logger The new logger to use.
+	 * @deprecated Use setInteractoLogger instead.
+	 */
+	@Deprecated
+	public static void setLogger(final Logger logger) {
+		if(logger != null) {
+			defaultJulLogger = logger;
+			setInteractoLogger(InteractoLogger.of(logger));
+		}
+	}
+
+	/** The batcher of the jobs run in the UI thread by the user interactions. Null: no batching. */
+	private static volatile UIDispatchBatcher uiDispatchBatcher;
+
+	/**
+	 * Sets the batcher of the jobs that the user interactions run in the UI thread out of the UI thread
+	 * (eg the deliveries of the rate limiters). Shared by all the user interactions.
+	 * @param batcher The batcher to use. Null: the jobs are run one by one using runInUIThread.
+	 */
+	public static void setUIDispatchBatcher(final UIDispatchBatcher batcher) {
+		uiDispatchBatcher = batcher;
+	}
+
+	/**
+	 * @return The batcher of the jobs run in the UI thread by the user interactions, if any.
+	 */
+	public static Optional<UIDispatchBatcher> getUIDispatchBatcher() {
+		return Optional.ofNullable(uiDispatchBatcher);
+	}
+
 	protected final F fsm;
 	/** Defines whether the interaction is activated. If not, the interaction will not change on events. */
 	protected boolean activated;
+	/** The logger of the interaction. Null if the interaction does not log. */
+	protected InteractoLogger interactionLogger;
+	/**
+	 * Set and unset alongside interactionLogger for the subclasses that still log with it.
+	 * The interaction does not log with it.
+	 * @deprecated Use interactionLogger instead.
+	 */
+	@Deprecated
 	protected Logger logger;
-	protected long throttleTimeout;
-	protected E currentThrottledEvent;
-	/** The current throttle thread in progress. */
-	protected Future<?> currThrottleTimeoutFuture;
-	protected ExecutorService executor;
-	protected final Disposable disposable;
+	/** The rate-limiting strategy of the processed events. Null if none. */
+	protected RateLimiter<E> rateLimiter;
+	/** Updates the registered events when the current state of the FSM changes. */
+	protected final StateChangeListener<E> stateChangeListener;
 	private boolean consumeEvents;
 
 	/**
@@ -69,13 +108,11 @@ public abstract class InteractionImpl<D extends InteractionData, E, F extends FS
 			throw new IllegalArgumentException("null fsm");
 		}
 
-		executor = null;
-		currThrottleTimeoutFuture = null;
-		throttleTimeout = 0L;
+		rateLimiter = null;
 		this.fsm = fsm;
-		disposable = fsm.currentState().subscribe(current -> updateEventsRegistered(current.getValue(), current.getKey()));
+		stateChangeListener = (oldState, newState) -> updateEventsRegistered(newState, oldState);
+		fsm.addStateChangeListener(stateChangeListener);
 		activated = true;
-		currentThrottledEvent = null;
 		consumeEvents = false;
 	}
 
@@ -85,11 +122,69 @@ public abstract class InteractionImpl<D extends InteractionData, E, F extends FS
 	public abstract D getData();
 
 	/**
-	 * Sets the throttle timeout the interaction will use.
-	 * @param timeout The throttle value.
+	 * Sets the throttle timeout the interaction will use (cf. ThrottleLimiter).
+	 * The throttled events are delivered by the shared timer service (cf. TimerService), whose tick duration
+	 * defines the precision of the throttling.
+	 * @param timeout The throttle value. If lower or equal to 0, the current rate limiter is removed.
 	 */
 	public void setThrottleTimeout(final long timeout) {
-		throttleTimeout = timeout;
+		setRateLimiter(timeout > 0L ? new ThrottleLimiter<>(timeout) : null);
+	}
+
+	/**
+	 * Replaces the former throttleTimeout field: throttling is now a rate limiter (cf. setRateLimiter).
+	 * @return The delay of the rate limiter if it is a ThrottleLimiter. 0 otherwise.
+	 * @deprecated Use getRateLimiter instead.
+	 */
+	@Deprecated
+	protected long getThrottleTimeout() {
+		return rateLimiter instanceof ThrottleLimiter ? rateLimiter.getDelay() : 0L;
+	}
+
+	/**
+	 * Replaces the former currentThrottledEvent field: the pending events are now managed by the rate limiter.
+	 * @return The event that the ThrottleLimiter of the interaction will deliver at the end of its window. Null if none.
+	 * @deprecated The pending events are internal to the rate limiters.
+	 */
+	@Deprecated
+	protected E getCurrentThrottledEvent() {
+		if(!(rateLimiter instanceof ThrottleLimiter)) {
+			return null;
+		}
+		final ThrottleLimiter<E> limiter = (ThrottleLimiter<E>) rateLimiter;
+		synchronized(limiter) {
+			return limiter.pending;
+		}
+	}
+
+	/**
+	 * Sets the rate-limiting strategy of the processed events (cf. ThrottleLimiter, DebounceLimiter, SampleLimiter).
+	 * The pending delivery of the previous rate limiter is cancelled.
+	 * @param limiter The rate limiter to use. Null: no rate limiting.
+	 * @throws IllegalArgumentException If the given rate limiter is used by another user interaction.
+	 */
+	public void setRateLimiter(final RateLimiter<E> limiter) {
+		if(limiter != null && limiter.getInteraction() != null && limiter.getInteraction() != this) {
+			throw new IllegalArgumentException("The rate limiter is used by another user interaction");
+		}
+
+		if(rateLimiter != null && rateLimiter != limiter) {
+			rateLimiter.cancel();
+			rateLimiter.setInteraction(null);
+		}
+
+		rateLimiter = limiter;
+
+		if(limiter != null) {
+			limiter.setInteraction(this);
+		}
+	}
+
+	/**
+	 * @return The rate-limiting strategy of the processed events, if any.
+	 */
+	public Optional<RateLimiter<E>> getRateLimiter() {
+		return Optional.ofNullable(rateLimiter);
 	}
 
 	protected abstract void updateEventsRegistered(final OutputState<E> newState, final OutputState<E> oldState);
@@ -108,7 +203,7 @@ public abstract class InteractionImpl<D extends InteractionData, E, F extends FS
 		fsm.fullReinit();
 	}
 
-	private void directEventProcess(final E event) {
+	void directEventProcess(final E event) {
 		fsm.process(event);
 		if(consumeEvents) {
 			consumeEvent(event);
@@ -137,31 +232,16 @@ public abstract class InteractionImpl<D extends InteractionData, E, F extends FS
 	protected abstract boolean isEventsOfSameType(final E evt1, final E evt2);
 
 	/**
-	 * Throttling: sleeping between events of the same type.
+	 * Identifies the stream of the given event for the keyed rate limiters (cf. CoalescingLimiter):
+	 * the events that have the same key are coalesced.
+	 * By default, null: no event is coalesced. The class of an event is not a valid key, since it does not
+	 * distinguish the event types that must not be coalesced (eg press and release events).
+	 * Platform-specific interactions should return the type of the coalescable events (eg mouse move, scroll).
+	 * @param event The event to identify.
+	 * @return The key of the event. Null: the event cannot be coalesced.
 	 */
-	private void createThrottleTimeout() {
-		if(executor == null) {
-			executor = Executors.newWorkStealingPool();
-		}
-
-		// Cancelling the current task.
-		if(currThrottleTimeoutFuture != null && !currThrottleTimeoutFuture.isDone()) {
-			currThrottleTimeoutFuture.cancel(true);
-		}
-
-		// Executing a new timeout for the throttling operation.
-		currThrottleTimeoutFuture = executor.submit(() -> {
-			try {
-				ThreadService.getInstance().sleep(throttleTimeout);
-				final E evt = currentThrottledEvent;
-				currentThrottledEvent = null;
-				if(evt != null) {
-					runInUIThread(() -> directEventProcess(evt));
-				}
-			}catch(final InterruptedException ex) {
-				ThreadService.getInstance().currentThread().interrupt();
-			}
-		});
+	protected Object getEventKey(final E event) {
+		return null;
 	}
 
 	/**
@@ -173,22 +253,18 @@ public abstract class InteractionImpl<D extends InteractionData, E, F extends FS
 	protected abstract void runInUIThread(final Runnable cmd);
 
 	/**
-	 * Throttling processing: the given event is checked to be throttled or not.
-	 * @param event The event to check.
-	 * @return True: the event must be processed by the interaction.
+	 * Runs the given job in the UI thread, in the next batch of the UI dispatch batcher if one is set
+	 * (cf. setUIDispatchBatcher). Uses runInUIThread otherwise.
+	 * Can be called from any thread (eg by the asynchronous execution of commands).
+	 * @param job The job to execute in the UI thread.
 	 */
-	private void checkThrottlingEvent(final E event) {
-		final var latestEvt = currentThrottledEvent;
-
-		if(latestEvt == null || !isEventsOfSameType(latestEvt, event)) {
-			if(latestEvt != null) {
-				directEventProcess(latestEvt);
-			}
-			currentThrottledEvent = event;
-			createThrottleTimeout();
+	public void runInUIThreadBatched(final Runnable job) {
+		final UIDispatchBatcher batcher = uiDispatchBatcher;
+		if(batcher == null) {
+			runInUIThread(job);
+		}else {
+			batcher.submit(job);
 		}
-		// The previous throttled event is ignored
-		currentThrottledEvent = event;
 	}
 
 	/**
@@ -197,10 +273,10 @@ public abstract class InteractionImpl<D extends InteractionData, E, F extends FS
 	 */
 	public void processEvent(final E event) {
 		if(isActivated()) {
-			if(throttleTimeout <= 0L) {
+			if(rateLimiter == null) {
 				directEventProcess(event);
 			}else {
-				checkThrottlingEvent(event);
+				rateLimiter.process(event);
 			}
 		}
 	}
@@ -211,10 +287,12 @@ public abstract class InteractionImpl<D extends InteractionData, E, F extends FS
 	 */
 	public void log(final boolean log) {
 		if(log) {
-			if(logger == null) {
-				logger = defaultLogger;
+			if(interactionLogger == null) {
+				interactionLogger = defaultLogger;
+				logger = defaultJulLogger;
 			}
 		}else {
+			interactionLogger = null;
 			logger = null;
 		}
 
@@ -235,8 +313,8 @@ public abstract class InteractionImpl<D extends InteractionData, E, F extends FS
 	 * @param activated True: the user interaction will be activated.
 	 */
 	public void setActivated(final boolean activated) {
-		if(logger != null) {
-			logger.log(Level.INFO, "Interaction activation: " + activated);
+		if(interactionLogger != null) {
+			interactionLogger.info("Interaction activation: {}", activated);
 		}
 
 		this.activated = activated;
@@ -265,16 +343,12 @@ public abstract class InteractionImpl<D extends InteractionData, E, F extends FS
 	 * 				Then, user interaction can be used any more.
 	 */
 	public void uninstall() {
-		disposable.dispose();
+		fsm.removeStateChangeListener(stateChangeListener);
 		setActivated(false);
+		interactionLogger = null;
 		logger = null;
-		if(executor != null) {
-			executor.shutdownNow();
-			try {
-				executor.awaitTermination(10, TimeUnit.MILLISECONDS);
-			}catch(final InterruptedException ex) {
-				ThreadService.getInstance().currentThread().interrupt();
-			}
+		if(rateLimiter != null) {
+			rateLimiter.cancel();
 		}
 	}
 }
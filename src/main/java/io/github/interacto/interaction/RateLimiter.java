@@ -0,0 +1,182 @@
+/*
+ * Interacto
+ * Copyright (C) 2020 Arnaud Blouin
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.interacto.interaction;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A rate-limiting strategy of the events processed by a user interaction (cf. InteractionImpl::setRateLimiter).
+ * Rate limiting concerns the bursts of events of the same type (cf. InteractionImpl::isEventsOfSameType):
+ * an event of another type ends the current burst.
+ * The delayed deliveries are scheduled in the shared timer service (cf. TimerService) and executed in the UI thread
+ * (batched if a UI dispatch batcher is set, cf. InteractionImpl::setUIDispatchBatcher).
+ * The limiter counts the delivered and dropped events.
+ * A rate limiter is stateful: it must not be shared by several user interactions.
+ * @param <E> The type of the events.
+ */
+public abstract class RateLimiter<E> {
+	/** The duration in ms of the rate-limiting window. */
+	protected final long delay;
+	private final AtomicLong nbDelivered;
+	private final AtomicLong nbDropped;
+	/** The user interaction that uses the limiter. Null if not installed. */
+	private InteractionImpl<?, E, ?> interaction;
+
+	/**
+	 * Creates the rate limiter.
+	 * @param delay The duration in ms of the rate-limiting window. Must be greater than 0.
+	 * @throws IllegalArgumentException If the delay is not valid.
+	 */
+	protected RateLimiter(final long delay) {
+		super();
+		if(delay <= 0L) {
+			throw new IllegalArgumentException("Incorrect delay: " + delay);
+		}
+		this.delay = delay;
+		nbDelivered = new AtomicLong();
+		nbDropped = new AtomicLong();
+	}
+
+	/**
+	 * @return The duration in ms of the rate-limiting window.
+	 */
+	public long getDelay() {
+		return delay;
+	}
+
+	/**
+	 * @return The number of events delivered to the user interaction.
+	 */
+	public long getNbDelivered() {
+		return nbDelivered.get();
+	}
+
+	/**
+	 * @return The number of events dropped by the limiter.
+	 */
+	public long getNbDropped() {
+		return nbDropped.get();
+	}
+
+	/**
+	 * Resets the counters of delivered and dropped events.
+	 */
+	public void resetCounters() {
+		nbDelivered.set(0L);
+		nbDropped.set(0L);
+	}
+
+	/**
+	 * Processes the given event received by the user interaction. Called in the UI thread.
+	 * @param event The event to process. Not null.
+	 */
+	protected abstract void process(final E event);
+
+	/**
+	 * Cancels the pending delivery, if any. The pending event is dropped.
+	 */
+	public abstract void cancel();
+
+	/**
+	 * Delivers the given event to the user interaction. Must be called in the UI thread.
+	 * @param event The event to deliver.
+	 */
+	protected final void deliver(final E event) {
+		nbDelivered.incrementAndGet();
+		interaction.directEventProcess(event);
+	}
+
+	/**
+	 * Delivers the given event to the user interaction in the UI thread. Used by the scheduled deliveries.
+	 * @param event The event to deliver.
+	 */
+	protected final void deliverInUIThread(final E event) {
+		final InteractionImpl<?, E, ?> target = interaction;
+		if(target != null) {
+			nbDelivered.incrementAndGet();
+			target.runInUIThreadBatched(() -> target.directEventProcess(event));
+		}
+	}
+
+	/**
+	 * Delivers the given events, in their order, to the user interaction in the UI thread (a single job for all the events).
+	 * Used by the scheduled deliveries.
+	 * @param events The events to deliver.
+	 */
+	protected final void deliverInUIThread(final List<E> events) {
+		final InteractionImpl<?, E, ?> target = interaction;
+		if(target != null && !events.isEmpty()) {
+			nbDelivered.addAndGet(events.size());
+			target.runInUIThreadBatched(() -> events.forEach(target::directEventProcess));
+		}
+	}
+
+	/**
+	 * Runs the given job in the UI thread of the user interaction. Used by the scheduled deliveries
+	 * that call deliver themselves. Nothing done if the limiter is not used by a user interaction.
+	 * @param job The job to run in the UI thread.
+	 */
+	protected final void runInUIThread(final Runnable job) {
+		final InteractionImpl<?, E, ?> target = interaction;
+		if(target != null) {
+			target.runInUIThreadBatched(job);
+		}
+	}
+
+	/**
+	 * Counts a dropped event.
+	 */
+	protected final void drop() {
+		nbDropped.incrementAndGet();
+	}
+
+	/**
+	 * @param evt1 The first event to check.
+	 * @param evt2 The second event to check.
+	 * @return True: the two given events are of the same type for the user interaction.
+	 */
+	protected final boolean isSameType(final E evt1, final E evt2) {
+		return interaction.isEventsOfSameType(evt1, evt2);
+	}
+
+	/**
+	 * @param event The event to identify.
+	 * @return The key of the given event for the user interaction (cf. InteractionImpl::getEventKey).
+	 */
+	protected final Object getEventKey(final E event) {
+		return interaction.getEventKey(event);
+	}
+
+	/**
+	 * Schedules the given task in the shared timer service after the delay of the limiter.
+	 * @param task The task to schedule.
+	 * @return The scheduled timeout.
+	 */
+	protected final TimerService.ScheduledTimeout schedule(final Runnable task) {
+		return TimerService.getInstance().schedule(task, delay);
+	}
+
+	/**
+	 * @return The user interaction that uses the limiter. Null if none.
+	 */
+	InteractionImpl<?, E, ?> getInteraction() {
+		return interaction;
+	}
+
+	void setInteraction(final InteractionImpl<?, E, ?> interaction) {
+		this.interaction = interaction;
+	}
+}
@@ -0,0 +1,74 @@
+/*
+ * Interacto
+ * Copyright (C) 2020 Arnaud Blouin
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.interacto.interaction;
+
+/**
+ * Leading-edge sampling: at most one event of the same type is delivered per window.
+ * The first event of a burst is delivered immediately and opens a window, during which
+ * the events of the same type are dropped. An event of another type is delivered immediately and opens a new window.
+ * @param <E> The type of the events.
+ */
+public class SampleLimiter<E> extends RateLimiter<E> {
+	/** The event that opened the current window. Null if no window is open. */
+	private E sampled;
+	/** The end of the current window. Null if none. */
+	private TimerService.ScheduledTimeout timeout;
+	/** The number of the current window: a late end of a previous window must not close the current one. */
+	private long window;
+
+	/**
+	 * Creates the limiter.
+	 * @param delay The duration in ms of the window. Must be greater than 0.
+	 * @throws IllegalArgumentException If the delay is not valid.
+	 */
+	public SampleLimiter(final long delay) {
+		super(delay);
+	}
+
+	@Override
+	protected void process(final E event) {
+		synchronized(this) {
+			if(sampled != null && isSameType(sampled, event)) {
+				drop();
+				return;
+			}
+
+			sampled = event;
+			if(timeout != null) {
+				timeout.cancel();
+			}
+			window++;
+			final long current = window;
+			timeout = schedule(() -> closeWindow(current));
+		}
+
+		deliver(event);
+	}
+
+	private synchronized void closeWindow(final long closed) {
+		if(closed == window) {
+			sampled = null;
+			timeout = null;
+		}
+	}
+
+	@Override
+	public synchronized void cancel() {
+		if(timeout != null) {
+			timeout.cancel();
+		}
+		closeWindow(window);
+	}
+}
@@ -0,0 +1,98 @@
+/*
+ * Interacto
+ * Copyright (C) 2020 Arnaud Blouin
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.interacto.interaction;
+
+/**
+ * Throttling: the first event of a burst opens a window; at the end of the window, the latest event
+ * of the burst is delivered. The other events of the burst are dropped.
+ * @param <E> The type of the events.
+ */
+public class ThrottleLimiter<E> extends RateLimiter<E> {
+	/** The latest event of the current burst. Null if none. */
+	protected E pending;
+	/** The end of the current window. Null if none. Guarded by this. */
+	protected TimerService.ScheduledTimeout timeout;
+
+	/**
+	 * Creates the limiter.
+	 * @param delay The duration in ms of the window. Must be greater than 0.
+	 * @throws IllegalArgumentException If the delay is not valid.
+	 */
+	public ThrottleLimiter(final long delay) {
+		super(delay);
+	}
+
+	@Override
+	protected void process(final E event) {
+		final E previous;
+
+		synchronized(this) {
+			previous = pending;
+			pending = event;
+
+			if(previous != null && isSameType(previous, event)) {
+				onSameTypeEvent();
+				return;
+			}
+
+			if(timeout != null) {
+				timeout.cancel();
+			}
+			timeout = schedule(this::flush);
+		}
+
+		// An event of another type ends the burst
+		if(previous != null) {
+			deliver(previous);
+		}
+	}
+
+	/**
+	 * Called when an event extends the current burst (the previous pending event is replaced).
+	 * Called while holding the lock of the limiter, that guards the pending event and the timeout.
+	 */
+	protected void onSameTypeEvent() {
+		drop();
+	}
+
+	/**
+	 * Delivers the pending event at the end of the window.
+	 */
+	protected void flush() {
+		final E event;
+
+		synchronized(this) {
+			event = pending;
+			pending = null;
+			timeout = null;
+		}
+
+		if(event != null) {
+			deliverInUIThread(event);
+		}
+	}
+
+	@Override
+	public synchronized void cancel() {
+		if(timeout != null) {
+			timeout.cancel();
+			timeout = null;
+		}
+		if(pending != null) {
+			pending = null;
+			drop();
+		}
+	}
+}
@@ -0,0 +1,295 @@
+/*
+ * Interacto
+ * Copyright (C) 2020 Arnaud Blouin
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.interacto.interaction;
+
+import io.github.interacto.error.ErrorCatcher;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A service that executes delayed tasks (eg timeout transitions, throttled events) using a single shared thread.
+ * The delayed tasks are stored in a hashed timing wheel: scheduling or cancelling a task is
+ * an O(1) operation that does not create any thread.
+ * The thread of the service is created on the first scheduled task and waits (without ticking)
+ * while no task is scheduled.
+ * Granularity: a task is executed on the first tick that follows its deadline, so it may run up to
+ * one tick late (10 ms with the default instance), never early.
+ * Serial execution: all the expired tasks of the application run one after the other in the thread of the service.
+ * A slow task thus delays every other task, including the timeouts of the other user interactions.
+ * Tasks must be short: long jobs should be delegated to another thread (eg the UI thread, as the
+ * user interactions do).
+ */
+public class TimerService {
+	/** The name of the thread of the timer service. */
+	public static final String TIMER_THREAD_NAME = "interacto-timer";
+
+	private static TimerService instance = new TimerService();
+
+	/**
+	 * @return The single instance of TimerService.
+	 */
+	public static TimerService getInstance() {
+		return instance;
+	}
+
+	/**
+	 * Sets the single instance.
+	 * @param instance The instance to use. Nothing done if null.
+	 */
+	public static void setInstance(final TimerService instance) {
+		if(instance != null) {
+			TimerService.instance = instance;
+		}
+	}
+
+	/** The duration of a tick in ns. */
+	private final long tickDuration;
+	/** The slots of the wheel. Only accessed by the timer thread. */
+	private final List<List<ScheduledTimeout>> wheel;
+	/** The mask used to compute the slot of a tick (the size of the wheel is a power of two). */
+	private final int mask;
+	/** The tasks scheduled but not yet put into the wheel. */
+	private final Queue<ScheduledTimeout> pendingTimeouts;
+	/** The number of tasks neither cancelled nor executed yet. */
+	private final AtomicInteger nbPendingTimeouts;
+	private final Object lock;
+	/** The thread of the service. Guarded by the lock. */
+	private Thread worker;
+	/** The number of tasks in the wheel. Only accessed by the timer thread. */
+	private int nbTimeoutsInWheel;
+	/** The origin of the ticks in ns. Only accessed by the timer thread. */
+	private long startTime;
+	/** The current tick. Only accessed by the timer thread. */
+	private long tick;
+
+	/**
+	 * Creates a timer service with a tick of 10 ms and a wheel of 512 slots.
+	 */
+	public TimerService() {
+		this(10L, 512);
+	}
+
+	/**
+	 * Creates a timer service.
+	 * @param tickDuration The duration of a tick in ms. Must be greater than 0.
+	 * @param wheelSize The number of slots of the wheel. Rounded up to the next power of two. Must be greater than 0.
+	 * @throws IllegalArgumentException If one of the parameters is not valid.
+	 */
+	public TimerService(final long tickDuration, final int wheelSize) {
+		super();
+
+		if(tickDuration <= 0L || wheelSize <= 0 || wheelSize > 1 << 30) {
+			throw new IllegalArgumentException("Incorrect tick duration or wheel size");
+		}
+
+		final int size = wheelSize == 1 ? 1 : Integer.highestOneBit(wheelSize - 1) << 1;
+		this.tickDuration = TimeUnit.MILLISECONDS.toNanos(tickDuration);
+		wheel = new ArrayList<>(size);
+		for(int i = 0; i < size; i++) {
+			wheel.add(new ArrayList<>());
+		}
+		mask = size - 1;
+		pendingTimeouts = new ConcurrentLinkedQueue<>();
+		nbPendingTimeouts = new AtomicInteger();
+		lock = new Object();
+	}
+
+	/**
+	 * Schedules the given task. The task runs in the thread of the service, on the first tick after the delay,
+	 * after the other tasks that expire on this tick: it must not block.
+	 * @param task The task to execute once the delay elapsed. Cannot be null.
+	 * @param delay The delay in ms. If lower than 0, the task is executed at the next tick.
+	 * @return The scheduled timeout, to use for cancelling the task.
+	 * @throws IllegalArgumentException If the task is null.
+	 */
+	public ScheduledTimeout schedule(final Runnable task, final long delay) {
+		if(task == null) {
+			throw new IllegalArgumentException("null task");
+		}
+
+		final ScheduledTimeout timeout = new ScheduledTimeout(task, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Math.max(0L, delay)));
+		nbPendingTimeouts.incrementAndGet();
+		pendingTimeouts.add(timeout);
+
+		synchronized(lock) {
+			if(worker == null) {
+				worker = new Thread(this::work, TIMER_THREAD_NAME);
+				worker.setDaemon(true);
+				worker.start();
+			}else {
+				lock.notifyAll();
+			}
+		}
+
+		return timeout;
+	}
+
+	/**
+	 * @return The number of scheduled tasks neither cancelled nor executed yet.
+	 */
+	public int getNbPendingTimeouts() {
+		return nbPendingTimeouts.get();
+	}
+
+	private void work() {
+		startTime = System.nanoTime();
+		tick = 0L;
+
+		try {
+			while(true) {
+				waitForTimeouts();
+				waitForNextTick();
+				transferPendingTimeouts();
+				expireTimeouts(wheel.get((int) (tick & mask)));
+				tick++;
+			}
+		}catch(final InterruptedException ex) {
+			synchronized(lock) {
+				worker = null;
+			}
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Blocks the timer thread while no task is scheduled.
+	 */
+	private void waitForTimeouts() throws InterruptedException {
+		boolean idle = false;
+
+		synchronized(lock) {
+			while(nbTimeoutsInWheel == 0 && pendingTimeouts.isEmpty()) {
+				idle = true;
+				lock.wait();
+			}
+		}
+
+		// The wheel is empty: the ticks restart from now.
+		if(idle) {
+			startTime = System.nanoTime() - tick * tickDuration;
+		}
+	}
+
+	private void waitForNextTick() throws InterruptedException {
+		final long sleepTime = tickDuration * (tick + 1L) - (System.nanoTime() - startTime);
+
+		if(sleepTime > 0L) {
+			TimeUnit.NANOSECONDS.sleep(sleepTime);
+		}
+	}
+
+	private void transferPendingTimeouts() {
+		ScheduledTimeout timeout = pendingTimeouts.poll();
+
+		while(timeout != null) {
+			if(!timeout.isCancelled()) {
+				final long calculated = (timeout.deadline - startTime) / tickDuration;
+				timeout.remainingRounds = Math.max(0L, (calculated - tick) / wheel.size());
+				wheel.get((int) (Math.max(calculated, tick) & mask)).add(timeout);
+				nbTimeoutsInWheel++;
+			}
+			timeout = pendingTimeouts.poll();
+		}
+	}
+
+	private void expireTimeouts(final List<ScheduledTimeout> slot) {
+		final int size = slot.size();
+		int kept = 0;
+
+		for(int i = 0; i < size; i++) {
+			final ScheduledTimeout timeout = slot.get(i);
+
+			if(timeout.isCancelled()) {
+				nbTimeoutsInWheel--;
+			}else {
+				if(timeout.remainingRounds <= 0L) {
+					nbTimeoutsInWheel--;
+					timeout.expire();
+				}else {
+					timeout.remainingRounds--;
+					slot.set(kept, timeout);
+					kept++;
+				}
+			}
+		}
+
+		slot.subList(kept, size).clear();
+	}
+
+	/**
+	 * A task scheduled in the timer service.
+	 */
+	public final class ScheduledTimeout {
+		private static final int SCHEDULED = 0;
+		private static final int CANCELLED = 1;
+		private static final int EXPIRED = 2;
+
+		private final Runnable task;
+		/** The deadline of the task (System::nanoTime). */
+		private final long deadline;
+		private final AtomicInteger state;
+		/** The number of wheel rounds before the execution. Only accessed by the timer thread. */
+		private long remainingRounds;
+
+		ScheduledTimeout(final Runnable task, final long deadline) {
+			super();
+			this.task = task;
+			this.deadline = deadline;
+			state = new AtomicInteger(SCHEDULED);
+		}
+
+		/**
+		 * Cancels the task. Nothing done if the task already ran or was cancelled.
+		 * @return True: the task has been cancelled by this call.
+		 */
+		public boolean cancel() {
+			if(state.compareAndSet(SCHEDULED, CANCELLED)) {
+				nbPendingTimeouts.decrementAndGet();
+				return true;
+			}
+			return false;
+		}
+
+		/**
+		 * @return True: the task has been cancelled.
+		 */
+		public boolean isCancelled() {
+			return state.get() == CANCELLED;
+		}
+
+		/**
+		 * @return True: the task has been executed (or is in execution).
+		 */
+		public boolean isExpired() {
+			return state.get() == EXPIRED;
+		}
+
+		void expire() {
+			if(state.compareAndSet(SCHEDULED, EXPIRED)) {
+				try {
+					task.run();
+				}catch(final Throwable ex) {
+					ErrorCatcher.getInstance().reportError(ex);
+				}finally {
+					nbPendingTimeouts.decrementAndGet();
+				}
+			}
+		}
+	}
+}
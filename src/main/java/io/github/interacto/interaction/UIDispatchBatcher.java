@@ -0,0 +1,152 @@
+/*
+ * Interacto
+ * Copyright (C) 2020 Arnaud Blouin
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.interacto.interaction;
+
+import io.github.interacto.error.ErrorCatcher;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Batches the jobs that the user interactions run in the UI thread out of the UI thread
+ * (eg the deliveries of the rate limiters, cf. RateLimiter): the jobs submitted during a frame are posted
+ * to the UI thread as a single job at the end of the frame. This reduces the wakeups of the UI thread
+ * and the contention on the event queue of the toolkit.
+ * The end of the frames are scheduled in the shared timer service (cf. TimerService), whose tick
+ * duration defines the precision of the frames.
+ * The batcher is optional: it is used by the user interactions once set (cf. InteractionImpl::setUIDispatchBatcher).
+ * The jobs are executed in their submission order. An error thrown by a job is reported to the ErrorCatcher
+ * and does not prevent the execution of the other jobs.
+ */
+public class UIDispatchBatcher {
+	/** The function that posts a job in the UI thread (eg Platform::runLater in JavaFX). */
+	private final Consumer<Runnable> uiExecutor;
+	/** The duration of a frame in ms. */
+	private final long frameDuration;
+	/** The jobs submitted during the current frame. */
+	private final Queue<Runnable> pendingJobs;
+	/** True: the end of the current frame is scheduled. */
+	private final AtomicBoolean flushScheduled;
+	private final AtomicLong nbBatches;
+	private final AtomicLong nbJobs;
+
+	/**
+	 * Creates a batcher with frames of 16 ms (about 60 frames per second).
+	 * @param uiExecutor The function that posts a job in the UI thread (eg Platform::runLater in JavaFX). Cannot be null.
+	 * @throws IllegalArgumentException If the UI executor is null.
+	 */
+	public UIDispatchBatcher(final Consumer<Runnable> uiExecutor) {
+		this(uiExecutor, 16L);
+	}
+
+	/**
+	 * Creates a batcher.
+	 * @param uiExecutor The function that posts a job in the UI thread (eg Platform::runLater in JavaFX). Cannot be null.
+	 * @param frameDuration The duration of a frame in ms. Must be greater than 0.
+	 * @throws IllegalArgumentException If one of the parameters is not valid.
+	 */
+	public UIDispatchBatcher(final Consumer<Runnable> uiExecutor, final long frameDuration) {
+		super();
+		if(uiExecutor == null || frameDuration <= 0L) {
+			throw new IllegalArgumentException("Incorrect UI executor or frame duration");
+		}
+		this.uiExecutor = uiExecutor;
+		this.frameDuration = frameDuration;
+		pendingJobs = new ConcurrentLinkedQueue<>();
+		flushScheduled = new AtomicBoolean(false);
+		nbBatches = new AtomicLong();
+		nbJobs = new AtomicLong();
+	}
+
+	/**
+	 * Submits a job to run in the UI thread at the end of the current frame.
+	 * Can be called from any thread.
+	 * @param job The job to run. Nothing done if null.
+	 */
+	public void submit(final Runnable job) {
+		if(job == null) {
+			return;
+		}
+
+		pendingJobs.add(job);
+
+		if(flushScheduled.compareAndSet(false, true)) {
+			TimerService.getInstance().schedule(this::flush, frameDuration);
+		}
+	}
+
+	/**
+	 * Posts the jobs of the current frame to the UI thread as a single job.
+	 */
+	void flush() {
+		// Reset before draining: a job submitted from now on schedules the next frame
+		flushScheduled.set(false);
+
+		final List<Runnable> batch = new ArrayList<>();
+		Runnable job = pendingJobs.poll();
+		while(job != null) {
+			batch.add(job);
+			job = pendingJobs.poll();
+		}
+
+		if(!batch.isEmpty()) {
+			nbBatches.incrementAndGet();
+			nbJobs.addAndGet(batch.size());
+			uiExecutor.accept(() -> runBatch(batch));
+		}
+	}
+
+	private static void runBatch(final List<Runnable> batch) {
+		for(final Runnable job : batch) {
+			try {
+				job.run();
+			}catch(final Throwable ex) {
+				ErrorCatcher.getInstance().reportError(ex);
+			}
+		}
+	}
+
+	/**
+	 * @return The duration of a frame in ms.
+	 */
+	public long getFrameDuration() {
+		return frameDuration;
+	}
+
+	/**
+	 * @return The number of jobs waiting for the end of the current frame.
+	 */
+	public int getNbPendingJobs() {
+		return pendingJobs.size();
+	}
+
+	/**
+	 * @return The number of batches posted to the UI thread.
+	 */
+	public long getNbBatches() {
+		return nbBatches.get();
+	}
+
+	/**
+	 * @return The number of jobs posted to the UI thread.
+	 */
+	public long getNbJobs() {
+		return nbJobs.get();
+	}
+}
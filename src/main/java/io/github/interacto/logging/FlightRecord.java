@@ -0,0 +1,119 @@
+/*
+ * Interacto
+ * Copyright (C) 2020 Arnaud Blouin
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.interacto.logging;
+
+import io.github.interacto.command.Command;
+import java.util.Optional;
+
+/**
+ * A decoded record of the flight recorder (cf. FlightRecorder).
+ * The identifiers of the FSMs, states and bindings are their identity hash codes (0: no object),
+ * ie the hexadecimal number printed by Object::toString.
+ */
+public final class FlightRecord {
+	private final long threadId;
+	private final String threadName;
+	private final long timestamp;
+	private final FlightRecorder.Kind kind;
+	private final int fsmId;
+	private final int fromId;
+	private final int toId;
+	private final int bindingId;
+	private final Command.CmdStatus cmdStatus;
+
+	FlightRecord(final long threadId, final String threadName, final long timestamp, final FlightRecorder.Kind kind,
+				final int fsmId, final int fromId, final int toId, final int bindingId, final Command.CmdStatus cmdStatus) {
+		super();
+		this.threadId = threadId;
+		this.threadName = threadName;
+		this.timestamp = timestamp;
+		this.kind = kind;
+		this.fsmId = fsmId;
+		this.fromId = fromId;
+		this.toId = toId;
+		this.bindingId = bindingId;
+		this.cmdStatus = cmdStatus;
+	}
+
+	/**
+	 * @return The ID of the thread that produced the record.
+	 */
+	public long getThreadId() {
+		return threadId;
+	}
+
+	/**
+	 * @return The name of the thread that produced the record.
+	 */
+	public String getThreadName() {
+		return threadName;
+	}
+
+	/**
+	 * @return The time of the record (System::nanoTime).
+	 */
+	public long getTimestamp() {
+		return timestamp;
+	}
+
+	/**
+	 * @return The kind of the recorded event.
+	 */
+	public FlightRecorder.Kind getKind() {
+		return kind;
+	}
+
+	/**
+	 * @return The ID of the FSM concerned by the event, or 0.
+	 */
+	public int getFsmId() {
+		return fsmId;
+	}
+
+	/**
+	 * @return The ID of the source state (state changes and transitions), or 0.
+	 */
+	public int getFromId() {
+		return fromId;
+	}
+
+	/**
+	 * @return The ID of the target state (state changes and transitions), or 0.
+	 */
+	public int getToId() {
+		return toId;
+	}
+
+	/**
+	 * @return The ID of the widget binding concerned by the event, or 0.
+	 */
+	public int getBindingId() {
+		return bindingId;
+	}
+
+	/**
+	 * @return The status of the command of the binding at the time of the event, if any.
+	 */
+	public Optional<Command.CmdStatus> getCmdStatus() {
+		return Optional.ofNullable(cmdStatus);
+	}
+
+	@Override
+	public String toString() {
+		return timestamp + " [" + threadName + "] " + kind + " fsm=" + Integer.toHexString(fsmId) +
+			" from=" + Integer.toHexString(fromId) + " to=" + Integer.toHexString(toId) +
+			" binding=" + Integer.toHexString(bindingId) + " cmd=" + cmdStatus;
+	}
+}
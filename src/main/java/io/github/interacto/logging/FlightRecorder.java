@@ -0,0 +1,439 @@
+/*
+ * Interacto
+ * Copyright (C) 2020 Arnaud Blouin
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.interacto.logging;
+
+import io.github.interacto.command.Command;
+import io.github.interacto.error.ErrorCatcher;
+import io.reactivex.disposables.Disposable;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.ref.WeakReference;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A recorder of the last events of the FSMs and widget bindings, much cheaper than text logging.
+ * It is disabled by default (cf. setEnabled). The default instance is enabled at start-up if the system property
+ * 'interacto.flightrecorder' is 'true'.
+ * Each thread writes fixed-size binary records (timestamp, kind, FSM, source and target states, binding,
+ * command status) in its own preallocated ring buffer: recording neither allocates nor locks.
+ * The objects are identified by their identity hash code.
+ * The buffers can be dumped on demand (or at each error reported to the ErrorCatcher, cf. dumpOnError)
+ * into a compact binary stream that decode reads back.
+ * Dumping while recording is best effort: the records overwritten during the dump are dropped.
+ */
+public class FlightRecorder {
+	/** The default number of records kept per thread. */
+	public static final int DEFAULT_CAPACITY = 1024;
+
+	/**
+	 * The number of buffers of terminated threads kept, as the last records of a thread may explain an error.
+	 * The oldest ones are dropped when a thread starts recording.
+	 */
+	static final int MAX_TERMINATED_BUFFERS = 16;
+
+	/** The first bytes of a dump ("IFR" + the version of the format). */
+	private static final int MAGIC = 0x49465201;
+	/** A record takes four longs in a ring buffer. */
+	private static final int LONGS_PER_RECORD = 4;
+	private static final Kind[] KINDS = Kind.values();
+	private static final Command.CmdStatus[] STATUSES = Command.CmdStatus.values();
+
+	private static FlightRecorder instance = createDefaultInstance();
+
+	private static FlightRecorder createDefaultInstance() {
+		final FlightRecorder recorder = new FlightRecorder(DEFAULT_CAPACITY);
+		recorder.setEnabled(Boolean.getBoolean("interacto.flightrecorder"));
+		return recorder;
+	}
+
+	/**
+	 * @return The single instance. Cannot be null.
+	 */
+	public static FlightRecorder getInstance() {
+		return instance;
+	}
+
+	/**
+	 * Sets the single instance.
+	 * @param newInstance The new single instance. Nothing done if null.
+	 */
+	public static void setInstance(final FlightRecorder newInstance) {
+		if(newInstance != null) {
+			instance = newInstance;
+		}
+	}
+
+	/**
+	 * The kinds of recorded events.
+	 */
+	public enum Kind {
+		/** The current state of a FSM changed. */
+		STATE_CHANGE,
+		/** A standard transition was executed. */
+		TRANSITION,
+		/** A timeout transition was executed. */
+		TIMEOUT_TRANSITION,
+		/** A transition that starts a sub-FSM was executed. */
+		SUB_FSM_TRANSITION,
+		/** The interaction of a binding started. */
+		BINDING_STARTS,
+		/** The interaction of a binding was updated. */
+		BINDING_UPDATES,
+		/** The interaction of a binding stopped. */
+		BINDING_STOPS,
+		/** The interaction of a binding was cancelled. */
+		BINDING_CANCELS,
+		/** The command of a binding was executed. */
+		CMD_EXECUTED
+	}
+
+	private final int capacity;
+	private final ThreadLocal<ThreadBuffer> buffer;
+	/** All the buffers, to dump them. Only the last MAX_TERMINATED_BUFFERS buffers of terminated threads are kept. */
+	private final List<ThreadBuffer> buffers;
+	private final AtomicLong lastErrorDump;
+	private volatile boolean enabled;
+
+	/**
+	 * Creates a disabled flight recorder (cf. setEnabled).
+	 * @param capacity The number of records kept per thread.
+	 * @throws IllegalArgumentException If the capacity is not greater than 0.
+	 */
+	public FlightRecorder(final int capacity) {
+		super();
+		if(capacity <= 0) {
+			throw new IllegalArgumentException("The capacity must be greater than 0: " + capacity);
+		}
+		this.capacity = capacity;
+		buffers = new CopyOnWriteArrayList<>();
+		buffer = ThreadLocal.withInitial(() -> {
+			final ThreadBuffer threadBuffer = new ThreadBuffer(Thread.currentThread(), capacity);
+			pruneTerminated();
+			buffers.add(threadBuffer);
+			return threadBuffer;
+		});
+		lastErrorDump = new AtomicLong(System.nanoTime() - TimeUnit.SECONDS.toNanos(1L));
+		enabled = false;
+	}
+
+	/**
+	 * Drops the oldest buffers of terminated threads so that at most MAX_TERMINATED_BUFFERS of them are kept.
+	 * Called when a thread starts recording: the number of buffers is bounded by the number of recording threads alive.
+	 */
+	private void pruneTerminated() {
+		final List<ThreadBuffer> terminated = new ArrayList<>();
+		for(final ThreadBuffer threadBuffer : buffers) {
+			if(threadBuffer.isTerminated()) {
+				terminated.add(threadBuffer);
+			}
+		}
+		if(terminated.size() > MAX_TERMINATED_BUFFERS) {
+			buffers.removeAll(terminated.subList(0, terminated.size() - MAX_TERMINATED_BUFFERS));
+		}
+	}
+
+	/**
+	 * @return The number of records kept per thread.
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * @return True: the events are recorded.
+	 */
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * @param enabled True: the events are recorded. False: the recording stops (the recorded events are kept).
+	 */
+	public void setEnabled(final boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	/**
+	 * Records an event in the buffer of the current thread.
+	 * @param kind The kind of the event. Nothing done if null.
+	 * @param fsm The FSM concerned by the event. May be null.
+	 * @param from The source state of the transition or state change. May be null.
+	 * @param to The target state of the transition or state change. May be null.
+	 * @param binding The widget binding concerned by the event. May be null.
+	 * @param status The status of the command of the binding. May be null.
+	 */
+	public void record(final Kind kind, final Object fsm, final Object from, final Object to, final Object binding,
+					final Command.CmdStatus status) {
+		if(!enabled || kind == null) {
+			return;
+		}
+		buffer.get().write(System.nanoTime(),
+			((long) System.identityHashCode(fsm) << 32) | (System.identityHashCode(from) & 0xFFFFFFFFL),
+			((long) System.identityHashCode(to) << 32) | (System.identityHashCode(binding) & 0xFFFFFFFFL),
+			(kind.ordinal() << 8) | (status == null ? 0 : status.ordinal() + 1));
+	}
+
+	/**
+	 * Removes the events recorded before the call. Can be called from any thread:
+	 * the records written concurrently by the other threads may be kept.
+	 */
+	public void clear() {
+		buffers.forEach(ThreadBuffer::clear);
+	}
+
+	/**
+	 * @return The recorded events of all the threads, sorted by timestamp.
+	 */
+	public List<FlightRecord> getRecords() {
+		final List<FlightRecord> records = new ArrayList<>();
+		for(final ThreadBuffer threadBuffer : buffers) {
+			final long[] data = threadBuffer.snapshot();
+			for(int i = 0; i < data.length; i += LONGS_PER_RECORD) {
+				records.add(toRecord(threadBuffer.threadId, threadBuffer.threadName, data, i));
+			}
+		}
+		records.sort(Comparator.comparingLong(FlightRecord::getTimestamp));
+		return records;
+	}
+
+	/**
+	 * Writes the recorded events into the given stream (not closed), in the binary format read by decode.
+	 * @param output The stream to write in.
+	 * @throws IOException If the writing fails.
+	 * @throws IllegalArgumentException If the stream is null.
+	 */
+	public void dump(final OutputStream output) throws IOException {
+		if(output == null) {
+			throw new IllegalArgumentException();
+		}
+
+		final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(output));
+		final List<ThreadBuffer> toDump = List.copyOf(buffers);
+		out.writeInt(MAGIC);
+		out.writeInt(toDump.size());
+
+		for(final ThreadBuffer threadBuffer : toDump) {
+			final long[] data = threadBuffer.snapshot();
+			out.writeLong(threadBuffer.threadId);
+			out.writeUTF(threadBuffer.threadName);
+			out.writeInt(data.length / LONGS_PER_RECORD);
+			for(int i = 0; i < data.length; i += LONGS_PER_RECORD) {
+				out.writeLong(data[i]);
+				out.writeShort((int) data[i + 3]);
+				out.writeLong(data[i + 1]);
+				out.writeLong(data[i + 2]);
+			}
+		}
+		out.flush();
+	}
+
+	/**
+	 * Writes the recorded events into the given file (replaced if it exists).
+	 * @param file The file to write.
+	 * @throws IOException If the writing fails.
+	 * @throws IllegalArgumentException If the file is null.
+	 */
+	public void dump(final Path file) throws IOException {
+		if(file == null) {
+			throw new IllegalArgumentException();
+		}
+		try(final OutputStream output = Files.newOutputStream(file)) {
+			dump(output);
+		}
+	}
+
+	/**
+	 * Dumps the recorded events into the given file each time an error is reported to the current ErrorCatcher,
+	 * at most once per second. The dump failures are ignored: reporting them would produce a new dump.
+	 * @param file The file to write (replaced at each dump).
+	 * @return The subscription to dispose to stop the dumps.
+	 * @throws IllegalArgumentException If the file is null.
+	 */
+	public Disposable dumpOnError(final Path file) {
+		if(file == null) {
+			throw new IllegalArgumentException();
+		}
+		return ErrorCatcher.getInstance().getErrors().subscribe(ex -> {
+			final long now = System.nanoTime();
+			final long last = lastErrorDump.get();
+			if(now - last >= TimeUnit.SECONDS.toNanos(1L) && lastErrorDump.compareAndSet(last, now)) {
+				try {
+					dump(file);
+				}catch(final IOException ignored) {
+					// Cannot be reported to the error catcher
+				}
+			}
+		});
+	}
+
+	/**
+	 * Reads a dump of a flight recorder (cf. dump).
+	 * @param input The stream to read (not closed).
+	 * @return The records of the dump, sorted by timestamp.
+	 * @throws IOException If the reading fails or if the stream is not a dump.
+	 * @throws IllegalArgumentException If the stream is null.
+	 */
+	public static List<FlightRecord> decode(final InputStream input) throws IOException {
+		if(input == null) {
+			throw new IllegalArgumentException();
+		}
+
+		final DataInputStream in = new DataInputStream(new BufferedInputStream(input));
+
+		if(in.readInt() != MAGIC) {
+			throw new IOException("Not a flight recorder dump");
+		}
+
+		final List<FlightRecord> records = new ArrayList<>();
+		final long[] data = new long[LONGS_PER_RECORD];
+
+		for(int nbThreads = in.readInt(); nbThreads > 0; nbThreads--) {
+			final long threadId = in.readLong();
+			final String threadName = in.readUTF();
+			for(int nbRecords = in.readInt(); nbRecords > 0; nbRecords--) {
+				data[0] = in.readLong();
+				data[3] = in.readShort() & 0xFFFF;
+				data[1] = in.readLong();
+				data[2] = in.readLong();
+				records.add(toRecord(threadId, threadName, data, 0));
+			}
+		}
+
+		records.sort(Comparator.comparingLong(FlightRecord::getTimestamp));
+		return records;
+	}
+
+	private static FlightRecord toRecord(final long threadId, final String threadName, final long[] data, final int offset) {
+		final int kind = (int) (data[offset + 3] >>> 8);
+		final int status = (int) (data[offset + 3] & 0xFF);
+		return new FlightRecord(threadId, threadName, data[offset], kind < KINDS.length ? KINDS[kind] : null,
+			(int) (data[offset + 1] >>> 32), (int) data[offset + 1], (int) (data[offset + 2] >>> 32), (int) data[offset + 2],
+			status == 0 || status > STATUSES.length ? null : STATUSES[status - 1]);
+	}
+
+
+	/**
+	 * The ring buffer of a thread. Only this thread writes into it.
+	 * The writer announces the record it writes (started) before writing it, and publishes it (count) after,
+	 * so that a reader can tell which records were overwritten during its copy.
+	 * Clearing does not touch these two counters (the writer reads count without synchronisation):
+	 * it moves the start of the readable records (cleared) to the current count.
+	 */
+	private static final class ThreadBuffer {
+		private static final VarHandle COUNT;
+		private static final VarHandle STARTED;
+		private static final VarHandle CLEARED;
+
+		static {
+			try {
+				final MethodHandles.Lookup lookup = MethodHandles.lookup();
+				COUNT = lookup.findVarHandle(ThreadBuffer.class, "count", long.class);
+				STARTED = lookup.findVarHandle(ThreadBuffer.class, "started", long.class);
+				CLEARED = lookup.findVarHandle(ThreadBuffer.class, "cleared", long.class);
+			}catch(final ReflectiveOperationException ex) {
+				throw new ExceptionInInitializerError(ex);
+			}
+		}
+
+		/** Weak: the buffer must not retain a terminated thread. */
+		private final WeakReference<Thread> thread;
+		private final long threadId;
+		private final String threadName;
+		private final int capacity;
+		private final long[] data;
+		/** The number of records written since the creation of the buffer. */
+		private long count;
+		/** The number of records whose writing started. */
+		private long started;
+		/** The number of records written before the last clear: they are not readable. */
+		private long cleared;
+
+		ThreadBuffer(final Thread thread, final int capacity) {
+			super();
+			this.thread = new WeakReference<>(thread);
+			threadId = thread.getId();
+			threadName = thread.getName();
+			this.capacity = capacity;
+			data = new long[capacity * LONGS_PER_RECORD];
+			count = 0L;
+			started = 0L;
+			cleared = 0L;
+		}
+
+		boolean isTerminated() {
+			final Thread owner = thread.get();
+			return owner == null || !owner.isAlive();
+		}
+
+		void write(final long timestamp, final long fsmAndFrom, final long toAndBinding, final long kindAndStatus) {
+			final long current = count;
+			final int index = (int) (current % capacity) * LONGS_PER_RECORD;
+			STARTED.setOpaque(this, current + 1L);
+			// The record must not be written before being announced
+			VarHandle.releaseFence();
+			data[index] = timestamp;
+			data[index + 1] = fsmAndFrom;
+			data[index + 2] = toAndBinding;
+			data[index + 3] = kindAndStatus;
+			COUNT.setRelease(this, current + 1L);
+		}
+
+		void clear() {
+			CLEARED.setRelease(this, (long) COUNT.getAcquire(this));
+		}
+
+		/**
+		 * @return A copy of the records, from the oldest to the newest, without the ones overwritten during the copy.
+		 */
+		long[] snapshot() {
+			final long end = (long) COUNT.getAcquire(this);
+			// A clear may happen after the reading of the count
+			final long start = Math.min(end, Math.max((long) CLEARED.getAcquire(this), end - capacity));
+			final long[] copy = new long[(int) (end - start) * LONGS_PER_RECORD];
+
+			for(long i = start; i < end; i++) {
+				System.arraycopy(data, (int) (i % capacity) * LONGS_PER_RECORD, copy, (int) (i - start) * LONGS_PER_RECORD,
+					LONGS_PER_RECORD);
+			}
+
+			// A record is overwritten by the record that comes 'capacity' records later
+			VarHandle.acquireFence();
+			final long firstIntact = Math.max(start, (long) STARTED.getOpaque(this) - capacity);
+			if(firstIntact <= start) {
+				return copy;
+			}
+			if(firstIntact >= end) {
+				return new long[0];
+			}
+			final long[] intact = new long[(int) (end - firstIntact) * LONGS_PER_RECORD];
+			System.arraycopy(copy, (int) (firstIntact - start) * LONGS_PER_RECORD, intact, 0, intact.length);
+			return intact;
+		}
+	}
+}
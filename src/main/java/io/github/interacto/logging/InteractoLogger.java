@@ -0,0 +1,93 @@
+/*
+ * Interacto
+ * Copyright (C) 2020 Arnaud Blouin
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.interacto.logging;
+
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+/**
+ * The logging facade of the library (bindings, interactions, FSMs).
+ * The messages are parameterised ('{}' placeholders) or supplied: they are built only if the logger logs information.
+ * Setting the system property 'interacto.logging' to 'false' disables all the logging of the library:
+ * the constant ENABLED is then false and the JIT removes the logging code.
+ * Implementations only have to define isInfoEnabled and logInfo.
+ */
+public interface InteractoLogger {
+	/** False if the system property 'interacto.logging' is 'false': nothing is then logged. */
+	boolean ENABLED = !"false".equalsIgnoreCase(System.getProperty("interacto.logging"));
+
+	/**
+	 * @param logger The java.util.logging logger to wrap.
+	 * @return A facade that logs into the given logger.
+	 * @throws IllegalArgumentException If the given logger is null.
+	 */
+	static InteractoLogger of(final Logger logger) {
+		return new JulLogger(logger);
+	}
+
+	/**
+	 * @return True: information messages are logged.
+	 */
+	boolean isInfoEnabled();
+
+	/**
+	 * Logs an information message, already built.
+	 * @param msg The message to log.
+	 */
+	void logInfo(final String msg);
+
+	/**
+	 * Logs a constant information message.
+	 * @param msg The message to log.
+	 */
+	default void info(final String msg) {
+		if(ENABLED && isInfoEnabled()) {
+			logInfo(msg);
+		}
+	}
+
+	/**
+	 * Logs an information message with one parameter.
+	 * @param format The message, where '{}' is replaced by the parameter.
+	 * @param arg The parameter.
+	 */
+	default void info(final String format, final Object arg) {
+		if(ENABLED && isInfoEnabled()) {
+			logInfo(MessageFormatter.format(format, arg));
+		}
+	}
+
+	/**
+	 * Logs an information message with two parameters.
+	 * @param format The message, where the two '{}' are replaced by the parameters.
+	 * @param arg1 The first parameter.
+	 * @param arg2 The second parameter.
+	 */
+	default void info(final String format, final Object arg1, final Object arg2) {
+		if(ENABLED && isInfoEnabled()) {
+			logInfo(MessageFormatter.format(format, arg1, arg2));
+		}
+	}
+
+	/**
+	 * Logs an information message built on demand.
+	 * @param msg The producer of the message, called only if the message is logged.
+	 */
+	default void info(final Supplier<String> msg) {
+		if(ENABLED && isInfoEnabled()) {
+			logInfo(msg.get());
+		}
+	}
+}
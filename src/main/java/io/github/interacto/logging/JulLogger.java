@@ -0,0 +1,67 @@
+/*
+ * Interacto
+ * Copyright (C) 2020 Arnaud Blouin
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.interacto.logging;
+
+import java.util.Optional;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The facade over a java.util.logging logger.
+ * The records report the caller of the facade as their source, not the facade itself.
+ */
+final class JulLogger implements InteractoLogger {
+	private static final StackWalker WALKER = StackWalker.getInstance();
+
+	/** The classes of the facade, whose frames are skipped to find the caller. */
+	private static final Set<String> FACADE_CLASSES = Set.of(InteractoLogger.class.getName(),
+		JulLogger.class.getName(), MessageFormatter.class.getName());
+
+	private final Logger logger;
+
+	JulLogger(final Logger logger) {
+		super();
+		if(logger == null) {
+			throw new IllegalArgumentException();
+		}
+		this.logger = logger;
+	}
+
+	@Override
+	public boolean isInfoEnabled() {
+		return logger.isLoggable(Level.INFO);
+	}
+
+	@Override
+	public void logInfo(final String msg) {
+		if(!logger.isLoggable(Level.INFO)) {
+			return;
+		}
+		final Optional<StackWalker.StackFrame> caller = WALKER.walk(frames -> frames
+			.filter(frame -> !FACADE_CLASSES.contains(frame.getClassName()))
+			.findFirst());
+		if(caller.isPresent()) {
+			logger.logp(Level.INFO, caller.get().getClassName(), caller.get().getMethodName(), msg);
+		}else {
+			logger.log(Level.INFO, msg);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "JulLogger{" + logger.getName() + '}';
+	}
+}
@@ -0,0 +1,67 @@
+/*
+ * Interacto
+ * Copyright (C) 2020 Arnaud Blouin
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.interacto.logging;
+
+/**
+ * Builds the parameterised messages of the loggers.
+ */
+final class MessageFormatter {
+	private static final String PLACEHOLDER = "{}";
+
+	private MessageFormatter() {
+		super();
+	}
+
+	/**
+	 * @param format The message to format, where the first '{}' is replaced by the parameter. Null is formatted as "null".
+	 * @param arg The parameter.
+	 * @return The formatted message.
+	 */
+	static String format(final String format, final Object arg) {
+		return format(format, 1, arg, null);
+	}
+
+	/**
+	 * @param format The message to format, where the two first '{}' are replaced by the parameters. Null is formatted as "null".
+	 * @param arg1 The first parameter.
+	 * @param arg2 The second parameter.
+	 * @return The formatted message.
+	 */
+	static String format(final String format, final Object arg1, final Object arg2) {
+		return format(format, 2, arg1, arg2);
+	}
+
+	private static String format(final String format, final int nbArgs, final Object arg1, final Object arg2) {
+		final String text = String.valueOf(format);
+		final int first = text.indexOf(PLACEHOLDER);
+
+		if(first < 0) {
+			return text;
+		}
+
+		final StringBuilder builder = new StringBuilder(text.length() + 32);
+		builder.append(text, 0, first).append(arg1);
+		final int next = first + PLACEHOLDER.length();
+		final int second = nbArgs < 2 ? -1 : text.indexOf(PLACEHOLDER, next);
+
+		if(second < 0) {
+			builder.append(text, next, text.length());
+		}else {
+			builder.append(text, next, second).append(arg2).append(text, second + PLACEHOLDER.length(), text.length());
+		}
+
+		return builder.toString();
+	}
+}
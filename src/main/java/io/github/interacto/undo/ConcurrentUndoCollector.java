@@ -0,0 +1,681 @@
+/*
+ * Interacto
+ * Copyright (C) 2020 Arnaud Blouin
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.interacto.undo;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * A thread-safe undo collector.
+ * Its state (the undo and redo stacks) is an immutable persistent structure swapped atomically (compare-and-set):
+ * add, clear, and the queries do not lock. Undo and redo operations run the side effects of the undoable objects:
+ * they are serialised by a lock of the collector, so that the objects are undone and redone in the order of the history.
+ * Merging (cf. setMergeWindow) and spilling (cf. setSpillFile) have side effects on the added objects: when one of them
+ * is enabled, all the operations of the collector are serialised by this lock. Merging is thus disabled by default.
+ * Memory budgets are supported in both modes.
+ */
+public class ConcurrentUndoCollector extends UndoCollector {
+	/** The state of a serialised collector: its objects are then stored by the sequential implementation of UndoCollector. */
+	private static final History SERIALISED = new History(Stack.EMPTY, Stack.EMPTY);
+
+	private final AtomicReference<History> history;
+	/** Serialises undo and redo operations, and all the operations when merging or spilling is enabled. */
+	private final ReentrantLock lock;
+
+	/**
+	 * Creates the undo collector.
+	 */
+	public ConcurrentUndoCollector() {
+		super();
+		history = new AtomicReference<>(History.EMPTY);
+		lock = new ReentrantLock();
+	}
+
+	@Override
+	public void add(final Undoable undoable) {
+		if(undoable == null) {
+			return;
+		}
+
+		History current;
+		History next;
+
+		while(true) {
+			current = history.get();
+			if(current == SERIALISED) {
+				if(runIfSerialised(() -> super.add(undoable))) {
+					return;
+				}
+			}else {
+				final int max = getSizeMax();
+				if(max <= 0) {
+					return;
+				}
+				final Stack undo = current.undo.size() < max ? current.undo : current.undo.dropOldest(current.undo.size() - max + 1);
+				next = fitMemoryBudget(new History(undo.push(undoable), Stack.EMPTY));
+				if(history.compareAndSet(current, next)) {
+					break;
+				}
+			}
+		}
+
+		removeCheckpoints(current, next);
+		undoPublisher.onNext(Optional.of(undoable));
+		if(!current.redo.isEmpty()) {
+			redoPublisher.onNext(Optional.empty());
+		}
+	}
+
+	@Override
+	public void undo(final int nb) {
+		lock.lock();
+		try {
+			if(history.get() == SERIALISED) {
+				super.undo(nb);
+			}else {
+				runMoved(transfer(true, nb, null), true);
+			}
+		}finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public void redo(final int nb) {
+		lock.lock();
+		try {
+			if(history.get() == SERIALISED) {
+				super.redo(nb);
+			}else {
+				runMoved(transfer(false, nb, null), false);
+			}
+		}finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public boolean undoTo(final Undoable target) {
+		if(target == null) {
+			return false;
+		}
+		lock.lock();
+		try {
+			if(history.get() == SERIALISED) {
+				return super.undoTo(target);
+			}
+			return runMoved(transfer(true, 0, target), true);
+		}finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public boolean redoTo(final Undoable target) {
+		if(target == null) {
+			return false;
+		}
+		lock.lock();
+		try {
+			if(history.get() == SERIALISED) {
+				return super.redoTo(target);
+			}
+			return runMoved(transfer(false, 0, target), false);
+		}finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public boolean restoreCheckpoint(final String name) {
+		lock.lock();
+		try {
+			return super.restoreCheckpoint(name);
+		}finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Atomically moves undoable objects from one stack to the other one.
+	 * Called with the lock: only add, clear, and the setters can change the history concurrently.
+	 * @param undoing True: from the undo stack to the redo one. False: the other way.
+	 * @param nb The number of objects to move. Not used if the target is not null.
+	 * @param target If not null, the objects are moved until the target is the last undoable object.
+	 * @return The moved objects, the most recent first. Null if the target is not in the source stack.
+	 */
+	private List<Undoable> transfer(final boolean undoing, final int nb, final Undoable target) {
+		History current;
+		List<Undoable> moved;
+		Stack from;
+		Stack to;
+
+		do {
+			current = history.get();
+			from = undoing ? current.undo : current.redo;
+			to = undoing ? current.redo : current.undo;
+			int count = nb;
+
+			if(target != null) {
+				final int depth = from.depth(target);
+				if(depth < 0) {
+					return null;
+				}
+				// The target stays on the undo stack when undoing and is moved when redoing.
+				count = undoing ? depth : depth + 1;
+			}
+
+			moved = new ArrayList<>();
+			while(count > 0 && !from.isEmpty()) {
+				moved.add(from.peek());
+				to = to.push(from.peek());
+				from = from.pop();
+				count--;
+			}
+
+			if(moved.isEmpty()) {
+				return moved;
+			}
+		}while(!history.compareAndSet(current, undoing ? new History(from, to) : new History(to, from)));
+
+		return moved;
+	}
+
+	/**
+	 * Undoes or redoes the moved objects (with the lock, so in the order of the history) and publishes the new last objects.
+	 * @return False: the objects were not moved.
+	 */
+	private boolean runMoved(final List<Undoable> moved, final boolean undoing) {
+		if(moved == null) {
+			return false;
+		}
+		if(!moved.isEmpty()) {
+			moved.forEach(undoing ? Undoable::undo : Undoable::redo);
+			undoPublisher.onNext(getLastUndo());
+			redoPublisher.onNext(getLastRedo());
+		}
+		return true;
+	}
+
+	@Override
+	public void clear() {
+		History current;
+
+		while(true) {
+			current = history.get();
+			if(current == SERIALISED) {
+				if(runIfSerialised(super::clear)) {
+					return;
+				}
+			}else if(history.compareAndSet(current, History.EMPTY)) {
+				break;
+			}
+		}
+
+		removeCheckpoints(current, History.EMPTY);
+		if(!current.undo.isEmpty()) {
+			undoPublisher.onNext(Optional.empty());
+		}
+		if(!current.redo.isEmpty()) {
+			redoPublisher.onNext(Optional.empty());
+		}
+	}
+
+	@Override
+	public void setSizeMax(final int max) {
+		lock.lock();
+		try {
+			super.setSizeMax(max);
+
+			if(max >= 0 && history.get() != SERIALISED) {
+				History current;
+				History next;
+
+				do {
+					current = history.get();
+					next = current.undo.size() <= max ? current :
+						new History(current.undo.dropOldest(current.undo.size() - max), current.redo);
+				}while(next != current && !history.compareAndSet(current, next));
+
+				removeCheckpoints(current, next);
+				if(!current.undo.isEmpty() && next.undo.isEmpty()) {
+					undoPublisher.onNext(Optional.empty());
+				}
+			}
+		}finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public void setMemoryBudget(final long budget) {
+		lock.lock();
+		try {
+			super.setMemoryBudget(budget);
+
+			if(history.get() != SERIALISED) {
+				History current;
+				History next;
+
+				do {
+					current = history.get();
+					next = fitMemoryBudget(current);
+				}while(next != current && !history.compareAndSet(current, next));
+
+				removeCheckpoints(current, next);
+				if(next.undo != current.undo) {
+					undoPublisher.onNext(getLastUndo());
+				}
+				if(next.redo != current.redo) {
+					redoPublisher.onNext(getLastRedo());
+				}
+			}
+		}finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Evicts the oldest undoable objects then the oldest redoable objects until the given history fits the memory budget.
+	 * The last undoable object is never evicted.
+	 * @return The given history if nothing is evicted.
+	 */
+	private History fitMemoryBudget(final History current) {
+		final long budget = getMemoryBudget();
+		if(budget <= 0L || current.retainedSize() <= budget) {
+			return current;
+		}
+
+		Stack undo = current.undo;
+		Stack redo = current.redo;
+		while(undo.retainedSize + redo.retainedSize > budget && undo.size() > 1) {
+			undo = undo.dropOldest(1);
+		}
+		while(undo.retainedSize + redo.retainedSize > budget && !redo.isEmpty()) {
+			redo = redo.dropOldest(1);
+		}
+		return new History(undo, redo);
+	}
+
+	/**
+	 * Defines a spill file (cf. UndoCollector::setSpillFile).
+	 * Spilling has side effects on the added objects: while a spill file is defined, the collector is serialised.
+	 */
+	@Override
+	public void setSpillFile(final UndoSpillFile file, final int nbOnHeap) {
+		lock.lock();
+		try {
+			if(file != null && nbOnHeap > 0) {
+				setSerialised(true);
+			}
+			super.setSpillFile(file, nbOnHeap);
+			setSerialised(isSerialisationRequired());
+		}finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Sets the merge window (cf. UndoCollector::setMergeWindow). 0 by default.
+	 * Merging has side effects on the added objects: while the window is greater than 0, the collector is serialised.
+	 */
+	@Override
+	public void setMergeWindow(final long window) {
+		lock.lock();
+		try {
+			super.setMergeWindow(window);
+			setSerialised(isSerialisationRequired());
+		}finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public boolean isSpilled(final Undoable undoable) {
+		return read(current -> false, () -> super.isSpilled(undoable));
+	}
+
+	private boolean isSerialisationRequired() {
+		return getSpillFile() != null || getMergeWindow() > 0L;
+	}
+
+	/**
+	 * Moves the objects into (or out of) the sequential implementation of UndoCollector. Must be called with the lock.
+	 * Concurrent lock-free operations fail their compare-and-set and then wait for the lock.
+	 */
+	private void setSerialised(final boolean serialised) {
+		final History current = history.get();
+
+		if(serialised && current != SERIALISED) {
+			final History last = history.getAndSet(SERIALISED);
+			resetStacks(last.undo.toDeque(), last.redo.toDeque());
+		}else if(!serialised && current == SERIALISED) {
+			final History restored = new History(Stack.of(super.getUndo()), Stack.of(super.getRedo()));
+			resetStacks(Collections.emptyList(), Collections.emptyList());
+			history.set(restored);
+		}
+	}
+
+	/**
+	 * Runs the given operation with the lock if the collector is serialised.
+	 * @return False: the collector is not serialised anymore, the operation was not run.
+	 */
+	private boolean runIfSerialised(final Runnable operation) {
+		lock.lock();
+		try {
+			if(history.get() != SERIALISED) {
+				return false;
+			}
+			operation.run();
+			return true;
+		}finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Reads the state of the collector: without lock, unless the collector is serialised.
+	 */
+	private <T> T read(final Function<History, T> lockFree, final Supplier<T> serialised) {
+		final History current = history.get();
+		if(current != SERIALISED) {
+			return lockFree.apply(current);
+		}
+
+		lock.lock();
+		try {
+			final History locked = history.get();
+			return locked == SERIALISED ? serialised.get() : lockFree.apply(locked);
+		}finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Removes the checkpoints of the objects of the old history that are not in the new one.
+	 */
+	private void removeCheckpoints(final History old, final History next) {
+		if(old == next || !hasCheckpoints()) {
+			return;
+		}
+
+		final Set<Undoable> kept = Collections.newSetFromMap(new IdentityHashMap<>());
+		kept.addAll(next.undo.toDeque());
+		kept.addAll(next.redo.toDeque());
+		for(final Undoable undoable : old.undo.toDeque()) {
+			if(!kept.contains(undoable)) {
+				removeCheckpoints(undoable);
+			}
+		}
+		for(final Undoable undoable : old.redo.toDeque()) {
+			if(!kept.contains(undoable)) {
+				removeCheckpoints(undoable);
+			}
+		}
+	}
+
+	@Override
+	public Optional<String> getLastUndoMessage() {
+		return getLastUndo().map(undoable -> undoable.getUndoName(getBundle()));
+	}
+
+	@Override
+	public Optional<String> getLastRedoMessage() {
+		return getLastRedo().map(undoable -> undoable.getUndoName(getBundle()));
+	}
+
+	@Override
+	public Optional<Undoable> getLastUndo() {
+		return read(current -> Optional.ofNullable(current.undo.peek()), super::getLastUndo);
+	}
+
+	@Override
+	public Optional<Undoable> getLastRedo() {
+		return read(current -> Optional.ofNullable(current.redo.peek()), super::getLastRedo);
+	}
+
+	/**
+	 * @return A snapshot of the stack of saved undoable objects. Modifying it has no effect on the collector.
+	 */
+	@Override
+	public Deque<Undoable> getUndo() {
+		return read(current -> current.undo.toDeque(), () -> new ArrayDeque<>(super.getUndo()));
+	}
+
+	/**
+	 * @return A snapshot of the stack of saved redoable objects. Modifying it has no effect on the collector.
+	 */
+	@Override
+	public Deque<Undoable> getRedo() {
+		return read(current -> current.redo.toDeque(), () -> new ArrayDeque<>(super.getRedo()));
+	}
+
+	@Override
+	public long getRetainedSize() {
+		return read(History::retainedSize, super::getRetainedSize);
+	}
+
+	/**
+	 * The immutable state of the collector.
+	 */
+	private static final class History {
+		static final History EMPTY = new History(Stack.EMPTY, Stack.EMPTY);
+
+		final Stack undo;
+		final Stack redo;
+
+		History(final Stack undo, final Stack redo) {
+			this.undo = undo;
+			this.redo = redo;
+		}
+
+		long retainedSize() {
+			return undo.retainedSize + redo.retainedSize;
+		}
+	}
+
+	/**
+	 * An immutable persistent stack whose oldest objects can be dropped (a banker's deque): the most recent objects
+	 * are in a front list, the oldest ones in a rear list in the reverse order. When a list is exhausted, half
+	 * of the other one is moved into it, so that push, pop, and dropOldest are amortised O(1) operations.
+	 */
+	private static final class Stack {
+		static final Stack EMPTY = new Stack(null, 0, null, 0, 0L);
+
+		/** The most recent objects, the most recent first. Not null if the stack is not empty. */
+		final Node front;
+		final int frontSize;
+		/** The oldest objects, the oldest first. */
+		final Node rear;
+		final int rearSize;
+		/** The sum of the retained sizes of the objects. */
+		final long retainedSize;
+
+		Stack(final Node front, final int frontSize, final Node rear, final int rearSize, final long retainedSize) {
+			this.front = front;
+			this.frontSize = frontSize;
+			this.rear = rear;
+			this.rearSize = rearSize;
+			this.retainedSize = retainedSize;
+		}
+
+		/**
+		 * @param deque The objects, the most recent first.
+		 */
+		static Stack of(final Deque<Undoable> deque) {
+			Stack stack = EMPTY;
+			final Iterator<Undoable> it = deque.descendingIterator();
+			while(it.hasNext()) {
+				stack = stack.push(it.next());
+			}
+			return stack;
+		}
+
+		int size() {
+			return frontSize + rearSize;
+		}
+
+		boolean isEmpty() {
+			return front == null;
+		}
+
+		/**
+		 * @return The most recent object. Null if empty.
+		 */
+		Undoable peek() {
+			return front == null ? null : front.value;
+		}
+
+		Stack push(final Undoable value) {
+			final Node node = new Node(value, value.getRetainedSize(), front);
+			return new Stack(node, frontSize + 1, rear, rearSize, retainedSize + node.retainedSize);
+		}
+
+		/**
+		 * @return The stack without its most recent object. The stack must not be empty.
+		 */
+		Stack pop() {
+			final long size = retainedSize - front.retainedSize;
+			if(front.next != null || rear == null) {
+				return new Stack(front.next, frontSize - 1, rear, rearSize, size);
+			}
+			// The front list is exhausted: the most recent half of the rear list becomes the front list
+			final Node[] nodes = toArray(rear, rearSize);
+			final int kept = rearSize / 2;
+			return new Stack(linkReversed(nodes, kept, rearSize), rearSize - kept, link(nodes, 0, kept), kept, size);
+		}
+
+		/**
+		 * @return The stack without its given number of oldest objects. The stack must contain more objects.
+		 */
+		Stack dropOldest(final int nb) {
+			Stack stack = this;
+			for(int i = 0; i < nb; i++) {
+				stack = stack.dropOldest();
+			}
+			return stack;
+		}
+
+		private Stack dropOldest() {
+			if(rear != null) {
+				return new Stack(front, frontSize, rear.next, rearSize - 1, retainedSize - rear.retainedSize);
+			}
+			if(frontSize == 1) {
+				return EMPTY;
+			}
+			// The rear list is exhausted: the oldest half of the front list (minus the dropped object) becomes the rear list
+			final Node[] nodes = toArray(front, frontSize);
+			final int remaining = frontSize - 1;
+			final int kept = (remaining + 1) / 2;
+			return new Stack(link(nodes, 0, kept), kept, linkReversed(nodes, kept, remaining), remaining - kept,
+				retainedSize - nodes[remaining].retainedSize);
+		}
+
+		/**
+		 * @return The position of the given object in the stack (0 for the most recent). -1 if not found.
+		 */
+		int depth(final Undoable value) {
+			int depth = 0;
+			for(Node node = front; node != null; node = node.next) {
+				if(node.value == value) {
+					return depth;
+				}
+				depth++;
+			}
+			int pos = 0;
+			for(Node node = rear; node != null; node = node.next) {
+				if(node.value == value) {
+					return frontSize + rearSize - 1 - pos;
+				}
+				pos++;
+			}
+			return -1;
+		}
+
+		/**
+		 * @return The objects, the most recent first.
+		 */
+		Deque<Undoable> toDeque() {
+			final Deque<Undoable> deque = new ArrayDeque<>(Math.max(size(), 1));
+			for(Node node = front; node != null; node = node.next) {
+				deque.addLast(node.value);
+			}
+			final Node[] nodes = toArray(rear, rearSize);
+			for(int i = nodes.length - 1; i >= 0; i--) {
+				deque.addLast(nodes[i].value);
+			}
+			return deque;
+		}
+
+		private static Node[] toArray(final Node list, final int size) {
+			final Node[] nodes = new Node[size];
+			Node node = list;
+			for(int i = 0; i < size; i++) {
+				nodes[i] = node;
+				node = node.next;
+			}
+			return nodes;
+		}
+
+		/**
+		 * @return A new list of the given nodes, in the order of the array.
+		 */
+		private static Node link(final Node[] nodes, final int from, final int to) {
+			Node list = null;
+			for(int i = to - 1; i >= from; i--) {
+				list = new Node(nodes[i].value, nodes[i].retainedSize, list);
+			}
+			return list;
+		}
+
+		/**
+		 * @return A new list of the given nodes, in the reverse order of the array.
+		 */
+		private static Node linkReversed(final Node[] nodes, final int from, final int to) {
+			Node list = null;
+			for(int i = from; i < to; i++) {
+				list = new Node(nodes[i].value, nodes[i].retainedSize, list);
+			}
+			return list;
+		}
+	}
+
+	/**
+	 * A node of an immutable list.
+	 */
+	private static final class Node {
+		final Undoable value;
+		/** The retained size of the object when it was added. */
+		final long retainedSize;
+		final Node next;
+
+		Node(final Undoable value, final long retainedSize, final Node next) {
+			this.value = value;
+			this.retainedSize = retainedSize;
+			this.next = next;
+		}
+	}
+}
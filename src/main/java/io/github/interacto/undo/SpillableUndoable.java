@@ -0,0 +1,38 @@
+/*
+ * Interacto
+ * Copyright (C) 2020 Arnaud Blouin
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.interacto.undo;
+
+import java.io.IOException;
+
+/**
+ * An undoable object whose memento (the data required to undo/redo it) can be spilled out of the heap
+ * by the undo collector (cf. UndoCollector::setSpillFile).
+ * Once spilled, the object should not retain its memento anymore: the undo collector rehydrates it before any undo or redo.
+ */
+public interface SpillableUndoable extends Undoable {
+	/**
+	 * Serialises the memento of the object and releases it.
+	 * @return The serialised memento. Cannot be null.
+	 * @throws IOException If the memento cannot be serialised. The object must then keep its memento.
+	 */
+	byte[] spillMemento() throws IOException;
+
+	/**
+	 * Restores the memento previously serialised by spillMemento.
+	 * @param memento The serialised memento.
+	 * @throws IOException If the memento cannot be deserialised.
+	 */
+	void rehydrateMemento(final byte[] memento) throws IOException;
+}
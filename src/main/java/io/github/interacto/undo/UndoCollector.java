@@ -14,15 +14,34 @@
  */
 package io.github.interacto.undo;
 
+import io.github.interacto.error.ErrorCatcher;
 import io.reactivex.Observable;
 import io.reactivex.subjects.PublishSubject;
+import io.reactivex.subjects.Subject;
+import java.io.IOException;
 import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
 import java.util.Optional;
 import java.util.ResourceBundle;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 /**
  * A collector of undone/redone objects.
+ * The number of undoable objects is limited (cf. setSizeMax). The collector can also have a memory budget
+ * (cf. setMemoryBudget): the oldest objects are then evicted until the sum of the retained sizes of the stored objects
+ * (cf. Undoable::getRetainedSize) fits the budget.
+ * The mementos of the oldest undoable objects can be spilled into a file (cf. setSpillFile).
+ * Consecutive compatible undoable objects added within a time window can be merged (cf. Undoable::tryMerge and setMergeWindow).
+ * Merging is disabled by default.
+ * Several objects can be undone/redone at once (cf. undo(int), undoTo, and checkpoints): a single notification is then
+ * published on undos() and redos().
  * @author Arnaud BLOUIN
  */
 public class UndoCollector {
@@ -40,9 +59,31 @@ public class UndoCollector {
 	private final Deque<Undoable> redo;
 	/** The maximal number of undo. */
 	private int sizeMax;
+	/** The memory budget in bytes. No budget if lower or equal to 0. */
+	private long memoryBudget;
+	/** The sum of the retained sizes of the undoable and redoable objects (the spilled objects excepted). */
+	private long retainedSize;
+	/** The file where the mementos of the oldest undoable objects are spilled. Null: no spilling. */
+	private UndoSpillFile spillFile;
+	/** The number of the most recent undoable objects that are not spilled. */
+	private int nbUndoableOnHeap;
+	/** The offsets of the spilled undoable objects in the spill file. */
+	private final Map<Undoable, Long> spilled;
+	/** True: the spilled objects were rehydrated by getUndo, the objects out of the on-heap tier must be spilled again. */
+	private boolean respillRequired;
+	/** The max duration in ms between two added undoable objects to merge them. No merge if lower or equal to 0. */
+	private long mergeWindow;
+	/** The last added undoable object (null if undo or redo occurred since). The next added object may be merged into it. */
+	private Undoable lastAdded;
+	/** The time of the last add (System::nanoTime). */
+	private long lastAddTime;
+	/** The named checkpoints: the undoable object that is the last undoable one at the checkpoint. */
+	private final Map<String, Undoable> checkpoints;
 	private ResourceBundle bundle;
-	private final PublishSubject<Optional<Undoable>> undoPublisher;
-	private final PublishSubject<Optional<Undoable>> redoPublisher;
+	/** Publishes the last undoable objects. Serialized: can be used from several threads. */
+	protected final Subject<Optional<Undoable>> undoPublisher;
+	/** Publishes the last redoable objects. Serialized: can be used from several threads. */
+	protected final Subject<Optional<Undoable>> redoPublisher;
 
 	/**
 	 * @return The single instance. Cannot be null.
@@ -69,8 +110,14 @@ public class UndoCollector {
 		undo = new ArrayDeque<>();
 		redo = new ArrayDeque<>();
 		sizeMax = 30;
-		undoPublisher = PublishSubject.create();
-		redoPublisher = PublishSubject.create();
+		memoryBudget = 0L;
+		retainedSize = 0L;
+		spilled = new IdentityHashMap<>();
+		mergeWindow = 0L;
+		lastAdded = null;
+		checkpoints = new ConcurrentHashMap<>();
+		undoPublisher = PublishSubject.<Optional<Undoable>>create().toSerialized();
+		redoPublisher = PublishSubject.<Optional<Undoable>>create().toSerialized();
 	}
 
 	/**
@@ -96,7 +143,9 @@ public class UndoCollector {
 	 * Removes all the undoable objects of the collector.
 	 */
 	public void clear() {
+		lastAdded = null;
 		if(!undo.isEmpty()) {
+			undo.forEach(this::discard);
 			undo.clear();
 			undoPublisher.onNext(Optional.empty());
 		}
@@ -106,6 +155,7 @@ public class UndoCollector {
 
 	private void clearRedo() {
 		if(!redo.isEmpty()) {
+			redo.forEach(this::discard);
 			redo.clear();
 			redoPublisher.onNext(Optional.empty());
 		}
@@ -114,18 +164,34 @@ public class UndoCollector {
 
 	/**
 	 * Adds an undoable object to the collector.
+	 * If the previous operation was the add of an undoable object, within the merge window, the given object
+	 * may be merged into this previous one (cf. Undoable::tryMerge). In this case, nothing is published on undos().
 	 * @param undoable The undoable object to add.
 	 */
 	public void add(final Undoable undoable) {
 		if(undoable != null && sizeMax > 0) {
+			final long now = System.nanoTime();
+			final boolean merged = mergeWithLastAdded(undoable, now);
+			lastAddTime = now;
+
+			if(merged) {
+				fitMemoryBudget();
+				return;
+			}
+
+			lastAdded = undoable;
+
 			if(undo.size() == sizeMax) {
-				undo.removeLast();
+				discard(undo.removeLast());
 			}
 
 			undo.push(undoable);
+			retainedSize += undoable.getRetainedSize();
+			spillLeavingHeapTier();
 			undoPublisher.onNext(Optional.of(undoable));
 			// The redoable objects must be removed.
 			clearRedo();
+			fitMemoryBudget();
 		}
 	}
 
@@ -134,14 +200,7 @@ public class UndoCollector {
 	 * Undoes the last undoable object.
 	 */
 	public void undo() {
-		if(!undo.isEmpty()) {
-			final Undoable undoable = undo.pop();
-
-			undoable.undo();
-			redo.push(undoable);
-			undoPublisher.onNext(getLastUndo());
-			redoPublisher.onNext(Optional.of(undoable));
-		}
+		undo(1);
 	}
 
 
@@ -149,14 +208,167 @@ public class UndoCollector {
 	 * Redoes the last undoable object.
 	 */
 	public void redo() {
-		if(!redo.isEmpty()) {
-			final Undoable undoable = redo.pop();
+		redo(1);
+	}
 
-			undoable.redo();
-			undo.push(undoable);
-			undoPublisher.onNext(Optional.of(undoable));
-			redoPublisher.onNext(getLastRedo());
+
+	/**
+	 * Undoes the given number of undoable objects (or all of them if there are fewer).
+	 * A single notification is published on undos() and redos().
+	 * @param nb The number of objects to undo. Nothing done if lower or equal to 0.
+	 */
+	public void undo(final int nb) {
+		lastAdded = null;
+		int i = 0;
+		while(i < nb && undoLast()) {
+			i++;
+		}
+		if(i > 0) {
+			publishLasts();
+		}
+	}
+
+
+	/**
+	 * Redoes the given number of redoable objects (or all of them if there are fewer).
+	 * A single notification is published on undos() and redos().
+	 * @param nb The number of objects to redo. Nothing done if lower or equal to 0.
+	 */
+	public void redo(final int nb) {
+		lastAdded = null;
+		int i = 0;
+		while(i < nb && redoLast()) {
+			i++;
+		}
+		if(i > 0) {
+			publishLasts();
+		}
+	}
+
+
+	/**
+	 * Undoes the undoable objects until the given one is the last undoable object.
+	 * A single notification is published on undos() and redos().
+	 * If the memento of an undoable object cannot be rehydrated, the target may be removed from the collector.
+	 * @param target The undoable object that must become the last undoable one.
+	 * @return False: the target is not an undoable object of the collector (nothing done) or has been removed.
+	 */
+	public boolean undoTo(final Undoable target) {
+		if(target == null || !undo.contains(target)) {
+			return false;
+		}
+
+		lastAdded = null;
+		boolean undone = false;
+		while(undo.peek() != target && undoLast()) {
+			undone = true;
+		}
+		if(undone) {
+			publishLasts();
+		}
+		return undo.peek() == target;
+	}
+
+
+	/**
+	 * Redoes the redoable objects until the given one is redone (it is then the last undoable object).
+	 * A single notification is published on undos() and redos().
+	 * @param target The redoable object to redo.
+	 * @return False: the target is not a redoable object of the collector. Nothing done in this case.
+	 */
+	public boolean redoTo(final Undoable target) {
+		if(target == null || !redo.contains(target)) {
+			return false;
+		}
+
+		lastAdded = null;
+		while(undo.peek() != target) {
+			redoLast();
+		}
+		publishLasts();
+		return true;
+	}
+
+
+	/**
+	 * Marks the current state of the history with the given name (the last undoable object).
+	 * The checkpoint is removed when its undoable object is removed from the collector.
+	 * Replaces the checkpoint of the same name. Nothing done if there is no undoable object.
+	 * @param name The name of the checkpoint. Nothing done if null.
+	 */
+	public void setCheckpoint(final String name) {
+		if(name != null) {
+			getLastUndo().ifPresent(undoable -> checkpoints.put(name, undoable));
+		}
+	}
+
+
+	/**
+	 * Undoes or redoes the objects of the collector to go back to the given checkpoint.
+	 * A single notification is published on undos() and redos().
+	 * @param name The name of the checkpoint.
+	 * @return False: the checkpoint does not exist or cannot be reached anymore.
+	 */
+	public boolean restoreCheckpoint(final String name) {
+		final Undoable target = name == null ? null : checkpoints.get(name);
+		return target != null && (undoTo(target) || redoTo(target));
+	}
+
+
+	/**
+	 * Removes the given checkpoint.
+	 * @param name The name of the checkpoint to remove.
+	 */
+	public void removeCheckpoint(final String name) {
+		if(name != null) {
+			checkpoints.remove(name);
+		}
+	}
+
+
+	/**
+	 * @return The names of the current checkpoints. Cannot be modified.
+	 */
+	public Set<String> getCheckpoints() {
+		return Collections.unmodifiableSet(checkpoints.keySet());
+	}
+
+
+	/**
+	 * Undoes the last undoable object without notification.
+	 * @return False: no undoable object.
+	 */
+	private boolean undoLast() {
+		final Undoable undoable = undo.poll();
+		if(undoable == null) {
+			return false;
+		}
+		rehydrateEnteringHeapTier();
+		undoable.undo();
+		redo.push(undoable);
+		return true;
+	}
+
+
+	/**
+	 * Redoes the last redoable object without notification.
+	 * @return False: no redoable object.
+	 */
+	private boolean redoLast() {
+		final Undoable undoable = redo.poll();
+		if(undoable == null) {
+			return false;
 		}
+		undoable.redo();
+		undo.push(undoable);
+		spillLeavingHeapTier();
+		return true;
+	}
+
+
+	private void publishLasts() {
+		undoPublisher.onNext(getLastUndo());
+		redoPublisher.onNext(getLastRedo());
 	}
 
 
@@ -177,6 +389,7 @@ public class UndoCollector {
 
 
 	/**
+	 * The last undoable object is never spilled (cf. setSpillFile): at least one object is kept on the heap.
 	 * @return The last undoable object or null if there is no last object.
 	 */
 	public Optional<Undoable> getLastUndo() {
@@ -207,7 +420,7 @@ public class UndoCollector {
 		if(max >= 0) {
 			boolean removed = false;
 			for(int i = 0, nb = undo.size() - max; i < nb; i++) {
-				undo.removeLast();
+				discard(undo.removeLast());
 				removed = true;
 			}
 			if(removed && undo.isEmpty()) {
@@ -218,9 +431,344 @@ public class UndoCollector {
 	}
 
 	/**
+	 * @param undoable The undoable object being added.
+	 * @param now The time of the add (System::nanoTime).
+	 * @return True: the given object has been merged into the last added one.
+	 */
+	private boolean mergeWithLastAdded(final Undoable undoable, final long now) {
+		if(lastAdded == null || lastAdded != undo.peek() || mergeWindow <= 0L ||
+			now - lastAddTime > TimeUnit.MILLISECONDS.toNanos(mergeWindow)) {
+			return false;
+		}
+
+		final long size = lastAdded.getRetainedSize();
+		if(lastAdded.tryMerge(undoable)) {
+			retainedSize += lastAdded.getRetainedSize() - size;
+			return true;
+		}
+		return false;
+	}
+
+
+	/**
+	 * @return The max duration in ms between two added undoable objects to merge them. No merge if lower or equal to 0.
+	 */
+	public long getMergeWindow() {
+		return mergeWindow;
+	}
+
+
+	/**
+	 * Sets the max duration between two added undoable objects to merge them (cf. Undoable::tryMerge).
+	 * The window slides: the duration is computed from the last add (merged or not).
+	 * 0 by default: merging is opt-in.
+	 * @param window The duration in ms. If lower or equal to 0, undoable objects are never merged.
+	 */
+	public void setMergeWindow(final long window) {
+		mergeWindow = window;
+	}
+
+
+	/**
+	 * @return The memory budget in bytes. No budget if lower or equal to 0.
+	 */
+	public long getMemoryBudget() {
+		return memoryBudget;
+	}
+
+
+	/**
+	 * Sets the memory budget of the collector: when the sum of the retained sizes of the stored objects
+	 * (cf. Undoable::getRetainedSize) exceeds this budget, the oldest undoable objects then the oldest
+	 * redoable objects are evicted until the sum fits the budget. The last undoable object is never evicted.
+	 * When undoable (resp. redoable) objects are evicted, the current last undoable (resp. redoable) object
+	 * is published on undos() (resp. redos()).
+	 * @param budget The memory budget in bytes. If lower or equal to 0, the collector has no memory budget (the default).
+	 */
+	public void setMemoryBudget(final long budget) {
+		memoryBudget = budget;
+		fitMemoryBudget();
+	}
+
+
+	/**
+	 * @return The sum of the retained sizes (in bytes) of the stored undoable and redoable objects.
+	 */
+	public long getRetainedSize() {
+		return retainedSize;
+	}
+
+
+	private void fitMemoryBudget() {
+		if(memoryBudget <= 0L || retainedSize <= memoryBudget) {
+			return;
+		}
+
+		boolean undoEvicted = false;
+		while(retainedSize > memoryBudget && undo.size() > 1) {
+			discard(undo.removeLast());
+			undoEvicted = true;
+		}
+
+		boolean redoEvicted = false;
+		while(retainedSize > memoryBudget && !redo.isEmpty()) {
+			discard(redo.removeLast());
+			redoEvicted = true;
+		}
+
+		if(undoEvicted) {
+			undoPublisher.onNext(getLastUndo());
+		}
+		if(redoEvicted) {
+			redoPublisher.onNext(getLastRedo());
+		}
+	}
+
+	/**
+	 * Defines a spill file: only the given number of the most recent undoable objects keep their memento on the heap.
+	 * The mementos of the older undoable objects that are SpillableUndoable are spilled into the file,
+	 * and rehydrated when undo() walks back to them (or when getUndo is called).
+	 * The spilled objects do not count in the retained size of the collector (cf. getRetainedSize).
+	 * The collector does not close the file.
+	 * Nothing is done if a file is given with a number of on-heap objects lower than 1.
+	 * @param file The spill file. If null, the spilling is disabled and all the spilled mementos are rehydrated.
+	 * @param nbOnHeap The number of the most recent undoable objects not spilled. Ignored when the file is null.
+	 */
+	public void setSpillFile(final UndoSpillFile file, final int nbOnHeap) {
+		if(file != null && nbOnHeap <= 0) {
+			return;
+		}
+
+		rehydrateAll();
+		spillFile = file;
+
+		if(spillFile != null) {
+			nbUndoableOnHeap = nbOnHeap;
+			spillOutOfHeapTier();
+		}
+	}
+
+
+	/**
+	 * @return The spill file of the collector. Null if the mementos are not spilled.
+	 */
+	public UndoSpillFile getSpillFile() {
+		return spillFile;
+	}
+
+
+	/**
+	 * @return The number of the most recent undoable objects that are not spilled.
+	 */
+	public int getNbUndoableOnHeap() {
+		return nbUndoableOnHeap;
+	}
+
+
+	/**
+	 * @param undoable An undoable object of the collector.
+	 * @return True: the memento of the given object is spilled.
+	 */
+	public boolean isSpilled(final Undoable undoable) {
+		return spilled.containsKey(undoable);
+	}
+
+
+	/**
+	 * Spills the undoable object that just left the on-heap tier after a push on the undo stack.
+	 */
+	private void spillLeavingHeapTier() {
+		if(respillRequired) {
+			spillOutOfHeapTier();
+			return;
+		}
+		if(spillFile != null && undo.size() > nbUndoableOnHeap) {
+			final Iterator<Undoable> it = undo.iterator();
+			for(int i = 0; i < nbUndoableOnHeap; i++) {
+				it.next();
+			}
+			spill(it.next());
+		}
+	}
+
+
+	/**
+	 * Spills all the undoable objects out of the on-heap tier.
+	 */
+	private void spillOutOfHeapTier() {
+		respillRequired = false;
+		if(spillFile != null) {
+			int i = 0;
+			for(final Undoable undoable : undo) {
+				if(i >= nbUndoableOnHeap) {
+					spill(undoable);
+				}
+				i++;
+			}
+		}
+	}
+
+
+	/**
+	 * Rehydrates all the spilled undoable objects.
+	 * If one of them cannot be rehydrated, it is removed with the older undoable objects.
+	 */
+	private void rehydrateAll() {
+		if(spilled.isEmpty()) {
+			return;
+		}
+		// Rehydrating from the most recent to the oldest, so that a failure truncates the history
+		for(final Undoable undoable : undo) {
+			if(!rehydrate(undoable)) {
+				truncateUndo(undoable);
+				break;
+			}
+		}
+	}
+
+
+	/**
+	 * Rehydrates the undoable object that just entered the on-heap tier after a pop of the undo stack.
+	 * If it cannot be rehydrated, it is removed with the older undoable objects.
+	 */
+	private void rehydrateEnteringHeapTier() {
+		if(!spilled.isEmpty() && undo.size() >= nbUndoableOnHeap) {
+			final Iterator<Undoable> it = undo.iterator();
+			for(int i = 1; i < nbUndoableOnHeap; i++) {
+				it.next();
+			}
+			final Undoable undoable = it.next();
+			if(!rehydrate(undoable)) {
+				truncateUndo(undoable);
+			}
+		}
+	}
+
+
+	private void spill(final Undoable undoable) {
+		if(!(undoable instanceof SpillableUndoable) || spilled.containsKey(undoable)) {
+			return;
+		}
+
+		final SpillableUndoable spillable = (SpillableUndoable) undoable;
+		final long size = spillable.getRetainedSize();
+		byte[] memento = null;
+
+		try {
+			memento = spillable.spillMemento();
+			// The memento has left the heap: restoring it on failure counts its size again
+			retainedSize -= size;
+			spilled.put(spillable, spillFile.append(memento));
+		}catch(final IOException ex) {
+			ErrorCatcher.getInstance().reportError(ex);
+			if(memento != null) {
+				restoreMemento(spillable, memento);
+			}
+		}
+	}
+
+
+	/**
+	 * Rehydrates the given undoable object if spilled.
+	 * @return False: the object was spilled and cannot be rehydrated.
+	 */
+	private boolean rehydrate(final Undoable undoable) {
+		final Long offset = spilled.remove(undoable);
+
+		if(offset == null) {
+			return true;
+		}
+
+		try {
+			return restoreMemento((SpillableUndoable) undoable, spillFile.read(offset));
+		}catch(final IOException ex) {
+			ErrorCatcher.getInstance().reportError(ex);
+			return false;
+		}finally {
+			spillFile.release(offset);
+		}
+	}
+
+
+	private boolean restoreMemento(final SpillableUndoable undoable, final byte[] memento) {
+		try {
+			undoable.rehydrateMemento(memento);
+			retainedSize += undoable.getRetainedSize();
+			return true;
+		}catch(final IOException ex) {
+			ErrorCatcher.getInstance().reportError(ex);
+			return false;
+		}
+	}
+
+
+	/**
+	 * Removes the given undoable object, that cannot be rehydrated, and the older ones: the history cannot go beyond it.
+	 */
+	private void truncateUndo(final Undoable unusable) {
+		Undoable oldest = undo.pollLast();
+		while(oldest != null && oldest != unusable) {
+			discard(oldest);
+			oldest = undo.pollLast();
+		}
+		// Its memento is lost (its spill record is already released and its size not counted): only its checkpoints remain
+		removeCheckpoints(unusable);
+	}
+
+
+	/**
+	 * Releases an undoable object removed from the collector.
+	 */
+	private void discard(final Undoable undoable) {
+		removeCheckpoints(undoable);
+		final Long offset = spilled.remove(undoable);
+		if(offset == null) {
+			retainedSize -= undoable.getRetainedSize();
+		}else {
+			spillFile.release(offset);
+		}
+	}
+
+	void removeCheckpoints(final Undoable undoable) {
+		if(!checkpoints.isEmpty()) {
+			checkpoints.values().removeIf(checkpoint -> checkpoint == undoable);
+		}
+	}
+
+	boolean hasCheckpoints() {
+		return !checkpoints.isEmpty();
+	}
+
+	/**
+	 * Replaces the undoable and redoable objects of the collector, without notification and without discarding
+	 * the replaced objects. The retained size is computed again. No object must be spilled.
+	 * Used by ConcurrentUndoCollector to move its objects in and out of this sequential implementation.
+	 * @param undos The new undoable objects, the most recent first.
+	 * @param redos The new redoable objects, the most recent first.
+	 */
+	void resetStacks(final Collection<Undoable> undos, final Collection<Undoable> redos) {
+		lastAdded = null;
+		undo.clear();
+		redo.clear();
+		undo.addAll(undos);
+		redo.addAll(redos);
+		retainedSize = 0L;
+		undo.forEach(undoable -> retainedSize += undoable.getRetainedSize());
+		redo.forEach(undoable -> retainedSize += undoable.getRetainedSize());
+	}
+
+	/**
+	 * The oldest undoable objects may be spilled (cf. setSpillFile): their mementos are rehydrated
+	 * before being returned, so that the returned objects can be used.
+	 * They are spilled again on the next add or redo.
+	 * If a memento cannot be rehydrated, the history is truncated before the object (as undo() does).
 	 * @return The stack of saved undoable objects.
 	 */
 	public Deque<Undoable> getUndo() {
+		if(!spilled.isEmpty()) {
+			rehydrateAll();
+			respillRequired = true;
+		}
 		return undo;
 	}
 
@@ -231,6 +779,13 @@ public class UndoCollector {
 		return redo;
 	}
 
+	/**
+	 * @return The language bundle used by the undo redo manager. Can be null.
+	 */
+	public ResourceBundle getBundle() {
+		return bundle;
+	}
+
 	/**
 	 * Sets the language bundle to be used by the undo redo manager.
 	 * @param bundle The language bundle. Can be null.
@@ -0,0 +1,177 @@
+/*
+ * Interacto
+ * Copyright (C) 2020 Arnaud Blouin
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.interacto.undo;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * An append-only file, mapped in memory, that stores the spilled mementos of undoable objects.
+ * Each record is identified by its offset in the file.
+ * The space of the released records is reclaimed at the end of the file (the most recent records are
+ * usually the first released ones, as undo walks back the history). The space released at the beginning of the file
+ * (eg by the eviction of the oldest undoable objects) is reused when the file would have to grow otherwise.
+ * The size of the file is limited to 2 GB.
+ * This class is not thread-safe.
+ */
+public class UndoSpillFile implements Closeable {
+	/** The initial size of the mapped file. */
+	private static final int INITIAL_CAPACITY = 1 << 20;
+
+	private final Path path;
+	private final boolean deleteOnClose;
+	private final FileChannel channel;
+	private MappedByteBuffer buffer;
+	/** The end of the last record. */
+	private int end;
+	/** The lengths of the records not released yet, by offset. */
+	private final NavigableMap<Long, Integer> records;
+
+	/**
+	 * Creates a spill file in the temporary directory. The file is deleted when closed.
+	 * @return The created spill file.
+	 * @throws IOException If the file cannot be created.
+	 */
+	public static UndoSpillFile createTempFile() throws IOException {
+		final Path tmp = Files.createTempFile("interacto-undo", ".spill");
+		tmp.toFile().deleteOnExit();
+		return new UndoSpillFile(tmp, true);
+	}
+
+	/**
+	 * Creates a spill file. An existing file is truncated.
+	 * @param path The path of the file. Cannot be null.
+	 * @throws IOException If the file cannot be created.
+	 */
+	public UndoSpillFile(final Path path) throws IOException {
+		this(path, false);
+	}
+
+	private UndoSpillFile(final Path path, final boolean deleteOnClose) throws IOException {
+		super();
+		this.path = path;
+		this.deleteOnClose = deleteOnClose;
+		channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+			StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+		buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0L, INITIAL_CAPACITY);
+		end = 0;
+		records = new TreeMap<>();
+	}
+
+	/**
+	 * Appends a record at the end of the file.
+	 * @param data The data to write. Cannot be null.
+	 * @return The offset of the record.
+	 * @throws IOException If the record cannot be written (eg the file would be bigger than 2 GB).
+	 */
+	public long append(final byte[] data) throws IOException {
+		final int recordSize = Integer.BYTES + data.length;
+		final Map.Entry<Long, Integer> first = records.firstEntry();
+		final int offset;
+
+		if((long) end + recordSize > buffer.capacity() && first != null && first.getKey() >= recordSize) {
+			// Reusing the space released at the beginning of the file instead of growing it
+			offset = 0;
+		}else {
+			offset = end;
+			ensureCapacity((long) end + recordSize);
+		}
+
+		buffer.putInt(offset, data.length);
+		final ByteBuffer dest = buffer.duplicate();
+		dest.position(offset + Integer.BYTES);
+		dest.put(data);
+		end = Math.max(end, offset + recordSize);
+		records.put((long) offset, data.length);
+		return offset;
+	}
+
+	/**
+	 * Reads a record.
+	 * @param offset The offset of the record (returned by append).
+	 * @return The data of the record.
+	 * @throws IOException If the offset does not match a record not released yet.
+	 */
+	public byte[] read(final long offset) throws IOException {
+		final Integer length = records.get(offset);
+		if(length == null) {
+			throw new IOException("Invalid record offset: " + offset);
+		}
+
+		final byte[] data = new byte[length];
+		final ByteBuffer src = buffer.duplicate();
+		src.position((int) offset + Integer.BYTES);
+		src.get(data);
+		return data;
+	}
+
+	/**
+	 * Releases a record that will not be read anymore.
+	 * @param offset The offset of the record. Nothing done if it does not match a record not released yet.
+	 */
+	public void release(final long offset) {
+		if(records.remove(offset) != null) {
+			final Map.Entry<Long, Integer> last = records.lastEntry();
+			end = last == null ? 0 : (int) (last.getKey() + Integer.BYTES + last.getValue());
+		}
+	}
+
+	/**
+	 * @return The number of records not released yet.
+	 */
+	public int getNbRecords() {
+		return records.size();
+	}
+
+	/**
+	 * @return The end of the last record in the file, in bytes.
+	 */
+	public long getSize() {
+		return end;
+	}
+
+	/**
+	 * @return The path of the file.
+	 */
+	public Path getPath() {
+		return path;
+	}
+
+	private void ensureCapacity(final long size) throws IOException {
+		if(size > Integer.MAX_VALUE) {
+			throw new IOException("The spill file is full");
+		}
+		if(size > buffer.capacity()) {
+			buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0L, Math.min(Math.max(size, 2L * buffer.capacity()), Integer.MAX_VALUE));
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+		if(deleteOnClose) {
+			Files.deleteIfExists(path);
+		}
+	}
+}
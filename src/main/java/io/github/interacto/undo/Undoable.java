@@ -36,4 +36,26 @@ public interface Undoable {
 	 * @param bundle The language bundle. Can be null.
 	 */
 	String getUndoName(final ResourceBundle bundle);
+
+	/**
+	 * Estimates the memory retained by the undoable object (eg its mementos).
+	 * Used by the undo collector when it has a memory budget.
+	 * This estimation should not change while the object is stored in the undo collector.
+	 * @return The estimated retained size in bytes. 0 by default.
+	 */
+	default long getRetainedSize() {
+		return 0L;
+	}
+
+	/**
+	 * Tries to merge the given undoable object, executed just after the current one, into the current one
+	 * (eg consecutive modifications of the same value).
+	 * Used by the undo collector to collapse consecutive compatible edits into a single entry (cf. UndoCollector::setMergeWindow).
+	 * If merged, undoing (resp. redoing) the current object must undo (resp. redo) the effects of both objects.
+	 * @param next The undoable object executed just after the current one.
+	 * @return True: the given object has been merged into the current one. False by default.
+	 */
+	default boolean tryMerge(final Undoable next) {
+		return false;
+	}
 }
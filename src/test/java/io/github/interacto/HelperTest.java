@@ -14,20 +14,21 @@
  */
 package io.github.interacto;
 
-import io.github.interacto.fsm.TimeoutTransition;
+import io.github.interacto.interaction.TimerService;
 
 public abstract class HelperTest {
 	public static void waitForTimeoutTransitions() {
-		Thread.getAllStackTraces()
-			.keySet()
-			.stream()
-			.filter(thread -> thread.getName().startsWith(TimeoutTransition.TIMEOUT_THREAD_NAME_BASE))
-			.forEach(thread -> {
-				try {
-					thread.join();
-				}catch(final InterruptedException ex) {
-					Thread.currentThread().interrupt();
-				}
-			});
+		waitForTimeouts(TimerService.getInstance());
+	}
+
+	public static void waitForTimeouts(final TimerService timer) {
+		while(timer.getNbPendingTimeouts() > 0) {
+			try {
+				Thread.sleep(1L);
+			}catch(final InterruptedException ex) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+		}
 	}
 }
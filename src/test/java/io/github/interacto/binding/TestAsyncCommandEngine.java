@@ -0,0 +1,337 @@
+/*
+ * Interacto
+ * Copyright (C) 2020 Arnaud Blouin
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.interacto.binding;
+
+import io.github.interacto.command.Command;
+import io.github.interacto.command.CommandImpl;
+import io.github.interacto.error.ErrorCatcher;
+import io.reactivex.disposables.Disposable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestAsyncCommandEngine {
+	AsyncCommandEngine engine;
+	Object lane;
+
+	@BeforeEach
+	void setUp() {
+		engine = new AsyncCommandEngine(2);
+		lane = new Object();
+	}
+
+	@AfterEach
+	void tearDown() {
+		engine.shutdown();
+	}
+
+	@Test
+	void testGetSetInstance() {
+		final AsyncCommandEngine memento = AsyncCommandEngine.getInstance();
+		AsyncCommandEngine.setInstance(engine);
+		assertSame(engine, AsyncCommandEngine.getInstance());
+		AsyncCommandEngine.setInstance(null);
+		assertSame(engine, AsyncCommandEngine.getInstance());
+		AsyncCommandEngine.setInstance(memento);
+	}
+
+	@Test
+	void testBadNbWorkers() {
+		assertThrows(IllegalArgumentException.class, () -> new AsyncCommandEngine(0));
+	}
+
+	@Test
+	void testNbWorkers() {
+		assertEquals(2, engine.getNbWorkers());
+	}
+
+	@Test
+	void testSubmitNull() {
+		assertThrows(IllegalArgumentException.class, () -> engine.submit(null, new LatchCmd(), null));
+		assertThrows(IllegalArgumentException.class, () -> engine.submit(lane, null, null));
+	}
+
+	@Test
+	void testExecutedInWorkerWithCompletion() throws InterruptedException {
+		final CountDownLatch latch = new CountDownLatch(1);
+		final List<Boolean> results = new ArrayList<>();
+		final List<String> threads = new ArrayList<>();
+		final LatchCmd cmd = new LatchCmd() {
+			@Override
+			protected void doCmdBody() {
+				threads.add(Thread.currentThread().getName());
+			}
+		};
+		final var execution = engine.submit(lane, cmd, ok -> {
+			results.add(ok);
+			latch.countDown();
+		});
+		assertTrue(latch.await(5, TimeUnit.SECONDS));
+		assertEquals(List.of(true), results);
+		assertTrue(threads.get(0).startsWith(AsyncCommandEngine.WORKER_THREAD_NAME));
+		assertSame(cmd, execution.getCommand());
+		assertEquals(Command.CmdStatus.EXECUTED, cmd.getStatus());
+	}
+
+	@Test
+	void testLaneSerialized() throws InterruptedException {
+		final int nb = 50;
+		final List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+		final AtomicInteger running = new AtomicInteger();
+		final AtomicBoolean overlap = new AtomicBoolean(false);
+		final CountDownLatch latch = new CountDownLatch(nb);
+		for(int i = 0; i < nb; i++) {
+			final int id = i;
+			engine.submit(lane, new LatchCmd() {
+				@Override
+				protected void doCmdBody() {
+					if(running.incrementAndGet() > 1) {
+						overlap.set(true);
+					}
+					order.add(id);
+					running.decrementAndGet();
+				}
+			}, ok -> latch.countDown());
+		}
+		assertTrue(latch.await(5, TimeUnit.SECONDS));
+		assertFalse(overlap.get());
+		for(int i = 0; i < nb; i++) {
+			assertEquals(i, order.get(i));
+		}
+	}
+
+	@Test
+	void testLanesConcurrent() throws InterruptedException {
+		final CountDownLatch bothRunning = new CountDownLatch(2);
+		final CountDownLatch done = new CountDownLatch(2);
+		final LatchCmd cmd1 = new LatchCmd(bothRunning);
+		final LatchCmd cmd2 = new LatchCmd(bothRunning);
+		engine.submit(lane, cmd1, ok -> done.countDown());
+		engine.submit(new Object(), cmd2, ok -> done.countDown());
+		assertTrue(done.await(5, TimeUnit.SECONDS));
+		assertTrue(cmd1.rendezvous);
+		assertTrue(cmd2.rendezvous);
+	}
+
+	@Test
+	void testBoundedWorkers() throws InterruptedException {
+		engine.shutdown();
+		engine = new AsyncCommandEngine(1);
+		final CountDownLatch bothRunning = new CountDownLatch(2);
+		final CountDownLatch done = new CountDownLatch(2);
+		final LatchCmd cmd1 = new LatchCmd(bothRunning, 100L);
+		final LatchCmd cmd2 = new LatchCmd(bothRunning, 100L);
+		engine.submit(lane, cmd1, ok -> done.countDown());
+		engine.submit(new Object(), cmd2, ok -> done.countDown());
+		assertTrue(done.await(5, TimeUnit.SECONDS));
+		// A single worker: the two commands cannot run at the same time
+		assertFalse(cmd1.rendezvous);
+	}
+
+	@Test
+	void testCancelLane() throws InterruptedException {
+		final CountDownLatch started = new CountDownLatch(1);
+		final BlockingCmd blocking = new BlockingCmd(started);
+		final LatchCmd waiting = new LatchCmd();
+		final Runnable completion = Mockito.mock(Runnable.class);
+		final var exec1 = engine.submit(lane, blocking, ok -> completion.run());
+		final var exec2 = engine.submit(lane, waiting, ok -> completion.run());
+		assertTrue(started.await(5, TimeUnit.SECONDS));
+		assertEquals(2, engine.getNbPending(lane));
+		engine.cancel(lane);
+		assertTrue(blocking.interrupted.await(5, TimeUnit.SECONDS));
+		waitForLane();
+		assertTrue(exec1.isCancelled());
+		assertTrue(exec2.isCancelled());
+		assertFalse(exec1.isDone());
+		assertEquals(Command.CmdStatus.CANCELLED, blocking.getStatus());
+		assertEquals(Command.CmdStatus.CANCELLED, waiting.getStatus());
+		assertEquals(0, waiting.executed.get());
+		Mockito.verify(completion, Mockito.never()).run();
+	}
+
+	@Test
+	void testCancelRunningCancelsCmdInWorkerAfterDoIt() throws InterruptedException {
+		final CountDownLatch started = new CountDownLatch(1);
+		final List<String> cancelThreads = Collections.synchronizedList(new ArrayList<>());
+		final AtomicBoolean cancelledWhileRunning = new AtomicBoolean(false);
+		final BlockingCmd blocking = new BlockingCmd(started) {
+			volatile boolean running;
+
+			@Override
+			protected void doCmdBody() {
+				running = true;
+				super.doCmdBody();
+				running = false;
+			}
+
+			@Override
+			public void cancel() {
+				cancelThreads.add(Thread.currentThread().getName());
+				cancelledWhileRunning.set(running);
+				super.cancel();
+			}
+		};
+		final var execution = engine.submit(lane, blocking, null);
+		assertTrue(started.await(5, TimeUnit.SECONDS));
+		assertTrue(execution.cancel());
+		assertTrue(blocking.interrupted.await(5, TimeUnit.SECONDS));
+		waitForLane();
+		assertEquals(1, cancelThreads.size());
+		assertTrue(cancelThreads.get(0).startsWith(AsyncCommandEngine.WORKER_THREAD_NAME));
+		assertFalse(cancelledWhileRunning.get());
+		assertEquals(Command.CmdStatus.CANCELLED, blocking.getStatus());
+	}
+
+	@Test
+	void testCancelWaitingCancelsCmdNow() throws InterruptedException {
+		final CountDownLatch started = new CountDownLatch(1);
+		final BlockingCmd blocking = new BlockingCmd(started);
+		final LatchCmd waiting = new LatchCmd();
+		engine.submit(lane, blocking, null);
+		final var execution = engine.submit(lane, waiting, null);
+		assertTrue(started.await(5, TimeUnit.SECONDS));
+		assertTrue(execution.cancel());
+		assertEquals(Command.CmdStatus.CANCELLED, waiting.getStatus());
+		engine.cancel(lane);
+		waitForLane();
+		assertEquals(0, waiting.executed.get());
+	}
+
+	@Test
+	void testCancelDoneExecution() throws InterruptedException {
+		final CountDownLatch latch = new CountDownLatch(1);
+		final var execution = engine.submit(lane, new LatchCmd(), ok -> latch.countDown());
+		assertTrue(latch.await(5, TimeUnit.SECONDS));
+		waitForLane();
+		assertTrue(execution.isDone());
+		assertFalse(execution.cancel());
+	}
+
+	@Test
+	void testCancelUnknownLane() {
+		engine.cancel(new Object());
+		assertEquals(0, engine.getNbPending(lane));
+	}
+
+	@Test
+	void testErrorReportedAndLaneContinues() throws InterruptedException {
+		final var ex = new IllegalStateException();
+		final List<Throwable> errors = Collections.synchronizedList(new ArrayList<>());
+		final Disposable disposable = ErrorCatcher.getInstance().getErrors().subscribe(errors::add);
+		final List<Boolean> results = Collections.synchronizedList(new ArrayList<>());
+		final CountDownLatch latch = new CountDownLatch(2);
+		engine.submit(lane, new LatchCmd() {
+			@Override
+			protected void doCmdBody() {
+				throw ex;
+			}
+		}, ok -> {
+			results.add(ok);
+			latch.countDown();
+		});
+		engine.submit(lane, new LatchCmd(), ok -> {
+			results.add(ok);
+			latch.countDown();
+		});
+		assertTrue(latch.await(5, TimeUnit.SECONDS));
+		disposable.dispose();
+		assertEquals(List.of(ex), errors);
+		assertEquals(List.of(false, true), results);
+	}
+
+	@Test
+	void testSubmitAfterShutdown() {
+		engine.shutdown();
+		assertThrows(RejectedExecutionException.class, () -> engine.submit(lane, new LatchCmd(), null));
+		assertEquals(0, engine.getNbPending(lane));
+	}
+
+	void waitForLane() throws InterruptedException {
+		final long end = System.currentTimeMillis() + 5000L;
+		while(engine.getNbPending(lane) > 0 && System.currentTimeMillis() < end) {
+			Thread.sleep(1L);
+		}
+	}
+
+	static class LatchCmd extends CommandImpl {
+		final CountDownLatch rendezvousLatch;
+		final long timeout;
+		final AtomicInteger executed = new AtomicInteger();
+		volatile boolean rendezvous;
+
+		LatchCmd() {
+			this(null, 0L);
+		}
+
+		LatchCmd(final CountDownLatch rendezvousLatch) {
+			this(rendezvousLatch, 5000L);
+		}
+
+		LatchCmd(final CountDownLatch rendezvousLatch, final long timeout) {
+			super();
+			this.rendezvousLatch = rendezvousLatch;
+			this.timeout = timeout;
+		}
+
+		@Override
+		protected void doCmdBody() {
+			executed.incrementAndGet();
+			if(rendezvousLatch != null) {
+				rendezvousLatch.countDown();
+				try {
+					rendezvous = rendezvousLatch.await(timeout, TimeUnit.MILLISECONDS);
+				}catch(final InterruptedException ex) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		}
+	}
+
+	static class BlockingCmd extends CommandImpl {
+		final CountDownLatch started;
+		final CountDownLatch interrupted = new CountDownLatch(1);
+
+		BlockingCmd(final CountDownLatch started) {
+			super();
+			this.started = started;
+		}
+
+		@Override
+		protected void doCmdBody() {
+			started.countDown();
+			try {
+				Thread.sleep(10_000L);
+			}catch(final InterruptedException ex) {
+				interrupted.countDown();
+			}
+		}
+	}
+}
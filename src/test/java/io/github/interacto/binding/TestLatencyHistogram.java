@@ -0,0 +1,121 @@
+/*
+ * Interacto
+ * Copyright (C) 2020 Arnaud Blouin
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.interacto.binding;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestLatencyHistogram {
+	LatencyHistogram histogram;
+
+	@BeforeEach
+	void setUp() {
+		histogram = new LatencyHistogram();
+	}
+
+	@Test
+	void testEmpty() {
+		assertEquals(0L, histogram.getCount());
+		assertEquals(0L, histogram.getMin());
+		assertEquals(0L, histogram.getMax());
+		assertEquals(0d, histogram.getMean());
+		assertEquals(0L, histogram.getValueAtPercentile(99d));
+	}
+
+	@ParameterizedTest
+	@ValueSource(doubles = {-1d, 100.1d, Double.NaN})
+	void testBadPercentile(final double percentile) {
+		assertThrows(IllegalArgumentException.class, () -> histogram.getValueAtPercentile(percentile));
+	}
+
+	@Test
+	void testSmallValuesExact() {
+		for(long i = 0L; i < 64L; i++) {
+			histogram.record(i);
+		}
+		assertEquals(64L, histogram.getCount());
+		assertEquals(0L, histogram.getMin());
+		assertEquals(63L, histogram.getMax());
+		assertEquals(31L, histogram.getValueAtPercentile(50d));
+		assertEquals(63L, histogram.getValueAtPercentile(100d));
+		assertEquals(31.5d, histogram.getMean());
+	}
+
+	@Test
+	void testNegativeRecordedAsZero() {
+		histogram.record(-10L);
+		assertEquals(1L, histogram.getCount());
+		assertEquals(0L, histogram.getMax());
+		assertEquals(0L, histogram.getValueAtPercentile(100d));
+	}
+
+	@Test
+	void testPercentilesRelativeError() {
+		for(long i = 1L; i <= 100_000L; i++) {
+			histogram.record(i * 1000L);
+		}
+		for(final double p : new double[] {1d, 25d, 50d, 90d, 99d, 99.9d}) {
+			final double expected = p * 1000d * 1000d;
+			final long value = histogram.getValueAtPercentile(p);
+			assertTrue(value >= expected && value <= expected * (1d + 1d / 32d), p + " " + value);
+		}
+		assertEquals(100_000_000L, histogram.getValueAtPercentile(100d));
+		assertEquals(1000L, histogram.getMin());
+	}
+
+	@Test
+	void testHugeValueTracked() {
+		histogram.record(Long.MAX_VALUE / 2L);
+		histogram.record(10L);
+		assertEquals(Long.MAX_VALUE / 2L, histogram.getMax());
+		assertEquals(Long.MAX_VALUE / 2L, histogram.getValueAtPercentile(100d));
+		assertEquals(10L, histogram.getValueAtPercentile(50d));
+	}
+
+	@Test
+	void testReset() {
+		histogram.record(100L);
+		histogram.record(200L);
+		histogram.reset();
+		assertEquals(0L, histogram.getCount());
+		assertEquals(0L, histogram.getMin());
+		assertEquals(0L, histogram.getMax());
+		assertEquals(0L, histogram.getValueAtPercentile(50d));
+	}
+
+	@Test
+	void testConcurrentRecords() throws InterruptedException {
+		final Thread[] threads = new Thread[4];
+		for(int i = 0; i < threads.length; i++) {
+			threads[i] = new Thread(() -> {
+				for(int j = 0; j < 10_000; j++) {
+					histogram.record(j);
+				}
+			});
+			threads[i].start();
+		}
+		for(final Thread thread : threads) {
+			thread.join();
+		}
+		assertEquals(40_000L, histogram.getCount());
+		assertEquals(9999L, histogram.getMax());
+	}
+}
@@ -14,6 +14,7 @@
  */
 package io.github.interacto.binding;
 
+import io.github.interacto.HelperTest;
 import io.github.interacto.command.CmdStub;
 import io.github.interacto.command.Command;
 import io.github.interacto.command.CommandsRegistry;
@@ -22,6 +23,10 @@ import io.github.interacto.fsm.CancelFSMException;
 import io.github.interacto.fsm.FSM;
 import io.github.interacto.interaction.InteractionData;
 import io.github.interacto.interaction.InteractionStub;
+import io.github.interacto.interaction.TimerService;
+import io.github.interacto.logging.FlightRecord;
+import io.github.interacto.logging.FlightRecorder;
+import io.github.interacto.logging.InteractoLogger;
 import io.github.interacto.undo.Undoable;
 import io.reactivex.disposables.Disposable;
 import java.util.ArrayList;
@@ -30,15 +35,18 @@ import java.util.ResourceBundle;
 import java.util.function.Function;
 import java.util.function.Supplier;
 import java.util.logging.Logger;
+import java.util.stream.Collectors;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
@@ -47,12 +55,12 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
 public class TestWidgetBinding {
 	protected WidgetBindingStub binding;
 	Disposable errorStream;
-	Logger mementoLogger;
+	InteractoLogger mementoLogger;
 	List<Throwable> errors;
 
 	@BeforeEach
 	public void setUp() {
-		mementoLogger = WidgetBindingImpl.getLogger();
+		mementoLogger = WidgetBindingImpl.getInteractoLogger();
 		binding = new WidgetBindingStub(false, CmdStub::new, new InteractionStub());
 		binding.setActivated(true);
 		errors = new ArrayList<>();
@@ -61,7 +69,7 @@ public class TestWidgetBinding {
 
 	@AfterEach
 	void tearDown() {
-		WidgetBindingImpl.setLogger(mementoLogger);
+		WidgetBindingImpl.setInteractoLogger(mementoLogger);
 		CommandsRegistry.getInstance().clear();
 		errorStream.dispose();
 		assertEquals(List.of(), errors);
@@ -264,55 +272,79 @@ public class TestWidgetBinding {
 
 	@Test
 	void testSetGetLogger() {
-		final Logger log = Mockito.mock(Logger.class);
-		WidgetBindingImpl.setLogger(log);
-		assertEquals(log, WidgetBindingImpl.getLogger());
+		final InteractoLogger log = Mockito.mock(InteractoLogger.class);
+		WidgetBindingImpl.setInteractoLogger(log);
+		assertEquals(log, WidgetBindingImpl.getInteractoLogger());
 	}
 
 	@Test
 	void testSetLoggerNull() {
-		WidgetBindingImpl.setLogger(null);
-		assertEquals(mementoLogger, WidgetBindingImpl.getLogger());
+		WidgetBindingImpl.setInteractoLogger(null);
+		assertEquals(mementoLogger, WidgetBindingImpl.getInteractoLogger());
+	}
+
+	@SuppressWarnings("deprecation")
+	@Test
+	void testDeprecatedSetGetLogger() {
+		final Logger former = WidgetBindingImpl.getLogger();
+		final Logger jul = Logger.getLogger(TestWidgetBinding.class.getName());
+		WidgetBindingImpl.setLogger(jul);
+		assertSame(jul, WidgetBindingImpl.getLogger());
+		assertNotSame(mementoLogger, WidgetBindingImpl.getInteractoLogger());
+		WidgetBindingImpl.setLogger(former);
+	}
+
+	@SuppressWarnings("deprecation")
+	@Test
+	void testDeprecatedLoggersFollowLogging() {
+		binding.logBinding(true);
+		binding.logCmd(true);
+		assertSame(WidgetBindingImpl.getLogger(), binding.loggerBinding);
+		assertSame(WidgetBindingImpl.getLogger(), binding.loggerCmd);
+		binding.logBinding(false);
+		binding.logCmd(false);
+		assertNull(binding.loggerBinding);
+		assertNull(binding.loggerCmd);
 	}
 
 	@Test
 	void testLogBinding() {
 		binding.logBinding(true);
-		assertNotNull(binding.loggerBinding);
+		assertNotNull(binding.bindingLogger);
 	}
 
 	@Test
 	void testLogAgainBinding() {
 		binding.logBinding(true);
 		binding.logBinding(true);
-		assertNotNull(binding.loggerBinding);
+		assertNotNull(binding.bindingLogger);
 	}
 
 	@Test
 	void testNoLogBinding() {
 		binding.logBinding(true);
 		binding.logBinding(false);
-		assertNull(binding.loggerBinding);
+		assertNull(binding.bindingLogger);
 	}
 
 	@Test
 	void testLogCmd() {
 		binding.logCmd(true);
-		assertNotNull(binding.loggerCmd);
+		assertNotNull(binding.cmdLogger);
 	}
 
 	@Test
 	void testLogAgainCmd() {
 		binding.logCmd(true);
 		binding.logCmd(true);
-		assertNotNull(binding.loggerCmd);
+		assertNotNull(binding.cmdLogger);
 	}
 
 	@Test
 	void testNoLogCmd() {
 		binding.logCmd(true);
 		binding.logCmd(false);
-		assertNull(binding.loggerCmd);
+		assertNull(binding.cmdLogger);
 	}
 
 	@Test
@@ -556,8 +588,8 @@ public class TestWidgetBinding {
 		binding.uninstallBinding();
 		assertFalse(binding.isActivated());
 		assertTrue(binding.cmdsProduced.hasComplete());
-		assertNull(binding.loggerCmd);
-		assertNull(binding.loggerBinding);
+		assertNull(binding.cmdLogger);
+		assertNull(binding.bindingLogger);
 		Mockito.verify(interaction, Mockito.times(1)).uninstall();
 	}
 
@@ -609,6 +641,232 @@ public class TestWidgetBinding {
 		assertTrue(binding.cmdHadEffects);
 	}
 
+	@Test
+	void testContinuousExecutionTickDefault() {
+		assertEquals(0L, binding.getContinuousExecutionTick());
+	}
+
+	@Test
+	void testContinuousExecutionTickNegative() {
+		binding.setContinuousExecutionTick(-10L);
+		assertEquals(0L, binding.getContinuousExecutionTick());
+	}
+
+	@Nested
+	class ContinuousExecCoalescing {
+		TimerService timer;
+		TimerService memento;
+
+		@BeforeEach
+		void setUp() throws CancelFSMException {
+			memento = TimerService.getInstance();
+			timer = new TimerService(5L, 8);
+			TimerService.setInstance(timer);
+			binding = new WidgetBindingStub(true, () -> {
+				final CmdStub cmd = new CmdStub();
+				cmd.candoValue = true;
+				return cmd;
+			}, new InteractionStub());
+			binding.conditionRespected = true;
+			binding.setContinuousExecutionTick(1000L);
+			binding.fsmStarts();
+		}
+
+		@AfterEach
+		void tearDown() {
+			TimerService.setInstance(memento);
+		}
+
+		@Test
+		void testTickSet() {
+			assertEquals(1000L, binding.getContinuousExecutionTick());
+		}
+
+		@Test
+		void testFirstUpdateExecutesDirectly() {
+			binding.fsmUpdates();
+			assertEquals(1, binding.cmd.cptDoCmdBody.get());
+			assertEquals(0, timer.getNbPendingTimeouts());
+		}
+
+		@Test
+		void testUpdatesWithinTickCoalesced() {
+			binding.fsmUpdates();
+			binding.then = false;
+			binding.fsmUpdates();
+			binding.fsmUpdates();
+			binding.fsmUpdates();
+			assertTrue(binding.then);
+			assertEquals(1, binding.cmd.cptDoCmdBody.get());
+			assertEquals(1, timer.getNbPendingTimeouts());
+		}
+
+		@Test
+		void testPendingExecutionRunsAtEndOfTick() {
+			binding.setContinuousExecutionTick(20L);
+			binding.fsmUpdates();
+			binding.fsmUpdates();
+			binding.fsmUpdates();
+			HelperTest.waitForTimeouts(timer);
+			assertEquals(2, binding.cmd.cptDoCmdBody.get());
+		}
+
+		@Test
+		void testStopCancelsPendingAndExecutes() {
+			final CmdStub cmd = binding.cmd;
+			binding.fsmUpdates();
+			binding.fsmUpdates();
+			binding.fsmStops();
+			assertEquals(0, timer.getNbPendingTimeouts());
+			assertEquals(2, cmd.cptDoCmdBody.get());
+			assertEquals(Command.CmdStatus.DONE, cmd.getStatus());
+		}
+
+		@Test
+		void testCancelCancelsPending() {
+			binding.fsmUpdates();
+			binding.fsmUpdates();
+			binding.fsmCancels();
+			assertEquals(0, timer.getNbPendingTimeouts());
+		}
+
+		@Test
+		void testUninstallCancelsPending() {
+			binding.fsmUpdates();
+			binding.fsmUpdates();
+			binding.uninstallBinding();
+			assertEquals(0, timer.getNbPendingTimeouts());
+		}
+	}
+
+	@Nested
+	class Latencies {
+		@BeforeEach
+		void setUp() {
+			binding.setRecordLatencies(true);
+			binding.conditionRespected = true;
+		}
+
+		LatencyHistogram histogram(final BindingLatencies.Step step) {
+			return binding.getLatencies().orElseThrow().getHistogram(step);
+		}
+
+		@Test
+		void testNotRecordedByDefault() {
+			assertTrue(new WidgetBindingStub(false, CmdStub::new, new InteractionStub()).getLatencies().isEmpty());
+		}
+
+		@Test
+		void testDeactivate() {
+			binding.setRecordLatencies(false);
+			assertTrue(binding.getLatencies().isEmpty());
+		}
+
+		@Test
+		void testActivateTwiceKeepsHistograms() {
+			final BindingLatencies latencies = binding.getLatencies().orElseThrow();
+			binding.setRecordLatencies(true);
+			assertSame(latencies, binding.getLatencies().orElseThrow());
+		}
+
+		@Test
+		void testNullStep() {
+			assertThrows(IllegalArgumentException.class, () -> binding.getLatencies().orElseThrow().getHistogram(null));
+		}
+
+		@Test
+		void testFullInteractionRecorded() throws CancelFSMException {
+			binding.fsmStarts();
+			binding.cmd.candoValue = true;
+			binding.fsmUpdates();
+			binding.fsmUpdates();
+			binding.fsmStops();
+			assertEquals(1L, histogram(BindingLatencies.Step.START).getCount());
+			assertEquals(1L, histogram(BindingLatencies.Step.CMD_CREATION).getCount());
+			assertEquals(2L, histogram(BindingLatencies.Step.UPDATE).getCount());
+			assertEquals(1L, histogram(BindingLatencies.Step.CMD_EXECUTION).getCount());
+			assertEquals(1L, histogram(BindingLatencies.Step.TOTAL).getCount());
+			assertTrue(histogram(BindingLatencies.Step.TOTAL).getMax() >= histogram(BindingLatencies.Step.CMD_EXECUTION).getMax());
+		}
+
+		@Test
+		void testContinuousExecutionsRecorded() throws CancelFSMException {
+			binding = new WidgetBindingStub(true, CmdStub::new, new InteractionStub());
+			binding.setRecordLatencies(true);
+			binding.conditionRespected = true;
+			binding.fsmStarts();
+			binding.cmd.candoValue = true;
+			binding.fsmUpdates();
+			binding.fsmUpdates();
+			binding.fsmStops();
+			assertEquals(3L, histogram(BindingLatencies.Step.CMD_EXECUTION).getCount());
+		}
+
+		@Test
+		void testReset() throws CancelFSMException {
+			binding.fsmStarts();
+			binding.getLatencies().orElseThrow().reset();
+			assertEquals(0L, histogram(BindingLatencies.Step.START).getCount());
+		}
+
+		@Test
+		void testActivatedDuringInteractionNoTotal() throws CancelFSMException {
+			binding.setRecordLatencies(false);
+			binding.fsmStarts();
+			binding.cmd.candoValue = true;
+			binding.setRecordLatencies(true);
+			binding.fsmStops();
+			assertEquals(0L, histogram(BindingLatencies.Step.TOTAL).getCount());
+			assertEquals(1L, histogram(BindingLatencies.Step.CMD_EXECUTION).getCount());
+		}
+	}
+
+	@Nested
+	class FlightRecording {
+		FlightRecorder recorder;
+		FlightRecorder memento;
+
+		@BeforeEach
+		void setUp() {
+			memento = FlightRecorder.getInstance();
+			recorder = new FlightRecorder(32);
+			recorder.setEnabled(true);
+			FlightRecorder.setInstance(recorder);
+			binding.conditionRespected = true;
+		}
+
+		@AfterEach
+		void tearDown() {
+			FlightRecorder.setInstance(memento);
+		}
+
+		@Test
+		void testBindingCallbacksRecorded() throws CancelFSMException {
+			binding.fsmStarts();
+			binding.cmd.candoValue = true;
+			binding.fsmUpdates();
+			binding.fsmStops();
+			final List<FlightRecord> records = recorder.getRecords();
+			assertEquals(List.of(FlightRecorder.Kind.BINDING_STARTS, FlightRecorder.Kind.BINDING_UPDATES,
+				FlightRecorder.Kind.BINDING_STOPS, FlightRecorder.Kind.CMD_EXECUTED),
+				records.stream().map(FlightRecord::getKind).collect(Collectors.toList()));
+			assertTrue(records.stream().allMatch(rec -> rec.getBindingId() == System.identityHashCode(binding)));
+			assertTrue(records.stream().allMatch(rec -> rec.getFsmId() == System.identityHashCode(binding.getInteraction().getFsm())));
+			assertTrue(records.get(0).getCmdStatus().isEmpty());
+			assertEquals(Command.CmdStatus.CREATED, records.get(1).getCmdStatus().orElseThrow());
+			assertEquals(Command.CmdStatus.EXECUTED, records.get(3).getCmdStatus().orElseThrow());
+		}
+
+		@Test
+		void testCancelRecorded() throws CancelFSMException {
+			binding.fsmStarts();
+			binding.fsmCancels();
+			final List<FlightRecord> records = recorder.getRecords();
+			assertEquals(FlightRecorder.Kind.BINDING_CANCELS, records.get(records.size() - 1).getKind());
+			assertEquals(Command.CmdStatus.CREATED, records.get(records.size() - 1).getCmdStatus().orElseThrow());
+		}
+	}
+
 	static class CmdStubUndoable extends CmdStub implements Undoable {
 		@Override
 		public boolean hadEffect() {
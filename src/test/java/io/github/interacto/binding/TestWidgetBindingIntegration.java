@@ -22,9 +22,13 @@ import io.github.interacto.fsm.TerminalState;
 import io.github.interacto.fsm.Transition;
 import io.github.interacto.interaction.InteractionData;
 import io.github.interacto.interaction.InteractionStub;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -32,6 +36,7 @@ import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -59,7 +64,7 @@ public class TestWidgetBindingIntegration {
 	@AfterEach
 	void tearDown() {
 		CommandsRegistry.getInstance().clear();
-		WidgetBindingImpl.setLogger(null);
+		WidgetBindingImpl.setInteractoLogger(null);
 	}
 
 	@Nested
@@ -251,6 +256,160 @@ public class TestWidgetBindingIntegration {
 
 
 
+	@Nested
+	class AsyncExec {
+		AsyncCommandEngine engine;
+		AsyncCommandEngine memento;
+		CountDownLatch executed;
+		Deque<CommandImplStub> produced;
+
+		@BeforeEach
+		void setUp() {
+			memento = AsyncCommandEngine.getInstance();
+			engine = new AsyncCommandEngine(2);
+			AsyncCommandEngine.setInstance(engine);
+			executed = new CountDownLatch(1);
+			produced = new ArrayDeque<>();
+			binding = new WidgetBindingImpl<>(false, i -> produced.isEmpty() ? cmd : produced.poll(), interaction) {
+				@Override
+				public boolean when() {
+					return whenValue.get();
+				}
+				@Override
+				public void ifCmdHadEffects() {
+					super.ifCmdHadEffects();
+					effects++;
+					executed.countDown();
+				}
+				@Override
+				protected void unbindCmdAttributes() {
+				}
+			};
+			binding.setAsync(true);
+		}
+
+		@AfterEach
+		void tearDown() {
+			engine.shutdown();
+			AsyncCommandEngine.setInstance(memento);
+		}
+
+		@Test
+		void testCmdExecutedAsyncWithEngine() throws InterruptedException {
+			fsm.process(new EventStub1());
+			assertTrue(executed.await(5, TimeUnit.SECONDS));
+			assertEquals(1, cmd.executed);
+			assertEquals(1, effects);
+			assertEquals(Command.CmdStatus.DONE, cmd.getStatus());
+			assertTrue(CommandsRegistry.getInstance().getCommands().contains(cmd));
+		}
+
+		@Test
+		void testUninstallCancelsAsyncCmds() {
+			final Command other = new CommandImplStub();
+			final Command blocking = new CommandImpl() {
+				@Override
+				protected void doCmdBody() {
+					try {
+						Thread.sleep(10_000L);
+					}catch(final InterruptedException ex) {
+						Thread.currentThread().interrupt();
+					}
+				}
+			};
+			engine.submit(binding, blocking, null);
+			engine.submit(binding, other, null);
+			binding.uninstallBinding();
+			assertEquals(Command.CmdStatus.CANCELLED, other.getStatus());
+		}
+
+		@Test
+		void testFsmCancelsDoesNotCancelAsyncCmds() {
+			final CountDownLatch release = new CountDownLatch(1);
+			final Command blocking = new LatchCmd(release);
+			final Command other = new CommandImplStub();
+			engine.submit(binding, blocking, null);
+			final AsyncCommandEngine.Execution previous = engine.submit(binding, other, null);
+			binding.fsmCancels();
+			assertFalse(previous.isCancelled());
+			release.countDown();
+		}
+
+		@Test
+		void testNoCancelPreviousAsyncCmdByDefault() {
+			assertFalse(binding.isCancelPreviousAsyncCmd());
+		}
+
+		@Test
+		void testPreviousAsyncCmdNotCancelledByDefault() throws InterruptedException {
+			final CountDownLatch release = new CountDownLatch(1);
+			final LatchCmd inFlight = new LatchCmd(release);
+			produced.add(inFlight);
+			executed = new CountDownLatch(2);
+			fsm.process(new EventStub1());
+			assertTrue(inFlight.started.await(5, TimeUnit.SECONDS));
+			fsm.process(new EventStub1());
+			release.countDown();
+			assertTrue(executed.await(5, TimeUnit.SECONDS));
+			assertEquals(Command.CmdStatus.DONE, inFlight.getStatus());
+			assertEquals(Command.CmdStatus.DONE, cmd.getStatus());
+			assertEquals(2, effects);
+		}
+
+		@Test
+		void testNewCmdCancelsPreviousAsyncCmdInFlight() throws InterruptedException {
+			final CountDownLatch release = new CountDownLatch(1);
+			final LatchCmd inFlight = new LatchCmd(release);
+			produced.add(inFlight);
+			binding.setCancelPreviousAsyncCmd(true);
+			fsm.process(new EventStub1());
+			assertTrue(inFlight.started.await(5, TimeUnit.SECONDS));
+			fsm.process(new EventStub1());
+			assertTrue(inFlight.interrupted.await(5, TimeUnit.SECONDS));
+			assertTrue(executed.await(5, TimeUnit.SECONDS));
+			assertEquals(Command.CmdStatus.CANCELLED, inFlight.getStatus());
+			assertFalse(CommandsRegistry.getInstance().getCommands().contains(inFlight));
+			assertEquals(Command.CmdStatus.DONE, cmd.getStatus());
+			assertEquals(1, effects);
+		}
+
+		@Test
+		void testNewCmdDoesNotCancelDoneAsyncCmd() throws InterruptedException {
+			final CommandImplStub first = new CommandImplStub();
+			produced.add(first);
+			binding.setCancelPreviousAsyncCmd(true);
+			fsm.process(new EventStub1());
+			assertTrue(executed.await(5, TimeUnit.SECONDS));
+			executed = new CountDownLatch(1);
+			fsm.process(new EventStub1());
+			assertTrue(executed.await(5, TimeUnit.SECONDS));
+			assertEquals(Command.CmdStatus.DONE, first.getStatus());
+			assertEquals(2, effects);
+		}
+	}
+
+	private static class LatchCmd extends CommandImplStub {
+		final CountDownLatch release;
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch interrupted = new CountDownLatch(1);
+
+		LatchCmd(final CountDownLatch release) {
+			super();
+			this.release = release;
+		}
+
+		@Override
+		protected void doCmdBody() {
+			started.countDown();
+			try {
+				release.await(5, TimeUnit.SECONDS);
+			}catch(final InterruptedException ex) {
+				interrupted.countDown();
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
 	private static class EventStub1 {
 	}
 
@@ -173,6 +173,11 @@ public class TestCommand {
 		assertFalse(cmd.unregisteredBy(new CmdStub()));
 	}
 
+	@Test
+	void testNoUnregisteringCommandTypesByDefault() {
+		assertTrue(cmd.getUnregisteringCommandTypes().isEmpty());
+	}
+
 	@Test
 	void testCommandNotDoneWhenFlushed() {
 		cmd.flush();
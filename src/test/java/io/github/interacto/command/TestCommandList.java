@@ -0,0 +1,347 @@
+/*
+ * Interacto
+ * Copyright (C) 2020 Arnaud Blouin
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.interacto.command;
+
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.Set;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestCommandList {
+	CommandList list;
+	Command limited1;
+	Command limited2;
+	Command unlimited1;
+	Command unlimited2;
+
+	@BeforeEach
+	void setUp() {
+		list = new CommandList();
+		limited1 = Mockito.mock(Command.class);
+		limited2 = Mockito.mock(Command.class);
+		unlimited1 = Mockito.mock(Command.class);
+		unlimited2 = Mockito.mock(Command.class);
+		Mockito.when(limited1.getRegistrationPolicy()).thenReturn(Command.RegistrationPolicy.LIMITED);
+		Mockito.when(limited2.getRegistrationPolicy()).thenReturn(Command.RegistrationPolicy.LIMITED);
+		Mockito.when(unlimited1.getRegistrationPolicy()).thenReturn(Command.RegistrationPolicy.UNLIMITED);
+		Mockito.when(unlimited2.getRegistrationPolicy()).thenReturn(Command.RegistrationPolicy.UNLIMITED);
+	}
+
+	@Test
+	void testEmpty() {
+		assertTrue(list.isEmpty());
+		assertNull(list.pollEvictable());
+	}
+
+	@Test
+	void testAddNull() {
+		assertThrows(NullPointerException.class, () -> list.add(null));
+	}
+
+	@Test
+	void testAddTwice() {
+		assertTrue(list.add(limited1));
+		assertFalse(list.add(limited1));
+		assertEquals(List.of(limited1), list);
+	}
+
+	@Test
+	void testContainsIsIdentity() {
+		list.add(limited1);
+		assertTrue(list.contains(limited1));
+		assertFalse(list.contains(limited2));
+		assertFalse(list.contains(null));
+	}
+
+	@Test
+	void testGetBadIndex() {
+		list.add(limited1);
+		assertThrows(IndexOutOfBoundsException.class, () -> list.get(1));
+		assertThrows(IndexOutOfBoundsException.class, () -> list.get(-1));
+	}
+
+	@Nested
+	class WithCommands {
+		@BeforeEach
+		void setUp() {
+			list.add(unlimited1);
+			list.add(limited1);
+			list.add(unlimited2);
+			list.add(limited2);
+		}
+
+		@Test
+		void testInsertionOrder() {
+			assertEquals(List.of(unlimited1, limited1, unlimited2, limited2), list);
+			assertSame(limited2, list.get(3));
+			assertSame(limited1, list.get(1));
+		}
+
+		@Test
+		void testPollEvictable() {
+			assertSame(limited1, list.pollEvictable());
+			assertSame(limited2, list.pollEvictable());
+			assertNull(list.pollEvictable());
+			assertEquals(List.of(unlimited1, unlimited2), list);
+		}
+
+		@Test
+		void testPollEvictableReadsCurrentPolicy() {
+			Mockito.when(limited1.getRegistrationPolicy()).thenReturn(Command.RegistrationPolicy.UNLIMITED);
+			Mockito.when(unlimited2.getRegistrationPolicy()).thenReturn(Command.RegistrationPolicy.LIMITED);
+			assertSame(unlimited2, list.pollEvictable());
+			assertSame(limited2, list.pollEvictable());
+			assertNull(list.pollEvictable());
+			assertEquals(List.of(unlimited1, limited1), list);
+		}
+
+		@Test
+		void testRemoveObject() {
+			assertTrue(list.remove(limited1));
+			assertFalse(list.remove(limited1));
+			assertEquals(List.of(unlimited1, unlimited2, limited2), list);
+			assertSame(limited2, list.pollEvictable());
+		}
+
+		@Test
+		void testRemoveIndex() {
+			assertSame(limited2, list.remove(3));
+			assertSame(unlimited1, list.remove(0));
+			assertEquals(List.of(limited1, unlimited2), list);
+			assertSame(limited1, list.pollEvictable());
+			assertNull(list.pollEvictable());
+		}
+
+		@Test
+		void testClear() {
+			list.clear();
+			assertTrue(list.isEmpty());
+			assertFalse(list.contains(limited1));
+			assertNull(list.pollEvictable());
+		}
+
+		@Test
+		void testAddAtIndexKeepsEvictableOrder() {
+			final Command limited3 = Mockito.mock(Command.class);
+			list.add(2, limited3);
+			assertEquals(List.of(unlimited1, limited1, limited3, unlimited2, limited2), list);
+			assertSame(limited1, list.pollEvictable());
+			assertSame(limited3, list.pollEvictable());
+			assertSame(limited2, list.pollEvictable());
+		}
+
+		@Test
+		void testAddAtHead() {
+			final Command limited3 = Mockito.mock(Command.class);
+			list.add(0, limited3);
+			assertSame(limited3, list.get(0));
+			assertSame(limited3, list.pollEvictable());
+		}
+
+		@Test
+		void testAddAtIndexContained() {
+			assertThrows(IllegalArgumentException.class, () -> list.add(0, limited2));
+		}
+
+		@Test
+		void testAddAtBadIndex() {
+			assertThrows(IndexOutOfBoundsException.class, () -> list.add(5, Mockito.mock(Command.class)));
+		}
+
+		@Test
+		void testSet() {
+			final Command limited3 = Mockito.mock(Command.class);
+			assertSame(limited1, list.set(1, limited3));
+			assertEquals(List.of(unlimited1, limited3, unlimited2, limited2), list);
+			assertFalse(list.contains(limited1));
+			assertSame(limited3, list.pollEvictable());
+		}
+
+		@Test
+		void testSetSameCommand() {
+			assertSame(limited1, list.set(1, limited1));
+			assertEquals(List.of(unlimited1, limited1, unlimited2, limited2), list);
+		}
+
+		@Test
+		void testSetContained() {
+			assertThrows(IllegalArgumentException.class, () -> list.set(1, limited2));
+		}
+
+		@Test
+		void testRemoveUnregisteredByUndeclared() {
+			final Command cmd = Mockito.mock(Command.class);
+			Mockito.when(limited1.unregisteredBy(cmd)).thenReturn(true);
+			Mockito.when(unlimited2.unregisteredBy(cmd)).thenReturn(true);
+			assertEquals(List.of(limited1, unlimited2), list.removeUnregisteredBy(List.of(cmd)));
+			assertEquals(List.of(unlimited1, limited2), list);
+			assertSame(limited2, list.pollEvictable());
+		}
+
+		@Test
+		void testRemoveUnregisteredByNothingRemoved() {
+			final Command cmd = Mockito.mock(Command.class);
+			assertTrue(list.removeUnregisteredBy(List.of(cmd)).isEmpty());
+			Mockito.verify(unlimited1).unregisteredBy(cmd);
+			Mockito.verify(limited1).unregisteredBy(cmd);
+			Mockito.verify(unlimited2).unregisteredBy(cmd);
+			Mockito.verify(limited2).unregisteredBy(cmd);
+			assertEquals(4, list.size());
+		}
+
+		@Test
+		void testRemoveUnregisteredByDeclared() {
+			final Command cmd = new AnonCommand(() -> { });
+			final Command declared = Mockito.mock(Command.class);
+			final Command other = Mockito.mock(Command.class);
+			Mockito.when(declared.getUnregisteringCommandTypes()).thenReturn(Optional.of(Set.of(AnonCommand.class)));
+			Mockito.when(other.getUnregisteringCommandTypes()).thenReturn(Optional.of(Set.of(CmdStub.class)));
+			Mockito.when(declared.unregisteredBy(cmd)).thenReturn(true);
+			Mockito.when(other.unregisteredBy(cmd)).thenReturn(true);
+			Mockito.when(limited1.unregisteredBy(cmd)).thenReturn(true);
+			list.clear();
+			list.add(declared);
+			list.add(other);
+			list.add(limited1);
+			assertEquals(List.of(limited1, declared), list.removeUnregisteredBy(List.of(cmd)));
+			assertEquals(List.of(other), list);
+			Mockito.verify(other, Mockito.never()).unregisteredBy(cmd);
+		}
+
+		@Test
+		void testRemoveUnregisteredBySeveralMatchingTypesCheckedOnce() {
+			final Command cmd = new AnonCommand(() -> { });
+			final Command declared = Mockito.mock(Command.class);
+			Mockito.when(declared.getUnregisteringCommandTypes()).thenReturn(Optional.of(Set.of(AnonCommand.class, Command.class)));
+			Mockito.when(declared.unregisteredBy(cmd)).thenReturn(true);
+			list.clear();
+			list.add(declared);
+			assertEquals(List.of(declared), list.removeUnregisteredBy(List.of(cmd)));
+			assertTrue(list.isEmpty());
+			Mockito.verify(declared, Mockito.times(1)).unregisteredBy(cmd);
+		}
+
+		@Test
+		void testRemoveUnregisteredBySeveralCommands() {
+			final Command cmd1 = new AnonCommand(() -> { });
+			final Command cmd2 = Mockito.mock(Command.class);
+			final Command declared = Mockito.mock(Command.class);
+			Mockito.when(declared.getUnregisteringCommandTypes()).thenReturn(Optional.of(Set.of(AnonCommand.class, Command.class)));
+			Mockito.when(declared.unregisteredBy(cmd2)).thenReturn(true);
+			Mockito.when(limited1.unregisteredBy(cmd2)).thenReturn(true);
+			list.add(declared);
+			assertEquals(List.of(limited1, declared), list.removeUnregisteredBy(List.of(cmd1, cmd2)));
+			assertEquals(List.of(unlimited1, unlimited2, limited2), list);
+			Mockito.verify(declared, Mockito.times(1)).unregisteredBy(cmd1);
+			Mockito.verify(limited1, Mockito.times(1)).unregisteredBy(cmd1);
+			Mockito.verify(limited1, Mockito.times(1)).unregisteredBy(cmd2);
+		}
+
+		@Test
+		void testRemoveUnregisteredByRemovedCommand() {
+			final Command declared = Mockito.mock(Command.class);
+			Mockito.when(declared.getUnregisteringCommandTypes()).thenReturn(Optional.of(Set.of(Command.class)));
+			list.clear();
+			list.add(declared);
+			list.remove(declared);
+			final Command cmd = new AnonCommand(() -> { });
+			assertTrue(list.removeUnregisteredBy(List.of(cmd)).isEmpty());
+			Mockito.verify(declared, Mockito.never()).unregisteredBy(cmd);
+		}
+
+		@Test
+		void testRemoveUnregisteredByEqualCommands() {
+			final Command equal1 = new EqualCmd();
+			final Command equal2 = new EqualCmd();
+			list.clear();
+			list.add(equal1);
+			list.add(equal2);
+			list.remove(equal1);
+			assertEquals(List.of(equal2), list.removeUnregisteredBy(List.of(Mockito.mock(Command.class))));
+			assertTrue(list.isEmpty());
+		}
+
+		@Test
+		void testIteratorRemove() {
+			final Iterator<Command> it = list.iterator();
+			it.next();
+			it.next();
+			it.remove();
+			assertEquals(List.of(unlimited1, unlimited2, limited2), list);
+			assertSame(limited2, list.pollEvictable());
+		}
+
+		@Test
+		void testIteratorRemoveTwice() {
+			final Iterator<Command> it = list.iterator();
+			it.next();
+			it.remove();
+			assertThrows(IllegalStateException.class, it::remove);
+		}
+
+		@Test
+		void testIteratorEnd() {
+			final Iterator<Command> it = list.iterator();
+			for(int i = 0; i < 4; i++) {
+				it.next();
+			}
+			assertFalse(it.hasNext());
+			assertThrows(NoSuchElementException.class, it::next);
+		}
+
+		@Test
+		void testIteratorConcurrentModification() {
+			final Iterator<Command> it = list.iterator();
+			it.next();
+			list.remove(limited2);
+			assertThrows(ConcurrentModificationException.class, it::next);
+		}
+	}
+
+	/** All the instances are equal: the list must compare commands by identity. */
+	static class EqualCmd extends CommandImpl {
+		@Override
+		public boolean unregisteredBy(final Command cmd) {
+			return true;
+		}
+
+		@Override
+		protected void doCmdBody() {
+		}
+
+		@Override
+		public boolean equals(final Object obj) {
+			return obj instanceof EqualCmd;
+		}
+
+		@Override
+		public int hashCode() {
+			return 1;
+		}
+	}
+}
@@ -0,0 +1,362 @@
+/*
+ * Interacto
+ * Copyright (C) 2020 Arnaud Blouin
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.interacto.command;
+
+import io.github.interacto.undo.UndoCollector;
+import io.github.interacto.undo.Undoable;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.mockito.Mockito;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestCommandTransaction {
+	CommandsRegistry registry;
+	UndoCollector collector;
+	UndoCollector collectorMemento;
+
+	@BeforeEach
+	void setUp() {
+		registry = new CommandsRegistry();
+		collector = new UndoCollector();
+		collectorMemento = UndoCollector.getInstance();
+		UndoCollector.setInstance(collector);
+	}
+
+	@AfterEach
+	void tearDown() {
+		UndoCollector.setInstance(collectorMemento);
+	}
+
+	Command createCmd() {
+		final Command cmd = Mockito.mock(Command.class, Mockito.withSettings().extraInterfaces(Undoable.class));
+		Mockito.when(cmd.hadEffect()).thenReturn(true);
+		Mockito.when(cmd.getRegistrationPolicy()).thenReturn(Command.RegistrationPolicy.LIMITED);
+		return cmd;
+	}
+
+	@Test
+	void testNoTransactionAtStart() {
+		assertEquals(Optional.empty(), registry.getTransaction());
+	}
+
+	@Test
+	void testBeginTransaction() {
+		final CommandTransaction tx = registry.beginTransaction("tx");
+		assertTrue(tx.isOpen());
+		assertEquals(Optional.of(tx), registry.getTransaction());
+		assertEquals("tx", tx.getCommand().getName());
+	}
+
+	@Test
+	void testCommandsGatheredDuringTransaction() {
+		final Command c1 = createCmd();
+		final Command c2 = createCmd();
+		final CommandTransaction tx = registry.beginTransaction("tx");
+		registry.addCommand(c1);
+		registry.addCommand(c2);
+		registry.addCommand(null);
+		assertTrue(registry.getCommands().isEmpty());
+		assertTrue(collector.getUndo().isEmpty());
+		assertEquals(List.of(c1, c2), tx.getCommand().getCommands());
+	}
+
+	@Test
+	void testCommitRegistersOnce() {
+		final List<Command> published = new ArrayList<>();
+		final var disposable = registry.commands().subscribe(published::add);
+		final CommandTransaction tx = registry.beginTransaction("tx");
+		registry.addCommand(createCmd());
+		registry.addCommand(createCmd());
+		tx.commit();
+		disposable.dispose();
+		assertFalse(tx.isOpen());
+		assertEquals(Optional.empty(), registry.getTransaction());
+		assertEquals(List.of(tx.getCommand()), registry.getCommands());
+		assertEquals(List.of(tx.getCommand()), published);
+		assertEquals(Optional.of(tx.getCommand()), collector.getLastUndo());
+		assertTrue(tx.getCommand().isDone());
+	}
+
+	@Test
+	void testCommitTwiceDoesNothing() {
+		final CommandTransaction tx = registry.beginTransaction("tx");
+		registry.addCommand(createCmd());
+		tx.commit();
+		tx.commit();
+		tx.rollback();
+		assertEquals(1, registry.getCommands().size());
+	}
+
+	@Test
+	void testCommitEmptyFlushes() {
+		final CommandTransaction tx = registry.beginTransaction("tx");
+		tx.commit();
+		assertTrue(registry.getCommands().isEmpty());
+		assertEquals(Command.CmdStatus.FLUSHED, tx.getCommand().getStatus());
+	}
+
+	@Test
+	void testCommitWithoutEffectFlushes() {
+		final Command c1 = createCmd();
+		Mockito.when(c1.hadEffect()).thenReturn(false);
+		final CommandTransaction tx = registry.beginTransaction("tx");
+		registry.addCommand(c1);
+		tx.commit();
+		assertEquals(Command.RegistrationPolicy.NONE, tx.getCommand().getRegistrationPolicy());
+		assertTrue(registry.getCommands().isEmpty());
+		assertTrue(collector.getUndo().isEmpty());
+		assertEquals(Command.CmdStatus.FLUSHED, tx.getCommand().getStatus());
+		Mockito.verify(c1).flush();
+	}
+
+	@Test
+	void testCloseCommits() {
+		final CommandTransaction tx;
+		try(CommandTransaction t = registry.beginTransaction("tx")) {
+			tx = t;
+			registry.addCommand(createCmd());
+		}
+		assertFalse(tx.isOpen());
+		assertEquals(List.of(tx.getCommand()), registry.getCommands());
+	}
+
+	@Test
+	void testUndoTransactionUndoesInReverseOrder() {
+		final Command c1 = createCmd();
+		final Command c2 = createCmd();
+		final CommandTransaction tx = registry.beginTransaction("tx");
+		registry.addCommand(c1);
+		registry.addCommand(c2);
+		tx.commit();
+		collector.undo();
+		final InOrder order = Mockito.inOrder(c1, c2);
+		order.verify((Undoable) c2).undo();
+		order.verify((Undoable) c1).undo();
+	}
+
+	@Test
+	void testCommitUnregistersWithGatheredCommands() {
+		final Command registered = Mockito.mock(Command.class);
+		final Command c1 = createCmd();
+		Mockito.when(registered.unregisteredBy(c1)).thenReturn(true);
+		registry.addCommand(registered);
+		final CommandTransaction tx = registry.beginTransaction("tx");
+		registry.addCommand(c1);
+		assertEquals(List.of(registered), registry.getCommands());
+		tx.commit();
+		assertEquals(List.of(tx.getCommand()), registry.getCommands());
+		Mockito.verify(registered).flush();
+	}
+
+	@Test
+	void testCommitUnregistersOncePerTransaction() {
+		final Command registered = Mockito.mock(Command.class);
+		final Command c1 = createCmd();
+		final Command c2 = createCmd();
+		registry.addCommand(registered);
+		final CommandTransaction tx = registry.beginTransaction("tx");
+		registry.addCommand(c1);
+		registry.addCommand(c2);
+		tx.commit();
+		Mockito.verify(registered, Mockito.times(1)).unregisteredBy(c1);
+		Mockito.verify(registered, Mockito.times(1)).unregisteredBy(c2);
+		Mockito.verify(registered, Mockito.never()).unregisteredBy(tx.getCommand());
+		assertEquals(List.of(registered, tx.getCommand()), registry.getCommands());
+	}
+
+	@Test
+	void testCommitUnregistersWithNestedCommands() {
+		final Command registered = Mockito.mock(Command.class);
+		final Command c1 = createCmd();
+		Mockito.when(registered.unregisteredBy(c1)).thenReturn(true);
+		registry.addCommand(registered);
+		final CommandTransaction outer = registry.beginTransaction("outer");
+		final CommandTransaction inner = registry.beginTransaction("inner");
+		registry.addCommand(c1);
+		inner.commit();
+		outer.commit();
+		assertEquals(List.of(outer.getCommand()), registry.getCommands());
+		Mockito.verify(registered).flush();
+	}
+
+	@Test
+	void testRegisteredCommandNotGathered() {
+		final Command c1 = createCmd();
+		registry.addCommand(c1);
+		final CommandTransaction tx = registry.beginTransaction("tx");
+		registry.addCommand(c1);
+		assertTrue(tx.getCommand().getCommands().isEmpty());
+	}
+
+	@Test
+	void testNotRegistrableCommandNotGathered() {
+		final Command c1 = createCmd();
+		registry.setSizeMax(0);
+		final CommandTransaction tx = registry.beginTransaction("tx");
+		registry.addCommand(c1);
+		assertTrue(tx.getCommand().getCommands().isEmpty());
+	}
+
+	@Test
+	void testCommandsOfOtherThreadsNotGathered() throws InterruptedException {
+		final Command c1 = createCmd();
+		final List<Optional<CommandTransaction>> otherTx = new ArrayList<>();
+		final CommandTransaction tx = registry.beginTransaction("tx");
+		final Thread thread = new Thread(() -> {
+			otherTx.add(registry.getTransaction());
+			registry.addCommand(c1);
+		});
+		thread.start();
+		thread.join();
+		assertEquals(List.of(Optional.empty()), otherTx);
+		assertTrue(tx.getCommand().getCommands().isEmpty());
+		assertEquals(List.of(c1), registry.getCommands());
+		assertEquals(Optional.of(tx), registry.getTransaction());
+	}
+
+	@Test
+	void testRemoveCommandRemovesFromTransactionOfOtherThread() throws InterruptedException {
+		final Command c1 = createCmd();
+		final List<CommandTransaction> otherTx = new ArrayList<>();
+		final Thread thread = new Thread(() -> {
+			otherTx.add(registry.beginTransaction("other"));
+			registry.addCommand(c1);
+		});
+		thread.start();
+		thread.join();
+		registry.removeCommand(c1);
+		assertTrue(otherTx.get(0).getCommand().getCommands().isEmpty());
+	}
+
+	@Test
+	void testDeadThreadWithOpenTransactionNotRetained() throws InterruptedException {
+		Thread thread = new Thread(() -> {
+			registry.beginTransaction("never closed");
+			registry.addCommand(createCmd());
+		});
+		final WeakReference<Thread> ref = new WeakReference<>(thread);
+		thread.start();
+		thread.join();
+		thread = null;
+		for(int i = 0; i < 50 && ref.get() != null; i++) {
+			System.gc();
+			Thread.sleep(10L);
+		}
+		assertNull(ref.get());
+	}
+
+	@Test
+	void testCommitFromAnotherThread() throws InterruptedException {
+		final Command c1 = createCmd();
+		final CommandTransaction tx = registry.beginTransaction("tx");
+		registry.addCommand(c1);
+		final Thread thread = new Thread(tx::commit);
+		thread.start();
+		thread.join();
+		assertFalse(tx.isOpen());
+		assertEquals(Optional.empty(), registry.getTransaction());
+		assertEquals(List.of(tx.getCommand()), registry.getCommands());
+	}
+
+	@Test
+	void testRollback() {
+		final Command c1 = createCmd();
+		final Command c2 = createCmd();
+		final CommandTransaction tx = registry.beginTransaction("tx");
+		registry.addCommand(c1);
+		registry.addCommand(c2);
+		tx.rollback();
+		assertFalse(tx.isOpen());
+		assertTrue(registry.getCommands().isEmpty());
+		assertTrue(collector.getUndo().isEmpty());
+		final InOrder order = Mockito.inOrder(c1, c2);
+		order.verify((Undoable) c2).undo();
+		order.verify((Undoable) c1).undo();
+		Mockito.verify(c1).flush();
+		Mockito.verify(c2).flush();
+	}
+
+	@Test
+	void testNestedCommitAddsToParent() {
+		final Command c1 = createCmd();
+		final Command c2 = createCmd();
+		final CommandTransaction outer = registry.beginTransaction("outer");
+		registry.addCommand(c1);
+		final CommandTransaction inner = registry.beginTransaction("inner");
+		assertEquals(Optional.of(inner), registry.getTransaction());
+		registry.addCommand(c2);
+		inner.commit();
+		assertEquals(Optional.of(outer), registry.getTransaction());
+		assertEquals(List.of(c1, inner.getCommand()), outer.getCommand().getCommands());
+		outer.commit();
+		assertEquals(List.of(outer.getCommand()), registry.getCommands());
+	}
+
+	@Test
+	void testCommitOuterCommitsNested() {
+		final Command c1 = createCmd();
+		final CommandTransaction outer = registry.beginTransaction("outer");
+		final CommandTransaction inner = registry.beginTransaction("inner");
+		registry.addCommand(c1);
+		outer.commit();
+		assertFalse(inner.isOpen());
+		assertEquals(Optional.empty(), registry.getTransaction());
+		assertEquals(List.of(inner.getCommand()), outer.getCommand().getCommands());
+		assertEquals(List.of(outer.getCommand()), registry.getCommands());
+	}
+
+	@Test
+	void testRollbackOuterRollsBackNested() {
+		final Command c1 = createCmd();
+		final CommandTransaction outer = registry.beginTransaction("outer");
+		final CommandTransaction inner = registry.beginTransaction("inner");
+		registry.addCommand(c1);
+		outer.rollback();
+		assertFalse(inner.isOpen());
+		assertEquals(Optional.empty(), registry.getTransaction());
+		assertTrue(registry.getCommands().isEmpty());
+		Mockito.verify((Undoable) c1).undo();
+	}
+
+	@Test
+	void testRemoveCommandRemovesFromTransaction() {
+		final Command c1 = createCmd();
+		final CommandTransaction tx = registry.beginTransaction("tx");
+		registry.addCommand(c1);
+		registry.removeCommand(c1);
+		assertTrue(tx.getCommand().getCommands().isEmpty());
+	}
+
+	@Test
+	void testCancelCmdRemovesFromTransaction() {
+		final Command c1 = createCmd();
+		final CommandTransaction tx = registry.beginTransaction("tx");
+		registry.addCommand(c1);
+		registry.cancelCmd(c1);
+		assertTrue(tx.getCommand().getCommands().isEmpty());
+		assertSame(tx, registry.getTransaction().orElseThrow());
+	}
+}
@@ -21,6 +21,8 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
 import java.util.ResourceBundle;
+import java.util.Optional;
+import java.util.Set;
 import java.util.stream.IntStream;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -191,6 +193,57 @@ public class TestCommandsRegistry {
 		assertEquals(CmdStatus.FLUSHED, cmd.getStatus());
 	}
 
+	@Test
+	void testUnregisterDeclaredTypeOK() {
+		final Command cmd = Mockito.mock(Command.class);
+		Mockito.when(cmd.getUnregisteringCommandTypes()).thenReturn(Optional.of(Set.of(CommandImplStub.class)));
+		Mockito.when(cmd.unregisteredBy(Mockito.any())).thenReturn(true);
+		instance.addCommand(cmd);
+		instance.unregisterCommand(new CommandImplStub());
+		assertTrue(instance.getCommands().isEmpty());
+		Mockito.verify(cmd, Mockito.times(1)).flush();
+	}
+
+	@Test
+	void testUnregisterDeclaredSuperType() {
+		final Command cmd = Mockito.mock(Command.class);
+		Mockito.when(cmd.getUnregisteringCommandTypes()).thenReturn(Optional.of(Set.of(Command.class)));
+		Mockito.when(cmd.unregisteredBy(Mockito.any())).thenReturn(true);
+		instance.addCommand(cmd);
+		instance.unregisterCommand(new CommandImplStub());
+		assertTrue(instance.getCommands().isEmpty());
+	}
+
+	@Test
+	void testUnregisterOtherDeclaredTypeNotChecked() {
+		final Command cmd = Mockito.mock(Command.class);
+		Mockito.when(cmd.getUnregisteringCommandTypes()).thenReturn(Optional.of(Set.of(CommandImplStub2.class)));
+		instance.addCommand(cmd);
+		instance.unregisterCommand(new CommandImplStub());
+		assertEquals(List.of(cmd), instance.getCommands());
+		Mockito.verify(cmd, Mockito.never()).unregisteredBy(Mockito.any());
+	}
+
+	@Test
+	void testUnregisterNoDeclaredTypeNotChecked() {
+		final Command cmd = Mockito.mock(Command.class);
+		Mockito.when(cmd.getUnregisteringCommandTypes()).thenReturn(Optional.of(Set.of()));
+		instance.addCommand(cmd);
+		instance.unregisterCommand(new CommandImplStub());
+		Mockito.verify(cmd, Mockito.never()).unregisteredBy(Mockito.any());
+	}
+
+	@Test
+	void testUnregisterSeveralMatchingTypesFlushedOnce() {
+		final Command cmd = Mockito.mock(Command.class);
+		Mockito.when(cmd.getUnregisteringCommandTypes()).thenReturn(Optional.of(Set.of(Command.class, CommandImpl.class)));
+		Mockito.when(cmd.unregisteredBy(Mockito.any())).thenReturn(true);
+		instance.addCommand(cmd);
+		instance.unregisterCommand(new CommandImplStub());
+		assertTrue(instance.getCommands().isEmpty());
+		Mockito.verify(cmd, Mockito.times(1)).flush();
+	}
+
 	@Test
 	public void testAddCommandCannotAddBecauseNull() {
 		final Command command = new CommandImplStub();
@@ -243,6 +296,25 @@ public class TestCommandsRegistry {
 		assertEquals(List.of(cmd1, cmd3), instance.getCommands());
 	}
 
+	@Test
+	void testSetSizeMaxReadsPolicyAtEvictionTime() {
+		final var cmd1 = Mockito.mock(Command.class);
+		Mockito.when(cmd1.getRegistrationPolicy()).thenReturn(Command.RegistrationPolicy.LIMITED);
+		final var cmd2 = Mockito.mock(Command.class);
+		Mockito.when(cmd2.getRegistrationPolicy()).thenReturn(Command.RegistrationPolicy.UNLIMITED);
+		final var cmd3 = Mockito.mock(Command.class);
+		Mockito.when(cmd3.getRegistrationPolicy()).thenReturn(Command.RegistrationPolicy.LIMITED);
+		instance.addCommand(cmd1);
+		instance.addCommand(cmd2);
+		instance.addCommand(cmd3);
+		Mockito.when(cmd1.getRegistrationPolicy()).thenReturn(Command.RegistrationPolicy.UNLIMITED);
+		Mockito.when(cmd2.getRegistrationPolicy()).thenReturn(Command.RegistrationPolicy.LIMITED);
+		instance.setSizeMax(2);
+		assertEquals(List.of(cmd1, cmd3), instance.getCommands());
+		Mockito.verify(cmd2).flush();
+		Mockito.verify(cmd1, Mockito.never()).flush();
+	}
+
 	@Test
 	void testAddCommandMaxCapacityButUnlimitedAdded() {
 		final var cmd1 = Mockito.mock(Command.class);
@@ -252,6 +324,23 @@ public class TestCommandsRegistry {
 		assertEquals(List.of(cmd1), instance.getCommands());
 	}
 
+	@Test
+	void testAddManyCommandsKeepsOrderAndUnlimited() {
+		final List<Command> unlimited = new ArrayList<>();
+		instance.setSizeMax(100);
+		for(int i = 0; i < 5000; i++) {
+			final Command cmd = new CommandPolicyStub(i % 100 == 0 ? Command.RegistrationPolicy.UNLIMITED : Command.RegistrationPolicy.LIMITED);
+			if(i % 100 == 0) {
+				unlimited.add(cmd);
+			}
+			instance.addCommand(cmd);
+		}
+		assertEquals(100, instance.getCommands().size());
+		assertTrue(instance.getCommands().containsAll(unlimited));
+		instance.setSizeMax(0);
+		assertEquals(unlimited, instance.getCommands());
+	}
+
 	@Test
 	public void testAddCommandAddsUndoableCollector() {
 		final Command command = new CommandImplUndoableStub();
@@ -328,6 +417,20 @@ public class TestCommandsRegistry {
 	}
 
 
+	private static class CommandPolicyStub extends CommandImplStub {
+		final RegistrationPolicy policy;
+
+		CommandPolicyStub(final RegistrationPolicy policy) {
+			super();
+			this.policy = policy;
+		}
+
+		@Override
+		public RegistrationPolicy getRegistrationPolicy() {
+			return policy;
+		}
+	}
+
 	private static class CommandImplStub extends CommandImpl {
 		CommandImplStub() {
 			super();
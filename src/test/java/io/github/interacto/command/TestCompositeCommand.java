@@ -0,0 +1,226 @@
+/*
+ * Interacto
+ * Copyright (C) 2020 Arnaud Blouin
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.interacto.command;
+
+import io.github.interacto.undo.Undoable;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.mockito.Mockito;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestCompositeCommand {
+	CompositeCommand cmd;
+	Command c1;
+	Command c2;
+	Command c3;
+
+	@BeforeEach
+	void setUp() {
+		cmd = new CompositeCommand("foo");
+		c1 = Mockito.mock(Command.class, Mockito.withSettings().extraInterfaces(Undoable.class));
+		c2 = Mockito.mock(Command.class);
+		c3 = Mockito.mock(Command.class, Mockito.withSettings().extraInterfaces(Undoable.class));
+	}
+
+	@Test
+	void testEmptyAtStart() {
+		assertTrue(cmd.getCommands().isEmpty());
+		assertEquals("foo", cmd.getName());
+	}
+
+	@Test
+	void testAdd() {
+		cmd.add(c1);
+		cmd.add(c2);
+		assertEquals(List.of(c1, c2), cmd.getCommands());
+	}
+
+	@Test
+	void testAddNullSameOrItself() {
+		cmd.add(c1);
+		cmd.add(c1);
+		cmd.add(null);
+		cmd.add(cmd);
+		assertEquals(List.of(c1), cmd.getCommands());
+	}
+
+	@Test
+	void testCommandsNotModifiable() {
+		assertThrows(UnsupportedOperationException.class, () -> cmd.getCommands().add(c1));
+	}
+
+	@Test
+	void testRemove() {
+		cmd.add(c1);
+		assertTrue(cmd.remove(c1));
+		assertFalse(cmd.remove(c1));
+		assertTrue(cmd.getCommands().isEmpty());
+	}
+
+	@Test
+	void testAddEqualCommands() {
+		final Command equal1 = new TestCommandList.EqualCmd();
+		final Command equal2 = new TestCommandList.EqualCmd();
+		cmd.add(equal1);
+		cmd.add(equal2);
+		cmd.add(equal1);
+		assertEquals(2, cmd.getCommands().size());
+	}
+
+	@Test
+	void testRemoveByIdentity() {
+		final Command equal1 = new TestCommandList.EqualCmd();
+		final Command equal2 = new TestCommandList.EqualCmd();
+		cmd.add(equal1);
+		cmd.add(equal2);
+		assertTrue(cmd.remove(equal2));
+		assertSame(equal1, cmd.getCommands().get(0));
+		assertEquals(1, cmd.getCommands().size());
+	}
+
+	@Test
+	void testCannotDoEmpty() {
+		assertFalse(cmd.canDo());
+	}
+
+	@Test
+	void testCanDoIfAllCanDo() {
+		Mockito.when(c1.canDo()).thenReturn(true);
+		Mockito.when(c2.canDo()).thenReturn(false);
+		cmd.add(c1);
+		assertTrue(cmd.canDo());
+		cmd.add(c2);
+		assertFalse(cmd.canDo());
+	}
+
+	@Test
+	void testDoItExecutesInOrder() {
+		Mockito.when(c1.canDo()).thenReturn(true);
+		Mockito.when(c2.canDo()).thenReturn(true);
+		cmd.add(c1);
+		cmd.add(c2);
+		assertTrue(cmd.doIt());
+		final InOrder order = Mockito.inOrder(c1, c2);
+		order.verify(c1).doIt();
+		order.verify(c2).doIt();
+	}
+
+	@Test
+	void testUndoReverseOrderSkipsNonUndoable() {
+		cmd.add(c1);
+		cmd.add(c2);
+		cmd.add(c3);
+		cmd.undo();
+		final InOrder order = Mockito.inOrder(c1, c3);
+		order.verify((Undoable) c3).undo();
+		order.verify((Undoable) c1).undo();
+		Mockito.verifyNoInteractions(c2);
+	}
+
+	@Test
+	void testRedoForwardOrder() {
+		cmd.add(c1);
+		cmd.add(c3);
+		cmd.redo();
+		final InOrder order = Mockito.inOrder(c1, c3);
+		order.verify((Undoable) c1).redo();
+		order.verify((Undoable) c3).redo();
+	}
+
+	@Test
+	void testFlushFlushesSubCommands() {
+		cmd.add(c1);
+		cmd.add(c2);
+		cmd.flush();
+		assertEquals(Command.CmdStatus.FLUSHED, cmd.getStatus());
+		Mockito.verify(c1).flush();
+		Mockito.verify(c2).flush();
+	}
+
+	@Test
+	void testNoEffectIfNotDone() {
+		Mockito.when(c1.hadEffect()).thenReturn(true);
+		cmd.add(c1);
+		assertFalse(cmd.hadEffect());
+		assertEquals(Command.RegistrationPolicy.NONE, cmd.getRegistrationPolicy());
+	}
+
+	@Test
+	void testNoEffectIfNoSubCommandHadEffect() {
+		cmd.add(c1);
+		cmd.done();
+		assertFalse(cmd.hadEffect());
+	}
+
+	@Test
+	void testPolicyLimited() {
+		Mockito.when(c1.hadEffect()).thenReturn(true);
+		Mockito.when(c1.getRegistrationPolicy()).thenReturn(Command.RegistrationPolicy.LIMITED);
+		cmd.add(c1);
+		cmd.done();
+		assertTrue(cmd.hadEffect());
+		assertEquals(Command.RegistrationPolicy.LIMITED, cmd.getRegistrationPolicy());
+	}
+
+	@Test
+	void testPolicyUnlimited() {
+		Mockito.when(c1.hadEffect()).thenReturn(true);
+		Mockito.when(c2.getRegistrationPolicy()).thenReturn(Command.RegistrationPolicy.UNLIMITED);
+		cmd.add(c1);
+		cmd.add(c2);
+		cmd.done();
+		assertEquals(Command.RegistrationPolicy.UNLIMITED, cmd.getRegistrationPolicy());
+	}
+
+	@Test
+	void testNotUnregistrable() {
+		assertEquals(Optional.of(Set.of()), cmd.getUnregisteringCommandTypes());
+	}
+
+	@Test
+	void testUndoName() {
+		assertEquals("foo", cmd.getUndoName(null));
+	}
+
+	@Test
+	void testUndoNameFromLastUndoable() {
+		cmd = new CompositeCommand(null);
+		Mockito.when(((Undoable) c1).getUndoName(null)).thenReturn("bar");
+		cmd.add(c1);
+		cmd.add(c2);
+		assertEquals("bar", cmd.getUndoName(null));
+		assertNull(cmd.getName());
+	}
+
+	@Test
+	void testRetainedSize() {
+		Mockito.when(((Undoable) c1).getRetainedSize()).thenReturn(10L);
+		Mockito.when(((Undoable) c3).getRetainedSize()).thenReturn(5L);
+		cmd.add(c1);
+		cmd.add(c2);
+		cmd.add(c3);
+		assertEquals(15L, cmd.getRetainedSize());
+	}
+}
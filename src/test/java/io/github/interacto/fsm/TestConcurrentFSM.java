@@ -15,6 +15,7 @@
 package io.github.interacto.fsm;
 
 import java.util.Set;
+import java.util.function.Function;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
@@ -24,6 +25,7 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -77,18 +79,27 @@ public class TestConcurrentFSM {
 		@Test
 		void testLogOK() {
 			fsm.log(true);
-			assertNotNull(fsm.logger);
-			assertNotNull(fsm1.logger);
-			assertNotNull(fsm2.logger);
+			assertNotNull(fsm.fsmLogger);
+			assertNotNull(fsm1.fsmLogger);
+			assertNotNull(fsm2.fsmLogger);
 		}
 
 		@Test
 		void testLogFalse() {
 			fsm.log(true);
 			fsm.log(false);
-			assertNull(fsm.logger);
-			assertNull(fsm1.logger);
-			assertNull(fsm2.logger);
+			assertNull(fsm.fsmLogger);
+			assertNull(fsm1.fsmLogger);
+			assertNull(fsm2.fsmLogger);
+		}
+
+		@Test
+		void testIndexedDispatchPropagated() {
+			final Function<String, Object> key = evt -> evt;
+			fsm.setIndexedDispatch(key);
+			assertSame(key, fsm.getIndexedDispatch());
+			assertSame(key, fsm1.getIndexedDispatch());
+			assertSame(key, fsm2.getIndexedDispatch());
 		}
 
 		@Test
@@ -15,6 +15,9 @@
 package io.github.interacto.fsm;
 
 import io.github.interacto.HelperTest;
+import io.github.interacto.logging.FlightRecord;
+import io.github.interacto.logging.FlightRecorder;
+import io.github.interacto.logging.InteractoLogger;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
@@ -22,7 +25,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
-import java.util.logging.Logger;
+import java.util.function.Function;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
@@ -74,19 +78,35 @@ public class TestFSM {
 		assertEquals(2, fsm.states.size());
 	}
 
+	@SuppressWarnings("deprecation")
 	@Test
 	void testLog() {
 		fsm.log(true);
+		assertNotNull(fsm.fsmLogger);
 		assertNotNull(fsm.logger);
 	}
 
+	@SuppressWarnings("deprecation")
 	@Test
 	void testNoLog() {
 		fsm.log(true);
 		fsm.log(false);
+		assertNull(fsm.fsmLogger);
 		assertNull(fsm.logger);
 	}
 
+	@Test
+	void testNoIndexedDispatchByDefault() {
+		assertNull(fsm.getIndexedDispatch());
+	}
+
+	@Test
+	void testSetIndexedDispatch() {
+		final Function<StubEvent, Object> key = evt -> evt.getClass();
+		fsm.setIndexedDispatch(key);
+		assertSame(key, fsm.getIndexedDispatch());
+	}
+
 	@Nested
 	class TestProcessUniqueEvent {
 		StdState<StubEvent> std;
@@ -115,6 +135,7 @@ public class TestFSM {
 		@Test
 		void testcurrentStateProp() {
 			assertNotNull(fsm.currentStatePublisher);
+			assertSame(fsm.currentStatePublisher, fsm.currentState());
 		}
 
 		@Test
@@ -187,7 +208,7 @@ public class TestFSM {
 			fsm.process(new StubEvent());
 			assertEquals(std, fsm.getCurrentState());
 			Mockito.verify(handler, Mockito.times(2)).fsmStarts();
-			assertTrue(fsm.eventsToProcess.isEmpty());
+			assertTrue(fsm.remainingEvents.isEmpty());
 		}
 
 		@Test
@@ -200,7 +221,7 @@ public class TestFSM {
 			assertEquals(fsm.initState, fsm.getCurrentState());
 			Mockito.verify(handler, Mockito.times(1)).fsmStarts();
 			Mockito.verify(handler, Mockito.times(1)).fsmCancels();
-			assertTrue(fsm.eventsToProcess.isEmpty());
+			assertTrue(fsm.remainingEvents.isEmpty());
 		}
 
 		@Test
@@ -215,7 +236,7 @@ public class TestFSM {
 			fsm.process(new StubEvent());
 			fsm.addRemaningEventsToProcess(new StubEvent());
 			fsm.fullReinit();
-			assertTrue(fsm.eventsToProcess.isEmpty());
+			assertTrue(fsm.remainingEvents.isEmpty());
 			assertEquals(fsm.initState, fsm.getCurrentState());
 		}
 
@@ -291,14 +312,47 @@ public class TestFSM {
 	@Test
 	void testAddRemainingNull() {
 		fsm.addRemaningEventsToProcess(null);
-		assertTrue(fsm.eventsToProcess.isEmpty());
+		assertTrue(fsm.remainingEvents.isEmpty());
 	}
 
 	@Test
 	void testAddRemainingNotNull() {
 		final var evt = new StubEvent();
 		fsm.addRemaningEventsToProcess(evt);
-		assertEquals(List.of(evt), fsm.eventsToProcess);
+		assertEquals(List.of(evt), new ArrayList<>(fsm.remainingEvents));
+	}
+
+	@Test
+	void testRemainingEventsUnboundedByDefault() {
+		assertEquals(Integer.MAX_VALUE, fsm.remainingEvents.getMaxCapacity());
+	}
+
+	@Test
+	void testSetRemainingEventsCapacity() {
+		final var evt1 = new StubEvent();
+		final var evt2 = new StubEvent();
+		fsm.setRemainingEventsCapacity(1, RingBuffer.OverflowPolicy.DROP_NEWEST);
+		fsm.addRemaningEventsToProcess(evt1);
+		fsm.addRemaningEventsToProcess(evt2);
+		assertEquals(List.of(evt1), new ArrayList<>(fsm.remainingEvents));
+	}
+
+	@Test
+	void testSetRemainingEventsCapacityDropOldest() {
+		final var evt1 = new StubEvent();
+		final var evt2 = new StubEvent();
+		fsm.setRemainingEventsCapacity(1, RingBuffer.OverflowPolicy.DROP_OLDEST);
+		fsm.addRemaningEventsToProcess(evt1);
+		fsm.addRemaningEventsToProcess(evt2);
+		assertEquals(List.of(evt2), new ArrayList<>(fsm.remainingEvents));
+	}
+
+	@Test
+	void testSetRemainingEventsCapacityKO() {
+		fsm.setRemainingEventsCapacity(0, RingBuffer.OverflowPolicy.DROP_NEWEST);
+		fsm.setRemainingEventsCapacity(2, null);
+		assertEquals(Integer.MAX_VALUE, fsm.remainingEvents.getMaxCapacity());
+		assertEquals(RingBuffer.OverflowPolicy.DROP_OLDEST, fsm.remainingEvents.getOverflowPolicy());
 	}
 
 	@Test
@@ -324,7 +378,62 @@ public class TestFSM {
 		final var evt = new StubEvent();
 		fsm.addRemaningEventsToProcess(evt);
 		fsm.processRemainingEvents();
-		assertTrue(fsm.eventsToProcess.isEmpty());
+		assertTrue(fsm.remainingEvents.isEmpty());
+	}
+
+	@Test
+	void testProcessRemainingEventsInOrder() {
+		final List<StubEvent> processed = new ArrayList<>();
+		fsm = new FSM<>() {
+			@Override
+			public boolean process(final StubEvent event) {
+				processed.add(event);
+				return true;
+			}
+		};
+		final var evt1 = new StubEvent();
+		final var evt2 = new StubEvent();
+		fsm.addRemaningEventsToProcess(evt1);
+		fsm.addRemaningEventsToProcess(evt2);
+		fsm.processRemainingEvents();
+		assertEquals(List.of(evt1, evt2), processed);
+	}
+
+	@Test
+	void testProcessRemainingEventsAddedDuringProcessKept() {
+		final var evt1 = new StubEvent();
+		final var evt2 = new StubEvent();
+		fsm = new FSM<>() {
+			@Override
+			public boolean process(final StubEvent event) {
+				if(event == evt1) {
+					addRemaningEventsToProcess(evt2);
+				}
+				return true;
+			}
+		};
+		fsm.addRemaningEventsToProcess(evt1);
+		fsm.processRemainingEvents();
+		assertEquals(List.of(evt2), new ArrayList<>(fsm.remainingEvents));
+	}
+
+	@Test
+	void testProcessRemainingEventsFlushedDuringProcess() {
+		final List<StubEvent> processed = new ArrayList<>();
+		fsm = new FSM<>() {
+			@Override
+			public boolean process(final StubEvent event) {
+				processed.add(event);
+				fullReinit();
+				return true;
+			}
+		};
+		final var evt1 = new StubEvent();
+		fsm.addRemaningEventsToProcess(evt1);
+		fsm.addRemaningEventsToProcess(new StubEvent());
+		fsm.processRemainingEvents();
+		assertEquals(List.of(evt1), processed);
+		assertTrue(fsm.remainingEvents.isEmpty());
 	}
 
 	@Test
@@ -369,28 +478,40 @@ public class TestFSM {
 	void testLogWithAlreadyLog() {
 		fsm.log(true);
 		fsm.log(true);
-		assertNotNull(fsm.logger);
+		assertNotNull(fsm.fsmLogger);
 	}
 
 	@Test
 	void testOnTimeoutWithoutTimeout() {
-		fsm.logger = Mockito.mock(Logger.class);
+		fsm.fsmLogger = Mockito.mock(InteractoLogger.class);
 		fsm.onTimeout();
-		Mockito.verify(fsm.logger, Mockito.never()).log(Mockito.any(), Mockito.anyString());
+		Mockito.verifyNoInteractions(fsm.fsmLogger);
 	}
 
 
+	@SuppressWarnings("deprecation")
+	@Test
+	void testDeprecatedEventsToProcessView() {
+		final StubEvent evt1 = new StubEvent();
+		final StubEvent evt2 = new StubEvent();
+		fsm.addRemaningEventsToProcess(evt1);
+		fsm.eventsToProcess.add(0, evt2);
+		assertEquals(List.of(evt2, evt1), new ArrayList<>(fsm.remainingEvents));
+		assertEquals(evt2, fsm.eventsToProcess.remove(0));
+		assertEquals(List.of(evt1), fsm.eventsToProcess);
+	}
+
 	@Test
 	void testUninstall() {
 		final var s1 = Mockito.mock(InputState.class);
 		fsm.addState(s1);
-		fsm.eventsToProcess.add(new StubEvent());
+		fsm.remainingEvents.add(new StubEvent());
 		fsm.uninstall();
 
 		assertTrue(fsm.states.isEmpty());
-		assertTrue(fsm.eventsToProcess.isEmpty());
+		assertTrue(fsm.remainingEvents.isEmpty());
 		assertTrue(fsm.currentStatePublisher.hasComplete());
-		assertNull(fsm.logger);
+		assertNull(fsm.fsmLogger);
 		assertNull(fsm.startingState);
 		assertNull(fsm.currentSubFSM);
 		Mockito.verify(s1, Mockito.times(1)).uninstall();
@@ -412,6 +533,66 @@ public class TestFSM {
 		assertEquals(fsm.initState, changes.get(0).getKey());
 	}
 
+	@Test
+	void testCurrentStateSameObservable() {
+		assertSame(fsm.currentState(), fsm.currentState());
+	}
+
+	@Test
+	void testStateChangeListener() {
+		final StateChangeListener<StubEvent> listener = Mockito.mock(StateChangeListener.class);
+		final OutputState<StubEvent> newCurr = Mockito.mock(OutputState.class);
+		fsm.addStateChangeListener(listener);
+		fsm.setCurrentState(newCurr);
+		Mockito.verify(listener, Mockito.times(1)).onStateChanged(fsm.initState, newCurr);
+	}
+
+	@Test
+	void testStateChangeListenersInOrder() {
+		final StateChangeListener<StubEvent> listener1 = Mockito.mock(StateChangeListener.class);
+		final StateChangeListener<StubEvent> listener2 = Mockito.mock(StateChangeListener.class);
+		final OutputState<StubEvent> newCurr = Mockito.mock(OutputState.class);
+		fsm.addStateChangeListener(listener1);
+		fsm.addStateChangeListener(listener2);
+		fsm.setCurrentState(newCurr);
+		final var inOrder = Mockito.inOrder(listener1, listener2);
+		inOrder.verify(listener1).onStateChanged(fsm.initState, newCurr);
+		inOrder.verify(listener2).onStateChanged(fsm.initState, newCurr);
+	}
+
+	@Test
+	void testAddNullStateChangeListener() {
+		fsm.addStateChangeListener(null);
+		fsm.setCurrentState(Mockito.mock(OutputState.class));
+		assertNotNull(fsm.getCurrentState());
+	}
+
+	@Test
+	void testRemoveStateChangeListener() {
+		final StateChangeListener<StubEvent> listener1 = Mockito.mock(StateChangeListener.class);
+		final StateChangeListener<StubEvent> listener2 = Mockito.mock(StateChangeListener.class);
+		final StateChangeListener<StubEvent> listener3 = Mockito.mock(StateChangeListener.class);
+		fsm.addStateChangeListener(listener1);
+		fsm.addStateChangeListener(listener2);
+		fsm.addStateChangeListener(listener3);
+		fsm.removeStateChangeListener(listener2);
+		fsm.removeStateChangeListener(Mockito.mock(StateChangeListener.class));
+		fsm.setCurrentState(Mockito.mock(OutputState.class));
+		Mockito.verify(listener1, Mockito.times(1)).onStateChanged(Mockito.any(), Mockito.any());
+		Mockito.verify(listener2, Mockito.never()).onStateChanged(Mockito.any(), Mockito.any());
+		Mockito.verify(listener3, Mockito.times(1)).onStateChanged(Mockito.any(), Mockito.any());
+	}
+
+	@Test
+	void testNoStateChangeAfterUninstall() {
+		final StateChangeListener<StubEvent> listener = Mockito.mock(StateChangeListener.class);
+		fsm.addStateChangeListener(listener);
+		fsm.uninstall();
+		Mockito.clearInvocations(listener);
+		fsm.setCurrentState(Mockito.mock(OutputState.class));
+		Mockito.verify(listener, Mockito.never()).onStateChanged(Mockito.any(), Mockito.any());
+	}
+
 	@Nested
 	class TestMultipleTransitionChoice {
 		StdState<StubEvent> std;
@@ -468,6 +649,19 @@ public class TestFSM {
 			Mockito.verify(handler, Mockito.times(1)).fsmUpdates();
 		}
 
+		@Test
+		void testTriggerGoodChoiceIndexedDispatch() throws CancelFSMException {
+			fsm.setIndexedDispatch(evt -> evt.getClass());
+			fsm.process(new StubEvent());
+			fsm.process(new StubSubEvent3());
+			fsm.process(new StubSubEvent1());
+			assertEquals(fsm.initState, fsm.getCurrentState());
+			Mockito.verify(handler, Mockito.times(1)).fsmStops();
+			Mockito.verify(handler, Mockito.never()).fsmCancels();
+			Mockito.verify(handler, Mockito.times(1)).fsmStarts();
+			Mockito.verify(handler, Mockito.times(2)).fsmUpdates();
+		}
+
 		@Test
 		void testHasStartedReinitOnCancel() {
 			fsm.process(new StubEvent());
@@ -563,6 +757,23 @@ public class TestFSM {
 			assertEquals(std2, fsm.getCurrentState());
 		}
 
+		@Test
+		void testTimeoutFoundWithoutBrowsingTransitions() {
+			final var spy = Mockito.spy(std);
+			fsm.currentState = spy;
+			fsm.checkTimeoutTransition();
+			assertSame(timeout, fsm.currentTimeout);
+			Mockito.verify(spy, Mockito.never()).getTransitions();
+			fsm.stopCurrentTimeout();
+		}
+
+		@Test
+		void testNoTimeoutStartedOnStateWithoutTimeout() {
+			fsm.currentState = std2;
+			fsm.checkTimeoutTransition();
+			assertNull(fsm.currentTimeout);
+		}
+
 		@Test
 		void testTimeoutStoppedOnOtherTransition() {
 			fsm.process(new StubEvent());
@@ -755,4 +966,49 @@ public class TestFSM {
 			Mockito.verify(handler, Mockito.times(1)).fsmStops();
 		}
 	}
+
+	@Nested
+	class FlightRecording {
+		FlightRecorder recorder;
+		FlightRecorder memento;
+		StdState<StubEvent> std;
+
+		@BeforeEach
+		void setUp() {
+			memento = FlightRecorder.getInstance();
+			recorder = new FlightRecorder(16);
+			recorder.setEnabled(true);
+			FlightRecorder.setInstance(recorder);
+			std = new StdState<>(fsm, "s1");
+			new StubTransitionOK<>(fsm.initState, std);
+			fsm.addState(std);
+		}
+
+		@AfterEach
+		void tearDown() {
+			FlightRecorder.setInstance(memento);
+		}
+
+		@Test
+		void testTransitionAndStateChangeRecorded() {
+			fsm.process(new StubEvent());
+			final List<FlightRecord> records = recorder.getRecords();
+			assertEquals(2, records.size());
+			assertEquals(FlightRecorder.Kind.TRANSITION, records.get(0).getKind());
+			assertEquals(FlightRecorder.Kind.STATE_CHANGE, records.get(1).getKind());
+			for(final FlightRecord rec : records) {
+				assertEquals(System.identityHashCode(fsm), rec.getFsmId());
+				assertEquals(System.identityHashCode(fsm.initState), rec.getFromId());
+				assertEquals(System.identityHashCode(std), rec.getToId());
+				assertEquals(0, rec.getBindingId());
+			}
+		}
+
+		@Test
+		void testNothingRecordedWhenDisabled() {
+			recorder.setEnabled(false);
+			fsm.process(new StubEvent());
+			assertTrue(recorder.getRecords().isEmpty());
+		}
+	}
 }
@@ -15,12 +15,18 @@
 package io.github.interacto.fsm;
 
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -71,4 +77,156 @@ public class TestOutputStateImpl {
 		Mockito.verify(t2, Mockito.times(1)).uninstall();
 		assertTrue(state.getTransitions().isEmpty());
 	}
+
+	@Test
+	void testCandidatesNoIndexedDispatch() {
+		final Transition<? extends String, String> t1 = Mockito.mock(Transition.class);
+		state.addTransition(t1);
+		assertEquals(List.of(t1), state.getCandidateTransitions("foo"));
+		Mockito.verify(t1, Mockito.never()).getAcceptedEvents();
+	}
+
+	@Test
+	void testCandidatesIndexedDispatch() {
+		Mockito.doReturn(Function.identity()).when(fsm).getIndexedDispatch();
+		final Transition<? extends String, String> t1 = Mockito.mock(Transition.class);
+		final Transition<? extends String, String> t2 = Mockito.mock(Transition.class);
+		final Transition<? extends String, String> t3 = Mockito.mock(Transition.class);
+		Mockito.when(t1.getAcceptedEvents()).thenReturn(Set.of("press"));
+		Mockito.when(t2.getAcceptedEvents()).thenReturn(Set.of());
+		Mockito.when(t3.getAcceptedEvents()).thenReturn(Set.of("release", "move"));
+		state.addTransition(t1);
+		state.addTransition(t2);
+		state.addTransition(t3);
+		assertEquals(List.of(t1, t2), state.getCandidateTransitions("press"));
+		assertEquals(List.of(t2, t3), state.getCandidateTransitions("move"));
+		assertEquals(List.of(t2), state.getCandidateTransitions("foo"));
+	}
+
+	@Test
+	void testCandidatesIndexedDispatchNullEvent() {
+		Mockito.doReturn(Function.identity()).when(fsm).getIndexedDispatch();
+		final Transition<? extends String, String> t1 = Mockito.mock(Transition.class);
+		Mockito.when(t1.getAcceptedEvents()).thenReturn(Set.of("press"));
+		state.addTransition(t1);
+		assertEquals(List.of(t1), state.getCandidateTransitions(null));
+	}
+
+	@Test
+	void testCandidatesIndexedDispatchNullKey() {
+		Mockito.doReturn((Function<String, Object>) evt -> null).when(fsm).getIndexedDispatch();
+		final Transition<? extends String, String> t1 = Mockito.mock(Transition.class);
+		Mockito.when(t1.getAcceptedEvents()).thenReturn(Set.of("press"));
+		state.addTransition(t1);
+		assertEquals(List.of(t1), state.getCandidateTransitions("foo"));
+	}
+
+	@Test
+	void testCandidatesIndexedDispatchCached() {
+		Mockito.doReturn(Function.identity()).when(fsm).getIndexedDispatch();
+		final Transition<? extends String, String> t1 = Mockito.mock(Transition.class);
+		Mockito.when(t1.getAcceptedEvents()).thenReturn(Set.of("press"));
+		state.addTransition(t1);
+		state.getCandidateTransitions("press");
+		state.getCandidateTransitions("press");
+		Mockito.verify(t1, Mockito.times(1)).getAcceptedEvents();
+	}
+
+	@Test
+	void testCandidatesIndexedDispatchRebuiltOnAdd() {
+		Mockito.doReturn(Function.identity()).when(fsm).getIndexedDispatch();
+		final Transition<? extends String, String> t1 = Mockito.mock(Transition.class);
+		final Transition<? extends String, String> t2 = Mockito.mock(Transition.class);
+		Mockito.when(t1.getAcceptedEvents()).thenReturn(Set.of("press"));
+		Mockito.when(t2.getAcceptedEvents()).thenReturn(Set.of("press"));
+		state.addTransition(t1);
+		state.getCandidateTransitions("press");
+		state.addTransition(t2);
+		assertEquals(List.of(t1, t2), state.getCandidateTransitions("press"));
+	}
+
+	@Test
+	void testCandidatesIndexedDispatchWithClasses() {
+		final FSM<StubEvent> fsm2 = Mockito.mock(FSM.class);
+		Mockito.doReturn((Function<StubEvent, Object>) evt -> evt.getClass()).when(fsm2).getIndexedDispatch();
+		final var state2 = new StdState<>(fsm2, "s");
+		final var tgt = new StdState<>(fsm2, "t");
+		final var t1 = new StubTransitionOK<>(state2, tgt);
+		final var t2 = new SubStubTransition1(state2, tgt, true);
+		final var t3 = new SubStubTransition2(state2, tgt, true);
+		assertEquals(List.of(t1, t2), state2.getCandidateTransitions(new StubSubEvent1()));
+		assertEquals(List.of(t1, t3), state2.getCandidateTransitions(new StubSubEvent2()));
+		assertEquals(List.of(t1), state2.getCandidateTransitions(new StubEvent()));
+	}
+
+	@Test
+	void testProcessIndexedDispatchSkipsNonCandidates() throws CancelFSMException {
+		Mockito.doReturn(Function.identity()).when(fsm).getIndexedDispatch();
+		final Transition<? extends String, String> t1 = Mockito.mock(Transition.class);
+		final Transition<? extends String, String> t2 = Mockito.mock(Transition.class);
+		Mockito.when(t1.getAcceptedEvents()).thenReturn(Set.of("release"));
+		Mockito.when(t2.getAcceptedEvents()).thenReturn(Set.of("press"));
+		Mockito.when(t2.execute("press")).thenReturn(Optional.of(Mockito.mock(InputState.class)));
+		state.addTransition(t1);
+		state.addTransition(t2);
+		assertTrue(state.process("press"));
+		Mockito.verify(t1, Mockito.never()).execute(Mockito.any());
+	}
+
+	@Test
+	void testProcessNoCandidate() {
+		Mockito.doReturn(Function.identity()).when(fsm).getIndexedDispatch();
+		final Transition<? extends String, String> t1 = Mockito.mock(Transition.class);
+		Mockito.when(t1.getAcceptedEvents()).thenReturn(Set.of("release"));
+		state.addTransition(t1);
+		assertFalse(state.process("press"));
+	}
+
+	@Test
+	void testProcessCancelled() throws CancelFSMException {
+		final Transition<? extends String, String> t1 = Mockito.mock(Transition.class);
+		Mockito.when(t1.execute("press")).thenThrow(CancelFSMException.class);
+		state.addTransition(t1);
+		assertFalse(state.process("press"));
+	}
+
+	@Test
+	void testNoTimeoutTransition() {
+		state.addTransition(Mockito.mock(Transition.class));
+		assertNull(state.getTimeoutTransition());
+	}
+
+	@Test
+	void testTimeoutTransitionCached() {
+		final TimeoutTransition<String> t1 = Mockito.mock(TimeoutTransition.class);
+		final TimeoutTransition<String> t2 = Mockito.mock(TimeoutTransition.class);
+		state.addTransition(Mockito.mock(Transition.class));
+		state.addTransition(t1);
+		state.addTransition(t2);
+		assertSame(t1, state.getTimeoutTransition());
+	}
+
+	@Test
+	void testTimeoutTransitionUninstalled() {
+		state.addTransition(Mockito.mock(TimeoutTransition.class));
+		state.uninstall();
+		assertNull(state.getTimeoutTransition());
+	}
+
+	@Test
+	void testDefaultGetTimeoutTransition() {
+		final TimeoutTransition<String> t1 = Mockito.mock(TimeoutTransition.class);
+		final OutputState<String> os = Mockito.mock(OutputState.class);
+		Mockito.when(os.getTransitions()).thenReturn(List.of(Mockito.mock(Transition.class), t1));
+		Mockito.when(os.getTimeoutTransition()).thenCallRealMethod();
+		assertSame(t1, os.getTimeoutTransition());
+	}
+
+	@Test
+	void testDefaultGetTimeoutTransitionNone() {
+		final OutputState<String> os = Mockito.mock(OutputState.class);
+		Mockito.when(os.getTransitions()).thenReturn(List.of(Mockito.mock(Transition.class)));
+		Mockito.when(os.getTimeoutTransition()).thenCallRealMethod();
+		assertNull(os.getTimeoutTransition());
+	}
 }
@@ -0,0 +1,275 @@
+/*
+ * Interacto
+ * Copyright (C) 2020 Arnaud Blouin
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.interacto.fsm;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestRingBuffer {
+	RingBuffer<Integer> buffer;
+
+	@BeforeEach
+	void setUp() {
+		buffer = new RingBuffer<>();
+	}
+
+	List<Integer> content() {
+		return new ArrayList<>(buffer);
+	}
+
+	@Test
+	void testEmptyAtStart() {
+		assertTrue(buffer.isEmpty());
+		assertNull(buffer.poll());
+		assertNull(buffer.peek());
+	}
+
+	@Test
+	void testDefaultUnbounded() {
+		assertEquals(Integer.MAX_VALUE, buffer.getMaxCapacity());
+		assertEquals(RingBuffer.OverflowPolicy.DROP_OLDEST, buffer.getOverflowPolicy());
+	}
+
+	@Test
+	void testBadCapacity() {
+		assertThrows(IllegalArgumentException.class, () -> new RingBuffer<>(0, RingBuffer.OverflowPolicy.DROP_OLDEST));
+	}
+
+	@Test
+	void testBadPolicy() {
+		assertThrows(IllegalArgumentException.class, () -> new RingBuffer<>(10, null));
+	}
+
+	@Test
+	void testOfferNull() {
+		assertThrows(NullPointerException.class, () -> buffer.offer(null));
+	}
+
+	@Test
+	void testFifo() {
+		buffer.offer(1);
+		buffer.offer(2);
+		buffer.offer(3);
+		assertEquals(1, buffer.peek());
+		assertEquals(1, buffer.poll());
+		assertEquals(2, buffer.poll());
+		assertEquals(3, buffer.poll());
+		assertTrue(buffer.isEmpty());
+	}
+
+	@Test
+	void testGrowsKeepsOrder() {
+		final List<Integer> values = IntStream.range(0, 100).boxed().collect(Collectors.toList());
+		// Moving the head before growing
+		buffer.offer(-1);
+		buffer.poll();
+		values.forEach(buffer::offer);
+		assertEquals(values, content());
+	}
+
+	@Test
+	void testWrapAround() {
+		buffer.offer(0);
+		buffer.offer(1);
+		buffer.offer(2);
+		for(int i = 3; i < 50; i++) {
+			buffer.offer(i);
+			assertEquals(i - 3, buffer.poll());
+		}
+		assertEquals(List.of(47, 48, 49), content());
+	}
+
+	@Test
+	void testDropOldest() {
+		buffer = new RingBuffer<>(3, RingBuffer.OverflowPolicy.DROP_OLDEST);
+		for(int i = 0; i < 5; i++) {
+			assertTrue(buffer.offer(i));
+		}
+		assertEquals(List.of(2, 3, 4), content());
+	}
+
+	@Test
+	void testDropNewest() {
+		buffer = new RingBuffer<>(3, RingBuffer.OverflowPolicy.DROP_NEWEST);
+		buffer.offer(0);
+		buffer.offer(1);
+		buffer.offer(2);
+		assertFalse(buffer.offer(3));
+		assertEquals(List.of(0, 1, 2), content());
+	}
+
+	@Test
+	void testAddFullDropNewestThrows() {
+		buffer = new RingBuffer<>(1, RingBuffer.OverflowPolicy.DROP_NEWEST);
+		buffer.add(0);
+		assertThrows(IllegalStateException.class, () -> buffer.add(1));
+	}
+
+	@Test
+	void testClear() {
+		buffer.offer(1);
+		buffer.offer(2);
+		buffer.clear();
+		assertTrue(buffer.isEmpty());
+		buffer.offer(3);
+		assertEquals(List.of(3), content());
+	}
+
+	@Test
+	void testSetMaxCapacityDropOldest() {
+		IntStream.range(0, 10).forEach(buffer::offer);
+		buffer.setMaxCapacity(3);
+		assertEquals(3, buffer.getMaxCapacity());
+		assertEquals(List.of(7, 8, 9), content());
+		buffer.offer(10);
+		assertEquals(List.of(8, 9, 10), content());
+	}
+
+	@Test
+	void testSetMaxCapacityDropNewest() {
+		buffer.setOverflowPolicy(RingBuffer.OverflowPolicy.DROP_NEWEST);
+		IntStream.range(0, 10).forEach(buffer::offer);
+		buffer.setMaxCapacity(3);
+		assertEquals(List.of(0, 1, 2), content());
+		assertFalse(buffer.offer(10));
+	}
+
+	@Test
+	void testSetMaxCapacityKO() {
+		buffer.setMaxCapacity(0);
+		assertEquals(Integer.MAX_VALUE, buffer.getMaxCapacity());
+	}
+
+	@Test
+	void testSetMaxCapacityGrowsAgain() {
+		buffer.setMaxCapacity(2);
+		buffer.setMaxCapacity(20);
+		IntStream.range(0, 20).forEach(buffer::offer);
+		assertEquals(20, buffer.size());
+	}
+
+	@Test
+	void testSetPolicyNull() {
+		buffer.setOverflowPolicy(null);
+		assertEquals(RingBuffer.OverflowPolicy.DROP_OLDEST, buffer.getOverflowPolicy());
+	}
+
+	@Test
+	void testIteratorEnd() {
+		final var it = buffer.iterator();
+		assertFalse(it.hasNext());
+		assertThrows(NoSuchElementException.class, () -> it.next());
+	}
+
+	@Nested
+	class ListView {
+		List<Integer> list;
+
+		@BeforeEach
+		void setUp() {
+			list = buffer.asList();
+			// Makes the buffer wrap around its array
+			IntStream.range(0, 6).forEach(buffer::offer);
+			IntStream.range(0, 4).forEach(i -> buffer.poll());
+			IntStream.range(6, 10).forEach(buffer::offer);
+		}
+
+		@Test
+		void testGet() {
+			assertEquals(List.of(4, 5, 6, 7, 8, 9), list);
+			assertEquals(6, list.get(2));
+		}
+
+		@Test
+		void testGetOutOfBounds() {
+			assertThrows(IndexOutOfBoundsException.class, () -> list.get(6));
+			assertThrows(IndexOutOfBoundsException.class, () -> list.get(-1));
+		}
+
+		@Test
+		void testSet() {
+			assertEquals(6, list.set(2, 20));
+			assertEquals(List.of(4, 5, 20, 7, 8, 9), content());
+		}
+
+		@Test
+		void testSetNull() {
+			assertThrows(NullPointerException.class, () -> list.set(0, null));
+		}
+
+		@Test
+		void testAddAtIndex() {
+			list.add(1, 10);
+			list.add(0, 11);
+			list.add(8, 12);
+			assertEquals(List.of(11, 4, 10, 5, 6, 7, 8, 9, 12), content());
+		}
+
+		@Test
+		void testAddAtIndexNull() {
+			assertThrows(NullPointerException.class, () -> list.add(0, null));
+		}
+
+		@Test
+		void testAddAtIndexFullDropOldest() {
+			buffer.setMaxCapacity(6);
+			list.add(2, 10);
+			assertEquals(List.of(5, 10, 6, 7, 8, 9), content());
+		}
+
+		@Test
+		void testAddAtIndexFullDropNewest() {
+			buffer.setOverflowPolicy(RingBuffer.OverflowPolicy.DROP_NEWEST);
+			buffer.setMaxCapacity(6);
+			assertThrows(IllegalStateException.class, () -> list.add(2, 10));
+			assertEquals(List.of(4, 5, 6, 7, 8, 9), content());
+		}
+
+		@Test
+		void testRemoveAtIndex() {
+			assertEquals(6, list.remove(2));
+			assertEquals(4, list.remove(0));
+			assertEquals(9, list.remove(3));
+			assertEquals(List.of(5, 7, 8), content());
+			buffer.offer(10);
+			assertEquals(List.of(5, 7, 8, 10), content());
+		}
+
+		@Test
+		void testClear() {
+			list.clear();
+			assertTrue(buffer.isEmpty());
+		}
+
+		@Test
+		void testFollowsTheBuffer() {
+			buffer.poll();
+			buffer.offer(10);
+			assertEquals(List.of(5, 6, 7, 8, 9, 10), list);
+		}
+	}
+}
@@ -16,6 +16,7 @@ package io.github.interacto.fsm;
 
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.Function;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
@@ -25,6 +26,7 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -98,6 +100,12 @@ class TestSubFSMTransition {
 		assertEquals(subS, state.get());
 	}
 
+	@Test
+	void testExecuteReturnsResultOfSubFSMTransition() {
+		final Optional<InputState<StubEvent>> state = tr.execute(new StubSubEvent1());
+		assertSame(subT.executionResult, state);
+	}
+
 	@Test
 	void testExecuteNoTransition() {
 		final Optional<InputState<StubEvent>> state = tr.execute(new StubSubEvent2());
@@ -199,4 +207,83 @@ class TestSubFSMTransition {
 			Mockito.verify(handler, Mockito.times(1)).fsmCancels();
 		}
 	}
+
+	@Nested
+	class IndexedDispatch {
+		final Function<String, Object> key = evt -> evt;
+
+		Transition<String, String> newTransition(final OutputState<String> src, final InputState<String> tgt, final String evt) {
+			return new Transition<>(src, tgt) {
+				@Override
+				protected String accept(final String event) {
+					return event;
+				}
+				@Override
+				protected boolean isGuardOK(final String event) {
+					return evt.equals(event);
+				}
+				@Override
+				public Set<Object> getAcceptedEvents() {
+					return Set.of(evt);
+				}
+			};
+		}
+
+		@Test
+		void testPropagatedToSubFSMs() {
+			final var dbleFSM = new DoubleClickFSM();
+			dbleFSM.setIndexedDispatch(key);
+			assertSame(key, dbleFSM.firstClickFSM.getIndexedDispatch());
+			assertSame(key, dbleFSM.sndClick.getIndexedDispatch());
+		}
+
+		@Test
+		void testDeactivationPropagatedToSubFSMs() {
+			final var dbleFSM = new DoubleClickFSM();
+			dbleFSM.setIndexedDispatch(key);
+			dbleFSM.setIndexedDispatch(null);
+			assertNull(dbleFSM.firstClickFSM.getIndexedDispatch());
+			assertNull(dbleFSM.sndClick.getIndexedDispatch());
+		}
+
+		@Test
+		void testSubFSMAddedLaterInheritsDispatch() {
+			final FSM<String> main = new FSM<>();
+			final FSM<String> sub = new FSM<>();
+			main.setIndexedDispatch(key);
+			new SubFSMTransition<>(main.initState, new TerminalState<>(main, "t"), sub);
+			assertSame(key, sub.getIndexedDispatch());
+		}
+
+		@Test
+		void testDoubleClickIndexed() {
+			final var dbleFSM = new DoubleClickFSM();
+			dbleFSM.setIndexedDispatch(key);
+			dbleFSM.process("press");
+			dbleFSM.process("release");
+			dbleFSM.process("press");
+			assertEquals("pressed", dbleFSM.getCurrentState().getName());
+		}
+
+		@Test
+		void testTransitionAddedToSubFSMAfterIndexing() throws CancelFSMException {
+			final FSMHandler handler = Mockito.mock(FSMHandler.class);
+			final FSM<String> main = new FSM<>();
+			final FSM<String> sub = new FSM<>();
+			final TerminalState<String> end = new TerminalState<>(main, "end");
+			main.addState(end);
+			new SubFSMTransition<>(main.initState, end, sub);
+			main.addHandler(handler);
+			main.setIndexedDispatch(key);
+			// Builds the index of the init state for this key
+			main.process("b");
+
+			final TerminalState<String> subEnd = new TerminalState<>(sub, "subEnd");
+			sub.addState(subEnd);
+			newTransition(sub.initState, subEnd, "b");
+			main.process("b");
+
+			Mockito.verify(handler, Mockito.times(1)).fsmStops();
+		}
+	}
 }
@@ -14,11 +14,12 @@
  */
 package io.github.interacto.fsm;
 
+import io.github.interacto.HelperTest;
 import io.github.interacto.error.ErrorCatcher;
+import io.github.interacto.interaction.TimerService;
 import io.reactivex.disposables.Disposable;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -37,9 +38,14 @@ class TestTimeoutTransition {
 	OutputState<StubEvent> src;
 	InputState<StubEvent> tgt;
 	FSM<StubEvent> fsm;
+	TimerService timer;
+	TimerService mementoTimer;
 
 	@BeforeEach
 	void setUp() {
+		mementoTimer = TimerService.getInstance();
+		timer = new TimerService();
+		TimerService.setInstance(timer);
 		fsm = Mockito.mock(FSM.class);
 		src = Mockito.mock(OutputState.class);
 		tgt = Mockito.mock(InputState.class);
@@ -49,24 +55,17 @@ class TestTimeoutTransition {
 	}
 
 	@AfterEach
-	void tearDown() throws InterruptedException {
-		for(final Thread th : getTimeoutThreads()) {
-			th.interrupt();
-			th.join();
-		};
+	void tearDown() {
+		evt.stopTimeout();
+		TimerService.setInstance(mementoTimer);
 	}
 
-	List<Thread> getTimeoutThreads() {
-		return Thread.getAllStackTraces().keySet()
-			.stream()
-			.filter(thread -> thread.getName().startsWith(TimeoutTransition.TIMEOUT_THREAD_NAME_BASE))
-			.collect(Collectors.toList());
+	int getNbTimeouts() {
+		return timer.getNbPendingTimeouts();
 	}
 
-	void waitForTimeoutThreads() throws InterruptedException {
-		for(final var t : getTimeoutThreads()) {
-			t.join(1000L);
-		}
+	void waitForTimeoutThreads() {
+		HelperTest.waitForTimeouts(timer);
 	}
 
 	@Test
@@ -75,7 +74,7 @@ class TestTimeoutTransition {
 	}
 
 	@Test
-	void testIsGuardOKAfterTimeout() throws InterruptedException {
+	void testIsGuardOKAfterTimeout() {
 		evt.startTimeout();
 		waitForTimeoutThreads();
 		assertTrue(evt.isGuardOK(new StubSubEvent1()));
@@ -88,14 +87,14 @@ class TestTimeoutTransition {
 	}
 
 	@Test
-	void testacceptOKAfterTimeout() throws InterruptedException {
+	void testacceptOKAfterTimeout() {
 		evt.startTimeout();
 		waitForTimeoutThreads();
 		assertNotNull(evt.accept(new StubEvent()));
 	}
 
 	@Test
-	void testacceptOKAfterTimeoutWithAnotherType() throws InterruptedException {
+	void testacceptOKAfterTimeoutWithAnotherType() {
 		evt.startTimeout();
 		waitForTimeoutThreads();
 		assertNotNull(evt.accept(new StubSubEvent1()));
@@ -108,7 +107,7 @@ class TestTimeoutTransition {
 	}
 
 	@Test
-	void testStopTimeout() throws InterruptedException {
+	void testStopTimeout() {
 		evt.startTimeout();
 		evt.stopTimeout();
 		waitForTimeoutThreads();
@@ -119,7 +118,7 @@ class TestTimeoutTransition {
 	void testStopTimeout0() {
 		evt = new TimeoutTransition<>(src, tgt, () -> 0L);
 		evt.startTimeout();
-		assertEquals(0L, getTimeoutThreads().size());
+		assertEquals(0L, getNbTimeouts());
 		evt.stopTimeout();
 		assertFalse(evt.isGuardOK(new StubSubEvent1()));
 	}
@@ -129,15 +128,25 @@ class TestTimeoutTransition {
 		evt = new TimeoutTransition<>(src, tgt, () -> 300L);
 		evt.startTimeout();
 		evt.startTimeout();
-		assertEquals(1L, getTimeoutThreads().size());
+		assertEquals(1L, getNbTimeouts());
 		evt.stopTimeout();
 		assertFalse(evt.isGuardOK(new StubSubEvent1()));
 	}
 
+	@Test
+	void testTwoTimeoutsShareTimer() {
+		evt.startTimeout();
+		final var evt2 = new TimeoutTransition<>(src, tgt, () -> 300L);
+		evt2.startTimeout();
+		assertEquals(2, getNbTimeouts());
+		evt2.stopTimeout();
+		assertEquals(1, getNbTimeouts());
+	}
+
 	@Test
 	void testStopWhenNotStarted() {
 		evt.stopTimeout();
-		assertEquals(0L, getTimeoutThreads().size());
+		assertEquals(0L, getNbTimeouts());
 		assertFalse(evt.isGuardOK(new StubSubEvent1()));
 	}
 
@@ -152,14 +161,14 @@ class TestTimeoutTransition {
 	}
 
 	@Test
-	void testExecuteWithTimeout() throws CancelFSMException, InterruptedException {
+	void testExecuteWithTimeout() throws CancelFSMException {
 		evt.startTimeout();
 		waitForTimeoutThreads();
 		assertEquals(tgt, evt.execute(new StubSubEvent1()).orElseThrow());
 	}
 
 	@Test
-	void testExecuteAndGuardNotOK() throws CancelFSMException, InterruptedException {
+	void testExecuteAndGuardNotOK() throws CancelFSMException {
 		evt = new TimeoutTransition<>(src, tgt, () -> 50L) {
 			@Override
 			protected boolean isGuardOK(final StubEvent event) {
@@ -172,7 +181,7 @@ class TestTimeoutTransition {
 	}
 
 	@Test
-	void testExecuteCancels() throws CancelFSMException, InterruptedException {
+	void testExecuteCancels() throws CancelFSMException {
 		Mockito.doThrow(CancelFSMException.class).when(tgt).enter();
 		evt.startTimeout();
 		waitForTimeoutThreads();
@@ -180,7 +189,7 @@ class TestTimeoutTransition {
 	}
 
 	@Test
-	void testFSMThrowsExceptionInThread() throws InterruptedException {
+	void testFSMThrowsExceptionInThread() {
 		final var ex = new IllegalArgumentException("foo");
 		final List<Throwable> errors = new ArrayList<>();
 		final Disposable disposable = ErrorCatcher.getInstance().getErrors().subscribe(errors::add);
@@ -193,14 +202,14 @@ class TestTimeoutTransition {
 	}
 
 	@Test
-	void testExecuteCallFSMTimeout() throws InterruptedException {
+	void testExecuteCallFSMTimeout() {
 		evt.startTimeout();
 		waitForTimeoutThreads();
 		Mockito.verify(fsm, Mockito.times(1)).onTimeout();
 	}
 
 	@Test
-	void testExecuteCallsStatesMethods() throws InterruptedException, CancelFSMException {
+	void testExecuteCallsStatesMethods() throws CancelFSMException {
 		evt.startTimeout();
 		waitForTimeoutThreads();
 		evt.execute(new StubSubEvent1());
@@ -18,11 +18,13 @@ import io.github.interacto.error.ErrorCatcher;
 import io.reactivex.disposables.Disposable;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -68,6 +70,14 @@ public class TestTransition {
 			assertEquals(state2, tr.tgt);
 		}
 
+		@Test
+		void testExecuteReturnsSameResult() throws CancelFSMException {
+			final var res1 = tr.execute(new StubSubEvent1());
+			final var res2 = tr.execute(new StubSubEvent1());
+			assertEquals(Optional.of(state2), res1);
+			assertSame(res1, res2);
+		}
+
 		@Test
 		void testSrcStateTransitionAdded() {
 			assertEquals(1, state1.transitions.size());
@@ -14,15 +14,13 @@
  */
 package io.github.interacto.interaction;
 
+import io.github.interacto.HelperTest;
 import io.github.interacto.fsm.FSM;
 import io.github.interacto.fsm.InitState;
 import io.github.interacto.fsm.OutputState;
+import io.github.interacto.fsm.StateChangeListener;
 import io.github.interacto.fsm.StdState;
-import io.reactivex.subjects.PublishSubject;
-import java.util.Map;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.TimeUnit;
+import io.github.interacto.logging.InteractoLogger;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Logger;
 import org.junit.jupiter.api.AfterEach;
@@ -33,37 +31,39 @@ import org.mockito.Mockito;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class TestInteractionImpl {
 	InteractionStub interaction;
-	Logger log;
-	Logger formerLog;
+	InteractoLogger log;
+	InteractoLogger formerLog;
 	FSM<Object> fsm;
-	PublishSubject<Map.Entry<OutputState<Object>, OutputState<Object>>> currentStateObs;
+	StateChangeListener<Object> stateListener;
 	OutputState<Object> currentState;
 	ThreadService mementoThreadService;
 
 	@BeforeEach
 	void setUp() {
 		mementoThreadService = ThreadService.getInstance();
-		currentStateObs = PublishSubject.create();
 		fsm = Mockito.mock(FSM.class);
-		Mockito.when(fsm.currentState()).thenReturn(currentStateObs);
+		Mockito.doAnswer(invok -> {
+			stateListener = invok.getArgument(0);
+			return null;
+		}).when(fsm).addStateChangeListener(Mockito.any());
 		Mockito.when(fsm.getCurrentState()).thenAnswer(invok -> currentState);
 		interaction = new InteractionStub(fsm);
 		formerLog = InteractionImpl.defaultLogger;
-		log = Mockito.mock(Logger.class);
+		log = Mockito.mock(InteractoLogger.class);
 	}
 
 	@AfterEach
 	void tearDown() {
 		ThreadService.setInstance(mementoThreadService);
-		InteractionImpl.setLogger(formerLog);
-		if(interaction.currThrottleTimeoutFuture != null) {
-			interaction.currThrottleTimeoutFuture.cancel(true);
-		}
+		InteractionImpl.setInteractoLogger(formerLog);
 		interaction.uninstall();
 	}
 
@@ -71,31 +71,46 @@ public class TestInteractionImpl {
 	class LoggerTest {
 		@Test
 		void testSetLoggerNull() {
-			InteractionImpl.setLogger(null);
+			InteractionImpl.setInteractoLogger(null);
 			assertEquals(formerLog, InteractionImpl.defaultLogger);
 		}
 
 		@Test
 		void testSetLoggerOK() {
-			InteractionImpl.setLogger(log);
+			InteractionImpl.setInteractoLogger(log);
 			assertEquals(log, InteractionImpl.defaultLogger);
 		}
 
+		@SuppressWarnings("deprecation")
+		@Test
+		void testDeprecatedSetLogger() {
+			final Logger former = InteractionImpl.defaultJulLogger;
+			final Logger jul = Logger.getLogger(TestInteractionImpl.class.getName());
+			InteractionImpl.setLogger(jul);
+			assertSame(jul, InteractionImpl.defaultJulLogger);
+			assertNotSame(formerLog, InteractionImpl.defaultLogger);
+			interaction.log(true);
+			assertSame(jul, interaction.logger);
+			interaction.log(false);
+			assertNull(interaction.logger);
+			InteractionImpl.defaultJulLogger = former;
+		}
+
 		@Test
 		void testInteractionLogger() {
-			InteractionImpl.setLogger(log);
+			InteractionImpl.setInteractoLogger(log);
 			interaction.log(true);
 			interaction.setActivated(true);
-			Mockito.verify(log, Mockito.times(1)).log(Mockito.any(), Mockito.anyString());
+			Mockito.verify(log, Mockito.times(1)).info(Mockito.anyString(), Mockito.any(Object.class));
 		}
 
 		@Test
 		void testNoLog() {
-			InteractionImpl.setLogger(log);
+			InteractionImpl.setInteractoLogger(log);
 			interaction.log(true);
 			interaction.log(false);
 			interaction.setActivated(true);
-			Mockito.verify(log, Mockito.never()).log(Mockito.any(), Mockito.anyString());
+			Mockito.verify(log, Mockito.never()).info(Mockito.anyString(), Mockito.any(Object.class));
 		}
 
 		@Test
@@ -107,12 +122,12 @@ public class TestInteractionImpl {
 
 		@Test
 		void testCannotChangeLogger() {
-			InteractionImpl.setLogger(log);
+			InteractionImpl.setInteractoLogger(log);
 			interaction.log(true);
-			InteractionImpl.setLogger(formerLog);
+			InteractionImpl.setInteractoLogger(formerLog);
 			interaction.log(true);
 			interaction.setActivated(true);
-			Mockito.verify(log, Mockito.times(1)).log(Mockito.any(), Mockito.anyString());
+			Mockito.verify(log, Mockito.times(1)).info(Mockito.anyString(), Mockito.any(Object.class));
 		}
 	}
 
@@ -205,14 +220,14 @@ public class TestInteractionImpl {
 	}
 
 	@Test
-	void testProcessWithThrottlingDifferentSuccessiveTypes() throws ExecutionException, InterruptedException {
+	void testProcessWithThrottlingDifferentSuccessiveTypes() {
 		final Object evt1 = new Object();
 		interaction.setConsumeEvents(true);
 		interaction.setActivated(true);
 		interaction.setThrottleTimeout(500);
 		interaction.processEvent(evt1);
 		interaction.processEvent("foo");
-		interaction.currThrottleTimeoutFuture.get();
+		HelperTest.waitForTimeoutTransitions();
 
 		Mockito.verify(fsm, Mockito.times(1)).process(evt1);
 		Mockito.verify(fsm, Mockito.times(1)).process("foo");
@@ -220,19 +235,19 @@ public class TestInteractionImpl {
 	}
 
 	@Test
-	void testThrottlingWithNullEvt() throws ExecutionException, InterruptedException {
+	void testThrottlingCancelled() {
 		final Object evt1 = new Object();
 		interaction.setConsumeEvents(true);
 		interaction.setActivated(true);
 		interaction.setThrottleTimeout(1000);
 		interaction.processEvent(evt1);
-		interaction.currentThrottledEvent = null;
-		interaction.currThrottleTimeoutFuture.get();
+		interaction.rateLimiter.cancel();
+		HelperTest.waitForTimeoutTransitions();
 		Mockito.verify(fsm, Mockito.never()).process(Mockito.any());
 	}
 
 	@Test
-	void testProcessWithThrottlingThreePlusOneOfDifferentTypes() throws ExecutionException, InterruptedException {
+	void testProcessWithThrottlingThreePlusOneOfDifferentTypes() {
 		interaction.setConsumeEvents(true);
 		interaction.setActivated(true);
 		interaction.setThrottleTimeout(100);
@@ -240,8 +255,7 @@ public class TestInteractionImpl {
 		interaction.processEvent("2");
 		interaction.processEvent("3");
 		interaction.processEvent(42);
-		interaction.currThrottleTimeoutFuture.get();
-		interaction.executor.awaitTermination(200, TimeUnit.MILLISECONDS);
+		HelperTest.waitForTimeoutTransitions();
 
 		Mockito.verify(fsm, Mockito.times(1)).process("3");
 		Mockito.verify(fsm, Mockito.times(1)).process(42);
@@ -249,7 +263,7 @@ public class TestInteractionImpl {
 	}
 
 	@Test
-	void testProcessWithThrottlingDifferentTypesAfterTimeout() throws ExecutionException, InterruptedException {
+	void testProcessWithThrottlingDifferentTypesAfterTimeout() {
 		interaction.setConsumeEvents(true);
 		interaction.setActivated(true);
 		interaction.setThrottleTimeout(1000);
@@ -258,7 +272,7 @@ public class TestInteractionImpl {
 		interaction.processEvent("3");
 		interaction.processEvent(42);
 		interaction.processEvent("bar");
-		interaction.currThrottleTimeoutFuture.get();
+		HelperTest.waitForTimeoutTransitions();
 
 		Mockito.verify(fsm, Mockito.times(1)).process("3");
 		Mockito.verify(fsm, Mockito.times(1)).process(42);
@@ -268,25 +282,25 @@ public class TestInteractionImpl {
 
 
 	@Test
-	void testProcessWithThrottlingAfterTimeout() throws ExecutionException, InterruptedException {
+	void testProcessWithThrottlingAfterTimeout() {
 		interaction.setConsumeEvents(true);
 		interaction.setActivated(true);
 		interaction.setThrottleTimeout(200);
 		interaction.processEvent("1");
-		interaction.currThrottleTimeoutFuture.get();
+		HelperTest.waitForTimeoutTransitions();
 		Mockito.verify(fsm, Mockito.times(1)).process("1");
 		Mockito.verify(fsm, Mockito.times(1)).process(Mockito.any());
 	}
 
 	@Test
-	void testProcessWithThrottlingAfterTwoTimeouts() throws ExecutionException, InterruptedException {
+	void testProcessWithThrottlingAfterTwoTimeouts() {
 		interaction.setConsumeEvents(true);
 		interaction.setActivated(true);
 		interaction.setThrottleTimeout(200);
 		interaction.processEvent("1");
-		interaction.currThrottleTimeoutFuture.get();
+		HelperTest.waitForTimeoutTransitions();
 		interaction.processEvent("2");
-		interaction.currThrottleTimeoutFuture.get();
+		HelperTest.waitForTimeoutTransitions();
 		Mockito.verify(fsm, Mockito.times(1)).process("1");
 		Mockito.verify(fsm, Mockito.times(1)).process("2");
 		Mockito.verify(fsm, Mockito.times(2)).process(Mockito.any());
@@ -298,49 +312,94 @@ public class TestInteractionImpl {
 		interaction.setThrottleTimeout(10000);
 		interaction.processEvent(new Object());
 		interaction.uninstall();
-		assertTrue(interaction.executor.isShutdown());
-		assertTrue(interaction.currThrottleTimeoutFuture.isDone());
+		HelperTest.waitForTimeoutTransitions();
+		Mockito.verify(fsm, Mockito.never()).process(Mockito.any());
+		assertEquals(1L, interaction.rateLimiter.getNbDropped());
 	}
 
 	@Test
-	void testProcessWithThrottlingShutdownMock() throws InterruptedException, ExecutionException {
-		final ThreadService mock = Mockito.mock(ThreadService.class);
-		final Thread mockThread = Mockito.mock(Thread.class);
-		Mockito.when(mock.currentThread()).thenReturn(mockThread);
-		Mockito.doThrow(InterruptedException.class).when(mock).sleep(Mockito.anyLong());
-		ThreadService.setInstance(mock);
-		interaction.setActivated(true);
-		interaction.setThrottleTimeout(10000);
-		interaction.processEvent(new Object());
-		interaction.currThrottleTimeoutFuture.get();
-		Mockito.verify(mock, Mockito.times(1)).currentThread();
-		Mockito.verify(mockThread, Mockito.times(1)).interrupt();
+	void testSetThrottleTimeoutCreatesThrottleLimiter() {
+		interaction.setThrottleTimeout(100);
+		assertTrue(interaction.getRateLimiter().orElseThrow() instanceof ThrottleLimiter);
+		assertEquals(100L, interaction.getRateLimiter().orElseThrow().getDelay());
 	}
 
+	@SuppressWarnings("deprecation")
 	@Test
-	void testProcessWithThrottlingShutdownCrash() throws InterruptedException {
-		final ThreadService mock = Mockito.mock(ThreadService.class);
-		final Thread mockThread = Mockito.mock(Thread.class);
-		Mockito.when(mock.currentThread()).thenReturn(mockThread);
-		interaction.executor = Mockito.mock(ExecutorService.class);
-		Mockito.when(interaction.executor.awaitTermination(10, TimeUnit.MILLISECONDS)).thenThrow(InterruptedException.class);
+	void testDeprecatedThrottleAccessors() {
+		assertEquals(0L, interaction.getThrottleTimeout());
+		assertNull(interaction.getCurrentThrottledEvent());
 		interaction.setActivated(true);
 		interaction.setThrottleTimeout(10000);
-		interaction.processEvent(new Object());
-		ThreadService.setInstance(mock);
-		interaction.uninstall();
-		Mockito.verify(mock, Mockito.times(1)).currentThread();
-		Mockito.verify(mockThread, Mockito.times(1)).interrupt();
+		interaction.processEvent("1");
+		assertEquals(10000L, interaction.getThrottleTimeout());
+		assertEquals("1", interaction.getCurrentThrottledEvent());
+		interaction.setRateLimiter(new SampleLimiter<>(100));
+		assertEquals(0L, interaction.getThrottleTimeout());
+		assertNull(interaction.getCurrentThrottledEvent());
 	}
 
 	@Test
-	void testProcessWithThrottlingShutdownCrashRealCase() throws InterruptedException {
-		interaction.executor = Mockito.mock(ExecutorService.class);
-		Mockito.when(interaction.executor.awaitTermination(5, TimeUnit.SECONDS)).thenThrow(InterruptedException.class);
+	void testSetThrottleTimeoutZeroRemovesLimiter() {
+		interaction.setThrottleTimeout(100);
+		interaction.setThrottleTimeout(0);
+		assertTrue(interaction.getRateLimiter().isEmpty());
+	}
+
+	@Test
+	void testSetRateLimiterCancelsPrevious() {
 		interaction.setActivated(true);
 		interaction.setThrottleTimeout(10000);
-		interaction.processEvent(new Object());
-		interaction.uninstall();
+		interaction.processEvent("1");
+		final RateLimiter<Object> previous = interaction.rateLimiter;
+		interaction.setRateLimiter(new SampleLimiter<>(100));
+		assertEquals(1L, previous.getNbDropped());
+		assertTrue(interaction.getRateLimiter().orElseThrow() instanceof SampleLimiter);
+	}
+
+	@Test
+	void testSetRateLimiterSharedKO() {
+		final RateLimiter<Object> limiter = new DebounceLimiter<>(100);
+		interaction.setRateLimiter(limiter);
+		final InteractionStub other = new InteractionStub(fsm);
+		assertThrows(IllegalArgumentException.class, () -> other.setRateLimiter(limiter));
+	}
+
+	@Test
+	void testSetRateLimiterReleasesPrevious() {
+		final RateLimiter<Object> limiter = new DebounceLimiter<>(100);
+		interaction.setRateLimiter(limiter);
+		interaction.setRateLimiter(null);
+		final InteractionStub other = new InteractionStub(fsm);
+		other.setRateLimiter(limiter);
+		assertSame(limiter, other.getRateLimiter().orElseThrow());
+	}
+
+	@Test
+	void testNoEventKeyByDefault() {
+		assertNull(interaction.getEventKey("foo"));
+	}
+
+	@Test
+	void testNoRateLimiterByDefault() {
+		assertTrue(interaction.getRateLimiter().isEmpty());
+	}
+
+	@Test
+	void testThrottlingUsesSharedTimer() {
+		final TimerService memento = TimerService.getInstance();
+		final TimerService timer = new TimerService(5L, 8);
+		TimerService.setInstance(timer);
+		try {
+			interaction.setActivated(true);
+			interaction.setThrottleTimeout(20);
+			interaction.processEvent("1");
+			assertEquals(1, timer.getNbPendingTimeouts());
+			HelperTest.waitForTimeouts(timer);
+			Mockito.verify(fsm, Mockito.times(1)).process("1");
+		}finally {
+			TimerService.setInstance(memento);
+		}
 	}
 
 	@Test
@@ -366,10 +425,9 @@ public class TestInteractionImpl {
 			}
 		};
 		interaction.uninstall();
-		currentStateObs.onNext(Map.entry(Mockito.mock(OutputState.class), Mockito.mock(OutputState.class)));
 		assertFalse(interaction.isActivated());
 		assertTrue(ok.get());
-		assertTrue(interaction.disposable.isDisposed());
+		Mockito.verify(fsm, Mockito.times(1)).removeStateChangeListener(interaction.stateChangeListener);
 	}
 
 	@Test
@@ -386,7 +444,8 @@ public class TestInteractionImpl {
 				ok.set(true);
 			}
 		};
-		currentStateObs.onNext(Map.entry(oldState, newState));
+		assertSame(interaction.stateChangeListener, stateListener);
+		stateListener.onStateChanged(oldState, newState);
 		assertTrue(ok.get());
 	}
 }
@@ -0,0 +1,358 @@
+/*
+ * Interacto
+ * Copyright (C) 2020 Arnaud Blouin
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.interacto.interaction;
+
+import io.github.interacto.HelperTest;
+import io.github.interacto.fsm.FSM;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.mockito.Mockito;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestRateLimiter {
+	FSM<Object> fsm;
+	InteractionStub interaction;
+	TimerService timer;
+	TimerService memento;
+
+	@BeforeEach
+	void setUp() {
+		fsm = Mockito.mock(FSM.class);
+		interaction = new InteractionStub(fsm);
+		memento = TimerService.getInstance();
+		timer = new TimerService(5L, 8);
+		TimerService.setInstance(timer);
+	}
+
+	@AfterEach
+	void tearDown() {
+		interaction.uninstall();
+		TimerService.setInstance(memento);
+	}
+
+	@Test
+	void testBadDelay() {
+		assertThrows(IllegalArgumentException.class, () -> new ThrottleLimiter<>(0L));
+		assertThrows(IllegalArgumentException.class, () -> new DebounceLimiter<>(-1L));
+		assertThrows(IllegalArgumentException.class, () -> new SampleLimiter<>(0L));
+	}
+
+	@Test
+	void testResetCounters() {
+		final RateLimiter<Object> limiter = new SampleLimiter<>(1000L);
+		interaction.setRateLimiter(limiter);
+		interaction.processEvent("1");
+		interaction.processEvent("2");
+		limiter.resetCounters();
+		assertEquals(0L, limiter.getNbDelivered());
+		assertEquals(0L, limiter.getNbDropped());
+	}
+
+	@Nested
+	class Throttle {
+		ThrottleLimiter<Object> limiter;
+
+		@BeforeEach
+		void setUp() {
+			limiter = new ThrottleLimiter<>(30L);
+			interaction.setRateLimiter(limiter);
+		}
+
+		@Test
+		void testLatestOfBurstDelivered() {
+			interaction.processEvent("1");
+			interaction.processEvent("2");
+			interaction.processEvent("3");
+			Mockito.verify(fsm, Mockito.never()).process(Mockito.any());
+			HelperTest.waitForTimeouts(timer);
+			Mockito.verify(fsm, Mockito.times(1)).process("3");
+			Mockito.verify(fsm, Mockito.times(1)).process(Mockito.any());
+			assertEquals(1L, limiter.getNbDelivered());
+			assertEquals(2L, limiter.getNbDropped());
+		}
+
+		@Test
+		void testWindowNotRestartedBySameType() {
+			interaction.processEvent("1");
+			final TimerService.ScheduledTimeout timeout = limiter.timeout;
+			interaction.processEvent("2");
+			assertFalse(timeout.isCancelled());
+			assertEquals(timeout, limiter.timeout);
+		}
+
+		@Test
+		void testOtherTypeEndsBurst() {
+			interaction.processEvent("1");
+			interaction.processEvent("2");
+			interaction.processEvent(42);
+			Mockito.verify(fsm, Mockito.times(1)).process("2");
+			HelperTest.waitForTimeouts(timer);
+			final InOrder order = Mockito.inOrder(fsm);
+			order.verify(fsm).process("2");
+			order.verify(fsm).process(42);
+			assertEquals(2L, limiter.getNbDelivered());
+			assertEquals(1L, limiter.getNbDropped());
+		}
+
+		@Test
+		void testCancelDropsPending() {
+			interaction.processEvent("1");
+			limiter.cancel();
+			HelperTest.waitForTimeouts(timer);
+			Mockito.verify(fsm, Mockito.never()).process(Mockito.any());
+			assertEquals(1L, limiter.getNbDropped());
+		}
+	}
+
+	@Nested
+	class Debounce {
+		DebounceLimiter<Object> limiter;
+
+		@BeforeEach
+		void setUp() {
+			limiter = new DebounceLimiter<>(30L);
+			interaction.setRateLimiter(limiter);
+		}
+
+		@Test
+		void testQuietPeriodRestartedBySameType() {
+			interaction.processEvent("1");
+			final TimerService.ScheduledTimeout timeout = limiter.timeout;
+			interaction.processEvent("2");
+			assertTrue(timeout.isCancelled());
+			assertNotSame(timeout, limiter.timeout);
+			assertFalse(limiter.timeout.isCancelled());
+		}
+
+		@Test
+		void testLatestOfBurstDelivered() {
+			interaction.processEvent("1");
+			interaction.processEvent("2");
+			interaction.processEvent("3");
+			HelperTest.waitForTimeouts(timer);
+			Mockito.verify(fsm, Mockito.times(1)).process("3");
+			Mockito.verify(fsm, Mockito.times(1)).process(Mockito.any());
+			assertEquals(1L, limiter.getNbDelivered());
+			assertEquals(2L, limiter.getNbDropped());
+		}
+
+		@Test
+		void testOtherTypeEndsBurst() {
+			interaction.processEvent("1");
+			interaction.processEvent(42);
+			Mockito.verify(fsm, Mockito.times(1)).process("1");
+			HelperTest.waitForTimeouts(timer);
+			Mockito.verify(fsm, Mockito.times(1)).process(42);
+			assertEquals(0L, limiter.getNbDropped());
+		}
+	}
+
+	@Nested
+	class Sample {
+		SampleLimiter<Object> limiter;
+
+		@BeforeEach
+		void setUp() {
+			limiter = new SampleLimiter<>(30L);
+			interaction.setRateLimiter(limiter);
+		}
+
+		@Test
+		void testFirstOfBurstDeliveredImmediately() {
+			interaction.processEvent("1");
+			interaction.processEvent("2");
+			interaction.processEvent("3");
+			Mockito.verify(fsm, Mockito.times(1)).process("1");
+			Mockito.verify(fsm, Mockito.times(1)).process(Mockito.any());
+			assertEquals(1L, limiter.getNbDelivered());
+			assertEquals(2L, limiter.getNbDropped());
+		}
+
+		@Test
+		void testDeliveredAgainAfterWindow() {
+			interaction.processEvent("1");
+			HelperTest.waitForTimeouts(timer);
+			interaction.processEvent("2");
+			Mockito.verify(fsm, Mockito.times(1)).process("1");
+			Mockito.verify(fsm, Mockito.times(1)).process("2");
+		}
+
+		@Test
+		void testOtherTypeDeliveredImmediately() {
+			interaction.processEvent("1");
+			interaction.processEvent(42);
+			interaction.processEvent(43);
+			interaction.processEvent("2");
+			Mockito.verify(fsm, Mockito.times(1)).process("1");
+			Mockito.verify(fsm, Mockito.times(1)).process(42);
+			Mockito.verify(fsm, Mockito.times(1)).process("2");
+			assertEquals(3L, limiter.getNbDelivered());
+			assertEquals(1L, limiter.getNbDropped());
+		}
+
+		@Test
+		void testCancelClosesWindow() {
+			interaction.processEvent("1");
+			limiter.cancel();
+			interaction.processEvent("2");
+			Mockito.verify(fsm, Mockito.times(1)).process("2");
+		}
+	}
+
+	@Nested
+	class Coalescing {
+		CoalescingLimiter<Object> limiter;
+
+		@BeforeEach
+		void setUp() {
+			limiter = new CoalescingLimiter<>(30L, Object::getClass);
+			interaction.setRateLimiter(limiter);
+		}
+
+		@Test
+		void testNoKeyByDefault() {
+			limiter = new CoalescingLimiter<>(30L);
+			interaction.setRateLimiter(limiter);
+			interaction.processEvent("press");
+			interaction.processEvent("release");
+			final InOrder order = Mockito.inOrder(fsm);
+			order.verify(fsm).process("press");
+			order.verify(fsm).process("release");
+			assertEquals(0, limiter.getNbBuffered());
+		}
+
+		@Test
+		void testNullKeyDeliversPostedTickFirst() {
+			final List<Runnable> jobs = new ArrayList<>();
+			final InteractionStub deferred = new InteractionStub(fsm) {
+				@Override
+				protected void runInUIThread(final Runnable cmd) {
+					jobs.add(cmd);
+				}
+			};
+			limiter = new CoalescingLimiter<>(30L, evt -> "release".equals(evt) ? null : evt.getClass());
+			deferred.setRateLimiter(limiter);
+			deferred.processEvent("move1");
+			HelperTest.waitForTimeouts(timer);
+			assertEquals(1, jobs.size());
+			deferred.processEvent("release");
+			jobs.get(0).run();
+			final InOrder order = Mockito.inOrder(fsm);
+			order.verify(fsm).process("move1");
+			order.verify(fsm).process("release");
+			Mockito.verify(fsm, Mockito.times(1)).process("move1");
+			assertEquals(2L, limiter.getNbDelivered());
+			deferred.uninstall();
+		}
+
+		@Test
+		void testCancelDropsPostedTick() {
+			final List<Runnable> jobs = new ArrayList<>();
+			final InteractionStub deferred = new InteractionStub(fsm) {
+				@Override
+				protected void runInUIThread(final Runnable cmd) {
+					jobs.add(cmd);
+				}
+			};
+			limiter = new CoalescingLimiter<>(30L, Object::getClass);
+			deferred.setRateLimiter(limiter);
+			deferred.processEvent("move1");
+			HelperTest.waitForTimeouts(timer);
+			limiter.cancel();
+			jobs.forEach(Runnable::run);
+			Mockito.verify(fsm, Mockito.never()).process(Mockito.any());
+			assertEquals(1L, limiter.getNbDropped());
+			deferred.uninstall();
+		}
+
+		@Test
+		void testInterleavedStreamsCoalesced() {
+			interaction.processEvent("move1");
+			interaction.processEvent(1);
+			interaction.processEvent("move2");
+			interaction.processEvent(2);
+			interaction.processEvent("move3");
+			Mockito.verify(fsm, Mockito.never()).process(Mockito.any());
+			assertEquals(2, limiter.getNbBuffered());
+			HelperTest.waitForTimeouts(timer);
+			final InOrder order = Mockito.inOrder(fsm);
+			order.verify(fsm).process(2);
+			order.verify(fsm).process("move3");
+			Mockito.verify(fsm, Mockito.times(2)).process(Mockito.any());
+			assertEquals(2L, limiter.getNbDelivered());
+			assertEquals(3L, limiter.getNbDropped());
+			assertEquals(0, limiter.getNbBuffered());
+		}
+
+		@Test
+		void testNewTickAfterFlush() {
+			interaction.processEvent("move1");
+			HelperTest.waitForTimeouts(timer);
+			interaction.processEvent("move2");
+			HelperTest.waitForTimeouts(timer);
+			Mockito.verify(fsm, Mockito.times(1)).process("move1");
+			Mockito.verify(fsm, Mockito.times(1)).process("move2");
+		}
+
+		@Test
+		void testCustomKeyFunction() {
+			limiter = new CoalescingLimiter<>(30L, evt -> evt.toString().charAt(0));
+			interaction.setRateLimiter(limiter);
+			interaction.processEvent("a1");
+			interaction.processEvent("b1");
+			interaction.processEvent("a2");
+			HelperTest.waitForTimeouts(timer);
+			final InOrder order = Mockito.inOrder(fsm);
+			order.verify(fsm).process("b1");
+			order.verify(fsm).process("a2");
+			assertEquals(1L, limiter.getNbDropped());
+		}
+
+		@Test
+		void testNullKeyFlushesBufferFirst() {
+			limiter = new CoalescingLimiter<>(30L, evt -> "release".equals(evt) ? null : evt.getClass());
+			interaction.setRateLimiter(limiter);
+			interaction.processEvent("move1");
+			interaction.processEvent(1);
+			interaction.processEvent("release");
+			final InOrder order = Mockito.inOrder(fsm);
+			order.verify(fsm).process("move1");
+			order.verify(fsm).process(1);
+			order.verify(fsm).process("release");
+			assertEquals(0, limiter.getNbBuffered());
+			assertEquals(3L, limiter.getNbDelivered());
+		}
+
+		@Test
+		void testCancelDropsBuffer() {
+			interaction.processEvent("move1");
+			interaction.processEvent(1);
+			limiter.cancel();
+			HelperTest.waitForTimeouts(timer);
+			Mockito.verify(fsm, Mockito.never()).process(Mockito.any());
+			assertEquals(2L, limiter.getNbDropped());
+		}
+	}
+}
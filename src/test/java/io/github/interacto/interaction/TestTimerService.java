@@ -0,0 +1,197 @@
+/*
+ * Interacto
+ * Copyright (C) 2020 Arnaud Blouin
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.interacto.interaction;
+
+import io.github.interacto.HelperTest;
+import io.github.interacto.error.ErrorCatcher;
+import io.reactivex.disposables.Disposable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestTimerService {
+	TimerService timer;
+
+	@BeforeEach
+	void setUp() {
+		timer = new TimerService(5L, 4);
+	}
+
+	@Test
+	void testGetSet() {
+		final TimerService memento = TimerService.getInstance();
+		TimerService.setInstance(timer);
+		assertSame(timer, TimerService.getInstance());
+		TimerService.setInstance(memento);
+	}
+
+	@Test
+	void testSetNull() {
+		final TimerService memento = TimerService.getInstance();
+		TimerService.setInstance(null);
+		assertSame(memento, TimerService.getInstance());
+	}
+
+	@Test
+	void testBadTick() {
+		assertThrows(IllegalArgumentException.class, () -> new TimerService(0L, 4));
+	}
+
+	@Test
+	void testBadWheelSize() {
+		assertThrows(IllegalArgumentException.class, () -> new TimerService(10L, 0));
+	}
+
+	@Test
+	void testNullTask() {
+		assertThrows(IllegalArgumentException.class, () -> timer.schedule(null, 10L));
+	}
+
+	@Test
+	void testNoPendingTimeoutAtStart() {
+		assertEquals(0, timer.getNbPendingTimeouts());
+	}
+
+	@Test
+	void testScheduleExecutes() throws InterruptedException {
+		final CountDownLatch latch = new CountDownLatch(1);
+		final var timeout = timer.schedule(latch::countDown, 20L);
+		assertEquals(1, timer.getNbPendingTimeouts());
+		assertTrue(latch.await(2, TimeUnit.SECONDS));
+		HelperTest.waitForTimeouts(timer);
+		assertTrue(timeout.isExpired());
+		assertFalse(timeout.isCancelled());
+		assertEquals(0, timer.getNbPendingTimeouts());
+	}
+
+	@Test
+	void testScheduleNotBeforeDelay() throws InterruptedException {
+		final CountDownLatch latch = new CountDownLatch(1);
+		final long start = System.nanoTime();
+		timer.schedule(latch::countDown, 50L);
+		assertTrue(latch.await(2, TimeUnit.SECONDS));
+		assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50L));
+	}
+
+	@Test
+	void testScheduleNegativeDelay() throws InterruptedException {
+		final CountDownLatch latch = new CountDownLatch(1);
+		timer.schedule(latch::countDown, -10L);
+		assertTrue(latch.await(2, TimeUnit.SECONDS));
+	}
+
+	@Test
+	void testScheduleSeveralRounds() throws InterruptedException {
+		// 4 slots of 5 ms: 100 ms requires several rounds of the wheel
+		final List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+		final CountDownLatch latch = new CountDownLatch(3);
+		timer.schedule(() -> {
+			order.add(3);
+			latch.countDown();
+		}, 100L);
+		timer.schedule(() -> {
+			order.add(1);
+			latch.countDown();
+		}, 10L);
+		timer.schedule(() -> {
+			order.add(2);
+			latch.countDown();
+		}, 50L);
+		assertTrue(latch.await(2, TimeUnit.SECONDS));
+		assertEquals(List.of(1, 2, 3), order);
+	}
+
+	@Test
+	void testCancel() throws InterruptedException {
+		final Runnable task = Mockito.mock(Runnable.class);
+		final var timeout = timer.schedule(task, 20L);
+		assertTrue(timeout.cancel());
+		assertTrue(timeout.isCancelled());
+		assertFalse(timeout.isExpired());
+		assertEquals(0, timer.getNbPendingTimeouts());
+		Thread.sleep(60L);
+		Mockito.verify(task, Mockito.never()).run();
+	}
+
+	@Test
+	void testCancelTwice() {
+		final var timeout = timer.schedule(Mockito.mock(Runnable.class), 20L);
+		timeout.cancel();
+		assertFalse(timeout.cancel());
+		assertEquals(0, timer.getNbPendingTimeouts());
+	}
+
+	@Test
+	void testCancelAfterExecution() {
+		final var timeout = timer.schedule(Mockito.mock(Runnable.class), 5L);
+		HelperTest.waitForTimeouts(timer);
+		assertFalse(timeout.cancel());
+		assertTrue(timeout.isExpired());
+	}
+
+	@Test
+	void testScheduleAfterIdle() throws InterruptedException {
+		final CountDownLatch latch1 = new CountDownLatch(1);
+		final CountDownLatch latch2 = new CountDownLatch(1);
+		timer.schedule(latch1::countDown, 5L);
+		assertTrue(latch1.await(2, TimeUnit.SECONDS));
+		Thread.sleep(30L);
+		timer.schedule(latch2::countDown, 5L);
+		assertTrue(latch2.await(2, TimeUnit.SECONDS));
+	}
+
+	@Test
+	void testScheduleFromTask() throws InterruptedException {
+		final CountDownLatch latch = new CountDownLatch(1);
+		timer.schedule(() -> timer.schedule(latch::countDown, 5L), 5L);
+		assertTrue(latch.await(2, TimeUnit.SECONDS));
+	}
+
+	@Test
+	void testErrorReported() {
+		final var ex = new IllegalArgumentException("foo");
+		final List<Throwable> errors = new ArrayList<>();
+		final Disposable disposable = ErrorCatcher.getInstance().getErrors().subscribe(errors::add);
+		timer.schedule(() -> {
+			throw ex;
+		}, 5L);
+		HelperTest.waitForTimeouts(timer);
+		disposable.dispose();
+		assertEquals(List.of(ex), errors);
+	}
+
+	@Test
+	void testTimerStillWorksAfterError() throws InterruptedException {
+		final CountDownLatch latch = new CountDownLatch(1);
+		final Disposable disposable = ErrorCatcher.getInstance().getErrors().subscribe(err -> { });
+		timer.schedule(() -> {
+			throw new IllegalStateException();
+		}, 5L);
+		timer.schedule(latch::countDown, 20L);
+		assertTrue(latch.await(2, TimeUnit.SECONDS));
+		disposable.dispose();
+	}
+}
@@ -0,0 +1,146 @@
+/*
+ * Interacto
+ * Copyright (C) 2020 Arnaud Blouin
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.interacto.interaction;
+
+import io.github.interacto.HelperTest;
+import io.github.interacto.error.ErrorCatcher;
+import io.github.interacto.fsm.FSM;
+import io.reactivex.disposables.Disposable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestUIDispatchBatcher {
+	UIDispatchBatcher batcher;
+	List<Runnable> posted;
+	TimerService timer;
+	TimerService memento;
+
+	@BeforeEach
+	void setUp() {
+		memento = TimerService.getInstance();
+		timer = new TimerService(5L, 8);
+		TimerService.setInstance(timer);
+		posted = Collections.synchronizedList(new ArrayList<>());
+		batcher = new UIDispatchBatcher(posted::add, 20L);
+	}
+
+	@AfterEach
+	void tearDown() {
+		TimerService.setInstance(memento);
+		InteractionImpl.setUIDispatchBatcher(null);
+	}
+
+	@Test
+	void testBadParams() {
+		assertThrows(IllegalArgumentException.class, () -> new UIDispatchBatcher(null));
+		assertThrows(IllegalArgumentException.class, () -> new UIDispatchBatcher(posted::add, 0L));
+	}
+
+	@Test
+	void testDefaultFrameDuration() {
+		assertEquals(16L, new UIDispatchBatcher(posted::add).getFrameDuration());
+	}
+
+	@Test
+	void testSubmitNull() {
+		batcher.submit(null);
+		assertEquals(0, batcher.getNbPendingJobs());
+		assertEquals(0, timer.getNbPendingTimeouts());
+	}
+
+	@Test
+	void testJobsPostedAsOneBatch() {
+		final List<Integer> executed = new ArrayList<>();
+		batcher.submit(() -> executed.add(1));
+		batcher.submit(() -> executed.add(2));
+		batcher.submit(() -> executed.add(3));
+		assertEquals(3, batcher.getNbPendingJobs());
+		assertEquals(1, timer.getNbPendingTimeouts());
+		assertTrue(posted.isEmpty());
+		HelperTest.waitForTimeouts(timer);
+		assertEquals(1, posted.size());
+		posted.get(0).run();
+		assertEquals(List.of(1, 2, 3), executed);
+		assertEquals(1L, batcher.getNbBatches());
+		assertEquals(3L, batcher.getNbJobs());
+		assertEquals(0, batcher.getNbPendingJobs());
+	}
+
+	@Test
+	void testNextFrameAfterFlush() {
+		batcher.submit(Mockito.mock(Runnable.class));
+		HelperTest.waitForTimeouts(timer);
+		batcher.submit(Mockito.mock(Runnable.class));
+		HelperTest.waitForTimeouts(timer);
+		assertEquals(2, posted.size());
+		assertEquals(2L, batcher.getNbBatches());
+	}
+
+	@Test
+	void testEmptyFlushPostsNothing() {
+		batcher.flush();
+		assertTrue(posted.isEmpty());
+		assertEquals(0L, batcher.getNbBatches());
+	}
+
+	@Test
+	void testErrorReportedAndOtherJobsRun() {
+		final var ex = new IllegalStateException();
+		final Runnable job = Mockito.mock(Runnable.class);
+		final List<Throwable> errors = new ArrayList<>();
+		final Disposable disposable = ErrorCatcher.getInstance().getErrors().subscribe(errors::add);
+		batcher.submit(() -> {
+			throw ex;
+		});
+		batcher.submit(job);
+		batcher.flush();
+		posted.get(0).run();
+		disposable.dispose();
+		assertEquals(List.of(ex), errors);
+		Mockito.verify(job).run();
+	}
+
+	@Test
+	void testRateLimitersUseBatcher() {
+		final FSM<Object> fsm = Mockito.mock(FSM.class);
+		final InteractionStub interaction = new InteractionStub(fsm);
+		InteractionImpl.setUIDispatchBatcher(batcher);
+		assertEquals(batcher, InteractionImpl.getUIDispatchBatcher().orElseThrow());
+		interaction.setRateLimiter(new CoalescingLimiter<>(10L, Object::getClass));
+		interaction.processEvent("move");
+		interaction.processEvent(1);
+		HelperTest.waitForTimeouts(timer);
+		assertEquals(1, posted.size());
+		Mockito.verify(fsm, Mockito.never()).process(Mockito.any());
+		posted.get(0).run();
+		Mockito.verify(fsm).process("move");
+		Mockito.verify(fsm).process(1);
+		interaction.uninstall();
+	}
+
+	@Test
+	void testNoBatcherByDefault() {
+		assertTrue(InteractionImpl.getUIDispatchBatcher().isEmpty());
+	}
+}
@@ -0,0 +1,297 @@
+/*
+ * Interacto
+ * Copyright (C) 2020 Arnaud Blouin
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.interacto.logging;
+
+import io.github.interacto.command.Command;
+import io.github.interacto.error.ErrorCatcher;
+import io.reactivex.disposables.Disposable;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestFlightRecorder {
+	FlightRecorder recorder;
+	Object fsm;
+	Object from;
+	Object to;
+	Object binding;
+
+	@BeforeEach
+	void setUp() {
+		recorder = new FlightRecorder(4);
+		recorder.setEnabled(true);
+		fsm = new Object();
+		from = new Object();
+		to = new Object();
+		binding = new Object();
+	}
+
+	@Test
+	void testBadCapacity() {
+		assertThrows(IllegalArgumentException.class, () -> new FlightRecorder(0));
+	}
+
+	@Test
+	void testDefaultInstance() {
+		assertFalse(FlightRecorder.getInstance().isEnabled());
+		assertEquals(FlightRecorder.DEFAULT_CAPACITY, FlightRecorder.getInstance().getCapacity());
+	}
+
+	@Test
+	void testSetInstanceNull() {
+		final FlightRecorder instance = FlightRecorder.getInstance();
+		FlightRecorder.setInstance(null);
+		assertEquals(instance, FlightRecorder.getInstance());
+	}
+
+	@Test
+	void testEmpty() {
+		assertTrue(recorder.getRecords().isEmpty());
+	}
+
+	@Test
+	void testRecord() {
+		recorder.record(FlightRecorder.Kind.TRANSITION, fsm, from, to, binding, Command.CmdStatus.EXECUTED);
+		final List<FlightRecord> records = recorder.getRecords();
+		assertEquals(1, records.size());
+		final FlightRecord rec = records.get(0);
+		assertEquals(FlightRecorder.Kind.TRANSITION, rec.getKind());
+		assertEquals(System.identityHashCode(fsm), rec.getFsmId());
+		assertEquals(System.identityHashCode(from), rec.getFromId());
+		assertEquals(System.identityHashCode(to), rec.getToId());
+		assertEquals(System.identityHashCode(binding), rec.getBindingId());
+		assertEquals(Command.CmdStatus.EXECUTED, rec.getCmdStatus().orElseThrow());
+		assertEquals(Thread.currentThread().getId(), rec.getThreadId());
+		assertEquals(Thread.currentThread().getName(), rec.getThreadName());
+		assertTrue(rec.toString().contains("TRANSITION"));
+	}
+
+	@Test
+	void testRecordNulls() {
+		recorder.record(FlightRecorder.Kind.BINDING_STARTS, null, null, null, null, null);
+		final FlightRecord rec = recorder.getRecords().get(0);
+		assertEquals(0, rec.getFsmId());
+		assertEquals(0, rec.getFromId());
+		assertEquals(0, rec.getToId());
+		assertEquals(0, rec.getBindingId());
+		assertTrue(rec.getCmdStatus().isEmpty());
+	}
+
+	@Test
+	void testNullKindIgnored() {
+		recorder.record(null, fsm, from, to, binding, null);
+		assertTrue(recorder.getRecords().isEmpty());
+	}
+
+	@Test
+	void testDisabledByDefault() {
+		recorder = new FlightRecorder(4);
+		recorder.record(FlightRecorder.Kind.TRANSITION, fsm, from, to, binding, null);
+		assertFalse(recorder.isEnabled());
+		assertTrue(recorder.getRecords().isEmpty());
+	}
+
+	@Test
+	void testDisabled() {
+		recorder.setEnabled(false);
+		recorder.record(FlightRecorder.Kind.TRANSITION, fsm, from, to, binding, null);
+		assertFalse(recorder.isEnabled());
+		assertTrue(recorder.getRecords().isEmpty());
+	}
+
+	@Test
+	void testRingKeepsLastRecords() {
+		final Object[] bindings = new Object[10];
+		for(int i = 0; i < bindings.length; i++) {
+			bindings[i] = new Object();
+			recorder.record(FlightRecorder.Kind.BINDING_UPDATES, fsm, null, null, bindings[i], null);
+		}
+		final List<FlightRecord> records = recorder.getRecords();
+		assertEquals(4, records.size());
+		for(int i = 0; i < 4; i++) {
+			assertEquals(System.identityHashCode(bindings[6 + i]), records.get(i).getBindingId());
+		}
+	}
+
+	@Test
+	void testClear() {
+		recorder.record(FlightRecorder.Kind.TRANSITION, fsm, from, to, binding, null);
+		recorder.clear();
+		assertTrue(recorder.getRecords().isEmpty());
+	}
+
+	@Test
+	void testClearKeepsLaterRecords() {
+		recorder.record(FlightRecorder.Kind.TRANSITION, fsm, from, to, binding, null);
+		recorder.clear();
+		recorder.record(FlightRecorder.Kind.STATE_CHANGE, fsm, from, to, binding, null);
+		final List<FlightRecord> records = recorder.getRecords();
+		assertEquals(1, records.size());
+		assertEquals(FlightRecorder.Kind.STATE_CHANGE, records.get(0).getKind());
+	}
+
+	@Test
+	void testClearFromAnotherThread() throws InterruptedException {
+		final AtomicBoolean stop = new AtomicBoolean();
+		final Thread writer = new Thread(() -> {
+			while(!stop.get()) {
+				recorder.record(FlightRecorder.Kind.TRANSITION, fsm, from, to, binding, null);
+			}
+		});
+		writer.start();
+		for(int i = 0; i < 1000; i++) {
+			recorder.clear();
+			assertTrue(recorder.getRecords().size() <= 4);
+		}
+		stop.set(true);
+		writer.join();
+		recorder.clear();
+		assertTrue(recorder.getRecords().isEmpty());
+		recorder.record(FlightRecorder.Kind.STATE_CHANGE, fsm, from, to, binding, null);
+		assertEquals(1, recorder.getRecords().size());
+	}
+
+	@Test
+	void testBuffersOfTerminatedThreadsBounded() throws InterruptedException {
+		for(int i = 0; i < FlightRecorder.MAX_TERMINATED_BUFFERS + 10; i++) {
+			final Thread thread = new Thread(() -> recorder.record(FlightRecorder.Kind.CMD_EXECUTED, null, null, null, binding,
+				null), "recorder-test-" + i);
+			thread.start();
+			thread.join();
+		}
+		// Registering the buffer of this thread prunes the terminated ones
+		recorder.record(FlightRecorder.Kind.TRANSITION, fsm, from, to, null, null);
+		final List<FlightRecord> records = recorder.getRecords();
+		assertEquals(FlightRecorder.MAX_TERMINATED_BUFFERS + 1, records.size());
+		assertTrue(records.stream().anyMatch(rec -> ("recorder-test-" + (FlightRecorder.MAX_TERMINATED_BUFFERS + 9))
+			.equals(rec.getThreadName())));
+		assertTrue(records.stream().noneMatch(rec -> "recorder-test-0".equals(rec.getThreadName())));
+	}
+
+	@Test
+	void testRecordsOfSeveralThreads() throws InterruptedException {
+		recorder.record(FlightRecorder.Kind.TRANSITION, fsm, from, to, null, null);
+		final Thread thread = new Thread(() -> recorder.record(FlightRecorder.Kind.CMD_EXECUTED, null, null, null, binding,
+			Command.CmdStatus.DONE), "recorder-test");
+		thread.start();
+		thread.join();
+		final List<FlightRecord> records = recorder.getRecords();
+		assertEquals(2, records.size());
+		assertEquals("recorder-test", records.get(1).getThreadName());
+		assertEquals(FlightRecorder.Kind.CMD_EXECUTED, records.get(1).getKind());
+	}
+
+	@Nested
+	class Dump {
+		@TempDir
+		Path dir;
+
+		@Test
+		void testDumpNull() {
+			assertThrows(IllegalArgumentException.class, () -> recorder.dump((Path) null));
+		}
+
+		@Test
+		void testDecodeNull() {
+			assertThrows(IllegalArgumentException.class, () -> FlightRecorder.decode(null));
+		}
+
+		@Test
+		void testDecodeNotADump() {
+			assertThrows(IOException.class, () -> FlightRecorder.decode(new ByteArrayInputStream(new byte[] {1, 2, 3, 4, 5})));
+		}
+
+		@Test
+		void testRoundTrip() throws IOException {
+			recorder.record(FlightRecorder.Kind.TRANSITION, fsm, from, to, null, null);
+			recorder.record(FlightRecorder.Kind.CMD_EXECUTED, fsm, null, null, binding, Command.CmdStatus.CANCELLED);
+			final ByteArrayOutputStream output = new ByteArrayOutputStream();
+			recorder.dump(output);
+			final List<FlightRecord> records = FlightRecorder.decode(new ByteArrayInputStream(output.toByteArray()));
+			final List<FlightRecord> expected = recorder.getRecords();
+			assertEquals(2, records.size());
+			for(int i = 0; i < 2; i++) {
+				assertEquals(expected.get(i).toString(), records.get(i).toString());
+				assertEquals(expected.get(i).getCmdStatus(), records.get(i).getCmdStatus());
+			}
+		}
+
+		@Test
+		void testDumpFile() throws IOException {
+			final Path file = dir.resolve("flight.ifr");
+			recorder.record(FlightRecorder.Kind.STATE_CHANGE, fsm, from, to, null, null);
+			recorder.dump(file);
+			try(final InputStream input = Files.newInputStream(file)) {
+				assertEquals(1, FlightRecorder.decode(input).size());
+			}
+		}
+
+		@Test
+		void testDumpOnError() throws IOException {
+			final Path file = dir.resolve("error.ifr");
+			recorder.record(FlightRecorder.Kind.STATE_CHANGE, fsm, from, to, null, null);
+			final Disposable disposable = recorder.dumpOnError(file);
+			ErrorCatcher.getInstance().reportError(new IllegalStateException());
+			disposable.dispose();
+			try(final InputStream input = Files.newInputStream(file)) {
+				assertEquals(1, FlightRecorder.decode(input).size());
+			}
+		}
+
+		@Test
+		void testDumpOnErrorNull() {
+			assertThrows(IllegalArgumentException.class, () -> recorder.dumpOnError(null));
+		}
+	}
+
+	@Nested
+	class Concurrency {
+		@Test
+		void testDumpWhileRecording() throws InterruptedException {
+			final FlightRecorder big = new FlightRecorder(128);
+			big.setEnabled(true);
+			final Thread writer = new Thread(() -> {
+				for(int i = 0; i < 200_000; i++) {
+					big.record(FlightRecorder.Kind.BINDING_UPDATES, fsm, from, to, binding, Command.CmdStatus.CREATED);
+				}
+			});
+			writer.start();
+			while(writer.isAlive()) {
+				final List<FlightRecord> records = big.getRecords();
+				assertTrue(records.size() <= 128);
+				for(final FlightRecord rec : records) {
+					assertEquals(FlightRecorder.Kind.BINDING_UPDATES, rec.getKind());
+					assertEquals(System.identityHashCode(binding), rec.getBindingId());
+				}
+			}
+			writer.join();
+			assertEquals(128, big.getRecords().size());
+		}
+	}
+}
@@ -0,0 +1,190 @@
+/*
+ * Interacto
+ * Copyright (C) 2020 Arnaud Blouin
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.interacto.logging;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestInteractoLogger {
+	@Test
+	void testEnabledByDefault() {
+		assertTrue(InteractoLogger.ENABLED);
+	}
+
+	@Test
+	void testOfNull() {
+		assertThrows(IllegalArgumentException.class, () -> InteractoLogger.of(null));
+	}
+
+	@Nested
+	class Formatting {
+		@Test
+		void testNoPlaceholder() {
+			assertEquals("foo", MessageFormatter.format("foo", 1));
+		}
+
+		@Test
+		void testNullFormat() {
+			assertEquals("null", MessageFormatter.format(null, 1));
+		}
+
+		@Test
+		void testOneArg() {
+			assertEquals("a: true.", MessageFormatter.format("a: {}.", true));
+		}
+
+		@Test
+		void testOneArgNull() {
+			assertEquals("a: null", MessageFormatter.format("a: {}", null));
+		}
+
+		@Test
+		void testOneArgTwoPlaceholders() {
+			assertEquals("a 1 {}", MessageFormatter.format("a {} {}", 1));
+		}
+
+		@Test
+		void testTwoArgs() {
+			assertEquals("a 1 in b!", MessageFormatter.format("a {} in {}!", 1, "b"));
+		}
+
+		@Test
+		void testTwoArgsNullSecond() {
+			assertEquals("a 1 null", MessageFormatter.format("a {} {}", 1, null));
+		}
+
+		@Test
+		void testTwoArgsOnePlaceholder() {
+			assertEquals("a 1", MessageFormatter.format("a {}", 1, 2));
+		}
+	}
+
+	@Nested
+	class Lazy {
+		InteractoLogger logger;
+
+		@BeforeEach
+		void setUp() {
+			logger = Mockito.mock(InteractoLogger.class, Mockito.CALLS_REAL_METHODS);
+		}
+
+		@Test
+		void testDisabledNoMessageBuilt() {
+			Mockito.doReturn(false).when(logger).isInfoEnabled();
+			final Object arg = Mockito.mock(Object.class);
+			final Supplier<String> supplier = Mockito.mock(Supplier.class);
+			logger.info("foo");
+			logger.info("foo {}", arg);
+			logger.info("foo {} {}", arg, arg);
+			logger.info(supplier);
+			Mockito.verify(logger, Mockito.never()).logInfo(Mockito.any());
+			Mockito.verifyNoInteractions(supplier);
+		}
+
+		@Test
+		void testEnabled() {
+			Mockito.doReturn(true).when(logger).isInfoEnabled();
+			Mockito.doNothing().when(logger).logInfo(Mockito.any());
+			logger.info("foo");
+			logger.info("foo {}", 1);
+			logger.info("foo {} {}", 1, 2);
+			logger.info(() -> "bar");
+			Mockito.verify(logger).logInfo("foo");
+			Mockito.verify(logger).logInfo("foo 1");
+			Mockito.verify(logger).logInfo("foo 1 2");
+			Mockito.verify(logger).logInfo("bar");
+		}
+	}
+
+	@Nested
+	class Jul {
+		Logger jul;
+		List<LogRecord> records;
+		Handler handler;
+		InteractoLogger logger;
+
+		@BeforeEach
+		void setUp() {
+			records = new ArrayList<>();
+			jul = Logger.getLogger(TestInteractoLogger.class.getName());
+			jul.setUseParentHandlers(false);
+			handler = new Handler() {
+				@Override
+				public void publish(final LogRecord rec) {
+					records.add(rec);
+				}
+				@Override
+				public void flush() {
+				}
+				@Override
+				public void close() {
+				}
+			};
+			jul.addHandler(handler);
+			logger = InteractoLogger.of(jul);
+		}
+
+		@AfterEach
+		void tearDown() {
+			jul.removeHandler(handler);
+			jul.setLevel(null);
+		}
+
+		@Test
+		void testLogs() {
+			jul.setLevel(Level.INFO);
+			logger.info("foo {}", 1);
+			assertTrue(logger.isInfoEnabled());
+			assertEquals(1, records.size());
+			assertEquals("foo 1", records.get(0).getMessage());
+			assertEquals(Level.INFO, records.get(0).getLevel());
+		}
+
+		@Test
+		void testSourceIsCaller() {
+			jul.setLevel(Level.INFO);
+			logger.info("foo {} {}", 1, 2);
+			logger.info(() -> "bar");
+			assertEquals(2, records.size());
+			assertEquals(Jul.class.getName(), records.get(0).getSourceClassName());
+			assertEquals("testSourceIsCaller", records.get(0).getSourceMethodName());
+			assertEquals(Jul.class.getName(), records.get(1).getSourceClassName());
+			assertEquals("testSourceIsCaller", records.get(1).getSourceMethodName());
+		}
+
+		@Test
+		void testLevelFiltered() {
+			jul.setLevel(Level.WARNING);
+			logger.info("foo {}", 1);
+			assertFalse(logger.isInfoEnabled());
+			assertTrue(records.isEmpty());
+		}
+	}
+}
@@ -0,0 +1,76 @@
+/*
+ * Interacto
+ * Copyright (C) 2020 Arnaud Blouin
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.interacto.undo;
+
+import java.io.IOException;
+import java.util.ResourceBundle;
+
+public class StubSpillableUndoable implements SpillableUndoable {
+	byte[] memento;
+	boolean failSpill;
+	boolean failRehydrate;
+	int nbUndo;
+	int nbRedo;
+
+	StubSpillableUndoable(final int size) {
+		super();
+		memento = new byte[size];
+		memento[0] = (byte) size;
+	}
+
+	@Override
+	public byte[] spillMemento() throws IOException {
+		if(failSpill) {
+			throw new IOException("spill");
+		}
+		final byte[] data = memento;
+		memento = null;
+		return data;
+	}
+
+	@Override
+	public void rehydrateMemento(final byte[] data) throws IOException {
+		if(failRehydrate) {
+			throw new IOException("rehydrate");
+		}
+		memento = data;
+	}
+
+	@Override
+	public long getRetainedSize() {
+		return memento == null ? 0L : memento.length;
+	}
+
+	@Override
+	public void undo() {
+		if(memento == null) {
+			throw new IllegalStateException("spilled");
+		}
+		nbUndo++;
+	}
+
+	@Override
+	public void redo() {
+		if(memento == null) {
+			throw new IllegalStateException("spilled");
+		}
+		nbRedo++;
+	}
+
+	@Override
+	public String getUndoName(final ResourceBundle bundle) {
+		return "stub";
+	}
+}
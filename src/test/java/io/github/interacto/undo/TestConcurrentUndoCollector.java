@@ -0,0 +1,603 @@
+/*
+ * Interacto
+ * Copyright (C) 2020 Arnaud Blouin
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.interacto.undo;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.ResourceBundle;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestConcurrentUndoCollector {
+	ConcurrentUndoCollector collector;
+
+	@BeforeEach
+	void setUp() {
+		collector = new ConcurrentUndoCollector();
+	}
+
+	@Test
+	void testEmptyAtStart() {
+		assertTrue(collector.getUndo().isEmpty());
+		assertTrue(collector.getRedo().isEmpty());
+		assertEquals(Optional.empty(), collector.getLastUndo());
+		assertEquals(Optional.empty(), collector.getLastRedo());
+	}
+
+	@Test
+	void testAddNull() {
+		collector.add(null);
+		assertTrue(collector.getUndo().isEmpty());
+	}
+
+	@Test
+	void testAddUndoRedo() {
+		final Undoable undoable = Mockito.mock(Undoable.class);
+		collector.add(undoable);
+		collector.undo();
+		Mockito.verify(undoable, Mockito.times(1)).undo();
+		assertEquals(Optional.of(undoable), collector.getLastRedo());
+		assertTrue(collector.getUndo().isEmpty());
+		collector.redo();
+		Mockito.verify(undoable, Mockito.times(1)).redo();
+		assertEquals(Optional.of(undoable), collector.getLastUndo());
+		assertTrue(collector.getRedo().isEmpty());
+	}
+
+	@Test
+	void testAddClearsRedo() {
+		collector.add(Mockito.mock(Undoable.class));
+		collector.undo();
+		collector.add(Mockito.mock(Undoable.class));
+		assertTrue(collector.getRedo().isEmpty());
+	}
+
+	@Test
+	void testUndoRedoEmptyDoNothing() {
+		final List<Optional<Undoable>> undos = new ArrayList<>();
+		final var disposable = collector.undos().subscribe(undos::add);
+		collector.undo();
+		collector.redo();
+		disposable.dispose();
+		assertTrue(undos.isEmpty());
+	}
+
+	@Test
+	void testNotifications() {
+		final Undoable undoable = Mockito.mock(Undoable.class);
+		final List<Optional<Undoable>> undos = new ArrayList<>();
+		final List<Optional<Undoable>> redos = new ArrayList<>();
+		final var d1 = collector.undos().subscribe(undos::add);
+		final var d2 = collector.redos().subscribe(redos::add);
+		collector.add(undoable);
+		collector.undo();
+		collector.redo();
+		d1.dispose();
+		d2.dispose();
+		assertEquals(List.of(Optional.of(undoable), Optional.empty(), Optional.of(undoable)), undos);
+		assertEquals(List.of(Optional.of(undoable), Optional.empty()), redos);
+	}
+
+	@Test
+	void testSizeMax() {
+		final Undoable u1 = Mockito.mock(Undoable.class);
+		final Undoable u2 = Mockito.mock(Undoable.class);
+		final Undoable u3 = Mockito.mock(Undoable.class);
+		collector.setSizeMax(2);
+		collector.add(u1);
+		collector.add(u2);
+		collector.add(u3);
+		assertEquals(List.of(u3, u2), new ArrayList<>(collector.getUndo()));
+	}
+
+	@Test
+	void testSizeMaxReduced() {
+		final Undoable u1 = Mockito.mock(Undoable.class);
+		final Undoable u2 = Mockito.mock(Undoable.class);
+		collector.add(u1);
+		collector.add(u2);
+		collector.setSizeMax(1);
+		assertEquals(List.of(u2), new ArrayList<>(collector.getUndo()));
+	}
+
+	@Test
+	void testSizeMaxZeroNoAdd() {
+		collector.setSizeMax(0);
+		collector.add(Mockito.mock(Undoable.class));
+		assertTrue(collector.getUndo().isEmpty());
+	}
+
+	@Test
+	void testClear() {
+		collector.add(Mockito.mock(Undoable.class));
+		collector.add(Mockito.mock(Undoable.class));
+		collector.undo();
+		collector.clear();
+		assertTrue(collector.getUndo().isEmpty());
+		assertTrue(collector.getRedo().isEmpty());
+	}
+
+	@Test
+	void testGetUndoIsASnapshot() {
+		collector.add(Mockito.mock(Undoable.class));
+		collector.getUndo().clear();
+		assertEquals(1, collector.getUndo().size());
+	}
+
+	@Test
+	void testRetainedSize() {
+		final Undoable u1 = Mockito.mock(Undoable.class);
+		final Undoable u2 = Mockito.mock(Undoable.class);
+		Mockito.when(u1.getRetainedSize()).thenReturn(10L);
+		Mockito.when(u2.getRetainedSize()).thenReturn(5L);
+		collector.add(u1);
+		collector.add(u2);
+		collector.undo();
+		assertEquals(15L, collector.getRetainedSize());
+	}
+
+	@Test
+	void testLastMessages() {
+		final Undoable undoable = Mockito.mock(Undoable.class);
+		Mockito.when(undoable.getUndoName(Mockito.any())).thenReturn("foo");
+		collector.add(undoable);
+		assertEquals(Optional.of("foo"), collector.getLastUndoMessage());
+		collector.undo();
+		assertEquals(Optional.of("foo"), collector.getLastRedoMessage());
+		assertEquals(Optional.empty(), collector.getLastUndoMessage());
+	}
+
+	@Test
+	void testBulkUndoRedo() {
+		final Undoable u1 = Mockito.mock(Undoable.class);
+		final Undoable u2 = Mockito.mock(Undoable.class);
+		final Undoable u3 = Mockito.mock(Undoable.class);
+		final List<Optional<Undoable>> undos = new ArrayList<>();
+		collector.add(u1);
+		collector.add(u2);
+		collector.add(u3);
+		final var disposable = collector.undos().subscribe(undos::add);
+		collector.undo(2);
+		collector.redo(5);
+		disposable.dispose();
+		Mockito.verify(u2, Mockito.times(1)).undo();
+		Mockito.verify(u3, Mockito.times(1)).redo();
+		Mockito.verify(u1, Mockito.never()).undo();
+		assertEquals(List.of(Optional.of(u1), Optional.of(u3)), undos);
+	}
+
+	@Test
+	void testUndoToRedoTo() {
+		final Undoable u1 = Mockito.mock(Undoable.class);
+		final Undoable u2 = Mockito.mock(Undoable.class);
+		final Undoable u3 = Mockito.mock(Undoable.class);
+		collector.add(u1);
+		collector.add(u2);
+		collector.add(u3);
+		assertTrue(collector.undoTo(u1));
+		assertEquals(List.of(u2, u3), new ArrayList<>(collector.getRedo()));
+		assertFalse(collector.undoTo(u3));
+		assertTrue(collector.redoTo(u2));
+		assertEquals(Optional.of(u2), collector.getLastUndo());
+		assertFalse(collector.redoTo(u1));
+	}
+
+	@Test
+	void testCheckpoint() {
+		final Undoable u1 = Mockito.mock(Undoable.class);
+		collector.add(u1);
+		collector.setCheckpoint("cp");
+		collector.add(Mockito.mock(Undoable.class));
+		collector.add(Mockito.mock(Undoable.class));
+		assertTrue(collector.restoreCheckpoint("cp"));
+		assertEquals(Optional.of(u1), collector.getLastUndo());
+		assertEquals(2, collector.getRedo().size());
+	}
+
+	@Test
+	void testUndoToNull() {
+		collector.add(Mockito.mock(Undoable.class));
+		assertFalse(collector.undoTo(null));
+		assertFalse(collector.redoTo(null));
+	}
+
+	@Test
+	void testSizeMaxKeepsTheMostRecentOnManyAdds() {
+		final List<Undoable> added = new ArrayList<>();
+		collector.setSizeMax(7);
+		for(int i = 0; i < 100; i++) {
+			final Undoable undoable = Mockito.mock(Undoable.class);
+			added.add(0, undoable);
+			collector.add(undoable);
+			if(i % 3 == 0) {
+				collector.undo();
+				collector.redo();
+			}
+		}
+		assertEquals(added.subList(0, 7), new ArrayList<>(collector.getUndo()));
+		collector.undo(3);
+		assertEquals(added.subList(3, 7), new ArrayList<>(collector.getUndo()));
+		assertEquals(List.of(added.get(2), added.get(1), added.get(0)), new ArrayList<>(collector.getRedo()));
+	}
+
+	@Test
+	void testNoMergeByDefault() {
+		assertEquals(0L, collector.getMergeWindow());
+	}
+
+	@Test
+	void testCheckpointRemovedWhenEvicted() {
+		collector.setSizeMax(2);
+		collector.add(Mockito.mock(Undoable.class));
+		collector.setCheckpoint("cp");
+		collector.add(Mockito.mock(Undoable.class));
+		collector.add(Mockito.mock(Undoable.class));
+		assertTrue(collector.getCheckpoints().isEmpty());
+	}
+
+	@Test
+	void testCheckpointRemovedOnClear() {
+		collector.add(Mockito.mock(Undoable.class));
+		collector.setCheckpoint("cp");
+		collector.clear();
+		assertTrue(collector.getCheckpoints().isEmpty());
+	}
+
+	@Test
+	void testCheckpointRemovedWithRedo() {
+		collector.add(Mockito.mock(Undoable.class));
+		collector.add(Mockito.mock(Undoable.class));
+		collector.setCheckpoint("cp");
+		collector.undo();
+		collector.add(Mockito.mock(Undoable.class));
+		assertTrue(collector.getCheckpoints().isEmpty());
+	}
+
+	@Test
+	void testCheckpointRemovedOnSizeMaxReduced() {
+		collector.add(Mockito.mock(Undoable.class));
+		collector.setCheckpoint("cp");
+		collector.add(Mockito.mock(Undoable.class));
+		collector.setSizeMax(1);
+		assertTrue(collector.getCheckpoints().isEmpty());
+	}
+
+	@Nested
+	class MemoryBudget {
+		Undoable u1;
+		Undoable u2;
+		Undoable u3;
+
+		@BeforeEach
+		void setUp() {
+			u1 = Mockito.mock(Undoable.class);
+			u2 = Mockito.mock(Undoable.class);
+			u3 = Mockito.mock(Undoable.class);
+			Mockito.when(u1.getRetainedSize()).thenReturn(10L);
+			Mockito.when(u2.getRetainedSize()).thenReturn(20L);
+			Mockito.when(u3.getRetainedSize()).thenReturn(30L);
+		}
+
+		@Test
+		void testAddEvictsTheOldest() {
+			collector.setMemoryBudget(50L);
+			collector.add(u1);
+			collector.add(u2);
+			collector.add(u3);
+			assertEquals(List.of(u3, u2), new ArrayList<>(collector.getUndo()));
+			assertEquals(50L, collector.getRetainedSize());
+		}
+
+		@Test
+		void testLastUndoableNeverEvicted() {
+			collector.setMemoryBudget(5L);
+			collector.add(u3);
+			assertEquals(List.of(u3), new ArrayList<>(collector.getUndo()));
+		}
+
+		@Test
+		void testSetBudgetEvictsUndoThenRedo() {
+			final List<Optional<Undoable>> redos = new ArrayList<>();
+			collector.add(u1);
+			collector.add(u2);
+			collector.add(u3);
+			collector.undo();
+			final var disposable = collector.redos().subscribe(redos::add);
+			collector.setMemoryBudget(15L);
+			disposable.dispose();
+			assertEquals(List.of(u2), new ArrayList<>(collector.getUndo()));
+			assertTrue(collector.getRedo().isEmpty());
+			assertEquals(List.of(Optional.empty()), redos);
+			assertEquals(15L, collector.getMemoryBudget());
+		}
+	}
+
+	@Nested
+	class Serialised {
+		@Test
+		void testMergeWindowMerges() {
+			final Undoable mergeable = Mockito.mock(Undoable.class);
+			final Undoable next = Mockito.mock(Undoable.class);
+			Mockito.when(mergeable.tryMerge(next)).thenReturn(true);
+			collector.setMergeWindow(10_000L);
+			collector.add(mergeable);
+			collector.add(next);
+			assertEquals(List.of(mergeable), new ArrayList<>(collector.getUndo()));
+			assertEquals(10_000L, collector.getMergeWindow());
+		}
+
+		@Test
+		void testSwitchingModesKeepsTheObjects() {
+			final Undoable u1 = Mockito.mock(Undoable.class);
+			final Undoable u2 = Mockito.mock(Undoable.class);
+			final Undoable u3 = Mockito.mock(Undoable.class);
+			collector.add(u1);
+			collector.add(u2);
+			collector.undo();
+			collector.setMergeWindow(10_000L);
+			assertEquals(List.of(u1), new ArrayList<>(collector.getUndo()));
+			assertEquals(List.of(u2), new ArrayList<>(collector.getRedo()));
+			collector.redo();
+			collector.add(u3);
+			collector.setMergeWindow(0L);
+			assertEquals(List.of(u3, u2, u1), new ArrayList<>(collector.getUndo()));
+			collector.undo(2);
+			Mockito.verify(u2, Mockito.times(2)).undo();
+			assertEquals(Optional.of(u1), collector.getLastUndo());
+			assertEquals(Optional.of(u2), collector.getLastRedo());
+		}
+
+		@Test
+		void testSpilling() throws IOException {
+			final StubSpillableUndoable u1 = new StubSpillableUndoable(10);
+			final StubSpillableUndoable u2 = new StubSpillableUndoable(20);
+			try(UndoSpillFile file = UndoSpillFile.createTempFile()) {
+				collector.setSpillFile(file, 1);
+				collector.add(u1);
+				collector.add(u2);
+				assertTrue(collector.isSpilled(u1));
+				assertEquals(20L, collector.getRetainedSize());
+				collector.undo();
+				assertFalse(collector.isSpilled(u1));
+				assertEquals(10, u1.memento.length);
+				collector.setSpillFile(null, 1);
+				assertFalse(collector.isSpilled(u1));
+				assertEquals(List.of(u1), new ArrayList<>(collector.getUndo()));
+				assertEquals(List.of(u2), new ArrayList<>(collector.getRedo()));
+				assertEquals(30L, collector.getRetainedSize());
+			}
+		}
+	}
+
+	@Nested
+	class Stress {
+		static final int NB_THREADS = 8;
+		static final int NB_OPS = 5000;
+		ExecutorService executor;
+		CountDownLatch start;
+
+		@BeforeEach
+		void setUp() {
+			executor = Executors.newFixedThreadPool(NB_THREADS);
+			start = new CountDownLatch(1);
+			collector.setSizeMax(Integer.MAX_VALUE);
+		}
+
+		@AfterEach
+		void tearDown() throws InterruptedException {
+			executor.shutdownNow();
+			assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+		}
+
+		void runConcurrently(final Runnable task) throws Exception {
+			final List<Future<?>> futures = new ArrayList<>();
+			for(int i = 0; i < NB_THREADS; i++) {
+				futures.add(executor.submit(() -> {
+					start.await();
+					task.run();
+					return null;
+				}));
+			}
+			start.countDown();
+			for(final Future<?> future : futures) {
+				future.get(60, TimeUnit.SECONDS);
+			}
+		}
+
+		@Test
+		void testConcurrentAddsAllKept() throws Exception {
+			runConcurrently(() -> {
+				for(int i = 0; i < NB_OPS; i++) {
+					collector.add(new CountingUndoable());
+				}
+			});
+			assertEquals(NB_THREADS * NB_OPS, new HashSet<>(collector.getUndo()).size());
+			assertEquals(NB_THREADS * NB_OPS, collector.getUndo().size());
+		}
+
+		@Test
+		void testConcurrentAddsBounded() throws Exception {
+			collector.setSizeMax(100);
+			runConcurrently(() -> {
+				for(int i = 0; i < NB_OPS; i++) {
+					collector.add(new CountingUndoable());
+				}
+			});
+			assertEquals(100, collector.getUndo().size());
+		}
+
+		@Test
+		void testConcurrentUndosEachUndoneOnce() throws Exception {
+			final List<CountingUndoable> undoables = new ArrayList<>();
+			for(int i = 0; i < NB_THREADS * NB_OPS; i++) {
+				final CountingUndoable undoable = new CountingUndoable();
+				undoables.add(undoable);
+				collector.add(undoable);
+			}
+			runConcurrently(() -> {
+				for(int i = 0; i < NB_OPS; i++) {
+					collector.undo();
+				}
+			});
+			assertTrue(collector.getUndo().isEmpty());
+			assertEquals(NB_THREADS * NB_OPS, collector.getRedo().size());
+			assertTrue(undoables.stream().allMatch(u -> u.nbUndo.get() == 1 && u.nbRedo.get() == 0));
+		}
+
+		@Test
+		void testConcurrentMixedOperationsConsistent() throws Exception {
+			final Set<CountingUndoable> added = Collections.synchronizedSet(new HashSet<>());
+			runConcurrently(() -> {
+				final ThreadLocalRandom random = ThreadLocalRandom.current();
+				for(int i = 0; i < NB_OPS; i++) {
+					switch(random.nextInt(3)) {
+						case 0:
+							final CountingUndoable undoable = new CountingUndoable();
+							added.add(undoable);
+							collector.add(undoable);
+							break;
+						case 1:
+							collector.undo();
+							break;
+						default:
+							collector.redo();
+							break;
+					}
+				}
+			});
+
+			final List<Undoable> undo = new ArrayList<>(collector.getUndo());
+			final List<Undoable> redo = new ArrayList<>(collector.getRedo());
+			final Set<Undoable> all = new HashSet<>(undo);
+			all.addAll(redo);
+			// No object in both stacks, no duplicate
+			assertEquals(undo.size() + redo.size(), all.size());
+			assertTrue(added.containsAll(all));
+			assertTrue(undo.stream().map(u -> (CountingUndoable) u).allMatch(u -> u.nbUndo.get() == u.nbRedo.get()));
+			assertTrue(redo.stream().map(u -> (CountingUndoable) u).allMatch(u -> u.nbUndo.get() == u.nbRedo.get() + 1));
+		}
+
+		@Test
+		void testConcurrentBulkUndosEachUndoneOnce() throws Exception {
+			final List<CountingUndoable> undoables = new ArrayList<>();
+			for(int i = 0; i < NB_THREADS * NB_OPS; i++) {
+				final CountingUndoable undoable = new CountingUndoable();
+				undoables.add(undoable);
+				collector.add(undoable);
+			}
+			runConcurrently(() -> {
+				for(int i = 0; i < NB_OPS / 10; i++) {
+					collector.undo(10);
+				}
+			});
+			assertTrue(collector.getUndo().isEmpty());
+			assertTrue(undoables.stream().allMatch(u -> u.nbUndo.get() == 1));
+		}
+
+		@Test
+		void testConcurrentUndoRedoEffectsSerialised() throws Exception {
+			final AtomicInteger running = new AtomicInteger();
+			final AtomicInteger overlaps = new AtomicInteger();
+			for(int i = 0; i < NB_THREADS; i++) {
+				collector.add(new CountingUndoable() {
+					@Override
+					public void undo() {
+						if(running.incrementAndGet() > 1) {
+							overlaps.incrementAndGet();
+						}
+						super.undo();
+						running.decrementAndGet();
+					}
+				});
+			}
+			runConcurrently(() -> {
+				for(int i = 0; i < NB_OPS; i++) {
+					collector.undo();
+					collector.redo();
+				}
+			});
+			assertEquals(0, overlaps.get());
+		}
+
+		@Test
+		void testConcurrentAddsWhileSwitchingModes() throws Exception {
+			collector.setSizeMax(Integer.MAX_VALUE);
+			runConcurrently(() -> {
+				for(int i = 0; i < NB_OPS; i++) {
+					if(i % 500 == 0) {
+						collector.setMergeWindow(i % 1000 == 0 ? 10_000L : 0L);
+					}
+					collector.add(new CountingUndoable());
+				}
+			});
+			collector.setMergeWindow(0L);
+			assertEquals(NB_THREADS * NB_OPS, collector.getUndo().size());
+		}
+
+		@Test
+		void testConcurrentUndoRedoPairsRestoreState() throws Exception {
+			for(int i = 0; i < NB_THREADS; i++) {
+				collector.add(new CountingUndoable());
+			}
+			runConcurrently(() -> {
+				for(int i = 0; i < NB_OPS; i++) {
+					collector.undo();
+					collector.redo();
+				}
+			});
+			assertEquals(NB_THREADS, collector.getUndo().size());
+			assertFalse(collector.getLastRedo().isPresent());
+		}
+	}
+
+	static class CountingUndoable implements Undoable {
+		final AtomicInteger nbUndo = new AtomicInteger();
+		final AtomicInteger nbRedo = new AtomicInteger();
+
+		@Override
+		public void undo() {
+			nbUndo.incrementAndGet();
+		}
+
+		@Override
+		public void redo() {
+			nbRedo.incrementAndGet();
+		}
+
+		@Override
+		public String getUndoName(final ResourceBundle bundle) {
+			return "counting";
+		}
+	}
+}
@@ -14,18 +14,24 @@
  */
 package io.github.interacto.undo;
 
+import io.github.interacto.error.ErrorCatcher;
 import io.reactivex.disposables.Disposable;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.ResourceBundle;
+import java.util.Set;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -311,4 +317,765 @@ public class TestUndoCollector {
 		instance.getLastRedoMessage();
 		Mockito.verify(undoable, Mockito.times(1)).getUndoName(bundle);
 	}
+
+	@Nested
+	class MemoryBudget {
+		Undoable small;
+		Undoable big;
+
+		@BeforeEach
+		void setUp() {
+			small = Mockito.mock(Undoable.class);
+			big = Mockito.mock(Undoable.class);
+			Mockito.when(undoable.getRetainedSize()).thenReturn(10L);
+			Mockito.when(small.getRetainedSize()).thenReturn(1L);
+			Mockito.when(big.getRetainedSize()).thenReturn(100L);
+		}
+
+		@Test
+		void testNoBudgetByDefault() {
+			assertEquals(0L, instance.getMemoryBudget());
+		}
+
+		@Test
+		void testRetainedSizeByDefault() {
+			assertEquals(0L, new Undoable() {
+				@Override
+				public void undo() {
+				}
+
+				@Override
+				public void redo() {
+				}
+
+				@Override
+				public String getUndoName(final ResourceBundle bundle) {
+					return "";
+				}
+			}.getRetainedSize());
+		}
+
+		@Test
+		void testRetainedSize() {
+			instance.add(undoable);
+			instance.add(small);
+			instance.undo();
+			assertEquals(11L, instance.getRetainedSize());
+		}
+
+		@Test
+		void testRetainedSizeAfterClear() {
+			instance.add(undoable);
+			instance.add(small);
+			instance.undo();
+			instance.clear();
+			assertEquals(0L, instance.getRetainedSize());
+		}
+
+		@Test
+		void testRetainedSizeAfterSizeMax() {
+			instance.setSizeMax(1);
+			instance.add(undoable);
+			instance.add(small);
+			assertEquals(1L, instance.getRetainedSize());
+		}
+
+		@Test
+		void testNoEvictionWithoutBudget() {
+			instance.add(big);
+			instance.add(big);
+			instance.add(undoable);
+			assertEquals(3, instance.getUndo().size());
+		}
+
+		@Test
+		void testAddEvictsOldest() {
+			instance.setMemoryBudget(105L);
+			instance.add(big);
+			instance.add(small);
+			instance.add(undoable);
+			assertEquals(List.of(undoable, small), new ArrayList<>(instance.getUndo()));
+			assertEquals(11L, instance.getRetainedSize());
+		}
+
+		@Test
+		void testLastUndoableNeverEvicted() {
+			instance.setMemoryBudget(50L);
+			instance.add(undoable);
+			instance.add(big);
+			assertEquals(List.of(big), new ArrayList<>(instance.getUndo()));
+			assertEquals(100L, instance.getRetainedSize());
+		}
+
+		@Test
+		void testSetBudgetEvictsUndoThenRedo() {
+			instance.add(big);
+			instance.add(undoable);
+			instance.add(small);
+			instance.undo();
+			instance.setMemoryBudget(10L);
+			assertEquals(List.of(undoable), new ArrayList<>(instance.getUndo()));
+			assertTrue(instance.getRedo().isEmpty());
+			assertEquals(10L, instance.getRetainedSize());
+		}
+
+		@Test
+		void testEvictionsPublished() {
+			final List<Optional<Undoable>> undos = new ArrayList<>();
+			final List<Optional<Undoable>> redos = new ArrayList<>();
+			instance.add(big);
+			instance.add(undoable);
+			instance.add(small);
+			instance.undo();
+			final Disposable d1 = instance.undos().subscribe(undos::add);
+			final Disposable d2 = instance.redos().subscribe(redos::add);
+			instance.setMemoryBudget(10L);
+			d1.dispose();
+			d2.dispose();
+			assertEquals(List.of(Optional.of(undoable)), undos);
+			assertEquals(List.of(Optional.empty()), redos);
+		}
+
+		@Test
+		void testNoPublicationWhenFits() {
+			final List<Optional<Undoable>> undos = new ArrayList<>();
+			instance.add(undoable);
+			final Disposable disposable = instance.undos().subscribe(undos::add);
+			instance.setMemoryBudget(1000L);
+			disposable.dispose();
+			assertTrue(undos.isEmpty());
+		}
+
+		@Test
+		void testBudgetDisabled() {
+			instance.setMemoryBudget(10L);
+			instance.setMemoryBudget(0L);
+			instance.add(big);
+			instance.add(big);
+			assertEquals(2, instance.getUndo().size());
+		}
+	}
+
+	@Nested
+	class Spilling {
+		UndoSpillFile file;
+		StubSpillableUndoable u1;
+		StubSpillableUndoable u2;
+		StubSpillableUndoable u3;
+		StubSpillableUndoable u4;
+		List<Throwable> errors;
+		Disposable errorsDisposable;
+
+		@BeforeEach
+		void setUp() throws IOException {
+			file = UndoSpillFile.createTempFile();
+			u1 = new StubSpillableUndoable(10);
+			u2 = new StubSpillableUndoable(20);
+			u3 = new StubSpillableUndoable(30);
+			u4 = new StubSpillableUndoable(40);
+			errors = new ArrayList<>();
+			errorsDisposable = ErrorCatcher.getInstance().getErrors().subscribe(errors::add);
+		}
+
+		@AfterEach
+		void tearDown() throws IOException {
+			errorsDisposable.dispose();
+			file.close();
+		}
+
+		@Test
+		void testNoSpillFileByDefault() {
+			assertNull(instance.getSpillFile());
+		}
+
+		@Test
+		void testSetSpillFileBadNbOnHeap() {
+			instance.setSpillFile(file, 0);
+			assertNull(instance.getSpillFile());
+		}
+
+		@Test
+		void testSetSpillFile() {
+			instance.setSpillFile(file, 2);
+			assertSame(file, instance.getSpillFile());
+			assertEquals(2, instance.getNbUndoableOnHeap());
+		}
+
+		@Test
+		void testAddSpillsOldest() {
+			instance.setSpillFile(file, 2);
+			instance.add(u1);
+			instance.add(u2);
+			instance.add(u3);
+			assertTrue(instance.isSpilled(u1));
+			assertFalse(instance.isSpilled(u2));
+			assertFalse(instance.isSpilled(u3));
+			assertNull(u1.memento);
+			assertEquals(1, file.getNbRecords());
+			assertEquals(50L, instance.getRetainedSize());
+			assertEquals(3, instance.getUndo().size());
+		}
+
+		@Test
+		void testNotSpillableNotSpilled() {
+			instance.setSpillFile(file, 1);
+			instance.add(undoable);
+			instance.add(u1);
+			assertFalse(instance.isSpilled(undoable));
+			assertEquals(0, file.getNbRecords());
+		}
+
+		@Test
+		void testSetSpillFileSpillsExisting() {
+			instance.add(u1);
+			instance.add(u2);
+			instance.add(u3);
+			instance.setSpillFile(file, 1);
+			assertTrue(instance.isSpilled(u1));
+			assertTrue(instance.isSpilled(u2));
+			assertFalse(instance.isSpilled(u3));
+			assertEquals(30L, instance.getRetainedSize());
+		}
+
+		@Test
+		void testUndoRehydrates() {
+			instance.setSpillFile(file, 1);
+			instance.add(u1);
+			instance.add(u2);
+			instance.add(u3);
+			instance.undo();
+			assertFalse(instance.isSpilled(u2));
+			assertEquals(20, u2.memento.length);
+			assertEquals(20, u2.memento[0]);
+			instance.undo();
+			instance.undo();
+			assertEquals(1, u1.nbUndo);
+			assertEquals(1, u2.nbUndo);
+			assertEquals(1, u3.nbUndo);
+			assertEquals(0, file.getNbRecords());
+			assertEquals(0L, file.getSize());
+			assertEquals(60L, instance.getRetainedSize());
+		}
+
+		@Test
+		void testRedoSpillsAgain() {
+			instance.setSpillFile(file, 1);
+			instance.add(u1);
+			instance.add(u2);
+			instance.undo();
+			instance.redo();
+			assertTrue(instance.isSpilled(u1));
+			assertFalse(instance.isSpilled(u2));
+			assertEquals(1, u2.nbRedo);
+		}
+
+		@Test
+		void testDisableSpillingRehydrates() {
+			instance.setSpillFile(file, 1);
+			instance.add(u1);
+			instance.add(u2);
+			instance.setSpillFile(null, 1);
+			assertNull(instance.getSpillFile());
+			assertFalse(instance.isSpilled(u1));
+			assertEquals(10, u1.memento.length);
+			assertEquals(30L, instance.getRetainedSize());
+		}
+
+		@Test
+		void testDisableSpillingWithoutNbOnHeapRehydrates() {
+			instance.setSpillFile(file, 1);
+			instance.add(u1);
+			instance.add(u2);
+			instance.setSpillFile(null, 0);
+			assertNull(instance.getSpillFile());
+			assertFalse(instance.isSpilled(u1));
+			assertEquals(10, u1.memento.length);
+			assertEquals(0, file.getNbRecords());
+		}
+
+		@Test
+		void testGetUndoRehydrates() {
+			instance.setSpillFile(file, 1);
+			instance.add(u1);
+			instance.add(u2);
+			instance.add(u3);
+			assertEquals(List.of(u3, u2, u1), new ArrayList<>(instance.getUndo()));
+			assertFalse(instance.isSpilled(u1));
+			assertFalse(instance.isSpilled(u2));
+			assertEquals(10, u1.memento.length);
+			assertEquals(20, u2.memento.length);
+			assertEquals(0, file.getNbRecords());
+			assertEquals(60L, instance.getRetainedSize());
+		}
+
+		@Test
+		void testAddAfterGetUndoSpillsAgain() {
+			instance.setSpillFile(file, 1);
+			instance.add(u1);
+			instance.add(u2);
+			instance.add(u3);
+			instance.getUndo();
+			instance.add(u4);
+			assertTrue(instance.isSpilled(u1));
+			assertTrue(instance.isSpilled(u2));
+			assertTrue(instance.isSpilled(u3));
+			assertFalse(instance.isSpilled(u4));
+			assertEquals(40L, instance.getRetainedSize());
+		}
+
+		@Test
+		void testGetUndoRehydrateFailureTruncatesHistory() {
+			instance.setSpillFile(file, 1);
+			instance.add(u1);
+			instance.add(u2);
+			instance.add(u3);
+			u2.failRehydrate = true;
+			assertEquals(List.of(u3), new ArrayList<>(instance.getUndo()));
+			assertEquals(1, errors.size());
+			assertEquals(0, file.getNbRecords());
+		}
+
+		@Test
+		void testLastUndoNeverSpilled() {
+			instance.setSpillFile(file, 1);
+			instance.add(u1);
+			instance.add(u2);
+			instance.add(u3);
+			instance.undo();
+			assertSame(u2, instance.getLastUndo().orElseThrow());
+			assertFalse(instance.isSpilled(u2));
+			assertEquals(20, u2.memento.length);
+		}
+
+		@Test
+		void testClearReleasesSpilled() {
+			instance.setSpillFile(file, 1);
+			instance.add(u1);
+			instance.add(u2);
+			instance.clear();
+			assertFalse(instance.isSpilled(u1));
+			assertEquals(0, file.getNbRecords());
+			assertEquals(0L, instance.getRetainedSize());
+		}
+
+		@Test
+		void testSizeMaxReleasesSpilled() {
+			instance.setSpillFile(file, 1);
+			instance.add(u1);
+			instance.add(u2);
+			instance.add(u3);
+			instance.setSizeMax(1);
+			assertEquals(0, file.getNbRecords());
+			assertEquals(30L, instance.getRetainedSize());
+		}
+
+		@Test
+		void testSpillFailureKeepsOnHeap() {
+			u1.failSpill = true;
+			instance.setSpillFile(file, 1);
+			instance.add(u1);
+			instance.add(u2);
+			assertFalse(instance.isSpilled(u1));
+			assertEquals(10, u1.memento.length);
+			assertEquals(1, errors.size());
+			assertEquals(30L, instance.getRetainedSize());
+		}
+
+		@Test
+		void testAppendFailureRestoresMemento() throws IOException {
+			file.close();
+			final UndoSpillFile badFile = Mockito.mock(UndoSpillFile.class);
+			Mockito.when(badFile.append(Mockito.any())).thenThrow(new IOException());
+			instance.setSpillFile(badFile, 1);
+			instance.add(u1);
+			instance.add(u2);
+			assertFalse(instance.isSpilled(u1));
+			assertEquals(10, u1.memento.length);
+			assertEquals(1, errors.size());
+			assertEquals(30L, instance.getRetainedSize());
+		}
+
+		@Test
+		void testRehydrateFailureRemovesCheckpoints() {
+			instance.setSpillFile(file, 1);
+			instance.add(u1);
+			instance.setCheckpoint("c1");
+			instance.add(u2);
+			instance.setCheckpoint("c2");
+			instance.add(u3);
+			u2.failRehydrate = true;
+			instance.undo();
+			assertTrue(instance.getCheckpoints().isEmpty());
+		}
+
+		@Test
+		void testDisableSpillingFailureRemovesCheckpoints() {
+			instance.setSpillFile(file, 1);
+			instance.add(u1);
+			instance.add(u2);
+			instance.setCheckpoint("c2");
+			instance.add(u3);
+			u2.failRehydrate = true;
+			instance.setSpillFile(null, 1);
+			assertEquals(List.of(u3), List.copyOf(instance.getUndo()));
+			assertTrue(instance.getCheckpoints().isEmpty());
+		}
+
+		@Test
+		void testRehydrateFailureTruncatesHistory() {
+			instance.setSpillFile(file, 1);
+			instance.add(u1);
+			instance.add(u2);
+			instance.add(u3);
+			u2.failRehydrate = true;
+			instance.undo();
+			assertTrue(instance.getUndo().isEmpty());
+			assertEquals(1, errors.size());
+			assertEquals(0, file.getNbRecords());
+			assertEquals(30L, instance.getRetainedSize());
+			instance.undo();
+			assertEquals(0, u1.nbUndo);
+		}
+
+		@Test
+		void testRehydrateFailureOnDisable() {
+			instance.setSpillFile(file, 1);
+			instance.add(u1);
+			instance.add(u2);
+			instance.add(u3);
+			u2.failRehydrate = true;
+			instance.setSpillFile(null, 1);
+			assertEquals(List.of(u3), new ArrayList<>(instance.getUndo()));
+			assertEquals(0, file.getNbRecords());
+			assertEquals(30L, instance.getRetainedSize());
+		}
+
+		@Test
+		void testMemoryBudgetEvictsSpilled() {
+			instance.setSpillFile(file, 2);
+			instance.add(u1);
+			instance.add(u2);
+			instance.add(u3);
+			instance.add(u4);
+			instance.setMemoryBudget(60L);
+			assertEquals(List.of(u4), new ArrayList<>(instance.getUndo()));
+			assertEquals(0, file.getNbRecords());
+		}
+	}
+
+	@Nested
+	class Merging {
+		Undoable mergeable;
+		Undoable next;
+
+		@BeforeEach
+		void setUp() {
+			mergeable = Mockito.mock(Undoable.class);
+			next = Mockito.mock(Undoable.class);
+			Mockito.when(mergeable.tryMerge(next)).thenReturn(true);
+			instance.setMergeWindow(500L);
+		}
+
+		@Test
+		void testDefaultMergeWindow() {
+			assertEquals(0L, new UndoCollector().getMergeWindow());
+		}
+
+		@Test
+		void testNoMergeWithDefaultWindow() {
+			final UndoCollector collector = new UndoCollector();
+			collector.add(mergeable);
+			collector.add(next);
+			assertEquals(2, collector.getUndo().size());
+			Mockito.verify(mergeable, Mockito.never()).tryMerge(Mockito.any());
+		}
+
+		@Test
+		void testNoMergeByDefault() {
+			assertFalse(new Undoable() {
+				@Override
+				public void undo() {
+				}
+
+				@Override
+				public void redo() {
+				}
+
+				@Override
+				public String getUndoName(final ResourceBundle bundle) {
+					return "";
+				}
+			}.tryMerge(undoable));
+		}
+
+		@Test
+		void testMerged() {
+			instance.add(mergeable);
+			instance.add(next);
+			assertEquals(List.of(mergeable), new ArrayList<>(instance.getUndo()));
+		}
+
+		@Test
+		void testMergedNotPublished() {
+			final List<Optional<Undoable>> undos = new ArrayList<>();
+			instance.add(mergeable);
+			final Disposable disposable = instance.undos().subscribe(undos::add);
+			instance.add(next);
+			disposable.dispose();
+			assertTrue(undos.isEmpty());
+		}
+
+		@Test
+		void testMergeRefused() {
+			instance.add(undoable);
+			instance.add(next);
+			assertEquals(List.of(next, undoable), new ArrayList<>(instance.getUndo()));
+		}
+
+		@Test
+		void testNoMergeWhenDisabled() {
+			instance.setMergeWindow(0L);
+			instance.add(mergeable);
+			instance.add(next);
+			assertEquals(2, instance.getUndo().size());
+			Mockito.verify(mergeable, Mockito.never()).tryMerge(Mockito.any());
+		}
+
+		@Test
+		void testNoMergeOutOfWindow() throws InterruptedException {
+			instance.setMergeWindow(10L);
+			instance.add(mergeable);
+			Thread.sleep(30L);
+			instance.add(next);
+			assertEquals(2, instance.getUndo().size());
+		}
+
+		@Test
+		void testNoMergeAfterUndo() {
+			instance.add(mergeable);
+			instance.add(undoable);
+			instance.undo();
+			instance.add(next);
+			Mockito.verify(mergeable, Mockito.never()).tryMerge(next);
+		}
+
+		@Test
+		void testNoMergeAfterRedo() {
+			instance.add(mergeable);
+			instance.undo();
+			instance.redo();
+			instance.add(next);
+			assertEquals(2, instance.getUndo().size());
+		}
+
+		@Test
+		void testNoMergeAfterClear() {
+			instance.add(mergeable);
+			instance.clear();
+			instance.add(next);
+			assertEquals(List.of(next), new ArrayList<>(instance.getUndo()));
+		}
+
+		@Test
+		void testMergeUpdatesRetainedSize() {
+			// The size of the object before and after the merge
+			Mockito.when(mergeable.getRetainedSize()).thenReturn(10L, 10L, 15L);
+			instance.add(mergeable);
+			instance.add(next);
+			assertEquals(15L, instance.getRetainedSize());
+		}
+
+		@Test
+		void testSeveralMerges() {
+			final Undoable next2 = Mockito.mock(Undoable.class);
+			Mockito.when(mergeable.tryMerge(next2)).thenReturn(true);
+			instance.add(mergeable);
+			instance.add(next);
+			instance.add(next2);
+			assertEquals(List.of(mergeable), new ArrayList<>(instance.getUndo()));
+		}
+	}
+
+	@Nested
+	class BulkOperations {
+		Undoable u1;
+		Undoable u2;
+		Undoable u3;
+		List<Optional<Undoable>> undos;
+		List<Optional<Undoable>> redos;
+		Disposable d1;
+		Disposable d2;
+
+		@BeforeEach
+		void setUp() {
+			u1 = Mockito.mock(Undoable.class);
+			u2 = Mockito.mock(Undoable.class);
+			u3 = Mockito.mock(Undoable.class);
+			instance.setMergeWindow(0L);
+			instance.add(u1);
+			instance.add(u2);
+			instance.add(u3);
+			undos = new ArrayList<>();
+			redos = new ArrayList<>();
+			d1 = instance.undos().subscribe(undos::add);
+			d2 = instance.redos().subscribe(redos::add);
+		}
+
+		@AfterEach
+		void tearDown() {
+			d1.dispose();
+			d2.dispose();
+		}
+
+		@Test
+		void testUndoSeveral() {
+			instance.undo(2);
+			Mockito.verify(u3, Mockito.times(1)).undo();
+			Mockito.verify(u2, Mockito.times(1)).undo();
+			Mockito.verify(u1, Mockito.never()).undo();
+			assertEquals(List.of(Optional.of(u1)), undos);
+			assertEquals(List.of(Optional.of(u2)), redos);
+			assertEquals(List.of(u2, u3), new ArrayList<>(instance.getRedo()));
+		}
+
+		@Test
+		void testUndoMoreThanAvailable() {
+			instance.undo(10);
+			assertTrue(instance.getUndo().isEmpty());
+			assertEquals(List.of(Optional.empty()), undos);
+			assertEquals(List.of(Optional.of(u1)), redos);
+		}
+
+		@Test
+		void testUndoZeroDoesNothing() {
+			instance.undo(0);
+			instance.undo(-1);
+			assertEquals(3, instance.getUndo().size());
+			assertTrue(undos.isEmpty());
+			assertTrue(redos.isEmpty());
+		}
+
+		@Test
+		void testRedoSeveral() {
+			instance.undo(3);
+			undos.clear();
+			redos.clear();
+			instance.redo(2);
+			Mockito.verify(u1, Mockito.times(1)).redo();
+			Mockito.verify(u2, Mockito.times(1)).redo();
+			Mockito.verify(u3, Mockito.never()).redo();
+			assertEquals(List.of(Optional.of(u2)), undos);
+			assertEquals(List.of(Optional.of(u3)), redos);
+		}
+
+		@Test
+		void testRedoEmptyDoesNothing() {
+			instance.redo(5);
+			assertTrue(undos.isEmpty());
+			assertTrue(redos.isEmpty());
+		}
+
+		@Test
+		void testUndoTo() {
+			assertTrue(instance.undoTo(u1));
+			assertEquals(Optional.of(u1), instance.getLastUndo());
+			Mockito.verify(u1, Mockito.never()).undo();
+			assertEquals(List.of(Optional.of(u1)), undos);
+			assertEquals(List.of(Optional.of(u2)), redos);
+		}
+
+		@Test
+		void testUndoToLastDoesNothing() {
+			assertTrue(instance.undoTo(u3));
+			assertTrue(undos.isEmpty());
+		}
+
+		@Test
+		void testUndoToUnknown() {
+			assertFalse(instance.undoTo(Mockito.mock(Undoable.class)));
+			assertFalse(instance.undoTo(null));
+			assertEquals(3, instance.getUndo().size());
+		}
+
+		@Test
+		void testRedoTo() {
+			instance.undo(3);
+			undos.clear();
+			redos.clear();
+			assertTrue(instance.redoTo(u2));
+			assertEquals(Optional.of(u2), instance.getLastUndo());
+			assertEquals(List.of(Optional.of(u2)), undos);
+			assertEquals(List.of(Optional.of(u3)), redos);
+		}
+
+		@Test
+		void testRedoToUnknown() {
+			assertFalse(instance.redoTo(u3));
+			assertFalse(instance.redoTo(null));
+		}
+
+		@Test
+		void testRestoreCheckpointBackward() {
+			instance.undo();
+			instance.setCheckpoint("cp");
+			instance.redo();
+			undos.clear();
+			redos.clear();
+			assertTrue(instance.restoreCheckpoint("cp"));
+			assertEquals(Optional.of(u2), instance.getLastUndo());
+			assertEquals(List.of(Optional.of(u2)), undos);
+		}
+
+		@Test
+		void testRestoreCheckpointForward() {
+			instance.setCheckpoint("cp");
+			instance.undo(3);
+			assertTrue(instance.restoreCheckpoint("cp"));
+			assertEquals(Optional.of(u3), instance.getLastUndo());
+			assertTrue(instance.getRedo().isEmpty());
+		}
+
+		@Test
+		void testRestoreUnknownCheckpoint() {
+			assertFalse(instance.restoreCheckpoint("foo"));
+			assertFalse(instance.restoreCheckpoint(null));
+		}
+
+		@Test
+		void testCheckpointNames() {
+			instance.setCheckpoint("a");
+			instance.setCheckpoint("b");
+			instance.setCheckpoint(null);
+			assertEquals(Set.of("a", "b"), instance.getCheckpoints());
+			instance.removeCheckpoint("a");
+			instance.removeCheckpoint(null);
+			assertEquals(Set.of("b"), instance.getCheckpoints());
+		}
+
+		@Test
+		void testNoCheckpointWhenEmpty() {
+			instance.clear();
+			instance.setCheckpoint("cp");
+			assertTrue(instance.getCheckpoints().isEmpty());
+		}
+
+		@Test
+		void testCheckpointRemovedWithItsUndoable() {
+			instance.undo();
+			instance.setCheckpoint("cp");
+			instance.add(Mockito.mock(Undoable.class));
+			assertEquals(Set.of("cp"), instance.getCheckpoints());
+			instance.undo(2);
+			instance.add(Mockito.mock(Undoable.class));
+			assertTrue(instance.getCheckpoints().isEmpty());
+			assertFalse(instance.restoreCheckpoint("cp"));
+		}
+
+		@Test
+		void testCheckpointRemovedOnClear() {
+			instance.setCheckpoint("cp");
+			instance.clear();
+			assertTrue(instance.getCheckpoints().isEmpty());
+		}
+	}
 }
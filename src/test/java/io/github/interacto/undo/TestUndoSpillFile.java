@@ -0,0 +1,146 @@
+/*
+ * Interacto
+ * Copyright (C) 2020 Arnaud Blouin
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.interacto.undo;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestUndoSpillFile {
+	UndoSpillFile file;
+
+	@BeforeEach
+	void setUp() throws IOException {
+		file = UndoSpillFile.createTempFile();
+	}
+
+	@AfterEach
+	void tearDown() throws IOException {
+		file.close();
+	}
+
+	@Test
+	void testEmpty() {
+		assertEquals(0, file.getNbRecords());
+		assertEquals(0L, file.getSize());
+	}
+
+	@Test
+	void testAppendRead() throws IOException {
+		final long off1 = file.append(new byte[] {1, 2, 3});
+		final long off2 = file.append(new byte[] {4});
+		assertArrayEquals(new byte[] {1, 2, 3}, file.read(off1));
+		assertArrayEquals(new byte[] {4}, file.read(off2));
+		assertEquals(2, file.getNbRecords());
+	}
+
+	@Test
+	void testAppendEmptyRecord() throws IOException {
+		final long off = file.append(new byte[0]);
+		assertArrayEquals(new byte[0], file.read(off));
+	}
+
+	@Test
+	void testAppendGrowsFile() throws IOException {
+		final byte[] data = new byte[3 << 20];
+		data[data.length - 1] = 42;
+		file.append(new byte[] {1});
+		final long off = file.append(data);
+		assertArrayEquals(data, file.read(off));
+	}
+
+	@Test
+	void testReadBadOffset() throws IOException {
+		file.append(new byte[] {1, 2, 3});
+		assertThrows(IOException.class, () -> file.read(-1L));
+		assertThrows(IOException.class, () -> file.read(100L));
+	}
+
+	@Test
+	void testReadReleased() throws IOException {
+		final long off = file.append(new byte[] {1, 2, 3});
+		file.release(off);
+		assertThrows(IOException.class, () -> file.read(off));
+	}
+
+	@Test
+	void testReleaseLastReclaimsSpace() throws IOException {
+		final long off1 = file.append(new byte[] {1, 2, 3});
+		final long size = file.getSize();
+		final long off2 = file.append(new byte[] {4});
+		file.release(off2);
+		assertEquals(1, file.getNbRecords());
+		assertEquals(size, file.getSize());
+		assertEquals(off2, file.append(new byte[] {5}));
+		file.release(off1);
+		assertEquals(1, file.getNbRecords());
+		assertEquals(size + 5L, file.getSize());
+	}
+
+	@Test
+	void testReleaseAllReclaimsSpace() throws IOException {
+		final long off1 = file.append(new byte[] {1, 2, 3});
+		final long off2 = file.append(new byte[] {4});
+		file.release(off1);
+		file.release(off2);
+		assertEquals(0, file.getNbRecords());
+		assertEquals(0L, file.getSize());
+	}
+
+	@Test
+	void testReleaseUnknown() throws IOException {
+		file.append(new byte[] {1, 2, 3});
+		file.release(1L);
+		assertEquals(1, file.getNbRecords());
+	}
+
+	@Test
+	void testHeadSpaceReusedInsteadOfGrowing() throws IOException {
+		final long off1 = file.append(new byte[1000]);
+		final long off2 = file.append(new byte[(1 << 20) - 1100]);
+		file.release(off1);
+		final long size = file.getSize();
+		final long off3 = file.append(new byte[500]);
+		assertEquals(0L, off3);
+		assertEquals(2, file.getNbRecords());
+		assertEquals(size, file.getSize());
+		assertEquals((1 << 20) - 1100, file.read(off2).length);
+		assertEquals(500, file.read(off3).length);
+	}
+
+	@Test
+	void testTempFileDeletedOnClose() throws IOException {
+		file.close();
+		assertFalse(Files.exists(file.getPath()));
+	}
+
+	@Test
+	void testFileNotDeletedOnClose(@TempDir final Path dir) throws IOException {
+		final Path path = dir.resolve("undo.spill");
+		final UndoSpillFile spill = new UndoSpillFile(path);
+		spill.close();
+		assertTrue(Files.exists(path));
+	}
+}